@@ -2,11 +2,22 @@
  * ASTNode.java
  * Author: Ethan Rama
  *
- * Version History: v1.0
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added ANALYZE statement
+ * - Added GROUP BY and aggregate functions to SELECT
+ * - Added JOIN to SELECT
+ * - Added LIMIT and OFFSET to SELECT
+ * - Added LOAD statement
+ * - Added parameter values for prepared statements
+ * - Added CREATE INDEX, UPDATE and DELETE statements and ORDER BY
+ * - Added WHERE expression nodes
+ * - Implemented INSERT, DROP and SELECT statement nodes
+ * - Added column size and default value
  * 6/18/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
@@ -94,13 +105,767 @@ class CreateTableStatement extends RQLStatement {
 
 /**
  * Represents a INSERT INTO statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class InsertIntoStatement extends RQLStatement {
+    /**
+     * Name of the table
+     */
+    private String tableName;
+
+    /**
+     * Attributes being inserted, empty when all attributes are given in order
+     */
+    private List<String> columnList;
+
+    /**
+     * Rows of values to insert
+     */
+    private List<Row> valueList;
+
+    /**
+     * Constructs an InsertIntoStatement object
+     * @param tableName name of table
+     * @param columnList attributes being inserted
+     * @param valueList rows of values
+     * @author Ethan Rama
+     */
+    public InsertIntoStatement(String tableName, List<String> columnList, List<Row> valueList) {
+        this.tableName = tableName;
+        this.columnList = columnList;
+        this.valueList = valueList;
+    }
+
+    /**
+     * Get the table name
+     * @return name of table
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the attributes being inserted
+     * @return list of attribute names, empty for all attributes
+     * @author Ethan Rama
+     */
+    public List<String> getColumnList() {
+        return columnList;
+    }
+
+    /**
+     * Get the rows of values to insert
+     * @return list of rows
+     * @author Ethan Rama
+     */
+    public List<Row> getValueList() {
+        return valueList;
+    }
+}
+
+/**
+ * Represents a LOAD statement, which reads the rows of a CSV or TSV file
+ * into a table
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class LoadStatement extends RQLStatement {
+    /**
+     * Path of the file
+     */
+    private final String path;
+
+    /**
+     * Name of the table
+     */
+    private final String tableName;
+
+    /**
+     * Attributes given by the fields of each line, empty when every
+     * attribute is given in order
+     */
+    private final List<String> columnList;
+
+    /**
+     * Whether the first line names the fields and is skipped
+     */
+    private final boolean header;
+
+    /**
+     * Constructs a LoadStatement object
+     * @param path path of the file
+     * @param tableName name of table
+     * @param columnList attributes given by the fields of each line
+     * @param header whether the first line is skipped
+     * @author Ethan Rama
+     */
+    public LoadStatement(String path, String tableName, List<String> columnList, boolean header) {
+        this.path = path;
+        this.tableName = tableName;
+        this.columnList = columnList;
+        this.header = header;
+    }
+
+    /**
+     * Get the path of the file
+     * @return file path
+     * @author Ethan Rama
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the table name
+     * @return name of table
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the attributes given by the fields of each line
+     * @return list of attribute names, empty for all attributes
+     * @author Ethan Rama
+     */
+    public List<String> getColumnList() {
+        return columnList;
+    }
+
+    /**
+     * Check if the first line is skipped
+     * @return true if the file has a header line
+     * @author Ethan Rama
+     */
+    public boolean hasHeader() {
+        return header;
+    }
+}
+
+/**
+ * Represents a DROP TABLE statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class DropTableStatement extends RQLStatement {
+    /**
+     * Name of the table
+     */
+    private final String tableName;
+
+    /**
+     * Constructs a DropTableStatement object
+     * @param tableName name of table
+     * @author Ethan Rama
+     */
+    public DropTableStatement(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Get the table name
+     * @return name of table
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+}
+
+/**
+ * Represents an ANALYZE statement
  * @version 1.0
  * @author Ethan Rama
  */
-class InsertIntoStatement extends RQLStatement {
-    private String tableName;
-    private List<String> columnList;
-    private List<Row> valueList;
+class AnalyzeStatement extends RQLStatement {
+    /**
+     * Name of the table, null for every table
+     */
+    private final String tableName;
+
+    /**
+     * Constructs an AnalyzeStatement object
+     * @param tableName name of table, null for every table
+     * @author Ethan Rama
+     */
+    public AnalyzeStatement(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Get the table name
+     * @return name of table, or null for every table
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+}
+
+/**
+ * Represents a SELECT statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class SelectStatement extends RQLStatement {
+    /**
+     * Name of the table
+     */
+    private final String tableName;
+
+    /**
+     * Table joined to the first, null for a single table
+     */
+    private final JoinClause join;
+
+    /**
+     * Attributes to return, empty for all attributes. An aggregate is
+     * named by its label, such as SUM(amount).
+     */
+    private final List<String> columns;
+
+    /**
+     * Aggregate functions returned or sorted by, empty for none
+     */
+    private final List<Aggregate> aggregates;
+
+    /**
+     * Condition rows must meet, null to return every row
+     */
+    private final Expression where;
+
+    /**
+     * Attributes rows are grouped by, empty for no GROUP BY clause
+     */
+    private final List<String> groupBy;
+
+    /**
+     * Attributes to sort by, empty to leave rows unsorted
+     */
+    private final List<SortKey> orderBy;
+
+    /**
+     * Largest number of rows to return, null for no limit
+     */
+    private final Value limit;
+
+    /**
+     * Number of rows to skip before the first returned, null for none
+     */
+    private final Value offset;
+
+    /**
+     * Constructs a SelectStatement object
+     * @param tableName name of table
+     * @param columns attributes to return, empty for all attributes
+     * @param where condition rows must meet, null for none
+     * @param orderBy attributes to sort by, empty for none
+     * @author Ethan Rama
+     */
+    public SelectStatement(String tableName, List<String> columns, Expression where, List<SortKey> orderBy) {
+        this(tableName, columns, where, orderBy, null, null);
+    }
+
+    /**
+     * Constructs a SelectStatement object with LIMIT and OFFSET
+     * @param tableName name of table
+     * @param columns attributes to return, empty for all attributes
+     * @param where condition rows must meet, null for none
+     * @param orderBy attributes to sort by, empty for none
+     * @param limit largest number of rows to return, null for no limit
+     * @param offset number of rows to skip, null for none
+     * @author Ethan Rama
+     */
+    public SelectStatement(String tableName, List<String> columns, Expression where, List<SortKey> orderBy,
+                           Value limit, Value offset) {
+        this(tableName, null, columns, where, orderBy, limit, offset);
+    }
+
+    /**
+     * Constructs a SelectStatement object reading a join of two tables
+     * @param tableName name of the first table
+     * @param join table joined to the first and the attributes they are
+     * joined on, null to read only the first table
+     * @param columns attributes to return, empty for all attributes
+     * @param where condition rows must meet, null for none
+     * @param orderBy attributes to sort by, empty for none
+     * @param limit largest number of rows to return, null for no limit
+     * @param offset number of rows to skip, null for none
+     * @author Ethan Rama
+     */
+    public SelectStatement(String tableName, JoinClause join, List<String> columns, Expression where,
+                           List<SortKey> orderBy, Value limit, Value offset) {
+        this(tableName, join, columns, List.of(), where, List.of(), orderBy, limit, offset);
+    }
+
+    /**
+     * Constructs a SelectStatement object with aggregates and GROUP BY
+     * @param tableName name of the first table
+     * @param join table joined to the first and the attributes they are
+     * joined on, null to read only the first table
+     * @param columns attributes and aggregate labels to return, empty for
+     * all attributes
+     * @param aggregates aggregate functions returned or sorted by, empty
+     * for none
+     * @param where condition rows must meet, null for none
+     * @param groupBy attributes to group rows by, empty for none
+     * @param orderBy attributes to sort by, empty for none
+     * @param limit largest number of rows to return, null for no limit
+     * @param offset number of rows to skip, null for none
+     * @author Ethan Rama
+     */
+    public SelectStatement(String tableName, JoinClause join, List<String> columns, List<Aggregate> aggregates,
+                           Expression where, List<String> groupBy, List<SortKey> orderBy, Value limit, Value offset) {
+        this.tableName = tableName;
+        this.join = join;
+        this.columns = columns;
+        this.aggregates = aggregates;
+        this.where = where;
+        this.groupBy = groupBy;
+        this.orderBy = orderBy;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Get the table name
+     * @return name of table
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the JOIN clause
+     * @return table joined to the first, null for a single table
+     * @author Ethan Rama
+     */
+    public JoinClause getJoin() {
+        return join;
+    }
+
+    /**
+     * Get the attributes to return
+     * @return list of attribute names, empty for all attributes
+     * @author Ethan Rama
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the aggregate functions
+     * @return aggregates returned or sorted by, empty for none
+     * @author Ethan Rama
+     */
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Get the WHERE condition
+     * @return condition rows must meet, null for none
+     * @author Ethan Rama
+     */
+    public Expression getWhere() {
+        return where;
+    }
+
+    /**
+     * Get the GROUP BY attributes
+     * @return attributes to group rows by, empty for none
+     * @author Ethan Rama
+     */
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Get the ORDER BY attributes
+     * @return attributes to sort by, empty for none
+     * @author Ethan Rama
+     */
+    public List<SortKey> getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * Get the LIMIT value
+     * @return largest number of rows to return, null for no limit
+     * @author Ethan Rama
+     */
+    public Value getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the OFFSET value
+     * @return number of rows to skip, null for none
+     * @author Ethan Rama
+     */
+    public Value getOffset() {
+        return offset;
+    }
+}
+
+/**
+ * Represents JOIN table ON left = right, an equality between an attribute
+ * of each table
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class JoinClause extends ASTNode {
+    /**
+     * Name of the table joined
+     */
+    private final String tableName;
+
+    /**
+     * Attribute on the left of the ON equality
+     */
+    private final String leftColumn;
+
+    /**
+     * Attribute on the right of the ON equality
+     */
+    private final String rightColumn;
+
+    /**
+     * Constructs a JOIN clause
+     * @param tableName name of the table joined
+     * @param leftColumn attribute on the left of the ON equality
+     * @param rightColumn attribute on the right of the ON equality
+     * @author Ethan Rama
+     */
+    public JoinClause(String tableName, String leftColumn, String rightColumn) {
+        this.tableName = tableName;
+        this.leftColumn = leftColumn;
+        this.rightColumn = rightColumn;
+    }
+
+    /**
+     * Get the name of the table joined
+     * @return table name
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the attribute on the left of the ON equality
+     * @return attribute name, which may be qualified by its table
+     * @author Ethan Rama
+     */
+    public String getLeftColumn() {
+        return leftColumn;
+    }
+
+    /**
+     * Get the attribute on the right of the ON equality
+     * @return attribute name, which may be qualified by its table
+     * @author Ethan Rama
+     */
+    public String getRightColumn() {
+        return rightColumn;
+    }
+}
+
+/**
+ * Represents an aggregate function over the rows of a group, such as
+ * COUNT(*) or SUM(amount)
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class Aggregate extends ASTNode {
+    /**
+     * Aggregate functions, by upper case name
+     */
+    static final List<String> FUNCTIONS = List.of("COUNT", "SUM", "AVG", "MIN", "MAX");
+
+    /**
+     * Upper case function name
+     */
+    private final String function;
+
+    /**
+     * Attribute aggregated, null for COUNT(*)
+     */
+    private final String columnName;
+
+    /**
+     * Constructs an aggregate
+     * @param function upper case function name
+     * @param columnName attribute aggregated, null for COUNT(*)
+     * @author Ethan Rama
+     */
+    public Aggregate(String function, String columnName) {
+        this.function = function;
+        this.columnName = columnName;
+    }
+
+    /**
+     * Get the function name
+     * @return upper case function name
+     * @author Ethan Rama
+     */
+    public String getFunction() {
+        return function;
+    }
+
+    /**
+     * Get the attribute aggregated
+     * @return attribute name, null for COUNT(*)
+     * @author Ethan Rama
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Get the name the aggregate is returned under
+     * @return function and attribute, such as SUM(amount)
+     * @author Ethan Rama
+     */
+    public String getLabel() {
+        return function + "(" + (columnName == null ? "*" : columnName) + ")";
+    }
+}
+
+/**
+ * Represents an attribute in an ORDER BY clause
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class SortKey extends ASTNode {
+    /**
+     * Name of the attribute
+     */
+    private final String columnName;
+
+    /**
+     * Whether to sort from the largest value down
+     */
+    private final boolean descending;
+
+    /**
+     * Constructs a sort key
+     * @param columnName attribute name
+     * @param descending true for DESC, false for ASC
+     * @author Ethan Rama
+     */
+    public SortKey(String columnName, boolean descending) {
+        this.columnName = columnName;
+        this.descending = descending;
+    }
+
+    /**
+     * Get the attribute name
+     * @return attribute name
+     * @author Ethan Rama
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Checks if the sort is descending
+     * @return true for DESC, false for ASC
+     * @author Ethan Rama
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+}
+
+/**
+ * Represents a CREATE INDEX statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class CreateIndexStatement extends RQLStatement {
+    /**
+     * Name of index
+     */
+    private final String indexName;
+
+    /**
+     * Name of indexed table
+     */
+    private final String tableName;
+
+    /**
+     * Name of indexed attribute
+     */
+    private final String columnName;
+
+    /**
+     * Constructs a CreateIndexStatement object
+     * @param indexName name of index
+     * @param tableName name of table
+     * @param columnName name of attribute
+     * @author Ethan Rama
+     */
+    public CreateIndexStatement(String indexName, String tableName, String columnName) {
+        this.indexName = indexName;
+        this.tableName = tableName;
+        this.columnName = columnName;
+    }
+
+    /**
+     * Get index name
+     * @return index name
+     * @author Ethan Rama
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * Get table name
+     * @return table name
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get indexed attribute
+     * @return attribute name
+     * @author Ethan Rama
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+}
+
+/**
+ * Represents an UPDATE statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class UpdateStatement extends RQLStatement {
+    /**
+     * Name of table
+     */
+    private final String tableName;
+
+    /**
+     * Attributes to set
+     */
+    private final List<String> columns;
+
+    /**
+     * New value of each attribute, parallel to columns
+     */
+    private final List<Value> values;
+
+    /**
+     * Condition rows must meet, null to update every row
+     */
+    private final Expression where;
+
+    /**
+     * Constructs an UpdateStatement object
+     * @param tableName name of table
+     * @param columns attributes to set
+     * @param values new value of each attribute
+     * @param where condition rows must meet, null for none
+     * @author Ethan Rama
+     */
+    public UpdateStatement(String tableName, List<String> columns, List<Value> values, Expression where) {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.values = values;
+        this.where = where;
+    }
+
+    /**
+     * Get table name
+     * @return table name
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get attributes to set
+     * @return attribute names
+     * @author Ethan Rama
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get new values
+     * @return value of each attribute, parallel to getColumns
+     * @author Ethan Rama
+     */
+    public List<Value> getValues() {
+        return values;
+    }
+
+    /**
+     * Get the WHERE condition
+     * @return condition rows must meet, null for none
+     * @author Ethan Rama
+     */
+    public Expression getWhere() {
+        return where;
+    }
+}
+
+/**
+ * Represents a DELETE statement
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class DeleteStatement extends RQLStatement {
+    /**
+     * Name of table
+     */
+    private final String tableName;
+
+    /**
+     * Condition rows must meet, null to delete every row
+     */
+    private final Expression where;
+
+    /**
+     * Constructs a DeleteStatement object
+     * @param tableName name of table
+     * @param where condition rows must meet, null for none
+     * @author Ethan Rama
+     */
+    public DeleteStatement(String tableName, Expression where) {
+        this.tableName = tableName;
+        this.where = where;
+    }
+
+    /**
+     * Get table name
+     * @return table name
+     * @author Ethan Rama
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the WHERE condition
+     * @return condition rows must meet, null for none
+     * @author Ethan Rama
+     */
+    public Expression getWhere() {
+        return where;
+    }
 }
 
 /**
@@ -119,11 +884,21 @@ class ColumnDefinition extends ASTNode {
      */
     private String dataType;
 
+    /**
+     * Declared length for CHAR and VARCHAR, 0 if not given
+     */
+    private int size;
+
     /**
      * List of table constraints
      */
     private List<String> constraints;
 
+    /**
+     * Value used when an insert omits the attribute, null if none
+     */
+    private Value defaultValue;
+
     /**
      * Construct the definition of an attribute
      * @param columnName attribute name
@@ -132,9 +907,24 @@ class ColumnDefinition extends ASTNode {
      * author Ethan Rama
      */
     public ColumnDefinition(String columnName, String dataType, List<String> constraints) {
+        this(columnName, dataType, 0, constraints, null);
+    }
+
+    /**
+     * Construct the definition of an attribute with a length and default
+     * @param columnName attribute name
+     * @param dataType attribute type
+     * @param size declared length, 0 if not given
+     * @param constraints list of attribute constraints
+     * @param defaultValue default value, null if none
+     * @author Ethan Rama
+     */
+    public ColumnDefinition(String columnName, String dataType, int size, List<String> constraints, Value defaultValue) {
         this.columnName = columnName;
         this.dataType = dataType;
+        this.size = size;
         this.constraints = constraints;
+        this.defaultValue = defaultValue;
     }
 
     /**
@@ -173,6 +963,42 @@ class ColumnDefinition extends ASTNode {
         this.dataType = dataType;
     }
 
+    /**
+     * Get the declared length
+     * @return declared length, 0 if not given
+     * @author Ethan Rama
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Set the declared length
+     * @param size declared length
+     * @author Ethan Rama
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Get the default value
+     * @return default value, null if none
+     * @author Ethan Rama
+     */
+    public Value getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Set the default value
+     * @param defaultValue default value
+     * @author Ethan Rama
+     */
+    public void setDefaultValue(Value defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
     /**
      * Get the list of attribute constraints
      * @return list of attribute constraints
@@ -194,16 +1020,291 @@ class ColumnDefinition extends ASTNode {
 
 /**
  * Represents a row node
- * @version 1.0
+ * @version 1.1
  * @author Ethan Rama
  */
 class Row extends ASTNode {
-    private List<Value> valueList;
-    // Constructor, getters, and setters
+    /**
+     * Values in the row, in attribute order
+     */
+    private final List<Value> valueList;
+
+    /**
+     * Constructs a row of values
+     * @param valueList values in the row
+     * @author Ethan Rama
+     */
+    public Row(List<Value> valueList) {
+        this.valueList = valueList;
+    }
+
+    /**
+     * Get the values in the row
+     * @return list of values
+     * @author Ethan Rama
+     */
+    public List<Value> getValueList() {
+        return valueList;
+    }
+}
+
+/**
+ * Represents an expression node
+ * @version 1.1
+ * @author Ethan Rama
+ */
+abstract class Expression extends ASTNode {}
+
+/**
+ * Represents a reference to an attribute
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class ColumnReference extends Expression {
+    /**
+     * Name of the attribute
+     */
+    private final String columnName;
+
+    /**
+     * Constructs a reference to an attribute
+     * @param columnName attribute name
+     * @author Ethan Rama
+     */
+    public ColumnReference(String columnName) {
+        this.columnName = columnName;
+    }
+
+    /**
+     * Get the attribute name
+     * @return attribute name
+     * @author Ethan Rama
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+}
+
+/**
+ * Represents a comparison using a COMP_OPERATOR
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class Comparison extends Expression {
+    /**
+     * Comparison operator, such as = or &lt;=
+     */
+    private final String operator;
+
+    /**
+     * Left operand
+     */
+    private final Expression left;
+
+    /**
+     * Right operand
+     */
+    private final Expression right;
+
+    /**
+     * Constructs a comparison
+     * @param operator comparison operator
+     * @param left left operand
+     * @param right right operand
+     * @author Ethan Rama
+     */
+    public Comparison(String operator, Expression left, Expression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Get the comparison operator
+     * @return comparison operator
+     * @author Ethan Rama
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * Get the left operand
+     * @return left operand
+     * @author Ethan Rama
+     */
+    public Expression getLeft() {
+        return left;
+    }
+
+    /**
+     * Get the right operand
+     * @return right operand
+     * @author Ethan Rama
+     */
+    public Expression getRight() {
+        return right;
+    }
 }
 
-class Value extends ASTNode {
+/**
+ * Represents an AND or OR of two conditions
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class LogicalExpression extends Expression {
+    /**
+     * Logical operator, AND or OR
+     */
+    private final String operator;
+
+    /**
+     * Left condition
+     */
+    private final Expression left;
+
+    /**
+     * Right condition
+     */
+    private final Expression right;
+
+    /**
+     * Constructs a logical expression
+     * @param operator AND or OR
+     * @param left left condition
+     * @param right right condition
+     * @author Ethan Rama
+     */
+    public LogicalExpression(String operator, Expression left, Expression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Get the logical operator
+     * @return AND or OR
+     * @author Ethan Rama
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * Checks if the expression is an AND
+     * @return true for AND, false for OR
+     * @author Ethan Rama
+     */
+    public boolean isAnd() {
+        return operator.equals("AND");
+    }
+
+    /**
+     * Get the left condition
+     * @return left condition
+     * @author Ethan Rama
+     */
+    public Expression getLeft() {
+        return left;
+    }
 
+    /**
+     * Get the right condition
+     * @return right condition
+     * @author Ethan Rama
+     */
+    public Expression getRight() {
+        return right;
+    }
 }
 
+/**
+ * Represents a literal value node
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class Value extends Expression {
+    /**
+     * Token type of the literal
+     */
+    private final Token.TokenType type;
+
+    /**
+     * Text of the literal without quotes, null for NULL
+     */
+    private final String text;
+
+    /**
+     * Position of the parameter among the statement's parameters, -1 for a
+     * literal
+     */
+    private final int parameterIndex;
+
+    /**
+     * Constructs a value from a literal token
+     * @param type token type of the literal
+     * @param text text of the literal without quotes, null for NULL
+     * @author Ethan Rama
+     */
+    public Value(Token.TokenType type, String text) {
+        this.type = type;
+        this.text = text;
+        this.parameterIndex = -1;
+    }
+
+    /**
+     * Constructs a parameter whose value is bound when the statement runs
+     * @param parameterIndex position of the parameter, from 0
+     * @author Ethan Rama
+     */
+    public Value(int parameterIndex) {
+        this.type = Token.TokenType.PLACEHOLDER;
+        this.text = null;
+        this.parameterIndex = parameterIndex;
+    }
+
+    /**
+     * Get the token type of the literal
+     * @return literal token type
+     * @author Ethan Rama
+     */
+    public Token.TokenType getType() {
+        return type;
+    }
+
+    /**
+     * Get the text of the literal
+     * @return literal text without quotes, null for NULL
+     * @author Ethan Rama
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Checks if the value is NULL
+     * @return true if the literal is NULL, false otherwise
+     * @author Ethan Rama
+     */
+    public boolean isNull() {
+        return type == Token.TokenType.NULL_LITERAL;
+    }
+
+    /**
+     * Checks if the value is a parameter
+     * @return true for a ? placeholder, false for a literal
+     * @author Ethan Rama
+     */
+    public boolean isParameter() {
+        return type == Token.TokenType.PLACEHOLDER;
+    }
 
+    /**
+     * Get the position of the parameter
+     * @return position among the statement's parameters, -1 for a literal
+     * @author Ethan Rama
+     */
+    public int getParameterIndex() {
+        return parameterIndex;
+    }
+}
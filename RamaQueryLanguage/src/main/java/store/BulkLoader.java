@@ -0,0 +1,477 @@
+/*
+ * BulkLoader.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads the rows of a CSV or TSV file into a table. A file ending in .tsv
+ * or .tab is split on tabs with no quoting; any other file is read as CSV,
+ * split on commas with fields optionally in double quotes and a doubled
+ * quote standing for a quote. An empty field is NULL, while "" in a CSV is
+ * the empty string. Lines may end in \n or \r\n.
+ * <br><br>
+ * The file is memory-mapped in splits of a few megabytes that worker
+ * threads parse side by side. A split holds the records that start inside
+ * it, so each worker skips ahead to the first line break of its split and
+ * reads past its end to finish its last record. For a CSV a line break
+ * inside quotes does not end a record, so the quotes of each split are
+ * counted first, also in parallel, to tell every worker whether its split
+ * starts inside a quoted field.
+ * <br><br>
+ * Workers insert their rows in batches straight into the table, each batch
+ * claiming a run of row slots and committing under one version, so rows
+ * skip the lexer, the parser and the plan cache. Batches from different
+ * splits may commit in any order. A rejected batch stops the load; batches
+ * committed before it stay loaded.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class BulkLoader {
+    /**
+     * Bytes of the file in each split
+     */
+    static final int SPLIT_SIZE = 4 << 20;
+
+    /**
+     * Rows inserted in each batch
+     */
+    static final int BATCH_ROWS = 4096;
+
+    /**
+     * Bytes mapped past the end of a split for the record that runs over it
+     */
+    private static final int OVERLAP = 64 << 10;
+
+    /**
+     * Database the rows are inserted through
+     */
+    private final RamaDatabase rdb;
+
+    /**
+     * Table the rows are loaded into
+     */
+    private final RamaTable table;
+
+    /**
+     * Column position of each field of a record
+     */
+    private final int[] slots;
+
+    /**
+     * Whether the first record of the file names the fields and is skipped
+     */
+    private final boolean header;
+
+    /**
+     * First error of any worker, which stops the others
+     */
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a loader for a table
+     * @param rdb database holding the table
+     * @param table table the rows are loaded into
+     * @param slots column position of each field of a record
+     * @param header whether the first record is a header to skip
+     * @author Ethan Rama
+     */
+    BulkLoader(RamaDatabase rdb, RamaTable table, int[] slots, boolean header) {
+        this.rdb = rdb;
+        this.table = table;
+        this.slots = slots;
+        this.header = header;
+    }
+
+    /**
+     * Loads every record of a file
+     * @param file CSV or TSV file
+     * @return number of rows loaded
+     * @author Ethan Rama
+     */
+    long load(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean tabs = name.endsWith(".tsv") || name.endsWith(".tab");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int splits = (int) ((size + SPLIT_SIZE - 1) / SPLIT_SIZE);
+            boolean[] quoted = tabs ? new boolean[splits] : quoteStates(channel, size, splits);
+            AtomicLong loaded = new AtomicLong();
+            runParallel(splits, split -> {
+                Split worker = new Split(channel, size, split, tabs ? (byte) '\t' : (byte) ',', !tabs);
+                loaded.addAndGet(worker.load(quoted[split]));
+            });
+            return loaded.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds which splits start inside a quoted field from the parity of the
+     * quotes before each of them
+     * @param channel channel of the file
+     * @param size length of the file
+     * @param splits number of splits
+     * @return whether each split starts inside quotes
+     * @author Ethan Rama
+     */
+    private boolean[] quoteStates(FileChannel channel, long size, int splits) {
+        boolean[] odd = new boolean[splits];
+        runParallel(splits, split -> {
+            long start = (long) split * SPLIT_SIZE;
+            MappedByteBuffer buffer = map(channel, start, Math.min(size - start, SPLIT_SIZE));
+            int quotes = 0;
+            for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                if (buffer.get(i) == '"') {
+                    quotes++;
+                }
+            }
+            odd[split] = (quotes & 1) != 0;
+        });
+        boolean[] quoted = new boolean[splits];
+        for (int split = 1; split < splits; split++) {
+            quoted[split] = quoted[split - 1] ^ odd[split - 1];
+        }
+        return quoted;
+    }
+
+    /**
+     * Runs a task for each split on as many threads as there are
+     * processors, the calling thread among them, and rethrows the first
+     * error once every thread has stopped
+     * @param splits number of splits
+     * @param task work for one split
+     * @author Ethan Rama
+     */
+    private void runParallel(int splits, IntConsumer task) {
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int split = next.getAndIncrement(); split < splits && failure.get() == null;
+                 split = next.getAndIncrement()) {
+                try {
+                    task.accept(split);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        Thread[] threads = new Thread[Math.max(0, Math.min(splits, Runtime.getRuntime().availableProcessors()) - 1)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(worker, "rql-loader-" + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        worker.run();
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    // The workers hold row slots other inserts wait on, so they are always waited for
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        RuntimeException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the records starting in one split of the file
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private final class Split {
+        private final FileChannel channel;
+
+        /**
+         * Length of the file
+         */
+        private final long size;
+
+        /**
+         * File position of the split
+         */
+        private final long start;
+
+        /**
+         * File position after the split
+         */
+        private final long end;
+
+        /**
+         * Byte between fields
+         */
+        private final byte delimiter;
+
+        /**
+         * Whether fields may be quoted
+         */
+        private final boolean quoting;
+
+        /**
+         * Window of the file being parsed
+         */
+        private MappedByteBuffer buffer;
+
+        /**
+         * File position of the window
+         */
+        private long base;
+
+        /**
+         * Bytes of the field being decoded
+         */
+        private byte[] scratch = new byte[256];
+
+        /**
+         * Values of the record being parsed, by column
+         */
+        private String[] values;
+
+        /**
+         * Number of fields in the record being parsed
+         */
+        private int fields;
+
+        Split(FileChannel channel, long size, int split, byte delimiter, boolean quoting) {
+            this.channel = channel;
+            this.size = size;
+            this.start = (long) split * SPLIT_SIZE;
+            this.end = Math.min(size, start + SPLIT_SIZE);
+            this.delimiter = delimiter;
+            this.quoting = quoting;
+        }
+
+        /**
+         * Parses and inserts the records starting in the split
+         * @param quoted whether the split starts inside a quoted field
+         * @return number of rows loaded
+         * @author Ethan Rama
+         */
+        long load(boolean quoted) {
+            long position = start == 0 ? 0 : firstRecord(quoted);
+            if (position >= end) {
+                return 0;
+            }
+            remap(position, end - position + OVERLAP);
+            List<String[]> batch = new ArrayList<>(BATCH_ROWS);
+            long batchStart = position;
+            long loaded = 0;
+            boolean skip = header && position == 0;
+            while (position < end && failure.get() == null) {
+                int offset = (int) (position - base);
+                int next = parse(offset);
+                if (next < 0) {
+                    // The record runs past the window, so the window moves to it and grows
+                    remap(position, Math.max(2L * (buffer.limit() - offset), OVERLAP));
+                    continue;
+                }
+                if (fields > 0 && skip) {
+                    skip = false;
+                } else if (fields > 0) {
+                    if (fields != slots.length) {
+                        throw new IllegalArgumentException("Record at byte " + position + " has " + fields
+                                + " values but " + slots.length + " columns are loaded.");
+                    }
+                    batch.add(values);
+                }
+                position = base + next;
+                if (batch.size() == BATCH_ROWS) {
+                    loaded += insert(batch, batchStart);
+                    batch.clear();
+                    batchStart = position;
+                }
+            }
+            return loaded + insert(batch, batchStart);
+        }
+
+        /**
+         * Finds the first record that starts at or after the start of the
+         * split, which follows the first line break outside quotes
+         * @param quoted whether the split starts inside a quoted field
+         * @return file position of the record, end of the split if none starts in it
+         * @author Ethan Rama
+         */
+        private long firstRecord(boolean quoted) {
+            remap(start - 1, end - start + 1);
+            if (buffer.get(0) == '\n' && !quoted) {
+                return start;
+            }
+            for (int i = 1, limit = buffer.limit(); i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '"' && quoting) {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return start + i;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Parses one record into values and fields
+         * @param offset window position of the record
+         * @return window position of the next record, or -1 if the record
+         * runs past the window before the end of the file
+         * @author Ethan Rama
+         */
+        private int parse(int offset) {
+            int limit = buffer.limit();
+            boolean last = base + limit == size;
+            values = table.newRow();
+            fields = 0;
+            int position = offset;
+            while (true) {
+                String value;
+                int after;
+                if (quoting && position < limit && buffer.get(position) == '"') {
+                    int length = 0;
+                    after = position + 1;
+                    while (true) {
+                        if (after >= limit) {
+                            if (!last) {
+                                return -1;
+                            }
+                            throw new IllegalArgumentException("Unclosed quote in record at byte "
+                                    + (base + offset) + ".");
+                        }
+                        byte b = buffer.get(after++);
+                        if (b == '"') {
+                            if (after < limit && buffer.get(after) == '"') {
+                                after++;
+                            } else if (after >= limit && !last) {
+                                return -1;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, length * 2);
+                        }
+                        scratch[length++] = b;
+                    }
+                    value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                    if (after < limit && buffer.get(after) == '\r') {
+                        after++;
+                    }
+                } else {
+                    after = position;
+                    while (after < limit && buffer.get(after) != delimiter && buffer.get(after) != '\n') {
+                        after++;
+                    }
+                    if (after == limit && !last) {
+                        return -1;
+                    }
+                    int length = after - position;
+                    if (length > 0 && buffer.get(after - 1) == '\r' && (after == limit || buffer.get(after) == '\n')) {
+                        length--;
+                    }
+                    if (length == 0 && fields == 0 && (after == limit || buffer.get(after) == '\n')) {
+                        // A blank line holds no record
+                        return after == limit ? after : after + 1;
+                    }
+                    value = decode(position, length);
+                }
+                if (fields < slots.length) {
+                    values[slots[fields]] = value;
+                }
+                fields++;
+                if (after == limit) {
+                    return after;
+                }
+                byte separator = buffer.get(after);
+                if (separator == '\n') {
+                    return after + 1;
+                }
+                if (separator != delimiter) {
+                    throw new IllegalArgumentException("Expected a delimiter after quoted value in record at byte "
+                            + (base + offset) + ".");
+                }
+                position = after + 1;
+            }
+        }
+
+        /**
+         * Decodes an unquoted field
+         * @param offset window position of the field
+         * @param length length of the field in bytes
+         * @return field text, or null for an empty field
+         * @author Ethan Rama
+         */
+        private String decode(int offset, int length) {
+            if (length == 0) {
+                return null;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(offset, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Inserts a batch of parsed rows
+         * @param batch rows to insert
+         * @param position file position of the first record of the batch
+         * @return number of rows inserted
+         * @author Ethan Rama
+         */
+        private int insert(List<String[]> batch, long position) {
+            if (batch.isEmpty() || failure.get() != null) {
+                return 0;
+            }
+            try {
+                rdb.insert(table, batch);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cannot load the records from byte " + position + ": "
+                        + e.getMessage(), e);
+            }
+            return batch.size();
+        }
+
+        private void remap(long position, long length) {
+            base = position;
+            buffer = map(channel, position, Math.min(size - position, Math.min(length, Integer.MAX_VALUE)));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * ColumnType.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added off-heap vectors
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+/**
+ * Defines the storage types of table attributes
+ * @version 1.1
+ * @author Ethan Rama
+ */
+enum ColumnType {
+    INT, FLOAT, BOOL, DATE, CHAR, VARCHAR;
+
+    /**
+     * Gets the storage type of a declared attribute type
+     * @param dataType declared type, null for an untyped attribute
+     * @return storage type, VARCHAR for untyped attributes
+     * @author Ethan Rama
+     */
+    public static ColumnType of(String dataType) {
+        if (dataType == null) {
+            return VARCHAR;
+        }
+        try {
+            return valueOf(dataType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown data type: " + dataType);
+        }
+    }
+
+    /**
+     * Creates an empty vector holding values of this type
+     * @return new column vector
+     * @author Ethan Rama
+     */
+    public ColumnVector newVector() {
+        return newVector(false);
+    }
+
+    /**
+     * Creates an empty vector holding values of this type
+     * @param offHeap whether values are kept outside the Java heap
+     * @return new column vector
+     * @author Ethan Rama
+     */
+    public ColumnVector newVector(boolean offHeap) {
+        switch (this) {
+            case INT:
+                return new IntVector(offHeap);
+            case FLOAT:
+                return new DoubleVector(offHeap);
+            case BOOL:
+                return new BoolVector(offHeap);
+            case DATE:
+                return new DateVector(offHeap);
+            default:
+                return new StringVector(this, offHeap);
+        }
+    }
+}
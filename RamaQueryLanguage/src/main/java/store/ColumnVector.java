@@ -0,0 +1,1609 @@
+/*
+ * ColumnVector.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Each chunk keeps a zone map summary of its values, so scans can skip
+ *   chunks no value of which meets a comparison
+ * - Values of a batch of rows can be read as text a chunk at a time
+ * - Added order keys of value text, for estimating ranges of literals
+ * - Added order keys comparing values as primitives for sorting
+ * - Several inserting threads can store rows at once
+ * - Chunk directories are published only once filled, for queries running
+ *   alongside a writer
+ * - Added copying of a value between rows
+ * - Chunks and string dictionaries can be kept off the Java heap
+ * - Chunks can be paged in on first use from a mapped snapshot
+ * - Added access to the null bitmap of a chunk for batch filters
+ * - Added sort keys and row comparison for ordered indexes and sorting
+ * - Added primitive keys for hash indexes
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Stores the values of one attribute for every row of a table. Values live
+ * in fixed size chunks of primitive arrays, so a column grows without copying
+ * its data and a scan walks contiguous memory.
+ * <br><br>
+ * A vector attached to a snapshot starts with no chunks in memory. Each
+ * chunk is copied out of the mapped file the first time one of its rows is
+ * read or written, so only the chunks a query touches are ever paged in.
+ * <br><br>
+ * An off-heap vector keeps each chunk in a direct buffer instead of a
+ * primitive array, so however many rows it holds it adds only one small
+ * object per chunk to the heap. Batch filters read such a chunk through a
+ * copy in a scratch array.
+ * <br><br>
+ * Queries read the rows they can see while writers store new rows. Rows
+ * are never changed in place once a query can see them, and grown
+ * directories are published only once filled. Inserting threads store
+ * different rows at the same time, so chunks are allocated under the
+ * vector's lock and bits shared by several rows are set atomically.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+abstract class ColumnVector {
+    /**
+     * log2 of the number of rows in a chunk
+     */
+    static final int CHUNK_SHIFT = 12;
+
+    /**
+     * Number of rows in a chunk
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Mask giving the position of a row within its chunk
+     */
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Marks the null bitmap of a chunk not yet paged in from a snapshot
+     */
+    private static final long[] UNLOADED = new long[0];
+
+    /**
+     * Atomic access to the words of a bitmap on the heap
+     */
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Atomic access to the words of a bitmap in a direct buffer
+     */
+    private static final VarHandle BUFFER_WORDS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    /**
+     * Null bitmap of each chunk, null for a chunk without nulls
+     */
+    private long[][] nulls = new long[1][];
+
+    /**
+     * Number of chunks allocated, written once they are
+     */
+    private volatile int chunkCount;
+
+    /**
+     * Summary of the values of each chunk, replaced whole when rebuilt
+     */
+    private volatile ZoneMap zones = new ZoneMap(0);
+
+    /**
+     * Snapshot the chunks are paged in from, null if not attached
+     */
+    private Snapshot.Image image;
+
+    /**
+     * Snapshot offset of the values of each attached chunk
+     */
+    private long[] valueOffsets;
+
+    /**
+     * Snapshot offset of the null bitmap of each attached chunk, -1 for a
+     * chunk without nulls
+     */
+    private long[] nullOffsets;
+
+    /**
+     * Values of each chunk of an off-heap vector, null for a vector kept on
+     * the heap
+     */
+    private ByteBuffer[] buffers;
+
+    /**
+     * Constructs an empty vector
+     * @param offHeap whether values are kept in direct buffers outside the
+     * Java heap
+     * @author Ethan Rama
+     */
+    protected ColumnVector(boolean offHeap) {
+        if (offHeap) {
+            buffers = new ByteBuffer[1];
+        }
+    }
+
+    /**
+     * Makes room for a number of rows
+     * @param rows number of rows the vector must hold
+     * @author Ethan Rama
+     */
+    public void ensureCapacity(int rows) {
+        int needed = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (needed > chunkCount) {
+            allocate(needed);
+        }
+    }
+
+    /**
+     * Allocates chunks up to a number, growing the directories if needed
+     * @param needed number of chunks the vector must have
+     * @author Ethan Rama
+     */
+    private synchronized void allocate(int needed) {
+        if (needed > nulls.length) {
+            int length = Math.max(needed, nulls.length * 2);
+            long[][] grownNulls = Arrays.copyOf(nulls, length);
+            ByteBuffer[] grownBuffers = buffers == null ? null : Arrays.copyOf(buffers, length);
+            // Queries read the directories without locking, so each copy is complete before it is published
+            VarHandle.releaseFence();
+            nulls = grownNulls;
+            if (buffers != null) {
+                buffers = grownBuffers;
+            } else {
+                resizeDirectory(length);
+            }
+        }
+        int count = chunkCount;
+        while (count < needed) {
+            if (buffers != null) {
+                buffers[count] = newBuffer();
+            } else {
+                allocateChunk(count);
+            }
+            count++;
+        }
+        chunkCount = count;
+    }
+
+    /**
+     * Writes every chunk to a snapshot
+     * @param out snapshot being written
+     * @param footer snapshot footer, given the offset of each chunk
+     * @param rows number of rows to write
+     * @author Ethan Rama
+     */
+    void writeSnapshot(Snapshot.Writer out, RecordBuffer footer, int rows) {
+        int chunks = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+        long[] values = new long[chunks];
+        long[] nullBits = new long[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            values[chunk] = out.reserve(chunkBytes());
+            writeChunk(chunk, out.buffer());
+        }
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long[] bits = nullChunk(chunk);
+            nullBits[chunk] = bits == null ? -1 : out.reserve(bits.length * 8);
+            if (bits != null) {
+                ByteBuffer buffer = out.buffer();
+                for (long word : bits) {
+                    buffer.putLong(word);
+                }
+            }
+        }
+        footer.putLongs(values);
+        footer.putLongs(nullBits);
+        writeExtra(out, footer);
+    }
+
+    /**
+     * Attaches the vector to chunks written by writeSnapshot, without
+     * reading any of them
+     * @param image mapped snapshot
+     * @param footer snapshot footer, positioned at the vector's offsets
+     * @param rows number of rows written
+     * @author Ethan Rama
+     */
+    void attach(Snapshot.Image image, ByteBuffer footer, int rows) {
+        int chunks = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.image = image;
+        this.valueOffsets = RecordBuffer.getLongs(footer);
+        this.nullOffsets = RecordBuffer.getLongs(footer);
+        int length = Math.max(1, chunks);
+        nulls = new long[length][];
+        Arrays.fill(nulls, 0, chunks, UNLOADED);
+        if (buffers != null) {
+            buffers = new ByteBuffer[length];
+        } else {
+            resizeDirectory(length);
+        }
+        chunkCount = chunks;
+        // Attached rows are summarized only when the zone map is rebuilt
+        zones = new ZoneMap(rows);
+        attachExtra(image, footer);
+    }
+
+    /**
+     * Copies a chunk out of the snapshot unless it is already in memory
+     * @param chunk chunk number
+     * @author Ethan Rama
+     */
+    protected final synchronized void page(int chunk) {
+        if (nulls[chunk] != UNLOADED) {
+            return;
+        }
+        if (image == null) {
+            throw new IllegalStateException("Column has been dropped.");
+        }
+        readChunk(chunk, image.at(valueOffsets[chunk]));
+        long[] bits = null;
+        if (nullOffsets[chunk] >= 0) {
+            bits = new long[CHUNK_SIZE >>> 6];
+            image.at(nullOffsets[chunk]).asLongBuffer().get(bits);
+        }
+        // The values are published before the bitmap that marks the chunk as paged in
+        VarHandle.releaseFence();
+        nulls[chunk] = bits;
+    }
+
+    /**
+     * Lets go of every chunk once the vector's table is dropped, after which
+     * reading the vector fails. Direct buffers are freed at once, so the
+     * caller makes sure nothing reads the vector any more: a table frees
+     * its vectors only once it is dropped and no query holds a pin on it.
+     * @author Ethan Rama
+     */
+    synchronized void free() {
+        image = null;
+        Arrays.fill(nulls, UNLOADED);
+        if (buffers != null) {
+            DirectMemory.release(buffers);
+        }
+        freeExtra();
+    }
+
+    /**
+     * Checks if the values are kept off the Java heap
+     * @return true if chunks are direct buffers, false if they are arrays
+     * @author Ethan Rama
+     */
+    boolean isOffHeap() {
+        return buffers != null;
+    }
+
+    /**
+     * Gets the direct buffer of a chunk of an off-heap vector, paging it in
+     * if needed
+     * @param chunk chunk number
+     * @return buffer of chunkBytes bytes in native order, read and written
+     * at absolute offsets
+     * @author Ethan Rama
+     */
+    protected final ByteBuffer buffer(int chunk) {
+        ByteBuffer values = buffers[chunk];
+        if (values == null) {
+            page(chunk);
+            values = buffers[chunk];
+        }
+        return values;
+    }
+
+    /**
+     * Allocates an empty direct buffer for a chunk
+     * @return buffer of chunkBytes bytes in native order
+     * @author Ethan Rama
+     */
+    protected final ByteBuffer newBuffer() {
+        return ByteBuffer.allocateDirect(chunkBytes()).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Stores a filled direct buffer as a chunk paged in from a snapshot
+     * @param chunk chunk number
+     * @param values filled buffer
+     * @author Ethan Rama
+     */
+    protected final void publish(int chunk, ByteBuffer values) {
+        VarHandle.releaseFence();
+        buffers[chunk] = values;
+    }
+
+    private long[] nulls(int chunk) {
+        long[] bits = nulls[chunk];
+        if (bits == UNLOADED) {
+            page(chunk);
+            bits = nulls[chunk];
+        }
+        return bits;
+    }
+
+    /**
+     * Stores a value given as text, parsing it once into the column type
+     * @param row row number
+     * @param text value text, null for NULL
+     * @author Ethan Rama
+     */
+    public void set(int row, String text) {
+        if (text == null) {
+            setNull(row);
+        } else {
+            setParsed(row, text);
+            clearNull(row);
+        }
+    }
+
+    /**
+     * Copies the value of one row, which may be NULL, to another
+     * @param from row holding the value
+     * @param to row to store it in
+     * @author Ethan Rama
+     */
+    public void copy(int from, int to) {
+        if (isNull(from)) {
+            setNull(to);
+        } else {
+            copyValue(from, to);
+            clearNull(to);
+        }
+    }
+
+    /**
+     * Gets a value as text
+     * @param row row number
+     * @return value text, null for NULL
+     * @author Ethan Rama
+     */
+    public String getString(int row) {
+        return isNull(row) ? null : format(row);
+    }
+
+    /**
+     * Adds a published row's value to the zone map of its chunk. Rows are
+     * summarized by one writer at a time.
+     * @param row row number
+     * @author Ethan Rama
+     */
+    void summarize(int row) {
+        boolean isNull = isNull(row);
+        zones.add(row, isNull, isNull ? 0 : zoneKey(row));
+    }
+
+    /**
+     * Rebuilds the zone map from every stored row, including rows attached
+     * from a snapshot. Deleted rows are summarized too, as queries reading
+     * earlier versions still see them.
+     * @param rows number of rows stored
+     * @author Ethan Rama
+     */
+    void summarizeAll(int rows) {
+        ZoneMap rebuilt = new ZoneMap(0);
+        for (int row = 0; row < rows; row++) {
+            boolean isNull = isNull(row);
+            rebuilt.add(row, isNull, isNull ? 0 : zoneKey(row));
+        }
+        zones = rebuilt;
+    }
+
+    /**
+     * Checks if a chunk could hold a value meeting a comparison with a
+     * literal, from its zone map
+     * @param chunk chunk number
+     * @param operator comparison operator code, as in RowPredicate
+     * @param key zone key of the literal, as zoneKey gives a value
+     * @return false if no value of the chunk meets the comparison
+     * @author Ethan Rama
+     */
+    boolean mayMatch(int chunk, int operator, long key) {
+        return zones.mayMatch(chunk, operator, key, isOrderKeyExact());
+    }
+
+    /**
+     * Gets the key a value is summarized by in the zone map, ordered as
+     * comparisons with a literal order values
+     * @param row row number of a non-null value
+     * @return order key of the value
+     * @author Ethan Rama
+     */
+    protected long zoneKey(int row) {
+        return orderKey(row);
+    }
+
+    /**
+     * Gets the values of a batch of rows as text. Rows in ascending order
+     * share each chunk's null bitmap, which is found once per chunk rather
+     * than once per row.
+     * @param rows row numbers
+     * @param count number of rows to read
+     * @param into filled with the text of each row's value, null for NULL
+     * @author Ethan Rama
+     */
+    public void getStrings(int[] rows, int count, String[] into) {
+        int loaded = -1;
+        long[] bits = null;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (row >>> CHUNK_SHIFT != loaded) {
+                loaded = row >>> CHUNK_SHIFT;
+                bits = nullChunk(loaded);
+            }
+            boolean isNull = bits != null && (bits[(row & CHUNK_MASK) >>> 6] & (1L << row)) != 0;
+            into[i] = isNull ? null : format(row);
+        }
+    }
+
+    /**
+     * Checks if a value is NULL
+     * @param row row number
+     * @return true if the value is NULL, false otherwise
+     * @author Ethan Rama
+     */
+    public boolean isNull(int row) {
+        long[] bits = nulls(row >>> CHUNK_SHIFT);
+        return bits != null && (bits[(row & CHUNK_MASK) >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Gets the null bitmap of a chunk for scanning
+     * @param chunk chunk number
+     * @return array of CHUNK_SIZE / 64 words with a bit set for each NULL, or
+     * null if the chunk has no NULL values
+     * @author Ethan Rama
+     */
+    public long[] nullChunk(int chunk) {
+        return nulls(chunk);
+    }
+
+    /**
+     * Marks a value as NULL
+     * @param row row number
+     * @author Ethan Rama
+     */
+    public void setNull(int row) {
+        int chunk = row >>> CHUNK_SHIFT;
+        long[] bits = nulls(chunk);
+        if (bits == null) {
+            bits = allocateNulls(chunk);
+        }
+        setBit(bits, (row & CHUNK_MASK) >>> 6, 1L << row, true);
+    }
+
+    private void clearNull(int row) {
+        long[] bits = nulls(row >>> CHUNK_SHIFT);
+        if (bits != null) {
+            setBit(bits, (row & CHUNK_MASK) >>> 6, 1L << row, false);
+        }
+    }
+
+    private synchronized long[] allocateNulls(int chunk) {
+        if (nulls[chunk] == null) {
+            long[] bits = new long[CHUNK_SIZE >>> 6];
+            VarHandle.releaseFence();
+            nulls[chunk] = bits;
+        }
+        return nulls[chunk];
+    }
+
+    /**
+     * Sets or clears one bit of a word other rows share, without losing a
+     * bit another thread sets at the same time
+     * @param words bitmap on the heap
+     * @param word index of the word
+     * @param bit mask of the bit
+     * @param value true to set the bit, false to clear it
+     * @author Ethan Rama
+     */
+    protected static void setBit(long[] words, int word, long bit, boolean value) {
+        if (value) {
+            WORDS.getAndBitwiseOr(words, word, bit);
+        } else {
+            WORDS.getAndBitwiseAnd(words, word, ~bit);
+        }
+    }
+
+    /**
+     * Sets or clears one bit of a word in a direct buffer, without losing a
+     * bit another thread sets at the same time
+     * @param words bitmap in a direct buffer of native byte order
+     * @param offset byte offset of the word, a multiple of 8
+     * @param bit mask of the bit
+     * @param value true to set the bit, false to clear it
+     * @author Ethan Rama
+     */
+    protected static void setBit(ByteBuffer words, int offset, long bit, boolean value) {
+        if (value) {
+            BUFFER_WORDS.getAndBitwiseOr(words, offset, bit);
+        } else {
+            BUFFER_WORDS.getAndBitwiseAnd(words, offset, ~bit);
+        }
+    }
+
+    /**
+     * Gets the storage type of the vector
+     * @return column type
+     * @author Ethan Rama
+     */
+    public abstract ColumnType getType();
+
+    /**
+     * Gets a non-null value as a primitive key. Two values of the column are
+     * equal exactly when their keys are equal.
+     * @param row row number
+     * @return key of the value
+     * @author Ethan Rama
+     */
+    public abstract long key(int row);
+
+    /**
+     * Gets the key a value would have in this column, without storing it
+     * @param text value text
+     * @return key of the value, which matches no row if the value cannot
+     * occur in the column
+     * @author Ethan Rama
+     */
+    public abstract long keyOf(String text);
+
+    /**
+     * Gets a non-null value as an object ordered like the column values
+     * @param row row number
+     * @return sort key of the value
+     * @author Ethan Rama
+     */
+    public abstract Comparable<?> sortKey(int row);
+
+    /**
+     * Gets the sort key a value would have in this column
+     * @param text value text
+     * @return sort key of the value
+     * @author Ethan Rama
+     */
+    public abstract Comparable<?> sortKeyOf(String text);
+
+    /**
+     * Compares the non-null values of two rows
+     * @param row first row number
+     * @param other second row number
+     * @return negative, zero or positive as the first value is less than,
+     * equal to or greater than the second
+     * @author Ethan Rama
+     */
+    public abstract int compareRows(int row, int other);
+
+    /**
+     * Gets a non-null value as a primitive ordered like compareRows. A
+     * key is never Long.MIN_VALUE, which sorts place NULL at. Unless the
+     * keys are exact, equal keys may still hold different values, which
+     * compareRows orders.
+     * @param row row number
+     * @return order key of the value
+     * @author Ethan Rama
+     */
+    public abstract long orderKey(int row);
+
+    /**
+     * Gets the order key a value would have in this column
+     * @param text value text
+     * @return order key of the value
+     * @author Ethan Rama
+     */
+    public abstract long orderKeyOf(String text);
+
+    /**
+     * Checks if order keys order values completely
+     * @return true if equal order keys always hold equal values
+     * @author Ethan Rama
+     */
+    public boolean isOrderKeyExact() {
+        return true;
+    }
+
+    /**
+     * Parses and stores a non-null value
+     * @param row row number
+     * @param text value text
+     * @author Ethan Rama
+     */
+    protected abstract void setParsed(int row, String text);
+
+    /**
+     * Copies a non-null value from one row to another without formatting
+     * or parsing it
+     * @param from row holding the value
+     * @param to row to store it in
+     * @author Ethan Rama
+     */
+    protected abstract void copyValue(int from, int to);
+
+    /**
+     * Formats a non-null value as text
+     * @param row row number
+     * @return value text
+     * @author Ethan Rama
+     */
+    protected abstract String format(int row);
+
+    /**
+     * Grows the chunk directory, filling the new directory before it
+     * replaces the old one
+     * @param length new number of chunk slots
+     * @author Ethan Rama
+     */
+    protected abstract void resizeDirectory(int length);
+
+    /**
+     * Allocates the values of a chunk
+     * @param chunk chunk number
+     * @author Ethan Rama
+     */
+    protected abstract void allocateChunk(int chunk);
+
+    /**
+     * Get the size of a chunk of values in a snapshot
+     * @return number of bytes
+     * @author Ethan Rama
+     */
+    protected abstract int chunkBytes();
+
+    /**
+     * Writes the values of a chunk
+     * @param chunk chunk number
+     * @param out buffer with chunkBytes bytes free
+     * @author Ethan Rama
+     */
+    protected abstract void writeChunk(int chunk, ByteBuffer out);
+
+    /**
+     * Reads the values of a chunk written by writeChunk into the directory.
+     * The filled array is stored in the directory after a release fence, so
+     * a thread that finds it there also sees its values. An off-heap vector
+     * fills a new buffer and stores it with publish.
+     * @param chunk chunk number
+     * @param in buffer positioned at the chunk
+     * @author Ethan Rama
+     */
+    protected abstract void readChunk(int chunk, ByteBuffer in);
+
+    /**
+     * Writes data kept for the whole vector rather than per chunk
+     * @param out snapshot being written
+     * @param footer snapshot footer
+     * @author Ethan Rama
+     */
+    protected void writeExtra(Snapshot.Writer out, RecordBuffer footer) {
+    }
+
+    /**
+     * Attaches data written by writeExtra
+     * @param image mapped snapshot
+     * @param footer snapshot footer
+     * @author Ethan Rama
+     */
+    protected void attachExtra(Snapshot.Image image, ByteBuffer footer) {
+    }
+
+    /**
+     * Lets go of data kept for the whole vector once its table is dropped
+     * @author Ethan Rama
+     */
+    protected void freeExtra() {
+    }
+
+    /**
+     * Builds the error for a value that does not fit the column type
+     * @param text value text
+     * @return exception to throw
+     * @author Ethan Rama
+     */
+    protected IllegalArgumentException invalid(String text) {
+        return new IllegalArgumentException("Invalid " + getType() + " value: " + text);
+    }
+}
+
+/**
+ * Stores INT values
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class IntVector extends ColumnVector {
+    /**
+     * Values of each chunk of a vector kept on the heap
+     */
+    private int[][] chunks = new int[1][];
+
+    /**
+     * Constructs an empty vector
+     * @param offHeap whether values are kept outside the Java heap
+     * @author Ethan Rama
+     */
+    IntVector(boolean offHeap) {
+        super(offHeap);
+    }
+
+    public int getInt(int row) {
+        if (isOffHeap()) {
+            return buffer(row >>> CHUNK_SHIFT).getInt((row & CHUNK_MASK) << 2);
+        }
+        return values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+    }
+
+    public void setInt(int row, int value) {
+        if (isOffHeap()) {
+            buffer(row >>> CHUNK_SHIFT).putInt((row & CHUNK_MASK) << 2, value);
+        } else {
+            values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+        }
+    }
+
+    /**
+     * Gets the values of a chunk for scanning
+     * @param chunk chunk number
+     * @param scratch array of CHUNK_SIZE values an off-heap chunk is copied
+     * into, null for a vector kept on the heap
+     * @return array of CHUNK_SIZE values, to be read only
+     * @author Ethan Rama
+     */
+    public int[] chunk(int chunk, int[] scratch) {
+        if (isOffHeap()) {
+            buffer(chunk).asIntBuffer().get(0, scratch);
+            return scratch;
+        }
+        return values(chunk);
+    }
+
+    private int[] values(int chunk) {
+        int[] values = chunks[chunk];
+        if (values == null) {
+            page(chunk);
+            values = chunks[chunk];
+        }
+        return values;
+    }
+
+    /**
+     * Parses a value into its stored form
+     * @param text value text
+     * @return stored value
+     * @author Ethan Rama
+     */
+    public int parse(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw invalid(text);
+        }
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.INT;
+    }
+
+    @Override
+    public long key(int row) {
+        return getInt(row);
+    }
+
+    @Override
+    public long keyOf(String text) {
+        return parse(text);
+    }
+
+    @Override
+    public Comparable<?> sortKey(int row) {
+        return getInt(row);
+    }
+
+    @Override
+    public Comparable<?> sortKeyOf(String text) {
+        return parse(text);
+    }
+
+    @Override
+    public int compareRows(int row, int other) {
+        return Integer.compare(getInt(row), getInt(other));
+    }
+
+    @Override
+    public long orderKey(int row) {
+        return getInt(row);
+    }
+
+    @Override
+    public long orderKeyOf(String text) {
+        return parse(text);
+    }
+
+    @Override
+    protected void setParsed(int row, String text) {
+        setInt(row, parse(text));
+    }
+
+    @Override
+    protected void copyValue(int from, int to) {
+        setInt(to, getInt(from));
+    }
+
+    @Override
+    protected String format(int row) {
+        return Integer.toString(getInt(row));
+    }
+
+    @Override
+    protected void resizeDirectory(int length) {
+        int[][] grown = Arrays.copyOf(chunks, length);
+        VarHandle.releaseFence();
+        chunks = grown;
+    }
+
+    @Override
+    protected void allocateChunk(int chunk) {
+        chunks[chunk] = new int[CHUNK_SIZE];
+    }
+
+    @Override
+    protected int chunkBytes() {
+        return CHUNK_SIZE * 4;
+    }
+
+    @Override
+    protected void writeChunk(int chunk, ByteBuffer out) {
+        if (isOffHeap()) {
+            out.asIntBuffer().put(buffer(chunk).asIntBuffer());
+        } else {
+            out.asIntBuffer().put(values(chunk));
+        }
+        out.position(out.position() + CHUNK_SIZE * 4);
+    }
+
+    @Override
+    protected void readChunk(int chunk, ByteBuffer in) {
+        if (isOffHeap()) {
+            ByteBuffer values = newBuffer();
+            values.asIntBuffer().put(in.asIntBuffer().limit(CHUNK_SIZE));
+            publish(chunk, values);
+            return;
+        }
+        int[] values = new int[CHUNK_SIZE];
+        in.asIntBuffer().get(values);
+        VarHandle.releaseFence();
+        chunks[chunk] = values;
+    }
+}
+
+/**
+ * Stores DATE values as days since 1970-01-01
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class DateVector extends IntVector {
+    /**
+     * Constructs an empty vector
+     * @param offHeap whether values are kept outside the Java heap
+     * @author Ethan Rama
+     */
+    DateVector(boolean offHeap) {
+        super(offHeap);
+    }
+
+    @Override
+    public int parse(String text) {
+        try {
+            return (int) LocalDate.parse(text).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw invalid(text);
+        }
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.DATE;
+    }
+
+    @Override
+    protected String format(int row) {
+        return LocalDate.ofEpochDay(getInt(row)).toString();
+    }
+}
+
+/**
+ * Stores FLOAT values
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class DoubleVector extends ColumnVector {
+    /**
+     * Values of each chunk of a vector kept on the heap
+     */
+    private double[][] chunks = new double[1][];
+
+    /**
+     * Constructs an empty vector
+     * @param offHeap whether values are kept outside the Java heap
+     * @author Ethan Rama
+     */
+    DoubleVector(boolean offHeap) {
+        super(offHeap);
+    }
+
+    public double getDouble(int row) {
+        if (isOffHeap()) {
+            return buffer(row >>> CHUNK_SHIFT).getDouble((row & CHUNK_MASK) << 3);
+        }
+        return values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+    }
+
+    public void setDouble(int row, double value) {
+        if (isOffHeap()) {
+            buffer(row >>> CHUNK_SHIFT).putDouble((row & CHUNK_MASK) << 3, value);
+        } else {
+            values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+        }
+    }
+
+    /**
+     * Gets the values of a chunk for scanning
+     * @param chunk chunk number
+     * @param scratch array of CHUNK_SIZE values an off-heap chunk is copied
+     * into, null for a vector kept on the heap
+     * @return array of CHUNK_SIZE values, to be read only
+     * @author Ethan Rama
+     */
+    public double[] chunk(int chunk, double[] scratch) {
+        if (isOffHeap()) {
+            buffer(chunk).asDoubleBuffer().get(0, scratch);
+            return scratch;
+        }
+        return values(chunk);
+    }
+
+    private double[] values(int chunk) {
+        double[] values = chunks[chunk];
+        if (values == null) {
+            page(chunk);
+            values = chunks[chunk];
+        }
+        return values;
+    }
+
+    /**
+     * Parses a value into its stored form
+     * @param text value text
+     * @return stored value
+     * @author Ethan Rama
+     */
+    public double parse(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw invalid(text);
+        }
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.FLOAT;
+    }
+
+    @Override
+    public long key(int row) {
+        return toKey(getDouble(row));
+    }
+
+    @Override
+    public long keyOf(String text) {
+        return toKey(parse(text));
+    }
+
+    @Override
+    public Comparable<?> sortKey(int row) {
+        return toSortKey(getDouble(row));
+    }
+
+    @Override
+    public Comparable<?> sortKeyOf(String text) {
+        return toSortKey(parse(text));
+    }
+
+    @Override
+    public int compareRows(int row, int other) {
+        return Double.compare(getDouble(row), getDouble(other));
+    }
+
+    @Override
+    public long orderKey(int row) {
+        return toOrderKey(getDouble(row));
+    }
+
+    @Override
+    public long orderKeyOf(String text) {
+        return toOrderKey(parse(text));
+    }
+
+    @Override
+    protected void setParsed(int row, String text) {
+        setDouble(row, parse(text));
+    }
+
+    @Override
+    protected void copyValue(int from, int to) {
+        setDouble(to, getDouble(from));
+    }
+
+    private static long toKey(double value) {
+        // -0.0 equals 0.0, so both share a key
+        return Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+    }
+
+    private static Double toSortKey(double value) {
+        return value == 0.0 ? 0.0 : value;
+    }
+
+    /**
+     * Gets the zone key of a value. Comparisons treat -0.0 as equal to
+     * 0.0, unlike order keys, so both share the key of 0.0.
+     * @param value value
+     * @return zone key of the value
+     * @author Ethan Rama
+     */
+    long zoneKeyOf(double value) {
+        return toOrderKey(value == 0.0 ? 0.0 : value);
+    }
+
+    @Override
+    protected long zoneKey(int row) {
+        return zoneKeyOf(getDouble(row));
+    }
+
+    private static long toOrderKey(double value) {
+        // Flipping the magnitude bits of negative values orders the bits as Double.compare does
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    @Override
+    protected String format(int row) {
+        return Double.toString(getDouble(row));
+    }
+
+    @Override
+    protected void resizeDirectory(int length) {
+        double[][] grown = Arrays.copyOf(chunks, length);
+        VarHandle.releaseFence();
+        chunks = grown;
+    }
+
+    @Override
+    protected void allocateChunk(int chunk) {
+        chunks[chunk] = new double[CHUNK_SIZE];
+    }
+
+    @Override
+    protected int chunkBytes() {
+        return CHUNK_SIZE * 8;
+    }
+
+    @Override
+    protected void writeChunk(int chunk, ByteBuffer out) {
+        if (isOffHeap()) {
+            out.asDoubleBuffer().put(buffer(chunk).asDoubleBuffer());
+        } else {
+            out.asDoubleBuffer().put(values(chunk));
+        }
+        out.position(out.position() + CHUNK_SIZE * 8);
+    }
+
+    @Override
+    protected void readChunk(int chunk, ByteBuffer in) {
+        if (isOffHeap()) {
+            ByteBuffer values = newBuffer();
+            values.asDoubleBuffer().put(in.asDoubleBuffer().limit(CHUNK_SIZE));
+            publish(chunk, values);
+            return;
+        }
+        double[] values = new double[CHUNK_SIZE];
+        in.asDoubleBuffer().get(values);
+        VarHandle.releaseFence();
+        chunks[chunk] = values;
+    }
+}
+
+/**
+ * Stores BOOL values as one bit per row
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class BoolVector extends ColumnVector {
+    /**
+     * Bits of each chunk of a vector kept on the heap
+     */
+    private long[][] chunks = new long[1][];
+
+    /**
+     * Constructs an empty vector
+     * @param offHeap whether values are kept outside the Java heap
+     * @author Ethan Rama
+     */
+    BoolVector(boolean offHeap) {
+        super(offHeap);
+    }
+
+    public boolean getBoolean(int row) {
+        int word = (row & CHUNK_MASK) >>> 6;
+        long bits = isOffHeap() ? buffer(row >>> CHUNK_SHIFT).getLong(word << 3) : values(row >>> CHUNK_SHIFT)[word];
+        return (bits & (1L << row)) != 0;
+    }
+
+    public void setBoolean(int row, boolean value) {
+        int word = (row & CHUNK_MASK) >>> 6;
+        if (isOffHeap()) {
+            setBit(buffer(row >>> CHUNK_SHIFT), word << 3, 1L << row, value);
+        } else {
+            setBit(values(row >>> CHUNK_SHIFT), word, 1L << row, value);
+        }
+    }
+
+    /**
+     * Gets the bits of a chunk for scanning
+     * @param chunk chunk number
+     * @param scratch array of CHUNK_SIZE / 64 words an off-heap chunk is
+     * copied into, null for a vector kept on the heap
+     * @return array of CHUNK_SIZE / 64 words, to be read only
+     * @author Ethan Rama
+     */
+    public long[] chunk(int chunk, long[] scratch) {
+        if (isOffHeap()) {
+            buffer(chunk).asLongBuffer().get(0, scratch);
+            return scratch;
+        }
+        return values(chunk);
+    }
+
+    private long[] values(int chunk) {
+        long[] bits = chunks[chunk];
+        if (bits == null) {
+            page(chunk);
+            bits = chunks[chunk];
+        }
+        return bits;
+    }
+
+    /**
+     * Parses a value into its stored form
+     * @param text TRUE or FALSE, in any case
+     * @return stored value
+     * @author Ethan Rama
+     */
+    public boolean parse(String text) {
+        if (text.equalsIgnoreCase("TRUE")) {
+            return true;
+        } else if (text.equalsIgnoreCase("FALSE")) {
+            return false;
+        }
+        throw invalid(text);
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.BOOL;
+    }
+
+    @Override
+    public long key(int row) {
+        return getBoolean(row) ? 1 : 0;
+    }
+
+    @Override
+    public long keyOf(String text) {
+        return parse(text) ? 1 : 0;
+    }
+
+    @Override
+    public Comparable<?> sortKey(int row) {
+        return getBoolean(row);
+    }
+
+    @Override
+    public Comparable<?> sortKeyOf(String text) {
+        return parse(text);
+    }
+
+    @Override
+    public int compareRows(int row, int other) {
+        return Boolean.compare(getBoolean(row), getBoolean(other));
+    }
+
+    @Override
+    public long orderKey(int row) {
+        return getBoolean(row) ? 1 : 0;
+    }
+
+    @Override
+    public long orderKeyOf(String text) {
+        return parse(text) ? 1 : 0;
+    }
+
+    @Override
+    protected void setParsed(int row, String text) {
+        setBoolean(row, parse(text));
+    }
+
+    @Override
+    protected void copyValue(int from, int to) {
+        setBoolean(to, getBoolean(from));
+    }
+
+    @Override
+    protected String format(int row) {
+        return getBoolean(row) ? "TRUE" : "FALSE";
+    }
+
+    @Override
+    protected void resizeDirectory(int length) {
+        long[][] grown = Arrays.copyOf(chunks, length);
+        VarHandle.releaseFence();
+        chunks = grown;
+    }
+
+    @Override
+    protected void allocateChunk(int chunk) {
+        chunks[chunk] = new long[CHUNK_SIZE >>> 6];
+    }
+
+    @Override
+    protected int chunkBytes() {
+        return CHUNK_SIZE >>> 3;
+    }
+
+    @Override
+    protected void writeChunk(int chunk, ByteBuffer out) {
+        if (isOffHeap()) {
+            out.asLongBuffer().put(buffer(chunk).asLongBuffer());
+        } else {
+            out.asLongBuffer().put(values(chunk));
+        }
+        out.position(out.position() + (CHUNK_SIZE >>> 3));
+    }
+
+    @Override
+    protected void readChunk(int chunk, ByteBuffer in) {
+        if (isOffHeap()) {
+            ByteBuffer bits = newBuffer();
+            bits.asLongBuffer().put(in.asLongBuffer().limit(CHUNK_SIZE >>> 6));
+            publish(chunk, bits);
+            return;
+        }
+        long[] bits = new long[CHUNK_SIZE >>> 6];
+        in.asLongBuffer().get(bits);
+        VarHandle.releaseFence();
+        chunks[chunk] = bits;
+    }
+}
+
+/**
+ * Stores CHAR and VARCHAR values as codes into a dictionary of the distinct
+ * strings in the column
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class StringVector extends ColumnVector {
+    /**
+     * CHAR or VARCHAR
+     */
+    private final ColumnType type;
+
+    /**
+     * Dictionary codes of each chunk of a vector kept on the heap
+     */
+    private int[][] chunks = new int[1][];
+
+    /**
+     * Distinct strings of the column, null until read from the snapshot
+     */
+    private StringDictionary dictionary;
+
+    /**
+     * Snapshot holding the dictionary, null once it has been read
+     */
+    private Snapshot.Image dictionaryImage;
+
+    /**
+     * Snapshot offset of the first dictionary string
+     */
+    private long dictionaryOffset;
+
+    /**
+     * Number of strings in the snapshot dictionary
+     */
+    private int dictionarySize;
+
+    /**
+     * Constructs an empty string vector
+     * @param type CHAR or VARCHAR
+     * @param offHeap whether codes and strings are kept outside the Java heap
+     * @author Ethan Rama
+     */
+    public StringVector(ColumnType type, boolean offHeap) {
+        super(offHeap);
+        this.type = type;
+        this.dictionary = StringDictionary.create(offHeap);
+    }
+
+    public int getCode(int row) {
+        if (isOffHeap()) {
+            return buffer(row >>> CHUNK_SHIFT).getInt((row & CHUNK_MASK) << 2);
+        }
+        return values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the dictionary codes of a chunk for scanning
+     * @param chunk chunk number
+     * @param scratch array of CHUNK_SIZE codes an off-heap chunk is copied
+     * into, null for a vector kept on the heap
+     * @return array of CHUNK_SIZE codes, to be read only
+     * @author Ethan Rama
+     */
+    public int[] chunk(int chunk, int[] scratch) {
+        if (isOffHeap()) {
+            buffer(chunk).asIntBuffer().get(0, scratch);
+            return scratch;
+        }
+        return values(chunk);
+    }
+
+    private int[] values(int chunk) {
+        int[] codes = chunks[chunk];
+        if (codes == null) {
+            page(chunk);
+            codes = chunks[chunk];
+        }
+        return codes;
+    }
+
+    /**
+     * Gets the values of a batch of rows as text, finding the dictionary
+     * once and each chunk's codes once for its rows. Rows sharing a value
+     * share its string.
+     * @param rows row numbers
+     * @param count number of rows to read
+     * @param into filled with the string of each row's value, null for NULL
+     * @author Ethan Rama
+     */
+    @Override
+    public void getStrings(int[] rows, int count, String[] into) {
+        StringDictionary strings = dictionary();
+        int loaded = -1;
+        long[] bits = null;
+        int[] codes = null;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (row >>> CHUNK_SHIFT != loaded) {
+                loaded = row >>> CHUNK_SHIFT;
+                bits = nullChunk(loaded);
+                codes = isOffHeap() ? null : values(loaded);
+            }
+            if (bits != null && (bits[(row & CHUNK_MASK) >>> 6] & (1L << row)) != 0) {
+                into[i] = null;
+            } else {
+                into[i] = strings.get(codes == null ? getCode(row) : codes[row & CHUNK_MASK]);
+            }
+        }
+    }
+
+    /**
+     * Gets the string of a dictionary code
+     * @param code dictionary code
+     * @return distinct string
+     * @author Ethan Rama
+     */
+    public String decode(int code) {
+        return dictionary().get(code);
+    }
+
+    /**
+     * Gets the dictionary code of a string
+     * @param value string value
+     * @return dictionary code, or -1 if the string is not in the column
+     * @author Ethan Rama
+     */
+    public int lookup(String value) {
+        return dictionary().lookup(value);
+    }
+
+    /**
+     * Gets the dictionary, reading it from the snapshot on first use
+     * @return distinct strings of the column
+     * @author Ethan Rama
+     */
+    private StringDictionary dictionary() {
+        StringDictionary strings = dictionary;
+        return strings != null ? strings : readDictionary();
+    }
+
+    private synchronized StringDictionary readDictionary() {
+        if (dictionary == null) {
+            if (dictionaryImage == null) {
+                throw new IllegalStateException("Column has been dropped.");
+            }
+            StringDictionary strings = StringDictionary.create(isOffHeap());
+            long offset = dictionaryOffset;
+            for (int code = 0; code < dictionarySize; code++) {
+                byte[] bytes = new byte[dictionaryImage.getInt(offset)];
+                dictionaryImage.get(offset + 4, bytes);
+                offset += 4 + bytes.length;
+                strings.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            VarHandle.releaseFence();
+            dictionary = strings;
+            dictionaryImage = null;
+        }
+        return dictionary;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return type;
+    }
+
+    @Override
+    public long key(int row) {
+        return getCode(row);
+    }
+
+    @Override
+    public long keyOf(String text) {
+        return lookup(text);
+    }
+
+    @Override
+    public Comparable<?> sortKey(int row) {
+        return format(row);
+    }
+
+    @Override
+    public Comparable<?> sortKeyOf(String text) {
+        return text;
+    }
+
+    @Override
+    public int compareRows(int row, int other) {
+        int code = getCode(row);
+        int otherCode = getCode(other);
+        return code == otherCode ? 0 : decode(code).compareTo(decode(otherCode));
+    }
+
+    /**
+     * Gets the first three characters of a value, packed high to low so
+     * the key orders like String.compareTo up to the third character
+     * @param row row number
+     * @return prefix key, never negative
+     * @author Ethan Rama
+     */
+    @Override
+    public long orderKey(int row) {
+        return orderKeyOf(decode(getCode(row)));
+    }
+
+    @Override
+    public long orderKeyOf(String text) {
+        long key = 0;
+        for (int i = 0; i < 3; i++) {
+            key = key << 16 | (i < text.length() ? text.charAt(i) : 0);
+        }
+        return key;
+    }
+
+    @Override
+    public boolean isOrderKeyExact() {
+        return false;
+    }
+
+    @Override
+    protected void setParsed(int row, String text) {
+        setCode(row, dictionary().add(text));
+    }
+
+    @Override
+    protected void copyValue(int from, int to) {
+        setCode(to, getCode(from));
+    }
+
+    private void setCode(int row, int code) {
+        if (isOffHeap()) {
+            buffer(row >>> CHUNK_SHIFT).putInt((row & CHUNK_MASK) << 2, code);
+        } else {
+            values(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = code;
+        }
+    }
+
+    @Override
+    protected String format(int row) {
+        return decode(getCode(row));
+    }
+
+    @Override
+    protected void resizeDirectory(int length) {
+        int[][] grown = Arrays.copyOf(chunks, length);
+        VarHandle.releaseFence();
+        chunks = grown;
+    }
+
+    @Override
+    protected void allocateChunk(int chunk) {
+        chunks[chunk] = new int[CHUNK_SIZE];
+    }
+
+    @Override
+    protected int chunkBytes() {
+        return CHUNK_SIZE * 4;
+    }
+
+    @Override
+    protected void writeChunk(int chunk, ByteBuffer out) {
+        if (isOffHeap()) {
+            out.asIntBuffer().put(buffer(chunk).asIntBuffer());
+        } else {
+            out.asIntBuffer().put(values(chunk));
+        }
+        out.position(out.position() + CHUNK_SIZE * 4);
+    }
+
+    @Override
+    protected void readChunk(int chunk, ByteBuffer in) {
+        if (isOffHeap()) {
+            ByteBuffer codes = newBuffer();
+            codes.asIntBuffer().put(in.asIntBuffer().limit(CHUNK_SIZE));
+            publish(chunk, codes);
+            return;
+        }
+        int[] codes = new int[CHUNK_SIZE];
+        in.asIntBuffer().get(codes);
+        VarHandle.releaseFence();
+        chunks[chunk] = codes;
+    }
+
+    @Override
+    protected void writeExtra(Snapshot.Writer out, RecordBuffer footer) {
+        StringDictionary strings = dictionary();
+        // Strings are written back to back, so one may run across the end of a mapped segment
+        footer.putLong(out.position());
+        footer.putInt(strings.size());
+        for (int code = 0; code < strings.size(); code++) {
+            byte[] bytes = strings.get(code).getBytes(StandardCharsets.UTF_8);
+            out.append(ByteBuffer.allocate(4).putInt(bytes.length).flip());
+            out.append(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    @Override
+    protected void attachExtra(Snapshot.Image image, ByteBuffer footer) {
+        dictionaryOffset = footer.getLong();
+        dictionarySize = footer.getInt();
+        dictionaryImage = image;
+        dictionary = null;
+    }
+
+    @Override
+    protected void freeExtra() {
+        dictionaryImage = null;
+        if (dictionary != null) {
+            dictionary.free();
+        }
+        dictionary = null;
+    }
+}
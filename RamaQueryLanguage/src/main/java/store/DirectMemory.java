@@ -0,0 +1,92 @@
+/*
+ * DirectMemory.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees direct buffers as soon as their owner is done with them, rather
+ * than when the garbage collector next finds them unreachable. A dropped
+ * off-heap table may hold far more native memory than heap, so waiting for
+ * a collection can exhaust direct memory while the heap is nearly empty.
+ * <br><br>
+ * Freeing a buffer that is still read crashes the JVM rather than failing
+ * with an exception, so a buffer is only released once nothing can reach
+ * it: a table's vectors let go of their buffers only when the table has
+ * been dropped and no query holds a pin on it. Where the JDK does not
+ * expose a cleaner, buffers are left to the garbage collector.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+final class DirectMemory {
+    /**
+     * Unsafe.invokeCleaner bound to the Unsafe instance, null if the JDK
+     * does not provide it
+     */
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private DirectMemory() {
+    }
+
+    /**
+     * Frees the native memory of a direct buffer now. The buffer must not
+     * be read or written afterwards.
+     * @param buffer direct buffer allocated by allocateDirect, not a slice
+     * or duplicate; null is ignored
+     * @author Ethan Rama
+     */
+    static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (IllegalArgumentException e) {
+            // A view of another buffer has no cleaner of its own; its memory goes with that buffer
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not free direct buffer.", e);
+        }
+    }
+
+    /**
+     * Frees every direct buffer of an array, leaving the array empty
+     * @param buffers buffers to free, any of them null
+     * @author Ethan Rama
+     */
+    static void release(ByteBuffer[] buffers) {
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer buffer = buffers[i];
+            buffers[i] = null;
+            release(buffer);
+        }
+    }
+
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
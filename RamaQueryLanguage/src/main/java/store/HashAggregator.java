@@ -0,0 +1,775 @@
+/*
+ * HashAggregator.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Sorts groups by primitive order keys, keeping only the groups a
+ *   LIMIT returns
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Groups the rows of a table by the values of GROUP BY attributes and
+ * computes COUNT, SUM, AVG, MIN and MAX over each group.
+ * <br><br>
+ * Groups are found through an open addressing table over the long keys
+ * the group attributes' vectors give their values, so a row is grouped
+ * without boxing or formatting a value. Each group is numbered in the
+ * order it is first seen, and each aggregate keeps its state in primitive
+ * arrays indexed by group number, typed by the attribute it reads: INT
+ * sums are added as longs, FLOAT sums as doubles, and MIN and MAX keep the
+ * row holding the extreme value, compared by the vector. Rows are
+ * grouped a batch at a time, and each aggregate then runs over the whole
+ * batch in one loop.
+ * <br><br>
+ * A scan split across threads aggregates each run into its own partial
+ * aggregator, and the partials are merged into the first in row order, so
+ * groups come out in the order a single thread would see them.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class HashAggregator {
+    /**
+     * Marks an empty slot
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Groups a new aggregator has room for
+     */
+    private static final int INITIAL_GROUPS = 16;
+
+    /**
+     * Values of each GROUP BY attribute
+     */
+    private final ColumnVector[] groupVectors;
+
+    /**
+     * Aggregates computed for each group, in the order of the query
+     */
+    private final Accumulator[] accumulators;
+
+    /**
+     * Group number in each slot, EMPTY if the slot is free
+     */
+    private int[] slots;
+
+    /**
+     * Number of bits of the hash used to pick a slot
+     */
+    private int bits;
+
+    /**
+     * Key of each GROUP BY attribute of each group, by group number
+     */
+    private long[] keys;
+
+    /**
+     * Bit set for each GROUP BY attribute that is NULL, by group number
+     */
+    private long[] nulls;
+
+    /**
+     * First row of each group, read for the GROUP BY values
+     */
+    private int[] firsts;
+
+    /**
+     * Number of groups
+     */
+    private int groups;
+
+    /**
+     * Keys of the row being grouped
+     */
+    private final long[] rowKeys;
+
+    /**
+     * Constructs an aggregator with no rows
+     * @param table table being aggregated
+     * @param groupOrdinals column positions of the GROUP BY attributes
+     * @param aggregates aggregates to compute
+     * @author Ethan Rama
+     */
+    HashAggregator(RamaTable table, int[] groupOrdinals, List<Aggregate> aggregates) {
+        if (groupOrdinals.length > Long.SIZE) {
+            throw new IllegalArgumentException("GROUP BY allows at most " + Long.SIZE + " attributes.");
+        }
+        this.groupVectors = new ColumnVector[groupOrdinals.length];
+        for (int i = 0; i < groupOrdinals.length; i++) {
+            groupVectors[i] = table.getVector(groupOrdinals[i]);
+        }
+        this.rowKeys = new long[groupOrdinals.length];
+        this.accumulators = new Accumulator[aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = Accumulator.of(table, aggregates.get(i));
+        }
+        this.bits = 5;
+        this.slots = new int[1 << bits];
+        Arrays.fill(slots, EMPTY);
+        resize(INITIAL_GROUPS);
+        if (groupVectors.length == 0) {
+            // Without GROUP BY every row is in one group, which exists even with no rows
+            group(-1);
+        }
+    }
+
+    /**
+     * Aggregates the rows of a table that meet a condition, splitting a
+     * scan across the common fork-join pool
+     * @param table table to aggregate
+     * @param where WHERE condition, null for every row
+     * @param groupOrdinals column positions of the GROUP BY attributes
+     * @param aggregates aggregates to compute
+     * @param version version being read
+     * @param parallelism largest number of threads to scan on
+     * @return aggregator holding every group
+     * @author Ethan Rama
+     */
+    static HashAggregator aggregate(RamaTable table, Expression where, int[] groupOrdinals,
+                                    List<Aggregate> aggregates, long version, int parallelism) {
+        HashAggregator result = new HashAggregator(table, groupOrdinals, aggregates);
+        List<RowSelector.Rows> parts = RowSelector.split(table, where, version, parallelism);
+        List<ForkJoinTask<HashAggregator>> tasks = new ArrayList<>(parts.size() - 1);
+        for (RowSelector.Rows part : parts.subList(1, parts.size())) {
+            tasks.add(ForkJoinTask.adapt(() -> new HashAggregator(table, groupOrdinals, aggregates).addAll(part))
+                    .fork());
+        }
+        // The calling thread aggregates the first run rather than waiting idle
+        result.addAll(parts.get(0));
+        for (ForkJoinTask<HashAggregator> task : tasks) {
+            result.merge(task.join());
+        }
+        return result;
+    }
+
+    /**
+     * Adds every row of a run
+     * @param rows rows to aggregate
+     * @return this aggregator
+     * @author Ethan Rama
+     */
+    HashAggregator addAll(RowSelector.Rows rows) {
+        int[] batch = new int[ColumnVector.CHUNK_SIZE];
+        int[] batchGroups = new int[ColumnVector.CHUNK_SIZE];
+        for (int count = rows.fetch(batch); count > 0; count = rows.fetch(batch)) {
+            for (int i = 0; i < count; i++) {
+                batchGroups[i] = group(batch[i]);
+            }
+            for (Accumulator accumulator : accumulators) {
+                accumulator.add(batchGroups, batch, count);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Merges the groups of a partial aggregator of the same query into
+     * this one
+     * @param partial aggregator of other rows
+     * @author Ethan Rama
+     */
+    void merge(HashAggregator partial) {
+        int width = groupVectors.length;
+        int[] map = new int[partial.groups];
+        for (int g = 0; g < partial.groups; g++) {
+            map[g] = find(partial.keys, g * width, partial.nulls[g], partial.firsts[g]);
+        }
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i].merge(partial.accumulators[i], map, partial.groups);
+        }
+    }
+
+    /**
+     * Get the number of groups
+     * @return groups found
+     * @author Ethan Rama
+     */
+    int size() {
+        return groups;
+    }
+
+    /**
+     * Reads a GROUP BY attribute or an aggregate of a group
+     * @param item aggregate position, or -1 - position for a GROUP BY
+     * attribute
+     * @param group group number
+     * @return value as text, null for NULL
+     * @author Ethan Rama
+     */
+    String getString(int item, int group) {
+        if (item >= 0) {
+            return accumulators[item].get(group);
+        }
+        return groupVectors[-1 - item].getString(firsts[group]);
+    }
+
+    /**
+     * Sorts the groups by GROUP BY attributes and aggregates, comparing
+     * order keys as RowSorter does
+     * @param items aggregate position, or -1 - position for a GROUP BY
+     * attribute, of each sort key
+     * @param descending whether each sort key sorts from the largest down
+     * @param top number of leading groups that will be read,
+     * Long.MAX_VALUE for every group
+     * @return group numbers in sorted order, at most top of them
+     * @author Ethan Rama
+     */
+    int[] sort(int[] items, boolean[] descending, long top) {
+        return RowSorter.sort(new RowSorter.Keys() {
+            @Override
+            public long key(int k, int group) {
+                int item = items[k];
+                if (item >= 0) {
+                    return accumulators[item].orderKey(group);
+                }
+                ColumnVector vector = groupVectors[-1 - item];
+                return vector.isNull(firsts[group]) ? Long.MIN_VALUE : vector.orderKey(firsts[group]);
+            }
+
+            @Override
+            public int compare(int k, int group, int other) {
+                int item = items[k];
+                if (item >= 0) {
+                    return accumulators[item].compare(group, other);
+                }
+                return groupVectors[-1 - item].compareRows(firsts[group], firsts[other]);
+            }
+
+            @Override
+            public boolean isExact(int k) {
+                int item = items[k];
+                return item >= 0 ? accumulators[item].isOrderKeyExact()
+                        : groupVectors[-1 - item].isOrderKeyExact();
+            }
+        }, descending, groups, top);
+    }
+
+    /**
+     * Finds the group of a row, adding a group for a new combination of
+     * values
+     * @param row row number, -1 for the single group without GROUP BY
+     * @return group number
+     * @author Ethan Rama
+     */
+    private int group(int row) {
+        long rowNulls = 0;
+        for (int i = 0; i < rowKeys.length; i++) {
+            ColumnVector vector = groupVectors[i];
+            if (vector.isNull(row)) {
+                // A fixed key, so NULLs hash and compare alike whatever row came before
+                rowNulls |= 1L << i;
+                rowKeys[i] = 0;
+            } else {
+                rowKeys[i] = vector.key(row);
+            }
+        }
+        return find(rowKeys, 0, rowNulls, row);
+    }
+
+    /**
+     * Finds the group of a combination of values, adding it if new
+     * @param source array holding the keys
+     * @param from position of the first key in source
+     * @param groupNulls bit set for each NULL value
+     * @param first row to add a new group with
+     * @return group number
+     * @author Ethan Rama
+     */
+    private int find(long[] source, int from, long groupNulls, int first) {
+        int width = groupVectors.length;
+        int mask = slots.length - 1;
+        int slot = slot(hash(source, from, groupNulls));
+        for (int group = slots[slot]; group != EMPTY; group = slots[slot]) {
+            if (nulls[group] == groupNulls
+                    && Arrays.equals(keys, group * width, group * width + width, source, from, from + width)) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (groups == firsts.length) {
+            resize(groups * 2);
+        }
+        int group = groups++;
+        System.arraycopy(source, from, keys, group * width, width);
+        nulls[group] = groupNulls;
+        firsts[group] = first;
+        slots[slot] = group;
+        if (groups * 2 > slots.length) {
+            rehash();
+        }
+        return group;
+    }
+
+    /**
+     * Grows the per group arrays of the groups and every aggregate
+     * @param capacity number of groups to make room for
+     * @author Ethan Rama
+     */
+    private void resize(int capacity) {
+        keys = keys == null ? new long[capacity * groupVectors.length]
+                : Arrays.copyOf(keys, capacity * groupVectors.length);
+        nulls = nulls == null ? new long[capacity] : Arrays.copyOf(nulls, capacity);
+        firsts = firsts == null ? new int[capacity] : Arrays.copyOf(firsts, capacity);
+        for (Accumulator accumulator : accumulators) {
+            accumulator.resize(capacity);
+        }
+    }
+
+    /**
+     * Doubles the slots, placing every group again
+     * @author Ethan Rama
+     */
+    private void rehash() {
+        bits++;
+        slots = new int[1 << bits];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+        int width = groupVectors.length;
+        for (int group = 0; group < groups; group++) {
+            int slot = slot(hash(keys, group * width, nulls[group]));
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = group;
+        }
+    }
+
+    private long hash(long[] source, int from, long groupNulls) {
+        long hash = groupNulls;
+        for (int i = from; i < from + groupVectors.length; i++) {
+            hash = (hash + source[i]) * 0x9E3779B97F4A7C15L;
+        }
+        return hash * 0x9E3779B97F4A7C15L;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash >>> (64 - bits));
+    }
+
+    /**
+     * Gets a double as a long ordered as Double.compare orders doubles
+     * @param value double value
+     * @return order key, never Long.MIN_VALUE
+     * @author Ethan Rama
+     */
+    private static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * State of one aggregate for every group, in primitive arrays indexed
+     * by group number
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    abstract static class Accumulator {
+        /**
+         * Creates the accumulator for an aggregate, typed by the attribute
+         * it reads
+         * @param table table being aggregated
+         * @param aggregate aggregate to compute
+         * @return empty accumulator
+         * @author Ethan Rama
+         */
+        static Accumulator of(RamaTable table, Aggregate aggregate) {
+            if (aggregate.getColumnName() == null) {
+                return new CountRows();
+            }
+            ColumnVector vector = table.getVector(table.requireOrdinal(aggregate.getColumnName()));
+            switch (aggregate.getFunction()) {
+                case "COUNT":
+                    return new CountValues(vector);
+                case "MIN":
+                    return new Extreme(vector, false);
+                case "MAX":
+                    return new Extreme(vector, true);
+                default:
+                    boolean average = aggregate.getFunction().equals("AVG");
+                    if (vector instanceof DoubleVector) {
+                        return new DoubleSum((DoubleVector) vector, average);
+                    }
+                    if (vector.getType() == ColumnType.INT) {
+                        return new LongSum((IntVector) vector, average);
+                    }
+                    throw new IllegalArgumentException(aggregate.getFunction() + " requires an INT or FLOAT attribute: "
+                            + aggregate.getColumnName());
+            }
+        }
+
+        /**
+         * Grows the state to a number of groups
+         * @param capacity number of groups to make room for
+         * @author Ethan Rama
+         */
+        abstract void resize(int capacity);
+
+        /**
+         * Adds a batch of rows to their groups
+         * @param groups group number of each row
+         * @param rows row numbers
+         * @param count number of rows
+         * @author Ethan Rama
+         */
+        abstract void add(int[] groups, int[] rows, int count);
+
+        /**
+         * Adds the state of a partial accumulator of the same aggregate
+         * @param partial accumulator of other rows
+         * @param map group number here of each partial group
+         * @param count number of partial groups
+         * @author Ethan Rama
+         */
+        abstract void merge(Accumulator partial, int[] map, int count);
+
+        /**
+         * Reads the result of a group
+         * @param group group number
+         * @return result as text, null for NULL
+         * @author Ethan Rama
+         */
+        abstract String get(int group);
+
+        /**
+         * Gets the result of a group as an order key
+         * @param group group number
+         * @return key ordered like compare, Long.MIN_VALUE for NULL
+         * @author Ethan Rama
+         */
+        abstract long orderKey(int group);
+
+        /**
+         * Checks if order keys order results completely
+         * @return true if equal order keys always hold equal results
+         * @author Ethan Rama
+         */
+        boolean isOrderKeyExact() {
+            return true;
+        }
+
+        /**
+         * Compares the results of two groups, NULL first
+         * @param group group number
+         * @param other other group number
+         * @return negative, zero or positive as group sorts before, with or
+         * after other
+         * @author Ethan Rama
+         */
+        abstract int compare(int group, int other);
+    }
+
+    /**
+     * COUNT(*), counting every row
+     */
+    private static final class CountRows extends Accumulator {
+        private long[] counts = new long[0];
+
+        @Override
+        void resize(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groups, int[] rows, int count) {
+            for (int i = 0; i < count; i++) {
+                counts[groups[i]]++;
+            }
+        }
+
+        @Override
+        void merge(Accumulator partial, int[] map, int count) {
+            long[] other = ((CountRows) partial).counts;
+            for (int g = 0; g < count; g++) {
+                counts[map[g]] += other[g];
+            }
+        }
+
+        @Override
+        String get(int group) {
+            return Long.toString(counts[group]);
+        }
+
+        @Override
+        long orderKey(int group) {
+            return counts[group];
+        }
+
+        @Override
+        int compare(int group, int other) {
+            return Long.compare(counts[group], counts[other]);
+        }
+    }
+
+    /**
+     * COUNT(column), counting the rows whose value is not NULL
+     */
+    private static final class CountValues extends Accumulator {
+        private final ColumnVector vector;
+        private long[] counts = new long[0];
+
+        CountValues(ColumnVector vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        void resize(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groups, int[] rows, int count) {
+            for (int i = 0; i < count; i++) {
+                if (!vector.isNull(rows[i])) {
+                    counts[groups[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(Accumulator partial, int[] map, int count) {
+            long[] other = ((CountValues) partial).counts;
+            for (int g = 0; g < count; g++) {
+                counts[map[g]] += other[g];
+            }
+        }
+
+        @Override
+        String get(int group) {
+            return Long.toString(counts[group]);
+        }
+
+        @Override
+        long orderKey(int group) {
+            return counts[group];
+        }
+
+        @Override
+        int compare(int group, int other) {
+            return Long.compare(counts[group], counts[other]);
+        }
+    }
+
+    /**
+     * SUM or AVG of an INT attribute, summed as a long. A group with no
+     * values is NULL.
+     */
+    private static final class LongSum extends Accumulator {
+        private final IntVector vector;
+        private final boolean average;
+        private long[] sums = new long[0];
+        private long[] counts = new long[0];
+
+        LongSum(IntVector vector, boolean average) {
+            this.vector = vector;
+            this.average = average;
+        }
+
+        @Override
+        void resize(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groups, int[] rows, int count) {
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (!vector.isNull(row)) {
+                    sums[groups[i]] += vector.getInt(row);
+                    counts[groups[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(Accumulator partial, int[] map, int count) {
+            LongSum other = (LongSum) partial;
+            for (int g = 0; g < count; g++) {
+                sums[map[g]] += other.sums[g];
+                counts[map[g]] += other.counts[g];
+            }
+        }
+
+        @Override
+        String get(int group) {
+            if (counts[group] == 0) {
+                return null;
+            }
+            return average ? Double.toString((double) sums[group] / counts[group]) : Long.toString(sums[group]);
+        }
+
+        @Override
+        int compare(int group, int other) {
+            if (counts[group] == 0 || counts[other] == 0) {
+                return Boolean.compare(counts[other] == 0, counts[group] == 0);
+            }
+            return average ? Double.compare((double) sums[group] / counts[group], (double) sums[other] / counts[other])
+                    : Long.compare(sums[group], sums[other]);
+        }
+
+        @Override
+        long orderKey(int group) {
+            if (counts[group] == 0) {
+                return Long.MIN_VALUE;
+            }
+            // A sum of Long.MIN_VALUE would read as NULL, so it is moved up to the next key
+            return average ? doubleKey((double) sums[group] / counts[group]) : Math.max(sums[group], Long.MIN_VALUE + 1);
+        }
+    }
+
+    /**
+     * SUM or AVG of a FLOAT attribute, summed as a double. A group with no
+     * values is NULL.
+     */
+    private static final class DoubleSum extends Accumulator {
+        private final DoubleVector vector;
+        private final boolean average;
+        private double[] sums = new double[0];
+        private long[] counts = new long[0];
+
+        DoubleSum(DoubleVector vector, boolean average) {
+            this.vector = vector;
+            this.average = average;
+        }
+
+        @Override
+        void resize(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groups, int[] rows, int count) {
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (!vector.isNull(row)) {
+                    sums[groups[i]] += vector.getDouble(row);
+                    counts[groups[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(Accumulator partial, int[] map, int count) {
+            DoubleSum other = (DoubleSum) partial;
+            for (int g = 0; g < count; g++) {
+                sums[map[g]] += other.sums[g];
+                counts[map[g]] += other.counts[g];
+            }
+        }
+
+        @Override
+        String get(int group) {
+            if (counts[group] == 0) {
+                return null;
+            }
+            return Double.toString(average ? sums[group] / counts[group] : sums[group]);
+        }
+
+        @Override
+        int compare(int group, int other) {
+            if (counts[group] == 0 || counts[other] == 0) {
+                return Boolean.compare(counts[other] == 0, counts[group] == 0);
+            }
+            return average ? Double.compare(sums[group] / counts[group], sums[other] / counts[other])
+                    : Double.compare(sums[group], sums[other]);
+        }
+
+        @Override
+        long orderKey(int group) {
+            if (counts[group] == 0) {
+                return Long.MIN_VALUE;
+            }
+            return doubleKey(average ? sums[group] / counts[group] : sums[group]);
+        }
+    }
+
+    /**
+     * MIN or MAX of any attribute, kept as the row holding the extreme
+     * value so it is compared by the vector without reading it out
+     */
+    private static final class Extreme extends Accumulator {
+        private final ColumnVector vector;
+        private final boolean max;
+
+        /**
+         * Row holding the extreme value of each group, EMPTY for none
+         */
+        private int[] rows = new int[0];
+
+        Extreme(ColumnVector vector, boolean max) {
+            this.vector = vector;
+            this.max = max;
+        }
+
+        @Override
+        void resize(int capacity) {
+            int from = rows.length;
+            rows = Arrays.copyOf(rows, capacity);
+            Arrays.fill(rows, from, capacity, EMPTY);
+        }
+
+        @Override
+        void add(int[] groups, int[] batch, int count) {
+            for (int i = 0; i < count; i++) {
+                offer(groups[i], batch[i]);
+            }
+        }
+
+        private void offer(int group, int row) {
+            if (row == EMPTY || vector.isNull(row)) {
+                return;
+            }
+            int best = rows[group];
+            if (best == EMPTY || (max ? vector.compareRows(row, best) > 0 : vector.compareRows(row, best) < 0)) {
+                rows[group] = row;
+            }
+        }
+
+        @Override
+        void merge(Accumulator partial, int[] map, int count) {
+            int[] other = ((Extreme) partial).rows;
+            for (int g = 0; g < count; g++) {
+                offer(map[g], other[g]);
+            }
+        }
+
+        @Override
+        String get(int group) {
+            return rows[group] == EMPTY ? null : vector.getString(rows[group]);
+        }
+
+        @Override
+        long orderKey(int group) {
+            return rows[group] == EMPTY ? Long.MIN_VALUE : vector.orderKey(rows[group]);
+        }
+
+        @Override
+        boolean isOrderKeyExact() {
+            return vector.isOrderKeyExact();
+        }
+
+        @Override
+        int compare(int group, int other) {
+            int a = rows[group];
+            int b = rows[other];
+            if (a == EMPTY || b == EMPTY) {
+                return Boolean.compare(b == EMPTY, a == EMPTY);
+            }
+            return vector.compareRows(a, b);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * HashIndex.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.3
+ * 10/18/2026: v1.3
+ * - Lookups run without locking alongside a writer
+ * - Added replacing the row of a key
+ * 10/18/2026: v1.2
+ * - Slots can be written to a snapshot and loaded from it on first use
+ * 10/18/2026: v1.1
+ * - Added key removal
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Maps the keys of a unique attribute to the row holding them. Keys and rows
+ * are kept in parallel primitive arrays with open addressing, so a lookup
+ * neither boxes the key nor follows a chain of entries.
+ * <br><br>
+ * One writer at a time changes the index while queries look keys up
+ * without locking. A key is written before its row and a grown table is
+ * filled before it is published, so a lookup sees each slot either before
+ * or after a change. A lookup that pairs the key and row arrays of two
+ * different sizes starts over.
+ * @version 1.3
+ * @author Ethan Rama
+ */
+class HashIndex {
+    /**
+     * Marks an empty slot in the row array
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Number of slots written to a snapshot as one block
+     */
+    private static final int BLOCK_SIZE = 1 << 12;
+
+    /**
+     * Key stored in each slot, null until slots attached from a snapshot
+     * are loaded
+     */
+    private long[] keys;
+
+    /**
+     * Row stored in each slot, EMPTY if the slot is free
+     */
+    private int[] rows;
+
+    /**
+     * Number of bits of the hash used to pick a slot
+     */
+    private int bits;
+
+    /**
+     * Number of keys in the index
+     */
+    private int size;
+
+    /**
+     * Snapshot the slots are loaded from, null once loaded
+     */
+    private Snapshot.Image image;
+
+    /**
+     * Snapshot offset of each block of keys
+     */
+    private long[] keyOffsets;
+
+    /**
+     * Snapshot offset of each block of rows
+     */
+    private long[] rowOffsets;
+
+    /**
+     * Constructs an empty index
+     * @author Ethan Rama
+     */
+    public HashIndex() {
+        allocate(4);
+    }
+
+    /**
+     * Gets the row holding a key
+     * @param key key of the value
+     * @return row number, or -1 if no row holds the key
+     * @author Ethan Rama
+     */
+    public int get(long key) {
+        long[] keys = this.keys;
+        if (keys == null) {
+            load();
+            keys = this.keys;
+        }
+        int[] rows = this.rows;
+        if (rows.length != keys.length) {
+            return get(key);
+        }
+        int mask = rows.length - 1;
+        for (int slot = slot(key, rows.length); rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return rows[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a key unless it is already in the index
+     * @param key key of the value
+     * @param row row holding the value
+     * @return true if the key was added, false if another row holds it
+     * @author Ethan Rama
+     */
+    public boolean put(long key, int row) {
+        int slot = find(key);
+        if (rows[slot] != EMPTY) {
+            return false;
+        }
+        add(slot, key, row);
+        return true;
+    }
+
+    /**
+     * Maps a key to a row, replacing the row that held it before
+     * @param key key of the value
+     * @param row row holding the value
+     * @author Ethan Rama
+     */
+    public void set(long key, int row) {
+        int slot = find(key);
+        if (rows[slot] != EMPTY) {
+            rows[slot] = row;
+        } else {
+            add(slot, key, row);
+        }
+    }
+
+    /**
+     * Finds the slot holding a key, or the free slot it would go in
+     * @param key key of the value
+     * @return slot number
+     * @author Ethan Rama
+     */
+    private int find(long key) {
+        if (keys == null) {
+            load();
+        }
+        int mask = rows.length - 1;
+        int slot = slot(key, rows.length);
+        while (rows[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void add(int slot, long key, int row) {
+        keys[slot] = key;
+        rows[slot] = row;
+        // Kept at most half full so probe sequences stay short
+        if (++size > rows.length >>> 1) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes a key from the index
+     * @param key key of the value
+     * @author Ethan Rama
+     */
+    public void remove(long key) {
+        if (keys == null) {
+            load();
+        }
+        int mask = rows.length - 1;
+        int hole = slot(key, rows.length);
+        while (rows[hole] != EMPTY && keys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        if (rows[hole] == EMPTY) {
+            return;
+        }
+        // Shift later keys of the probe sequence back so no lookup stops early at the hole
+        for (int next = (hole + 1) & mask; rows[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next], rows.length);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                rows[hole] = rows[next];
+                hole = next;
+            }
+        }
+        rows[hole] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Get the number of keys
+     * @return number of keys in the index
+     * @author Ethan Rama
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key
+     * @author Ethan Rama
+     */
+    public void clear() {
+        allocate(4);
+        size = 0;
+        image = null;
+    }
+
+    /**
+     * Writes every slot to a snapshot
+     * @param out snapshot being written
+     * @param footer snapshot footer, given the size and block offsets
+     * @author Ethan Rama
+     */
+    void writeSnapshot(Snapshot.Writer out, RecordBuffer footer) {
+        if (keys == null) {
+            load();
+        }
+        int blocks = (rows.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long[] keyBlocks = new long[blocks];
+        long[] rowBlocks = new long[blocks];
+        for (int block = 0; block < blocks; block++) {
+            int from = block * BLOCK_SIZE;
+            int length = Math.min(BLOCK_SIZE, rows.length - from);
+            keyBlocks[block] = out.reserve(length * 8);
+            out.buffer().asLongBuffer().put(keys, from, length);
+            out.buffer().position(out.buffer().position() + length * 8);
+            rowBlocks[block] = out.reserve(length * 4);
+            out.buffer().asIntBuffer().put(rows, from, length);
+            out.buffer().position(out.buffer().position() + length * 4);
+        }
+        footer.putInt(bits);
+        footer.putInt(size);
+        footer.putLongs(keyBlocks);
+        footer.putLongs(rowBlocks);
+    }
+
+    /**
+     * Attaches the index to slots written by writeSnapshot, without reading
+     * any of them
+     * @param image mapped snapshot
+     * @param footer snapshot footer, positioned at the index
+     * @author Ethan Rama
+     */
+    void attach(Snapshot.Image image, ByteBuffer footer) {
+        this.bits = footer.getInt();
+        this.size = footer.getInt();
+        this.keyOffsets = RecordBuffer.getLongs(footer);
+        this.rowOffsets = RecordBuffer.getLongs(footer);
+        this.image = image;
+        this.keys = null;
+        this.rows = null;
+    }
+
+    /**
+     * Copies the slots out of the snapshot unless another thread already has
+     * @author Ethan Rama
+     */
+    private synchronized void load() {
+        if (keys != null) {
+            return;
+        }
+        long[] loadedKeys = new long[1 << bits];
+        int[] loadedRows = new int[1 << bits];
+        for (int block = 0; block < keyOffsets.length; block++) {
+            int from = block * BLOCK_SIZE;
+            int length = Math.min(BLOCK_SIZE, loadedRows.length - from);
+            image.at(keyOffsets[block]).asLongBuffer().get(loadedKeys, from, length);
+            image.at(rowOffsets[block]).asIntBuffer().get(loadedRows, from, length);
+        }
+        rows = loadedRows;
+        // The rows are published before the keys that mark the slots as loaded
+        VarHandle.releaseFence();
+        keys = loadedKeys;
+        image = null;
+    }
+
+    private static int slot(long key, int slots) {
+        // Fibonacci hashing spreads sequential keys across the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(slots)));
+    }
+
+    private void grow() {
+        long[] grownKeys = new long[rows.length << 1];
+        int[] grownRows = new int[rows.length << 1];
+        Arrays.fill(grownRows, EMPTY);
+        int mask = grownRows.length - 1;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != EMPTY) {
+                int slot = slot(keys[i], grownRows.length);
+                while (grownRows[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                grownKeys[slot] = keys[i];
+                grownRows[slot] = rows[i];
+            }
+        }
+        VarHandle.releaseFence();
+        rows = grownRows;
+        keys = grownKeys;
+        bits++;
+    }
+
+    private void allocate(int bits) {
+        this.bits = bits;
+        keys = new long[1 << bits];
+        rows = new int[1 << bits];
+        Arrays.fill(rows, EMPTY);
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * HashJoin.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.2
+ * 10/18/2026: v1.2
+ * - Builds the side estimated to keep fewer rows after its condition,
+ *   from the tables' statistics, whichever table the query names first
+ * 10/18/2026: v1.1
+ * - Sorts pairs by primitive order keys, keeping only the pairs a LIMIT
+ *   returns
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Joins the rows of two tables whose join attributes hold equal values.
+ * The side estimated to keep fewer rows, after its condition and its NULL
+ * join values are taken out, is built into a hash table on its join
+ * values, and the rows of the other side probe it. Sides estimated alike
+ * are told apart by table name, so the plan is the same whichever table
+ * the query names first. INT,
+ * FLOAT, BOOL and DATE values are hashed as the long key their vector
+ * gives them, so neither side boxes a value; CHAR and VARCHAR values are
+ * hashed by their text, as the two tables' dictionaries number their
+ * strings differently. NULL never equals anything, so rows with a NULL
+ * join value are dropped from both sides.
+ * <br><br>
+ * When the hash table of the build side would outgrow the memory budget,
+ * the join is partitioned (a Grace hash join): the row numbers of both
+ * sides are spilled to temporary files by a hash of their join value, and
+ * each pair of partitions is joined in turn, so only one partition's hash
+ * table is held at a time. Rows sharing a value land in the same
+ * partition, so a value held by more rows than the budget fits is still
+ * built as one partition. The partitions are sized from the estimated
+ * build rows.
+ * @version 1.2
+ * @author Ethan Rama
+ */
+class HashJoin {
+    /**
+     * Bytes of memory a hash table may use unless set otherwise
+     */
+    static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /**
+     * Estimated bytes of hash table per build row with a primitive key:
+     * two slots of key and head, the chain link and the row number
+     */
+    private static final int KEY_ROW_BYTES = 2 * (8 + 4) + 4 + 4;
+
+    /**
+     * Estimated bytes of hash table per build row with a text key, which
+     * adds the slot references and the string itself
+     */
+    private static final int TEXT_ROW_BYTES = KEY_ROW_BYTES + 2 * 8 + 64;
+
+    /**
+     * Most partitions a join spills to
+     */
+    private static final int MAX_PARTITIONS = 256;
+
+    /**
+     * Marks an empty slot or the end of a chain
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Buffer size of each partition file
+     */
+    private static final int SPILL_BUFFER = 1 << 13;
+
+    private final RamaTable build;
+    private final ColumnVector buildKey;
+    private final Expression buildWhere;
+    private final long buildVersion;
+    private final RamaTable probe;
+    private final ColumnVector probeKey;
+    private final Expression probeWhere;
+    private final long probeVersion;
+
+    /**
+     * Whether the build side is the left table of the join
+     */
+    private final boolean buildLeft;
+
+    /**
+     * Whether the join values are hashed by their text
+     */
+    private final boolean text;
+
+    /**
+     * Row numbers of the joined rows in the left and right tables
+     */
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int size;
+
+    private HashJoin(RamaTable build, ColumnVector buildKey, Expression buildWhere, long buildVersion,
+                     RamaTable probe, ColumnVector probeKey, Expression probeWhere, long probeVersion,
+                     boolean buildLeft) {
+        this.build = build;
+        this.buildKey = buildKey;
+        this.buildWhere = buildWhere;
+        this.buildVersion = buildVersion;
+        this.probe = probe;
+        this.probeKey = probeKey;
+        this.probeWhere = probeWhere;
+        this.probeVersion = probeVersion;
+        this.buildLeft = buildLeft;
+        this.text = isText(buildKey.getType());
+    }
+
+    /**
+     * Joins the rows of two tables that meet their conditions on equal
+     * join values
+     * @param left left table
+     * @param leftKey column position of the left join attribute
+     * @param leftWhere condition on the left rows, null for none
+     * @param right right table
+     * @param rightKey column position of the right join attribute
+     * @param rightWhere condition on the right rows, null for none
+     * @param versions version of the left and then the right table being
+     * read
+     * @param parallelism largest number of threads to scan each table on
+     * @param memoryBudget bytes the hash table may use before the join is
+     * partitioned
+     * @return row numbers of each joined pair, left rows then right rows
+     * @author Ethan Rama
+     */
+    static int[][] join(RamaTable left, int leftKey, Expression leftWhere,
+                        RamaTable right, int rightKey, Expression rightWhere,
+                        long[] versions, int parallelism, long memoryBudget) {
+        ColumnVector leftVector = left.getVector(leftKey);
+        ColumnVector rightVector = right.getVector(rightKey);
+        ColumnType leftType = leftVector.getType();
+        ColumnType rightType = rightVector.getType();
+        if (leftType != rightType && !(isText(leftType) && isText(rightType))) {
+            throw new IllegalArgumentException("Cannot join " + leftType + " attribute to " + rightType + " attribute.");
+        }
+        double leftRows = estimateRows(left, leftKey, leftWhere);
+        double rightRows = estimateRows(right, rightKey, rightWhere);
+        boolean buildLeft = leftRows < rightRows
+                || (leftRows == rightRows && left.getName().compareTo(right.getName()) <= 0);
+        HashJoin join = buildLeft
+                ? new HashJoin(left, leftVector, leftWhere, versions[0],
+                        right, rightVector, rightWhere, versions[1], true)
+                : new HashJoin(right, rightVector, rightWhere, versions[1],
+                        left, leftVector, leftWhere, versions[0], false);
+
+        double estimate = Math.ceil(buildLeft ? leftRows : rightRows) * (join.text ? TEXT_ROW_BYTES : KEY_ROW_BYTES);
+        if (estimate <= memoryBudget) {
+            join.joinInMemory(parallelism);
+        } else {
+            int partitions = 2;
+            while (partitions < MAX_PARTITIONS && estimate / partitions > memoryBudget) {
+                partitions <<= 1;
+            }
+            try {
+                join.joinPartitioned(partitions, parallelism);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not spill join of " + left.getName() + " and "
+                        + right.getName() + ".", e);
+            }
+        }
+        return new int[][]{Arrays.copyOf(join.left, join.size), Arrays.copyOf(join.right, join.size)};
+    }
+
+    /**
+     * Estimates the rows of one side that reach the hash table: those that
+     * meet its condition and have a join value. Without statistics every
+     * row of the table is counted.
+     * @param table table of the side
+     * @param key column position of the join attribute
+     * @param where condition on the side, null for none
+     * @return estimated number of rows
+     * @author Ethan Rama
+     */
+    private static double estimateRows(RamaTable table, int key, Expression where) {
+        TableStatistics statistics = table.getStatistics();
+        if (!statistics.isComplete()) {
+            return table.getRowCount();
+        }
+        return statistics.estimateRows(where) * statistics.nonNullFraction(key);
+    }
+
+    /**
+     * Sorts joined pairs by attributes of either table, comparing order
+     * keys as RowSorter does
+     * @param tables left and right tables
+     * @param pairs row numbers of each joined pair, left rows then right rows
+     * @param sides table of each sort attribute, 0 for left and 1 for right
+     * @param ordinals column position of each sort attribute
+     * @param descending whether each sort attribute sorts from the largest
+     * value down
+     * @param top number of leading pairs that will be read, Long.MAX_VALUE
+     * for every pair
+     * @return positions of the pairs in sorted order, at most top of them
+     * @author Ethan Rama
+     */
+    static int[] sort(RamaTable[] tables, int[][] pairs, int[] sides, int[] ordinals, boolean[] descending,
+                      long top) {
+        ColumnVector[] vectors = new ColumnVector[sides.length];
+        int[][] rows = new int[sides.length][];
+        for (int k = 0; k < sides.length; k++) {
+            vectors[k] = tables[sides[k]].getVector(ordinals[k]);
+            rows[k] = pairs[sides[k]];
+        }
+        return RowSorter.sort(new RowSorter.Keys() {
+            @Override
+            public long key(int k, int position) {
+                int row = rows[k][position];
+                return vectors[k].isNull(row) ? Long.MIN_VALUE : vectors[k].orderKey(row);
+            }
+
+            @Override
+            public int compare(int k, int position, int other) {
+                return vectors[k].compareRows(rows[k][position], rows[k][other]);
+            }
+
+            @Override
+            public boolean isExact(int k) {
+                return vectors[k].isOrderKeyExact();
+            }
+        }, descending, pairs[0].length, top);
+    }
+
+    /**
+     * Builds the hash table over every build row and probes it with every
+     * probe row
+     * @param parallelism largest number of threads to scan each table on
+     * @author Ethan Rama
+     */
+    private void joinInMemory(int parallelism) {
+        int[] rows = RowSelector.select(build, buildWhere, List.of(), buildVersion, parallelism);
+        Table table = new Table(rows);
+        RowSelector.Rows probeRows = open(probe, probeWhere, probeVersion, parallelism);
+        int[] batch = new int[ColumnVector.CHUNK_SIZE];
+        for (int count = probeRows.fetch(batch); count > 0; count = probeRows.fetch(batch)) {
+            probe(table, batch, count);
+        }
+    }
+
+    /**
+     * Spills both sides to partition files, then joins each partition
+     * @param partitions number of partitions, a power of two
+     * @param parallelism largest number of threads to scan each table on
+     * @throws IOException if a partition file cannot be written or read
+     * @author Ethan Rama
+     */
+    private void joinPartitioned(int partitions, int parallelism) throws IOException {
+        Path[] buildFiles = new Path[partitions];
+        Path[] probeFiles = new Path[partitions];
+        try {
+            spill(build, buildKey, buildWhere, buildFiles, buildVersion, parallelism);
+            spill(probe, probeKey, probeWhere, probeFiles, probeVersion, parallelism);
+            int[] batch = new int[ColumnVector.CHUNK_SIZE];
+            for (int p = 0; p < partitions; p++) {
+                ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(buildFiles[p]));
+                if (!bytes.hasRemaining()) {
+                    continue;
+                }
+                int[] rows = new int[bytes.remaining() / Integer.BYTES];
+                bytes.asIntBuffer().get(rows);
+                Table table = new Table(rows);
+                long remaining = Files.size(probeFiles[p]) / Integer.BYTES;
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(probeFiles[p]), SPILL_BUFFER))) {
+                    while (remaining > 0) {
+                        int count = (int) Math.min(batch.length, remaining);
+                        for (int i = 0; i < count; i++) {
+                            batch[i] = in.readInt();
+                        }
+                        probe(table, batch, count);
+                        remaining -= count;
+                    }
+                }
+            }
+        } finally {
+            delete(buildFiles);
+            delete(probeFiles);
+        }
+    }
+
+    /**
+     * Writes the row numbers of one side that meet its condition to the
+     * partition file of their join value. Rows with a NULL join value
+     * join nothing and are dropped.
+     * @param table table of the side
+     * @param key join attribute of the side
+     * @param where condition on the side, null for none
+     * @param files filled with the partition files created
+     * @param version version being read
+     * @param parallelism largest number of threads to scan the table on
+     * @throws IOException if a partition file cannot be written
+     * @author Ethan Rama
+     */
+    private void spill(RamaTable table, ColumnVector key, Expression where, Path[] files,
+                       long version, int parallelism) throws IOException {
+        DataOutputStream[] out = new DataOutputStream[files.length];
+        try {
+            for (int p = 0; p < files.length; p++) {
+                files[p] = Files.createTempFile("rama-join-", ".part");
+                out[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(files[p]), SPILL_BUFFER));
+            }
+            RowSelector.Rows rows = open(table, where, version, parallelism);
+            int[] batch = new int[ColumnVector.CHUNK_SIZE];
+            int mask = files.length - 1;
+            for (int count = rows.fetch(batch); count > 0; count = rows.fetch(batch)) {
+                for (int i = 0; i < count; i++) {
+                    int row = batch[i];
+                    if (!key.isNull(row)) {
+                        out[partition(hash(key, row)) & mask].writeInt(row);
+                    }
+                }
+            }
+        } finally {
+            IOException failure = null;
+            for (DataOutputStream stream : out) {
+                try {
+                    if (stream != null) {
+                        stream.close();
+                    }
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Deletes the partition files that were created
+     * @param files partition files, null where not created
+     * @author Ethan Rama
+     */
+    private static void delete(Path[] files) {
+        for (Path file : files) {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // A leftover temporary file does not change the result
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the rows of one side, found on several threads first if
+     * parallelism allows
+     * @param table table of the side
+     * @param where condition on the side, null for none
+     * @param version version being read
+     * @param parallelism largest number of threads to scan the table on
+     * @return rows to fetch
+     * @author Ethan Rama
+     */
+    private static RowSelector.Rows open(RamaTable table, Expression where, long version, int parallelism) {
+        RowSelector.Rows rows = RowSelector.open(table, where, List.of(), version, parallelism);
+        return parallelism > 1 ? RowSelector.Rows.of(rows.drain()) : rows;
+    }
+
+    /**
+     * Probes the hash table with a batch of probe rows, adding a pair for
+     * every build row holding the same join value
+     * @param table hash table of the build rows
+     * @param rows probe row numbers
+     * @param count number of probe rows
+     * @author Ethan Rama
+     */
+    private void probe(Table table, int[] rows, int count) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (probeKey.isNull(row)) {
+                continue;
+            }
+            int entry = text ? table.find(probeKey.getString(row)) : table.find(probeKey.key(row));
+            for (; entry != EMPTY; entry = table.next[entry]) {
+                add(table.rows[entry], row);
+            }
+        }
+    }
+
+    /**
+     * Adds a joined pair
+     * @param buildRow row number in the build table
+     * @param probeRow row number in the probe table
+     * @author Ethan Rama
+     */
+    private void add(int buildRow, int probeRow) {
+        if (size == left.length) {
+            left = Arrays.copyOf(left, size * 2);
+            right = Arrays.copyOf(right, size * 2);
+        }
+        left[size] = buildLeft ? buildRow : probeRow;
+        right[size] = buildLeft ? probeRow : buildRow;
+        size++;
+    }
+
+    /**
+     * Hashes the join value of a row
+     * @param key join attribute
+     * @param row row number, not NULL
+     * @return hash spreading every bit of the value
+     * @author Ethan Rama
+     */
+    private long hash(ColumnVector key, int row) {
+        return text ? mix(key.getString(row).hashCode()) : mix(key.key(row));
+    }
+
+    /**
+     * Spreads the bits of a key across the high bits of a hash
+     * @param key key or string hash
+     * @return hash whose high bits pick a slot
+     * @author Ethan Rama
+     */
+    private static long mix(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Picks a partition from a hash. The low bits of a multiplicative hash
+     * only see the low bits of the key, so they are mixed with the high
+     * bits first, and partitions stay independent of the slot picked.
+     * @param hash hash of a join value
+     * @return partition, before masking to the number of partitions
+     * @author Ethan Rama
+     */
+    private static int partition(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    private static boolean isText(ColumnType type) {
+        return type == ColumnType.CHAR || type == ColumnType.VARCHAR;
+    }
+
+    /**
+     * Hash table from the join values of build rows to the rows holding
+     * them. Slots hold each distinct value and the first of its rows, and
+     * rows holding the same value are chained in build row order.
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private final class Table {
+        /**
+         * Value of each slot, by key or by text
+         */
+        private final long[] keys;
+        private final String[] texts;
+
+        /**
+         * First entry holding the value of each slot, EMPTY if free
+         */
+        private final int[] heads;
+
+        /**
+         * Next entry holding the same value, by entry
+         */
+        private final int[] next;
+
+        /**
+         * Build row number, by entry
+         */
+        private final int[] rows;
+
+        /**
+         * Number of bits of the hash used to pick a slot
+         */
+        private final int bits;
+
+        /**
+         * Builds the table over build rows
+         * @param rows build row numbers, in build row order
+         * @author Ethan Rama
+         */
+        Table(int[] rows) {
+            this.rows = rows;
+            this.next = new int[rows.length];
+            this.bits = Math.max(1, 33 - Integer.numberOfLeadingZeros(Math.max(1, rows.length)));
+            int slots = 1 << bits;
+            this.keys = text ? null : new long[slots];
+            this.texts = text ? new String[slots] : null;
+            this.heads = new int[slots];
+            Arrays.fill(heads, EMPTY);
+            // Entries are pushed on their chain from the last row back, so chains read in row order
+            for (int entry = rows.length - 1; entry >= 0; entry--) {
+                int row = rows[entry];
+                if (buildKey.isNull(row)) {
+                    continue;
+                }
+                int slot;
+                if (text) {
+                    String value = buildKey.getString(row);
+                    slot = slot(mix(value.hashCode()));
+                    while (heads[slot] != EMPTY && !texts[slot].equals(value)) {
+                        slot = (slot + 1) & (slots - 1);
+                    }
+                    texts[slot] = value;
+                } else {
+                    long key = buildKey.key(row);
+                    slot = slot(mix(key));
+                    while (heads[slot] != EMPTY && keys[slot] != key) {
+                        slot = (slot + 1) & (slots - 1);
+                    }
+                    keys[slot] = key;
+                }
+                next[entry] = heads[slot];
+                heads[slot] = entry;
+            }
+        }
+
+        /**
+         * Finds the first entry holding a key
+         * @param key join value as a vector key
+         * @return entry, or EMPTY if no build row holds the key
+         * @author Ethan Rama
+         */
+        int find(long key) {
+            int mask = heads.length - 1;
+            for (int slot = slot(mix(key)); heads[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return heads[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        /**
+         * Finds the first entry holding a text value
+         * @param value join value as text
+         * @return entry, or EMPTY if no build row holds the value
+         * @author Ethan Rama
+         */
+        int find(String value) {
+            int mask = heads.length - 1;
+            for (int slot = slot(mix(value.hashCode())); heads[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (texts[slot].equals(value)) {
+                    return heads[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        private int slot(long hash) {
+            return (int) (hash >>> (64 - bits));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * OrderedIndex.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Entries can be filled on first use rather than when the index is made
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the rows of a table sorted by the value of one attribute, so range
+ * conditions and ORDER BY on the attribute visit only the rows they return.
+ * Entries pair a value with its row, which keeps repeated values apart and
+ * makes adding or removing a row O(log n). NULL values sort first.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class OrderedIndex {
+    /**
+     * Orders entries by value, then by row
+     */
+    private static final Comparator<Entry> ORDER = OrderedIndex::compare;
+
+    /**
+     * Name of the index
+     */
+    private final String name;
+
+    /**
+     * Position of the indexed attribute
+     */
+    private final int ordinal;
+
+    /**
+     * Entries sorted by value
+     */
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    /**
+     * Adds the existing rows on first use, null once the index is filled
+     */
+    private Consumer<OrderedIndex> filler;
+
+    /**
+     * Whether the existing rows have been added
+     */
+    private volatile boolean filled = true;
+
+    /**
+     * Constructs an empty index
+     * @param name index name
+     * @param ordinal column position of the indexed attribute
+     * @author Ethan Rama
+     */
+    public OrderedIndex(String name, int ordinal) {
+        this.name = name;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Adds a row
+     * @param key sort key of the row's value, null for NULL
+     * @param row row number
+     * @author Ethan Rama
+     */
+    public void add(Comparable<?> key, int row) {
+        ensureFilled();
+        entries.add(new Entry(key, row));
+    }
+
+    /**
+     * Removes a row
+     * @param key sort key of the row's value, null for NULL
+     * @param row row number
+     * @author Ethan Rama
+     */
+    public void remove(Comparable<?> key, int row) {
+        ensureFilled();
+        entries.remove(new Entry(key, row));
+    }
+
+    /**
+     * Gets every entry, NULL values first
+     * @return entries in value order
+     * @author Ethan Rama
+     */
+    public NavigableSet<Entry> all() {
+        ensureFilled();
+        return entries;
+    }
+
+    /**
+     * Gets the entries with non-null values between two bounds
+     * @param lower lowest value, null for no lower bound
+     * @param lowerInclusive whether the lowest value itself is included
+     * @param upper highest value, null for no upper bound
+     * @param upperInclusive whether the highest value itself is included
+     * @return entries in value order
+     * @author Ethan Rama
+     */
+    public NavigableSet<Entry> range(Comparable<?> lower, boolean lowerInclusive,
+                                     Comparable<?> upper, boolean upperInclusive) {
+        ensureFilled();
+        // Rows are never negative, so the row part of a bound decides which side of equal values it falls
+        Entry from = lower == null ? new Entry(null, Integer.MAX_VALUE)
+                : new Entry(lower, lowerInclusive ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+        if (upper == null) {
+            return entries.tailSet(from, false);
+        }
+        Entry to = new Entry(upper, upperInclusive ? Integer.MAX_VALUE : Integer.MIN_VALUE);
+        if (ORDER.compare(from, to) > 0) {
+            return Collections.emptyNavigableSet();
+        }
+        return entries.subSet(from, false, to, false);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Entry a, Entry b) {
+        if (a.key != b.key) {
+            if (a.key == null || b.key == null) {
+                return a.key == null ? -1 : 1;
+            }
+            int compared = ((Comparable) a.key).compareTo(b.key);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(a.row, b.row);
+    }
+
+    /**
+     * Defers adding the existing rows until the index is first used
+     * @param filler adds every existing row through add
+     * @author Ethan Rama
+     */
+    synchronized void fillLater(Consumer<OrderedIndex> filler) {
+        this.filler = filler;
+        this.filled = false;
+    }
+
+    /**
+     * Removes every entry
+     * @author Ethan Rama
+     */
+    public synchronized void clear() {
+        filler = null;
+        filled = true;
+        entries.clear();
+    }
+
+    private void ensureFilled() {
+        // The filler's own calls to add find the index locked by their thread and go straight through
+        if (!filled && !Thread.holdsLock(this)) {
+            fill();
+        }
+    }
+
+    private synchronized void fill() {
+        if (!filled) {
+            filler.accept(this);
+            filler = null;
+            filled = true;
+        }
+    }
+
+    /**
+     * Get index name
+     * @return index name
+     * @author Ethan Rama
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the position of the indexed attribute
+     * @return column position
+     * @author Ethan Rama
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * A value of the indexed attribute and the row holding it
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    static final class Entry {
+        /**
+         * Sort key of the value, null for NULL
+         */
+        final Comparable<?> key;
+
+        /**
+         * Row number
+         */
+        final int row;
+
+        Entry(Comparable<?> key, int row) {
+            this.key = key;
+            this.row = row;
+        }
+    }
+}
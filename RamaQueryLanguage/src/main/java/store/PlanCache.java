@@ -0,0 +1,149 @@
+/*
+ * PlanCache.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the parsed form of recently run SELECT, INSERT, UPDATE and DELETE
+ * statements. A statement is keyed by its tokens with every literal
+ * replaced by ?, so statements that differ only in their literals share one
+ * parsed template, and running one again only binds its literals into the
+ * template instead of parsing it.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class PlanCache {
+    /**
+     * Largest number of templates kept
+     */
+    private static final int CAPACITY = 256;
+
+    /**
+     * Templates by normalized statement, least recently used first
+     */
+    private final Map<String, Plan> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Number of statements answered from the cache
+     */
+    private long hits;
+
+    /**
+     * Number of statements that had to be parsed
+     */
+    private long misses;
+
+    /**
+     * Gets the parsed form of one statement
+     * @param tokens tokens of the statement, without its terminal
+     * @return parsed statement with its literals bound
+     * @author Ethan Rama
+     */
+    RQLStatement plan(List<Token> tokens) {
+        if (tokens.isEmpty() || !isCacheable(tokens.get(0))) {
+            return new RamaParser(tokens).parse();
+        }
+
+        // Literals become placeholders in both the key and the tokens parsed for the template
+        StringBuilder key = new StringBuilder();
+        List<Token> normalized = new ArrayList<>(tokens.size());
+        List<Value> literals = new ArrayList<>();
+        for (Token token : tokens) {
+            Value literal = token.getType() == Token.TokenType.PLACEHOLDER ? null : RamaParser.toValue(token);
+            if (literal != null || token.getType() == Token.TokenType.PLACEHOLDER) {
+                // A ? written in the statement itself has no value and fails when bound
+                literals.add(literal);
+                normalized.add(RamaLexer.PLACEHOLDER_TOKEN);
+                key.append('?');
+            } else {
+                normalized.add(token);
+                key.append(token.getType().ordinal()).append(':').append(token.getValue());
+            }
+            key.append('\0');
+        }
+
+        String shape = key.toString();
+        Plan plan;
+        synchronized (this) {
+            plan = plans.get(shape);
+            if (plan != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (plan == null) {
+            RamaParser parser = new RamaParser(normalized);
+            RQLStatement template;
+            try {
+                template = parser.parse();
+            } catch (RuntimeException e) {
+                // Parsing the original tokens reports the literal rather than ?
+                new RamaParser(tokens).parse();
+                throw e;
+            }
+            plan = new Plan(template, parser.getParameterCount());
+            synchronized (this) {
+                plans.put(shape, plan);
+            }
+        }
+        return plan.parameters == 0 ? plan.template
+                : StatementBinder.bind(plan.template, literals.toArray(new Value[0]));
+    }
+
+    /**
+     * Get the number of statements answered from the cache
+     * @return number of cache hits
+     * @author Ethan Rama
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of cacheable statements that had to be parsed
+     * @return number of cache misses
+     * @author Ethan Rama
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static boolean isCacheable(Token first) {
+        return first.matches("SELECT") || first.matches("INSERT") || first.matches("UPDATE") || first.matches("DELETE");
+    }
+
+    /**
+     * A parsed statement with placeholders in place of its literals
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private static final class Plan {
+        final RQLStatement template;
+        final int parameters;
+
+        Plan(RQLStatement template, int parameters) {
+            this.template = template;
+            this.parameters = parameters;
+        }
+    }
+}
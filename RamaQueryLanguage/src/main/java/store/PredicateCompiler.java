@@ -0,0 +1,221 @@
+/*
+ * PredicateCompiler.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles a bound WHERE condition into a single method handle that tests
+ * one row. Comparisons become calls to static methods specialized to the
+ * attribute type, and AND and OR become guards, so the whole condition is
+ * one tree of method handle combinators that the JVM spins into classes of
+ * its own. Each compiled condition keeps its handle in a field rather than
+ * a constant, so the JIT cannot fold the tree into its caller, and each
+ * row is tested by a call through the handle.
+ * <br><br>
+ * The tree is built for the shape of a condition, that is its operators,
+ * types and nesting, with the vectors and literals left as parameters.
+ * Shapes are cached, so running a statement again with other literals only
+ * binds the new values into the cached tree.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class PredicateCompiler {
+    /**
+     * Largest number of shapes kept
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Compiled shapes by shape key
+     */
+    private static final Map<String, MethodHandle> SHAPES = new ConcurrentHashMap<>();
+
+    static final MethodHandle COMPARE_INT;
+    static final MethodHandle COMPARE_DOUBLE;
+    static final MethodHandle COMPARE_BOOL;
+    static final MethodHandle COMPARE_CODE;
+    static final MethodHandle COMPARE_STRING;
+    static final MethodHandle TEST;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            COMPARE_INT = lookup.findStatic(PredicateCompiler.class, "compareInt", MethodType.methodType(
+                    boolean.class, int.class, int.class, IntVector.class, long.class));
+            COMPARE_DOUBLE = lookup.findStatic(PredicateCompiler.class, "compareDouble", MethodType.methodType(
+                    boolean.class, int.class, int.class, DoubleVector.class, double.class));
+            COMPARE_BOOL = lookup.findStatic(PredicateCompiler.class, "compareBool", MethodType.methodType(
+                    boolean.class, int.class, int.class, BoolVector.class, boolean.class));
+            COMPARE_CODE = lookup.findStatic(PredicateCompiler.class, "compareCode", MethodType.methodType(
+                    boolean.class, boolean.class, int.class, StringVector.class, int.class));
+            COMPARE_STRING = lookup.findStatic(PredicateCompiler.class, "compareString", MethodType.methodType(
+                    boolean.class, int.class, int.class, StringVector.class, String.class));
+            TEST = lookup.findStatic(PredicateCompiler.class, "test", MethodType.methodType(
+                    boolean.class, int.class, RowPredicate.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Compiles a bound condition
+     * @param predicate bound WHERE condition
+     * @return compiled condition
+     * @author Ethan Rama
+     */
+    static CompiledPredicate compile(RowPredicate predicate) {
+        StringBuilder shape = new StringBuilder();
+        List<Object> arguments = new ArrayList<>();
+        predicate.describe(shape, arguments);
+        String key = shape.toString();
+        MethodHandle compiled = SHAPES.get(key);
+        if (compiled == null) {
+            // Two threads may build the same shape at once; both trees work, and one is kept
+            compiled = predicate.shape();
+            MethodHandle raced = SHAPES.putIfAbsent(key, compiled);
+            if (raced != null) {
+                compiled = raced;
+            } else if (SHAPES.size() > CACHE_SIZE) {
+                evict(key);
+            }
+        }
+        return new CompiledPredicate(MethodHandles.insertArguments(compiled, 1, arguments.toArray()));
+    }
+
+    /**
+     * Removes a shape other than the one just added, keeping the cache
+     * near its size without tracking use
+     * @param kept key of the shape just added
+     * @author Ethan Rama
+     */
+    private static void evict(String kept) {
+        Iterator<String> keys = SHAPES.keySet().iterator();
+        while (keys.hasNext()) {
+            if (!keys.next().equals(kept)) {
+                keys.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Joins two shapes with AND or OR. The joined shape takes the row, then
+     * the parameters of the left shape, then those of the right.
+     * @param left shape of the left condition
+     * @param right shape of the right condition
+     * @param and true for AND, false for OR
+     * @return joined shape
+     * @author Ethan Rama
+     */
+    static MethodHandle join(MethodHandle left, MethodHandle right, boolean and) {
+        List<Class<?>> leftParameters = left.type().parameterList().subList(1, left.type().parameterCount());
+        List<Class<?>> rightParameters = right.type().parameterList().subList(1, right.type().parameterCount());
+        MethodHandle test = MethodHandles.dropArguments(left, left.type().parameterCount(), rightParameters);
+        MethodHandle next = MethodHandles.dropArguments(right, 1, leftParameters);
+        MethodHandle result = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, !and), 0,
+                test.type().parameterList());
+        // AND only tests the right side when the left holds, OR only when it fails
+        return and ? MethodHandles.guardWithTest(test, next, result) : MethodHandles.guardWithTest(test, result, next);
+    }
+
+    /**
+     * Gets the shape of a condition with a fixed result
+     * @param result result for every row
+     * @return shape taking only the row
+     * @author Ethan Rama
+     */
+    static MethodHandle constant(boolean result) {
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, result), 0, int.class);
+    }
+
+    private static boolean compareInt(int operator, int row, IntVector vector, long value) {
+        return !vector.isNull(row) && RowPredicate.matches(operator, Long.compare(vector.getInt(row), value));
+    }
+
+    private static boolean compareDouble(int operator, int row, DoubleVector vector, double value) {
+        if (vector.isNull(row)) {
+            return false;
+        }
+        double number = vector.getDouble(row);
+        switch (operator) {
+            case RowPredicate.EQ:
+                return number == value;
+            case RowPredicate.NE:
+                return number != value;
+            case RowPredicate.LT:
+                return number < value;
+            case RowPredicate.LE:
+                return number <= value;
+            case RowPredicate.GT:
+                return number > value;
+            default:
+                return number >= value;
+        }
+    }
+
+    private static boolean compareBool(int operator, int row, BoolVector vector, boolean value) {
+        return !vector.isNull(row) && RowPredicate.matches(operator, Boolean.compare(vector.getBoolean(row), value));
+    }
+
+    private static boolean compareCode(boolean equal, int row, StringVector vector, int code) {
+        return !vector.isNull(row) && (vector.getCode(row) == code) == equal;
+    }
+
+    private static boolean compareString(int operator, int row, StringVector vector, String value) {
+        return !vector.isNull(row) && RowPredicate.matches(operator, vector.decode(vector.getCode(row)).compareTo(value));
+    }
+
+    private static boolean test(int row, RowPredicate predicate) {
+        return predicate.test(row);
+    }
+}
+
+/**
+ * A WHERE condition compiled to a method handle taking a row number
+ * @version 1.0
+ * @author Ethan Rama
+ */
+final class CompiledPredicate {
+    /**
+     * Handle of type (int)boolean
+     */
+    private final MethodHandle handle;
+
+    CompiledPredicate(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Tests a row against the condition
+     * @param row row number
+     * @return true if the row meets the condition
+     * @author Ethan Rama
+     */
+    boolean test(int row) {
+        try {
+            return (boolean) handle.invokeExact(row);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * RamaCursor.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Reads the values of each fetched batch a column at a time, only for
+ *   the attributes returned
+ * - Releases spilled sort runs when closed
+ * - Reads the groups of an aggregate query
+ * - Reads the joined pairs of two tables
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rows of a SELECT query, read one at a time. Rows are found a batch of
+ * fetch size row numbers at a time, and the values of the batch are read
+ * a column at a time for just the attributes returned, so paging through
+ * a large table holds one batch of values rather than the whole result,
+ * and attributes the query does not name are never read. LIMIT and
+ * OFFSET are applied as rows are found, so the query stops once the last
+ * row it returns is found.
+ * <br><br>
+ * A cursor reads each table at the version committed when it was opened
+ * for as long as it is open, and sees none of the changes made since. It
+ * keeps its table's values even if the table is dropped, so it should be
+ * closed, either directly or by closing its stream, when it is not read to
+ * the end. A cursor closes itself after its last row. A cursor is not
+ * safe for use by several threads at once.
+ * <br><br>
+ * A cursor over a join reads pairs of rows, one from each table, and
+ * takes each attribute from the table it belongs to. A cursor over an
+ * aggregate query reads one row per group.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+public class RamaCursor implements Iterator<Map<String, String>>, AutoCloseable {
+    /**
+     * Number of rows found per batch unless set otherwise
+     */
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    /**
+     * Tables being read, one unless the query joins two
+     */
+    private final RamaTable[] tables;
+
+    /**
+     * Names of the attributes returned, in output order
+     */
+    private final List<String> columns;
+
+    /**
+     * Reads the value of each attribute returned for a fetched row
+     */
+    private final Values values;
+
+    /**
+     * Rows of the query not yet fetched, null once closed
+     */
+    private RowSelector.Rows rows;
+
+    /**
+     * Row numbers of the current batch
+     */
+    private int[] batch;
+
+    /**
+     * Number of row numbers in the current batch
+     */
+    private int count;
+
+    /**
+     * Next position of the current batch to read
+     */
+    private int position;
+
+    /**
+     * Values of the current batch, one array per attribute returned
+     */
+    private String[][] strings;
+
+    /**
+     * Number of rows found per batch
+     */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * Opens a cursor over rows of a pinned table
+     * @param table table being read, pinned until the cursor closes
+     * @param columns names of the attributes returned
+     * @param projection column position of each attribute returned
+     * @param rows rows of the query
+     * @author Ethan Rama
+     */
+    RamaCursor(RamaTable table, List<String> columns, int[] projection, RowSelector.Rows rows) {
+        this(new RamaTable[]{table}, columns, rows, new Values() {
+            @Override
+            public String get(int column, int row) {
+                return table.getVector(projection[column]).getString(row);
+            }
+
+            @Override
+            public void read(int[] rows, int count, String[][] into) {
+                table.read(projection, rows, count, into);
+            }
+        });
+    }
+
+    /**
+     * Opens a cursor over rows whose values are read by position, such as
+     * the joined pairs of two tables or the groups of an aggregate
+     * @param tables tables being read, pinned until the cursor closes
+     * @param columns names of the attributes returned
+     * @param rows positions of the rows to return
+     * @param values reads the attributes of the row at a position
+     * @author Ethan Rama
+     */
+    RamaCursor(RamaTable[] tables, List<String> columns, RowSelector.Rows rows, Values values) {
+        this.tables = tables;
+        this.columns = columns;
+        this.rows = rows;
+        this.values = values;
+        this.batch = new int[0];
+        this.strings = new String[columns.size()][0];
+    }
+
+    /**
+     * Checks if another row is left, fetching the next batch when the
+     * current one has been read
+     * @return true if next returns a row
+     * @author Ethan Rama
+     */
+    @Override
+    public boolean hasNext() {
+        if (position < count) {
+            return true;
+        }
+        if (rows == null) {
+            return false;
+        }
+        if (batch.length != fetchSize) {
+            batch = new int[fetchSize];
+            strings = new String[columns.size()][fetchSize];
+        }
+        count = rows.fetch(batch);
+        position = 0;
+        if (count == 0) {
+            close();
+            return false;
+        }
+        values.read(batch, count, strings);
+        return true;
+    }
+
+    /**
+     * Reads the next row
+     * @return selected attributes of the row by name
+     * @author Ethan Rama
+     */
+    @Override
+    public Map<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No rows left.");
+        }
+        int row = position++;
+        // Sized for every attribute, so a wide row never rehashes
+        Map<String, String> result = new LinkedHashMap<>(columns.size() * 4 / 3 + 1);
+        for (int i = 0; i < columns.size(); i++) {
+            result.put(columns.get(i), strings[i][row]);
+        }
+        return result;
+    }
+
+    /**
+     * Get the names of the attributes each row returns
+     * @return attribute names in output order
+     * @author Ethan Rama
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of rows found per batch
+     * @return fetch size
+     * @author Ethan Rama
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows found per batch, from the next batch on
+     * @param fetchSize rows per batch, at least 1
+     * @author Ethan Rama
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be at least 1.");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Gets the remaining rows as a stream. Closing the stream closes the
+     * cursor.
+     * @return stream of the rows not yet read
+     * @author Ethan Rama
+     */
+    public Stream<Map<String, String>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Checks if the cursor has been closed
+     * @return true once closed or read to the end
+     * @author Ethan Rama
+     */
+    public boolean isClosed() {
+        return rows == null;
+    }
+
+    /**
+     * Stops reading rows and releases the tables. Rows already fetched into
+     * the current batch are dropped.
+     * @author Ethan Rama
+     */
+    @Override
+    public void close() {
+        if (rows != null) {
+            rows.close();
+            rows = null;
+            count = 0;
+            position = 0;
+            for (RamaTable table : tables) {
+                table.unpin();
+            }
+        }
+    }
+
+    /**
+     * Reads the values of the rows a cursor fetches
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    interface Values {
+        /**
+         * Reads one attribute of a row
+         * @param column position of the attribute in the output
+         * @param row row number or position fetched
+         * @return value as text, null for NULL
+         * @author Ethan Rama
+         */
+        String get(int column, int row);
+
+        /**
+         * Reads every attribute of a batch of rows, a column at a time
+         * @param rows row numbers or positions fetched
+         * @param count number of rows to read
+         * @param into filled with the values of each attribute, one array
+         * per attribute returned
+         * @author Ethan Rama
+         */
+        default void read(int[] rows, int count, String[][] into) {
+            for (int column = 0; column < into.length; column++) {
+                for (int i = 0; i < count; i++) {
+                    into[column][i] = get(column, rows[i]);
+                }
+            }
+        }
+    }
+}
@@ -2,49 +2,242 @@
  * RamaDatabase.java
  * Author: Ethan Rama
  *
- * Version History: v1.01
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added ANALYZE, counting the statistics the planner estimates from
+ * - ORDER BY sorts within a memory budget, spilling sorted runs beyond it
+ * - Added hash joins, spilling to disk beyond a memory budget
+ * - Large scans are split across threads, up to a limit per query
+ * - Added cursors reading query results a batch at a time
+ * - Added batch inserts and parallel loading of CSV and TSV files
+ * - Commits of every table are numbered by one sequence, so a query
+ *   reads all its tables as of the same point
+ * - CREATE TABLE rejects a name already in use rather than replacing the
+ *   table while inserts into it may be in flight
+ * - Versions are counted per table, so changes to different tables never
+ *   wait for each other, and an insert that fails always publishes its
+ *   slot
+ * - Inserts run in parallel without a database-wide lock
+ * - Queries read a consistent snapshot without waiting for writers
+ * - Tables can keep their values off the Java heap
+ * - Added checkpoints to a memory-mapped snapshot read on first use
+ * - Changes are recorded in an optional write-ahead log before they apply
+ * - Changes check that their table is still live once they hold the
+ *   database's lock
+ * - Added prepared statements and a plan cache
+ * - UPDATE and DELETE choose their rows here
+ * - Added SELECT queries returning their rows
+ * - Tables are created from their typed definitions
+ * - Scripts run through the pipelined RamaScriptRunner
+ * - Added query and streaming script execution
  * 6/18/2024: v1.01
  * -
  * 6/17/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 package store;
 
-import java.util.HashMap;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Represents the structure of the database
- * @version 1.0
+ * <br><br>
+ * A database may be shared by any number of threads. Each change touches
+ * one table and commits a new version of it, taking the next number of a
+ * commit sequence shared by every table. A query reads the sequence once
+ * when it starts and reads each table at the last version committed at or
+ * before that number, so a change finished before another started is
+ * always seen along with it, in whichever tables they touched. Taking a
+ * number is one atomic increment, so tables still commit without waiting
+ * for each other. Rows a query can see are never changed in place, so
+ * queries take no locks and are never held up by a writer, and a writer
+ * is never held up by queries. Creating, dropping and indexing tables are
+ * not versioned.
+ * <br><br>
+ * Inserts take no database-wide lock: they claim row slots in their table
+ * and run side by side, meeting only to log and publish their rows in slot
+ * order, and inserts into different tables never meet at all. A batch of
+ * rows, such as a multi-row INSERT or a block of a loaded file, claims a
+ * run of slots and commits under one version. UPDATE, DELETE and the other
+ * changes run one at a time under the database's lock and hold their
+ * table's change lock.
+ * @version 1.1
  * @author Ethan Rama
  */
-public class RamaDatabase {
+public class RamaDatabase implements AutoCloseable {
     /**
      * List of unique tables in database
      */
     protected final Map<String, RamaTable> tables;
 
+    /**
+     * Sequence numbering the commits of every table, which a query reads
+     * once to read each table as of the same point
+     */
+    final AtomicLong commits = new AtomicLong();
+
+    /**
+     * Parsed statements of recently run queries
+     */
+    final PlanCache planCache = new PlanCache();
+
+    /**
+     * Log every change is recorded in before it applies, null for a
+     * database kept only in memory
+     */
+    private volatile WriteAheadLog log;
+
+    /**
+     * Snapshot written by checkpoint, null for a database kept only in
+     * memory
+     */
+    private Path snapshotFile;
+
+    /**
+     * Where the tables keep their values
+     */
+    private final Storage storage;
+
+    /**
+     * Largest number of threads one query may scan a table on
+     */
+    private volatile int queryParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Bytes the hash table of one join may use before the join spills
+     */
+    private volatile long joinMemoryBudget = HashJoin.DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * Bytes one sort may hold before it spills sorted runs
+     */
+    private volatile long sortMemoryBudget = RowSorter.DEFAULT_MEMORY_BUDGET;
+
     /**
      * Constructs an empty database
      * @author Ethan Rama
      */
     public RamaDatabase() {
-        tables = new HashMap<>();
+        this(Storage.HEAP);
     }
 
     /**
-     * Creates a new table in database
+     * Constructs an empty database
+     * @param storage where the tables keep their values
+     * @author Ethan Rama
+     */
+    public RamaDatabase(Storage storage) {
+        this.tables = new ConcurrentHashMap<>();
+        this.storage = storage;
+    }
+
+    /**
+     * Constructs a database whose changes are kept in a write-ahead log,
+     * forcing the log to disk on every commit
+     * @param logFile log file, created if it does not exist
+     * @author Ethan Rama
+     */
+    public RamaDatabase(Path logFile) {
+        this(logFile, SyncPolicy.EVERY_COMMIT);
+    }
+
+    /**
+     * Constructs a database whose changes are kept in a write-ahead log.
+     * The tables are attached to the last checkpoint's snapshot, kept next
+     * to the log with the suffix .snapshot, and the changes logged since
+     * are replayed onto them.
+     * @param logFile log file, created if it does not exist
+     * @param policy when the log is forced to disk
+     * @author Ethan Rama
+     */
+    public RamaDatabase(Path logFile, SyncPolicy policy) {
+        this(logFile, policy, Storage.HEAP);
+    }
+
+    /**
+     * Constructs a database whose changes are kept in a write-ahead log,
+     * with its tables kept where the storage asks
+     * @param logFile log file, created if it does not exist
+     * @param policy when the log is forced to disk
+     * @param storage where the tables keep their values
+     * @author Ethan Rama
+     */
+    public RamaDatabase(Path logFile, SyncPolicy policy, Storage storage) {
+        this(storage);
+        snapshotFile = logFile.resolveSibling(logFile.getFileName() + ".snapshot");
+        long generation = Snapshot.attach(snapshotFile, this);
+        // Replay applies the records without logging them again, so the log is attached afterwards
+        WriteAheadLog opened = new WriteAheadLog(logFile, policy, this, generation);
+        synchronized (this) {
+            log = opened;
+        }
+    }
+
+    /**
+     * Creates a new table in database. A name already in use is rejected;
+     * drop the table first to replace it.
      * @param name name of table
      * @param columns list of attributes
      * @author Ethan Rama
      */
     public void createTable(String name, List<String> columns) {
-        tables.put(name, new RamaTable(name, columns));
+        CreateTableStatement statement = new CreateTableStatement(name,
+                new RamaTable(name, columns).getDefinitions());
+        putTable(statement, newTable(statement));
+        commit();
+    }
+
+    /**
+     * Creates a new table with typed attributes in database
+     * @param statement parsed CREATE TABLE statement
+     * @author Ethan Rama
+     */
+    void createTable(CreateTableStatement statement) {
+        putTable(statement, newTable(statement));
+    }
+
+    private RamaTable newTable(CreateTableStatement statement) {
+        return new RamaTable(statement, storage == Storage.OFF_HEAP, commits);
+    }
+
+    /**
+     * Get where the tables keep their values
+     * @return storage of the tables
+     * @author Ethan Rama
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Records and adds a table once its definition has been accepted. The
+     * name must be free: replacing a table would orphan inserts that
+     * passed requireLive on it, and they would be logged after the CREATE.
+     * @param statement definition of the table
+     * @param table empty table built from the definition
+     * @author Ethan Rama
+     */
+    private synchronized void putTable(CreateTableStatement statement, RamaTable table) {
+        if (tables.containsKey(statement.getTableName())) {
+            throw new IllegalArgumentException("Table " + statement.getTableName() + " already exists.");
+        }
+        if (log != null) {
+            log.createTable(statement);
+        }
+        tables.put(statement.getTableName(), table);
     }
 
     /**
@@ -56,12 +249,446 @@ public class RamaDatabase {
     public void insert(String tableName, Map<String, String> row) {
         RamaTable table = tables.get(tableName);
         if (table != null) {
-            table.insert(row);
+            insert(table, table.toRow(row));
+            commit();
         } else {
             throw new IllegalArgumentException("Table " + tableName + " does not exist.");
         }
     }
 
+    /**
+     * Records and inserts a row. Other threads insert at the same time; the
+     * row is logged and published once every row claimed before it in the
+     * table has been.
+     * @param table table in this database
+     * @param values value text of each attribute, null for NULL
+     * @author Ethan Rama
+     */
+    void insert(RamaTable table, String[] values) {
+        table.checkRow(values);
+        Lock shared = table.getInsertLock();
+        shared.lock();
+        try {
+            requireLive(table);
+            int row = table.claim();
+            boolean published = false;
+            try {
+                RuntimeException failure = table.store(row, values);
+                // Rows are logged in the order of their slots, so replay gives them the same numbers
+                table.awaitTurn(row);
+                WriteAheadLog current = log;
+                if (current != null) {
+                    try {
+                        current.insert(table.getName(), values);
+                    } catch (RuntimeException e) {
+                        failure = failure == null ? e : failure;
+                    }
+                }
+                published = true;
+                table.publish(row, failure);
+            } finally {
+                if (!published) {
+                    // An unpublished slot would hold up every later insert into the table
+                    table.abandon(row, 1);
+                }
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Records and inserts a batch of rows as one change, under one version.
+     * The rows claim consecutive slots and are logged and published
+     * together, so either every row is inserted or none is.
+     * @param table table in this database
+     * @param rows value text of each attribute of each row, null for NULL
+     * @author Ethan Rama
+     */
+    void insert(RamaTable table, List<String[]> rows) {
+        if (rows.size() <= 1) {
+            if (!rows.isEmpty()) {
+                insert(table, rows.get(0));
+            }
+            return;
+        }
+        for (String[] values : rows) {
+            table.checkRow(values);
+        }
+        Lock shared = table.getInsertLock();
+        shared.lock();
+        try {
+            requireLive(table);
+            int first = table.claim(rows.size());
+            boolean published = false;
+            try {
+                RuntimeException failure = null;
+                for (int i = 0; i < rows.size(); i++) {
+                    RuntimeException rejected = table.store(first + i, rows.get(i));
+                    failure = failure == null ? rejected : failure;
+                }
+                table.awaitTurn(first);
+                WriteAheadLog current = log;
+                if (current != null) {
+                    try {
+                        current.insert(table.getName(), rows);
+                    } catch (RuntimeException e) {
+                        failure = failure == null ? e : failure;
+                    }
+                }
+                published = true;
+                table.publish(first, rows.size(), failure);
+            } finally {
+                if (!published) {
+                    table.abandon(first, rows.size());
+                }
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Checks that a table has not been dropped, or replaced by a table of
+     * the same name, while a change waited for its lock
+     * @param table table being changed, with its insert or change lock held
+     * @author Ethan Rama
+     */
+    private void requireLive(RamaTable table) {
+        if (tables.get(table.getName()) != table) {
+            throw new IllegalArgumentException("Table " + table.getName() + " does not exist.");
+        }
+    }
+
+    /**
+     * Loads the rows of a CSV or TSV file into a table, parsing the file in
+     * parallel straight into the table's storage. A file ending in .tsv or
+     * .tab is read as TSV and any other as CSV, with one field per
+     * attribute in column order and an empty field for NULL. Rows commit
+     * in batches, so queries may see part of the file while it loads.
+     * @param tableName name of table
+     * @param file CSV or TSV file
+     * @param header whether the first line names the fields and is skipped
+     * @return number of rows loaded
+     * @author Ethan Rama
+     */
+    public long load(String tableName, Path file, boolean header) {
+        RamaTable table = tables.get(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("Table " + tableName + " does not exist.");
+        }
+        int[] slots = new int[table.getColumns().size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+        try {
+            return load(table, file, slots, header);
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Loads the rows of a CSV or TSV file into a table
+     * @param table table in this database
+     * @param file CSV or TSV file
+     * @param slots column position of each field of a record
+     * @param header whether the first line is skipped
+     * @return number of rows loaded
+     * @author Ethan Rama
+     */
+    long load(RamaTable table, Path file, int[] slots, boolean header) {
+        return new BulkLoader(this, table, slots, header).load(file);
+    }
+
+    /**
+     * Records and applies an update of the rows that meet a condition. The
+     * rows are chosen holding the table's change lock, so no other writer
+     * changes them before they are logged.
+     * @param table table in this database
+     * @param where WHERE condition, null to update every row
+     * @param ordinals column positions to set
+     * @param values new value text of each position, null for NULL
+     * @author Ethan Rama
+     */
+    synchronized void update(RamaTable table, Expression where, int[] ordinals, String[] values) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            // A table dropped and created again under the same name would replay the change onto the new one
+            requireLive(table);
+            applyUpdate(table, RowSelector.select(table, where, List.of(), RamaTable.LATEST, queryParallelism),
+                    ordinals, values);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Records and applies an update of existing rows
+     * @param table table in this database
+     * @param rows row numbers to update
+     * @param ordinals column positions to set
+     * @param values new value text of each position, null for NULL
+     * @author Ethan Rama
+     */
+    synchronized void update(RamaTable table, int[] rows, int[] ordinals, String[] values) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            requireLive(table);
+            applyUpdate(table, rows, ordinals, values);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Logs and applies an update, holding the table's change lock
+     * @param table live table in this database
+     * @param rows row numbers to update
+     * @param ordinals column positions to set
+     * @param values new value text of each position, null for NULL
+     * @author Ethan Rama
+     */
+    private void applyUpdate(RamaTable table, int[] rows, int[] ordinals, String[] values) {
+        if (log != null) {
+            log.update(table.getName(), rows, ordinals, values);
+        }
+        long next = table.nextVersion();
+        try {
+            table.update(rows, ordinals, values, next);
+        } finally {
+            table.commit(next);
+        }
+    }
+
+    /**
+     * Records and deletes the rows that meet a condition, choosing them
+     * holding the table's change lock
+     * @param table table in this database
+     * @param where WHERE condition, null to delete every row
+     * @author Ethan Rama
+     */
+    synchronized void delete(RamaTable table, Expression where) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            requireLive(table);
+            applyDelete(table, RowSelector.select(table, where, List.of(), RamaTable.LATEST, queryParallelism));
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Records and deletes rows
+     * @param table table in this database
+     * @param rows row numbers to delete
+     * @author Ethan Rama
+     */
+    synchronized void delete(RamaTable table, int[] rows) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            requireLive(table);
+            applyDelete(table, rows);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Logs and deletes rows, holding the table's change lock
+     * @param table live table in this database
+     * @param rows row numbers to delete
+     * @author Ethan Rama
+     */
+    private void applyDelete(RamaTable table, int[] rows) {
+        if (log != null) {
+            log.delete(table.getName(), rows);
+        }
+        long next = table.nextVersion();
+        try {
+            for (int row : rows) {
+                table.delete(row, next);
+            }
+        } finally {
+            table.commit(next);
+        }
+    }
+
+    /**
+     * Records and creates an ordered index
+     * @param table table in this database
+     * @param indexName name of the index
+     * @param column attribute to index
+     * @author Ethan Rama
+     */
+    synchronized void createIndex(RamaTable table, String indexName, String column) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            requireLive(table);
+            if (log != null) {
+                log.createIndex(table.getName(), indexName, column);
+            }
+            table.createIndex(indexName, column);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Counts the statistics of a table's live rows again. Statistics only
+     * guide the planner, so they are not logged.
+     * @param table table in this database
+     * @author Ethan Rama
+     */
+    synchronized void analyze(RamaTable table) {
+        Lock exclusive = table.getChangeLock();
+        exclusive.lock();
+        try {
+            // A dropped table has freed its values
+            requireLive(table);
+            table.analyze();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Counts the statistics of every table's live rows again
+     * @author Ethan Rama
+     */
+    synchronized void analyze() {
+        for (RamaTable table : tables.values()) {
+            analyze(table);
+        }
+    }
+
+    /**
+     * Get the number of the last commit to any table, which a query reads
+     * once and maps to a version of each table it reads
+     * @return commit sequence number
+     * @author Ethan Rama
+     */
+    long getCommitSequence() {
+        return commits.get();
+    }
+
+    /**
+     * Get the largest number of threads one query may scan a table on
+     * @return threads per query
+     * @author Ethan Rama
+     */
+    public int getQueryParallelism() {
+        return queryParallelism;
+    }
+
+    /**
+     * Sets the largest number of threads one query may scan a table on.
+     * Scans run on the common fork-join pool, so a limit below the number
+     * of processors leaves threads for other queries; 1 scans every table
+     * on the thread running the query. Tables too small to gain from more
+     * threads are scanned on fewer.
+     * @param queryParallelism threads per query, at least 1
+     * @author Ethan Rama
+     */
+    public void setQueryParallelism(int queryParallelism) {
+        if (queryParallelism < 1) {
+            throw new IllegalArgumentException("Query parallelism must be at least 1.");
+        }
+        this.queryParallelism = queryParallelism;
+    }
+
+    /**
+     * Get the bytes the hash table of one join may use before the join
+     * spills to disk
+     * @return memory budget in bytes
+     * @author Ethan Rama
+     */
+    public long getJoinMemoryBudget() {
+        return joinMemoryBudget;
+    }
+
+    /**
+     * Sets the bytes the hash table of one join may use. A join whose
+     * smaller table would need more is split into partitions spilled to
+     * temporary files and joined one partition at a time.
+     * @param joinMemoryBudget memory budget in bytes, at least 1
+     * @author Ethan Rama
+     */
+    public void setJoinMemoryBudget(long joinMemoryBudget) {
+        if (joinMemoryBudget < 1) {
+            throw new IllegalArgumentException("Join memory budget must be at least 1 byte.");
+        }
+        this.joinMemoryBudget = joinMemoryBudget;
+    }
+
+    /**
+     * Get the bytes one sort may hold before it spills to disk
+     * @return memory budget in bytes
+     * @author Ethan Rama
+     */
+    public long getSortMemoryBudget() {
+        return sortMemoryBudget;
+    }
+
+    /**
+     * Sets the bytes one sort may hold. A sort of more rows than fit is
+     * sorted a run at a time, each run spilled to a temporary file, and
+     * the runs are merged as the rows are read. A sort with a LIMIT that
+     * fits keeps only the rows it returns.
+     * @param sortMemoryBudget memory budget in bytes, at least 1
+     * @author Ethan Rama
+     */
+    public void setSortMemoryBudget(long sortMemoryBudget) {
+        if (sortMemoryBudget < 1) {
+            throw new IllegalArgumentException("Sort memory budget must be at least 1 byte.");
+        }
+        this.sortMemoryBudget = sortMemoryBudget;
+    }
+
+    /**
+     * Makes every change recorded so far as durable as the log's sync
+     * policy asks. Changes made at the same time by other threads are
+     * committed by the same force.
+     * @author Ethan Rama
+     */
+    void commit() {
+        WriteAheadLog current = log;
+        if (current != null) {
+            current.commit();
+        }
+    }
+
+    /**
+     * Writes every table to the snapshot and empties the log. Opening the
+     * database afterwards maps the snapshot instead of replaying every
+     * change, and reads rows from it only as queries touch them. Changes
+     * wait while the snapshot is written.
+     * @author Ethan Rama
+     */
+    public void checkpoint() {
+        if (log == null) {
+            throw new IllegalStateException("Only a database with a write-ahead log can be checkpointed.");
+        }
+        synchronized (this) {
+            List<RamaTable> locked = List.copyOf(tables.values());
+            // Inserts wait until the log is reset, so none is written to the snapshot and the old log both
+            locked.forEach(table -> table.getChangeLock().lock());
+            try {
+                // A crash before the log is reset leaves a log older than the snapshot, which opening skips
+                long generation = log.getGeneration() + 1;
+                Snapshot.write(snapshotFile, generation, locked);
+                log.reset(generation);
+            } finally {
+                locked.forEach(table -> table.getChangeLock().unlock());
+            }
+        }
+    }
+
     /**
      * Gets data from a table
      * @param tableName name of table
@@ -69,20 +696,157 @@ public class RamaDatabase {
      * @author Ethan Rama
      */
     public List<Map<String, String>> select(String tableName) {
+        RamaTable table = tables.get(tableName);
+        // A dropped table frees its values once unpinned, so the rows are copied under a pin
+        if (table != null && table.pin()) {
+            try {
+                return table.getRows(table.getVersion(), queryParallelism);
+            } finally {
+                table.unpin();
+            }
+        } else {
+            throw new IllegalArgumentException("Table " + tableName + " does not exist.");
+        }
+    }
+
+    /**
+     * Gets the statistics the planner keeps for a table
+     * @param tableName name of table
+     * @return statistics of the table's attributes
+     * @author Ethan Rama
+     */
+    public TableStatistics getStatistics(String tableName) {
         RamaTable table = tables.get(tableName);
         if (table != null) {
-            return table.getRows();
+            return table.getStatistics();
         } else {
             throw new IllegalArgumentException("Table " + tableName + " does not exist.");
         }
     }
 
     /**
-     * Drops table from the database
+     * Executes every statement in an RQL query. A SELECT is checked but
+     * its rows are discarded; use query or cursor to read them.
+     * @param query RQL query
+     * @author Ethan Rama
+     */
+    public void execute(String query) {
+        RamaQueryParser.parseAndExecute(this, query);
+    }
+
+    /**
+     * Runs an RQL SELECT query
+     * @param query RQL SELECT query
+     * @return selected attributes of each matching row
+     * @author Ethan Rama
+     */
+    public List<Map<String, String>> query(String query) {
+        return RamaQueryParser.query(this, query);
+    }
+
+    /**
+     * Opens a cursor over the rows of an RQL SELECT query, which finds its
+     * rows a batch at a time as they are read. Close the cursor if it is
+     * not read to the end.
+     * @param query RQL SELECT query
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    public RamaCursor cursor(String query) {
+        return RamaQueryParser.cursor(this, query);
+    }
+
+    /**
+     * Parses an RQL statement once for repeated execution. Each ? in the
+     * statement is a parameter whose value is set before each run.
+     * @param query RQL statement with ? parameters
+     * @return prepared statement
+     * @author Ethan Rama
+     */
+    public RamaPreparedStatement prepare(String query) {
+        return RamaQueryParser.prepare(this, query);
+    }
+
+    /**
+     * Get the number of statements whose parsed form was found in the plan
+     * cache
+     * @return number of plan cache hits
+     * @author Ethan Rama
+     */
+    public long getPlanCacheHits() {
+        return planCache.getHits();
+    }
+
+    /**
+     * Get the number of SELECT, INSERT, UPDATE and DELETE statements that
+     * had to be parsed because no statement of the same shape was cached
+     * @return number of plan cache misses
+     * @author Ethan Rama
+     */
+    public long getPlanCacheMisses() {
+        return planCache.getMisses();
+    }
+
+    /**
+     * Executes an RQL script while it is read. Lexing, parsing and execution
+     * run as concurrent stages, and statements run in script order as soon
+     * as they have been parsed.
+     * @param script source of the RQL script
+     * @author Ethan Rama
+     */
+    public void executeScript(Reader script) {
+        new RamaScriptRunner(this).run(script);
+    }
+
+    /**
+     * Executes a UTF-8 RQL script while it is read from a channel
+     * @param script source of the RQL script
+     * @author Ethan Rama
+     */
+    public void executeScript(ReadableByteChannel script) {
+        executeScript(Channels.newReader(script, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Drops table from the database, letting go of its values
      * @param tableName name of table
      * @author Ethan Rama
      */
     public void drop(String tableName) {
-        this.tables.remove(tableName);
+        synchronized (this) {
+            RamaTable table = tables.get(tableName);
+            // Inserts in flight are logged before the drop, so replay never sees one after it
+            Lock exclusive = table == null ? null : table.getChangeLock();
+            if (exclusive != null) {
+                exclusive.lock();
+            }
+            try {
+                if (log != null) {
+                    log.dropTable(tableName);
+                }
+                if (table != null) {
+                    tables.remove(tableName);
+                    table.free();
+                }
+            } finally {
+                if (exclusive != null) {
+                    exclusive.unlock();
+                }
+            }
+        }
+        commit();
+    }
+
+    /**
+     * Forces the write-ahead log to disk and closes it. Changes made after
+     * closing are rejected. Does nothing for a database kept in memory.
+     * @author Ethan Rama
+     */
+    @Override
+    public void close() {
+        WriteAheadLog current = log;
+        if (current != null) {
+            current.close();
+        }
     }
 }
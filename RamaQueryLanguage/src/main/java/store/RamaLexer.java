@@ -2,104 +2,124 @@
  * RamaLexer.java
  * Author: Ethan Rama
  *
- * Version History: v1.0
+ * Version History: v1.2
+ * 10/18/2026: v1.2
+ * - Added ANALYZE keyword
+ * - Added GROUP BY keyword
+ * - Added JOIN keyword and qualified table.column identifiers
+ * - Added LOAD, HEADER, LIMIT and OFFSET keywords
+ * - Added PLACEHOLDER token for prepared statement parameters
+ * - Added INDEX, ON, ORDER BY, ASC and DESC keywords
+ * - Added streaming mode over a Reader or channel with a bounded buffer
+ * - Added ASTERISK token
+ * 10/18/2026: v1.1
+ * - Shared tokens for fixed vocabulary, source slices for the rest
+ * - Replaced regex cascade with a single-pass character scanner
  * 6/18/2024: v1.0
  * - Fixed tokenize to skip whitespace
  * - Implemented match/pattern methods
  * - Implemented tokenize method
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 package store;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
 
 /**
  * Represents the RQL lexer
- * @version 1.0
+ * @version 1.2
  * @author Ethan Rama
  */
-public class RamaLexer {
+public class RamaLexer implements Iterator<Token> {
     /**
-     * Pattern for keywords
+     * Reserved keywords, in the priority order they are matched
      */
-    private static final String KEYWORD_PATTERN = "\\b(SELECT|FROM|WHERE|INSERT|INTO|VALUES|UPDATE|SET|DELETE|CREATE|DROP|TABLE|DATABASE|NOT NULL|PRIMARY KEY|UNIQUE|CHECK|DEFAULT|BOOL|INT|FLOAT|DATE|CHAR|VARCHAR)\\b";;
+    private static final String[] KEYWORDS = {
+            "SELECT", "FROM", "WHERE", "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE", "CREATE", "DROP",
+            "TABLE", "DATABASE", "NOT NULL", "PRIMARY KEY", "UNIQUE", "CHECK", "DEFAULT", "BOOL", "INT", "FLOAT",
+            "DATE", "CHAR", "VARCHAR", "INDEX", "ON", "ORDER BY", "ASC", "DESC",
+            "LOAD", "HEADER", "LIMIT", "OFFSET", "JOIN", "GROUP BY", "ANALYZE"
+    };
 
     /**
-     * Pattern for identifiers
+     * Shared keyword tokens, parallel to KEYWORDS
      */
-    private static final String IDENTIFIER_PATTERN = "\\b[a-zA-Z_][a-zA-Z0-9_]*\\b";
+    private static final Token[] KEYWORD_TOKENS = intern(Token.TokenType.KEYWORD, KEYWORDS);
 
     /**
-     * Pattern for strings
+     * Shared boolean literal tokens
      */
-    private static final String STRING_PATTERN = "'([^']*)'";
+    private static final Token[] BOOLEAN_TOKENS = intern(Token.TokenType.BOOLEAN_LITERAL, "TRUE", "FALSE");
 
     /**
-     * Pattern for numbers
+     * Shared logical operator tokens
      */
-    private static final String NUMBER_PATTERN = "-?\\d+(\\.\\d+)?";
+    private static final Token[] LOG_OPERATOR_TOKENS = intern(Token.TokenType.LOG_OPERATOR, "AND", "OR");
 
     /**
-     * Pattern for booleans
+     * Shared comparison operator tokens
      */
-    private static final String BOOLEAN_PATTERN = "\\b(TRUE|FALSE)\\b";
+    private static final Token[] COMP_OPERATOR_TOKENS = intern(Token.TokenType.COMP_OPERATOR,
+            "!=", "<>", "<=", ">=", "<", "=", ">");
 
-    /**
-     * Pattern for dates
-     */
-    private static final String DATE_PATTERN = "'\\d{4}-\\d{2}-\\d{2}'";
-
-    /**
-     * Pattern for comparison operators
-     */
-    private static final String COMP_OPERATOR_PATTERN = "(!=|<>|<=|>=|<|=|>)";
+    private static final Token NULL_TOKEN = new Token(Token.TokenType.NULL_LITERAL, "NULL");
+    private static final Token COMMA_TOKEN = new Token(Token.TokenType.COMMA, ",");
+    private static final Token PARENTHESIS_OPEN_TOKEN = new Token(Token.TokenType.PARENTHESIS_OPEN, "(");
+    private static final Token PARENTHESIS_CLOSE_TOKEN = new Token(Token.TokenType.PARENTHESIS_CLOSE, ")");
+    private static final Token ASTERISK_TOKEN = new Token(Token.TokenType.ASTERISK, "*");
+    static final Token PLACEHOLDER_TOKEN = new Token(Token.TokenType.PLACEHOLDER, "?");
+    private static final Token TERMINAL_TOKEN = new Token(Token.TokenType.TERMINAL, ";");
+    private static final Token EOF_TOKEN = new Token(Token.TokenType.EOF, "");
 
     /**
-     * Pattern for logical operators
+     * Initial size of the read buffer in streaming mode
      */
-    private static final String LOG_OPERATOR_PATTERN = "\\b(AND|OR)\\b";
+    private static final int BUFFER_SIZE = 8192;
 
     /**
-     * Pattern for commas
+     * Input RQL query, or null in streaming mode
      */
-    private static final String COMMA_PATTERN = ",";
+    private final CharSequence input;
 
     /**
-     * Pattern for open parenthesis
+     * Source of characters in streaming mode, or null
      */
-    private static final String PARENTHESIS_OPEN_PATTERN = "\\(";
+    private final Reader reader;
 
     /**
-     * Pattern for closed parenthesis
+     * Window of characters read from the reader. Positions index into this
+     * buffer, which only grows past its initial size to hold a longer token.
      */
-    private static final String PARENTHESIS_CLOSE_PATTERN = "\\)";
+    private char[] buffer;
 
     /**
-     * Pattern for null
+     * Number of characters available in the input or buffer
      */
-    private static final String NULL_PATTERN = "\\bNULL\\b";
+    private int limit;
 
     /**
-     * Pattern for whitespace
+     * Whether the reader has no more characters
      */
-    private static final String WHITESPACE_PATTERN = "\\s+";
+    private boolean exhausted;
 
     /**
-     * Pattern for EOF
+     * Whether the EOF token has been returned by next()
      */
-    private static final String TERMINAL_PATTERN = ";";
-
-    /**
-     * Input RQL query
-     */
-    private final String input;
+    private boolean finished;
 
     /**
      * Current position of input string
@@ -111,11 +131,37 @@ public class RamaLexer {
      * @param input RQL query
      * @author Ethan Rama
      */
-    public RamaLexer(String input) {
+    public RamaLexer(CharSequence input) {
         this.input = input;
+        this.reader = null;
+        this.limit = input.length();
+        this.position = 0;
+    }
+
+    /**
+     * Constructs a lexer that reads a script as tokens are requested. Only a
+     * bounded window of the script is held in memory at a time.
+     * @param reader source of the RQL script
+     * @author Ethan Rama
+     */
+    public RamaLexer(Reader reader) {
+        this.input = null;
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
         this.position = 0;
     }
 
+    /**
+     * Constructs a lexer that reads a UTF-8 script from a channel as tokens
+     * are requested
+     * @param channel source of the RQL script
+     * @author Ethan Rama
+     */
+    public RamaLexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
     /**
      * Divides the query into tokens
      * @return list of tokens from query
@@ -123,82 +169,417 @@ public class RamaLexer {
      */
     public List<Token> tokenize() {
         List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.getType() != Token.TokenType.EOF);
+        return tokens;
+    }
+
+    /**
+     * Scans the next token of the input
+     * @return next token, or the EOF token once the input is exhausted
+     * @author Ethan Rama
+     */
+    public Token nextToken() {
+        skipWhitespace();
+        if (buffer != null && position > buffer.length / 2) {
+            discard();
+        }
+        if (peek(position) < 0) {
+            return EOF_TOKEN;
+        }
+        return scanToken();
+    }
+
+    /**
+     * Checks if next() has more tokens to return
+     * @return true until the EOF token has been returned, false after
+     * @author Ethan Rama
+     */
+    @Override
+    public boolean hasNext() {
+        return !finished;
+    }
+
+    /**
+     * Gets the next token, ending with the EOF token
+     * @return next token
+     * @author Ethan Rama
+     */
+    @Override
+    public Token next() {
+        if (finished) {
+            throw new NoSuchElementException();
+        }
+        Token token = nextToken();
+        finished = token.getType() == Token.TokenType.EOF;
+        return token;
+    }
 
-        while (position < input.length()) { //TODO: Ensure priority handles all cases correctly
-            skipWhitespace();
-            if (position >= input.length()) {
+    /**
+     * Scans a single token starting at the current position. The first
+     * character decides which token classes are possible, so every character
+     * of the input is examined a constant number of times.
+     * @return token found at the current position
+     * @author Ethan Rama
+     */
+    private Token scanToken() {
+        int start = position;
+        int c = peek(start);
+
+        if (isIdentifierStart(c)) {
+            return scanWord(start);
+        }
+        if (isDigit(c) || (c == '-' && isDigit(peek(start + 1)))) {
+            return scanNumber(start);
+        }
+        switch (c) {
+            case '\'':
+                return scanQuoted(start);
+            case '!':
+                if (peek(start + 1) == '=') {
+                    return advance(COMP_OPERATOR_TOKENS[0]);
+                }
+                break;
+            case '<':
+                if (peek(start + 1) == '>') {
+                    return advance(COMP_OPERATOR_TOKENS[1]);
+                }
+                if (peek(start + 1) == '=') {
+                    return advance(COMP_OPERATOR_TOKENS[2]);
+                }
+                return advance(COMP_OPERATOR_TOKENS[4]);
+            case '>':
+                if (peek(start + 1) == '=') {
+                    return advance(COMP_OPERATOR_TOKENS[3]);
+                }
+                return advance(COMP_OPERATOR_TOKENS[6]);
+            case '=':
+                return advance(COMP_OPERATOR_TOKENS[5]);
+            case ',':
+                return advance(COMMA_TOKEN);
+            case '(':
+                return advance(PARENTHESIS_OPEN_TOKEN);
+            case ')':
+                return advance(PARENTHESIS_CLOSE_TOKEN);
+            case '*':
+                return advance(ASTERISK_TOKEN);
+            case '?':
+                return advance(PLACEHOLDER_TOKEN);
+            case ';':
+                return advance(TERMINAL_TOKEN);
+            default:
                 break;
+        }
+        throw new RuntimeException("Unexpected character: " + (char) c);
+    }
+
+    /**
+     * Scans a keyword, boolean, logical operator, null or identifier. An
+     * identifier may be qualified by a table name.
+     * @param start position of the first character
+     * @return word token
+     * @author Ethan Rama
+     */
+    private Token scanWord(int start) {
+        int end = start + 1;
+        while (isIdentifierPart(peek(end))) {
+            end++;
+        }
+        if (!isBoundary(end)) {
+            // The word runs into a non-ASCII letter, which no token class accepts
+            throw new RuntimeException("Unexpected character: " + (char) peek(start));
+        }
+        int length = end - start;
+
+        Token token = matchKeyword(start, length);
+        if (token == null) {
+            token = matchWord(BOOLEAN_TOKENS, start, length);
+        }
+        if (token == null) {
+            token = matchWord(LOG_OPERATOR_TOKENS, start, length);
+        }
+        if (token == null) {
+            token = matchWord(NULL_TOKEN, start, length);
+        }
+        if (token != null) {
+            return advance(token);
+        }
+        // A qualified attribute name, table.column, is one identifier
+        if (peek(end) == '.' && isIdentifierStart(peek(end + 1))) {
+            end += 2;
+            while (isIdentifierPart(peek(end))) {
+                end++;
             }
-            if (matchPattern(KEYWORD_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.KEYWORD, getMatch(KEYWORD_PATTERN)));
-            } else if (matchPattern(BOOLEAN_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.BOOLEAN_LITERAL, getMatch(BOOLEAN_PATTERN)));
-            } else if (matchPattern(DATE_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.DATE_LITERAL, getMatch(DATE_PATTERN)));
-            } else if (matchPattern(NUMBER_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.NUMBER_LITERAL, getMatch(NUMBER_PATTERN)));
-            } else if (matchPattern(STRING_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.STRING_LITERAL, getMatch(STRING_PATTERN)));
-            } else if (matchPattern(COMP_OPERATOR_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.COMP_OPERATOR, getMatch(COMP_OPERATOR_PATTERN)));
-            } else if (matchPattern(LOG_OPERATOR_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.LOG_OPERATOR, getMatch(LOG_OPERATOR_PATTERN)));
-            } else if (matchPattern(COMMA_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.COMMA, getMatch(COMMA_PATTERN)));
-            } else if (matchPattern(PARENTHESIS_OPEN_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.PARENTHESIS_OPEN, getMatch(PARENTHESIS_OPEN_PATTERN)));
-            } else if (matchPattern(PARENTHESIS_CLOSE_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.PARENTHESIS_CLOSE, getMatch(PARENTHESIS_CLOSE_PATTERN)));
-            } else if (matchPattern(NULL_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.NULL_LITERAL, getMatch(NULL_PATTERN)));
-            } else if (matchPattern(TERMINAL_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.TERMINAL, getMatch(TERMINAL_PATTERN)));
-            } else if (matchPattern(IDENTIFIER_PATTERN)) {
-                tokens.add(new Token(Token.TokenType.IDENTIFIER, getMatch(IDENTIFIER_PATTERN)));
-            } else {
-                throw new RuntimeException("Unexpected character: " + input.charAt(position));
+            if (!isBoundary(end)) {
+                throw new RuntimeException("Unexpected character: " + (char) peek(start));
             }
+            length = end - start;
         }
+        return emit(Token.TokenType.IDENTIFIER, start, length);
+    }
 
-        tokens.add(new Token(Token.TokenType.EOF, ""));
-        return tokens;
+    /**
+     * Scans a number of the form -?digits(.digits)?
+     * @param start position of the first character
+     * @return number token
+     * @author Ethan Rama
+     */
+    private Token scanNumber(int start) {
+        int end = peek(start) == '-' ? start + 1 : start;
+        while (isDigit(peek(end))) {
+            end++;
+        }
+        if (peek(end) == '.' && isDigit(peek(end + 1))) {
+            end += 2;
+            while (isDigit(peek(end))) {
+                end++;
+            }
+        }
+        return emit(Token.TokenType.NUMBER_LITERAL, start, end - start);
     }
 
-    private void skipWhitespace() {
-        Pattern p = Pattern.compile(WHITESPACE_PATTERN);
-        Matcher m = p.matcher(input.substring(position));
-        if (m.lookingAt()) {
-            position += m.end();
+    /**
+     * Scans a quoted date or string literal, keeping the quotes in the value
+     * @param start position of the opening quote
+     * @return date or string token
+     * @author Ethan Rama
+     */
+    private Token scanQuoted(int start) {
+        if (isDate(start)) {
+            return emit(Token.TokenType.DATE_LITERAL, start, 12);
+        }
+        int close = start + 1;
+        int c;
+        while ((c = peek(close)) >= 0 && c != '\'') {
+            close++;
+        }
+        if (c < 0) {
+            throw new RuntimeException("Unexpected character: '");
         }
+        return emit(Token.TokenType.STRING_LITERAL, start, close - start + 1);
     }
 
     /**
-     * Checks if the pattern matches the token found
-     * @param pattern token pattern
-     * @return true if token matches pattern, false otherwise
+     * Checks for a date literal of the form 'dddd-dd-dd'
+     * @param start position of the opening quote
+     * @return true if a date literal starts at the position, false otherwise
      * @author Ethan Rama
      */
-    private boolean matchPattern(String pattern) {
-        Pattern p = Pattern.compile(pattern);
-        Matcher m = p.matcher(input.substring(position));
-        return m.lookingAt();
+    private boolean isDate(int start) {
+        if (peek(start + 11) != '\'') {
+            return false;
+        }
+        for (int i = 1; i <= 10; i++) {
+            int c = peek(start + i);
+            if (i == 5 || i == 8 ? c != '-' : !isDigit(c)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Returns the value at the position matching the pattern
-     * @param pattern pattern used agianst token
-     * @return token value
+     * Finds the keyword spelled by the word at the position. Multi-word
+     * keywords continue past the first word with a single space.
+     * @param start position of the word
+     * @param length length of the word
+     * @return shared keyword token, or null if the word is not a keyword
      * @author Ethan Rama
      */
-    private String getMatch(String pattern) {
-        Pattern p = Pattern.compile(pattern);
-        Matcher m = p.matcher(input.substring(position));
-        if (m.lookingAt()) {
-            String match = m.group();
-            position += match.length();
-            return match;
+    private Token matchKeyword(int start, int length) {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String keyword = KEYWORDS[i];
+            if (keyword.length() == length) {
+                if (regionMatches(start, keyword)) {
+                    return KEYWORD_TOKENS[i];
+                }
+            } else if (keyword.length() > length && keyword.charAt(length) == ' '
+                    && regionMatches(start, keyword) && isBoundary(start + keyword.length())) {
+                return KEYWORD_TOKENS[i];
+            }
         }
         return null;
     }
 
+    /**
+     * Finds the shared token with the same spelling as the word
+     * @param candidates tokens to compare against
+     * @param start position of the word
+     * @param length length of the word
+     * @return matched token, or null if none match
+     * @author Ethan Rama
+     */
+    private Token matchWord(Token[] candidates, int start, int length) {
+        for (Token candidate : candidates) {
+            Token token = matchWord(candidate, start, length);
+            if (token != null) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    private Token matchWord(Token candidate, int start, int length) {
+        return candidate.getLength() == length && regionMatches(start, candidate.getValue()) ? candidate : null;
+    }
+
+    /**
+     * Checks if the input spells a word at the position, case-sensitively
+     * @param start position in the input
+     * @param word word to compare against
+     * @return true if the word appears at the position, false otherwise
+     * @author Ethan Rama
+     */
+    private boolean regionMatches(int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (peek(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves past a shared token
+     * @param token token found at the current position
+     * @return the token
+     * @author Ethan Rama
+     */
+    private Token advance(Token token) {
+        position += token.getLength();
+        return token;
+    }
+
+    /**
+     * Creates a token over a slice of the input and moves past it. In
+     * streaming mode the buffer is reused, so the value is copied out.
+     * @param type token type
+     * @param start position of the first character
+     * @param length number of characters in the token
+     * @return created token
+     * @author Ethan Rama
+     */
+    private Token emit(Token.TokenType type, int start, int length) {
+        position = start + length;
+        if (buffer != null) {
+            return new Token(type, new String(buffer, start, length));
+        }
+        return new Token(type, input, start, length);
+    }
+
+    /**
+     * Moves the position past any whitespace
+     * @author Ethan Rama
+     */
+    private void skipWhitespace() {
+        while (true) {
+            if (position >= limit) {
+                discard();
+            }
+            if (!isWhitespace(peek(position))) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Gets the character at a position without bounds errors, reading more
+     * of the script in streaming mode
+     * @param index position in the input
+     * @return character at the position, or -1 past the end of input
+     * @author Ethan Rama
+     */
+    private int peek(int index) {
+        if (index >= limit && !fill(index)) {
+            return -1;
+        }
+        return buffer != null ? buffer[index] : input.charAt(index);
+    }
+
+    /**
+     * Reads from the reader until the buffer holds the position
+     * @param index position that must be readable
+     * @return true if the position is now in the buffer, false at end of input
+     * @author Ethan Rama
+     */
+    private boolean fill(int index) {
+        if (reader == null || exhausted) {
+            return false;
+        }
+        try {
+            while (index >= limit) {
+                if (limit == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    exhausted = true;
+                    return false;
+                }
+                limit += read;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops consumed characters from the front of the buffer. Only called
+     * between tokens, when no scan holds a position into the buffer.
+     * @author Ethan Rama
+     */
+    private void discard() {
+        if (buffer != null && position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+    }
+
+    /**
+     * Checks if a word ends at the position
+     * @param index position after the last character of a word
+     * @return true if the next character cannot continue a word, false otherwise
+     * @author Ethan Rama
+     */
+    private boolean isBoundary(int index) {
+        int c = peek(index);
+        return c < 0 || !(Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    /**
+     * Creates shared tokens for a fixed vocabulary
+     * @param type token type
+     * @param values token values
+     * @return tokens in the same order as the values
+     * @author Ethan Rama
+     */
+    private static Token[] intern(Token.TokenType type, String... values) {
+        Token[] tokens = new Token[values.length];
+        for (int i = 0; i < values.length; i++) {
+            tokens[i] = new Token(type, values[i]);
+        }
+        return tokens;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 }
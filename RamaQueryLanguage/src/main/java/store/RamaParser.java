@@ -2,17 +2,31 @@
  * RamaParser.java
  * Author: Ethan Rama
  *
- * Version History: v1.0
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added ANALYZE statement
+ * - Added GROUP BY and COUNT, SUM, AVG, MIN and MAX
+ * - Added JOIN to SELECT
+ * - Added LIMIT and OFFSET
+ * - Added multi-row INSERT and LOAD statements
+ * - Added ? parameters
+ * - Added CREATE INDEX, UPDATE, DELETE and ORDER BY
+ * - Added WHERE conditions to SELECT
+ * - Accepts keywords written in any case
+ * - Pulls tokens from a lexer on demand with bounded lookahead
+ * - Implemented INSERT, DROP and SELECT statements
+ * - Fixed column definitions with lengths, constraints and defaults
  * 6/18/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 package store;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 //TODO: Transfer all grammars defined on iPad into statements
@@ -21,26 +35,118 @@ import java.util.List;
  * Represents the RQL Parser
  */
 public class RamaParser {
-    private final List<Token> tokens;
-    private int position;
+    /**
+     * Number of tokens the parser may look ahead
+     */
+    private static final int LOOKAHEAD = 2;
+
+    /**
+     * Token returned once the source runs out
+     */
+    private static final Token EOF_TOKEN = new Token(Token.TokenType.EOF, "");
+
+    /**
+     * Column constraints accepted when written in lower or mixed case
+     */
+    private static final String[] CONSTRAINTS = {"NOT NULL", "PRIMARY KEY", "UNIQUE", "CHECK", "DEFAULT"};
+
+    /**
+     * Source of tokens, read as the parser needs them
+     */
+    private final Iterator<Token> tokens;
+
+    /**
+     * Ring buffer of tokens read but not yet consumed
+     */
+    private final Token[] lookahead = new Token[LOOKAHEAD];
+
+    /**
+     * Index of the current token in the ring buffer
+     */
+    private int head;
+
+    /**
+     * Number of tokens in the ring buffer
+     */
+    private int count;
+
+    /**
+     * Number of ? parameters parsed so far
+     */
+    private int parameterCount;
+
     public RamaParser(List<Token> tokens) {
+        this(tokens.iterator());
+    }
+
+    /**
+     * Constructs a parser that pulls tokens from a lexer as statements are
+     * parsed, so a script never needs to be tokenized up front
+     * @param lexer lexer over the RQL script
+     * @author Ethan Rama
+     */
+    public RamaParser(RamaLexer lexer) {
+        this((Iterator<Token>) lexer);
+    }
+
+    private RamaParser(Iterator<Token> tokens) {
         this.tokens = tokens;
-        this.position = 0;
+    }
+
+    /**
+     * Checks if another statement follows, skipping empty statements
+     * @return true if a statement remains, false at end of input
+     * @author Ethan Rama
+     */
+    public boolean hasNextStatement() {
+        while (matchToken(Token.TokenType.TERMINAL)) {
+            // Empty statement
+        }
+        return peek(0).getType() != Token.TokenType.EOF;
     }
 
     public RQLStatement parse() {
-        Token currentToken = tokens.get(position);
-        if (currentToken.getType() == Token.TokenType.KEYWORD) {
-            switch (currentToken.getValue().toUpperCase()) {
-                case "CREATE":
-                    return parseCreateTableStatement();
-                case "INSERT":
-                    return parseInsertIntoStatement();
-                default:
-                    throw new RuntimeException("Unsupported statement: " + currentToken.getValue());
+        Token currentToken = peek(0);
+        RQLStatement statement;
+        // A keyword written in lower or mixed case is lexed as an identifier
+        if (currentToken.getType() == Token.TokenType.KEYWORD || currentToken.getType() == Token.TokenType.IDENTIFIER) {
+            if (currentToken.matches("CREATE")) {
+                statement = peek(1).matches("INDEX") ? parseCreateIndexStatement() : parseCreateTableStatement();
+            } else if (currentToken.matches("INSERT")) {
+                statement = parseInsertIntoStatement();
+            } else if (currentToken.matches("UPDATE")) {
+                statement = parseUpdateStatement();
+            } else if (currentToken.matches("DELETE")) {
+                statement = parseDeleteStatement();
+            } else if (currentToken.matches("LOAD")) {
+                statement = parseLoadStatement();
+            } else if (currentToken.matches("DROP")) {
+                statement = parseDropTableStatement();
+            } else if (currentToken.matches("ANALYZE")) {
+                statement = parseAnalyzeStatement();
+            } else if (currentToken.matches("SELECT")) {
+                statement = parseSelectStatement();
+            } else if (currentToken.getType() == Token.TokenType.KEYWORD) {
+                throw new RuntimeException("Unsupported statement: " + currentToken.getValue());
+            } else {
+                throw new RuntimeException("Invalid SQL statement");
             }
+        } else {
+            throw new RuntimeException("Invalid SQL statement");
         }
-        throw new RuntimeException("Invalid SQL statement");
+        if (!matchToken(Token.TokenType.TERMINAL) && peek(0).getType() != Token.TokenType.EOF) {
+            throw new RuntimeException("Expected end of statement but found: " + peek(0).getValue());
+        }
+        return statement;
+    }
+
+    /**
+     * Get the number of ? parameters parsed so far
+     * @return number of parameters
+     * @author Ethan Rama
+     */
+    public int getParameterCount() {
+        return parameterCount;
     }
 
     private CreateTableStatement parseCreateTableStatement() {
@@ -50,66 +156,496 @@ public class RamaParser {
         expectToken(Token.TokenType.PARENTHESIS_OPEN);
         List<ColumnDefinition> columns = new ArrayList<>();
         do {
-            columns.add(parseColumnDefinition());
+            if (matchToken("CHECK")) {
+                // Table level CHECK constraints are parsed but not enforced
+                skipParenthesized();
+            } else {
+                columns.add(parseColumnDefinition());
+            }
         } while (matchToken(Token.TokenType.COMMA));
         expectToken(Token.TokenType.PARENTHESIS_CLOSE);
 
         return new CreateTableStatement(tableName, columns);
     }
 
-    //TODO: Work on logic
+    /**
+     * Parses CREATE INDEX name ON table (column)
+     * @return parsed statement
+     * @author Ethan Rama
+     */
+    private CreateIndexStatement parseCreateIndexStatement() {
+        expectToken("CREATE");
+        expectToken("INDEX");
+        String indexName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        expectToken("ON");
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        expectToken(Token.TokenType.PARENTHESIS_OPEN);
+        String columnName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+        return new CreateIndexStatement(indexName, tableName, columnName);
+    }
+
+    /**
+     * Parses UPDATE table SET column = value, ... with an optional WHERE
+     * @return parsed statement
+     * @author Ethan Rama
+     */
+    private UpdateStatement parseUpdateStatement() {
+        expectToken("UPDATE");
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        expectToken("SET");
+        List<String> columns = new ArrayList<>();
+        List<Value> values = new ArrayList<>();
+        do {
+            columns.add(expectToken(Token.TokenType.IDENTIFIER).getValue());
+            expectToken("=");
+            values.add(parseValue());
+        } while (matchToken(Token.TokenType.COMMA));
+        return new UpdateStatement(tableName, columns, values, parseWhere());
+    }
+
+    /**
+     * Parses DELETE FROM table with an optional WHERE
+     * @return parsed statement
+     * @author Ethan Rama
+     */
+    private DeleteStatement parseDeleteStatement() {
+        expectToken("DELETE");
+        expectToken("FROM");
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        return new DeleteStatement(tableName, parseWhere());
+    }
+
     private InsertIntoStatement parseInsertIntoStatement() {
         expectToken("INSERT");
         expectToken("INTO");
         String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
-        expectToken(Token.TokenType.PARENTHESIS_OPEN);
         List<String> columns = new ArrayList<>();
+        if (matchToken(Token.TokenType.PARENTHESIS_OPEN)) {
+            do {
+                columns.add(expectToken(Token.TokenType.IDENTIFIER).getValue());
+            } while (matchToken(Token.TokenType.COMMA));
+            expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+        }
+        expectToken("VALUES");
+        List<Row> rows = new ArrayList<>();
         do {
-            // TODO: Column List
-            columns.add(null);
+            rows.add(parseRow());
         } while (matchToken(Token.TokenType.COMMA));
+        return new InsertIntoStatement(tableName, columns, rows);
+    }
+
+    private LoadStatement parseLoadStatement() {
+        expectToken("LOAD");
+        String path = toValue(expectToken(Token.TokenType.STRING_LITERAL)).getText();
+        expectToken("INTO");
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        List<String> columns = new ArrayList<>();
+        if (matchToken(Token.TokenType.PARENTHESIS_OPEN)) {
+            do {
+                columns.add(expectToken(Token.TokenType.IDENTIFIER).getValue());
+            } while (matchToken(Token.TokenType.COMMA));
+            expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+        }
+        return new LoadStatement(path, tableName, columns, matchToken("HEADER"));
+    }
+
+    private DropTableStatement parseDropTableStatement() {
+        expectToken("DROP");
+        expectToken("TABLE");
+        return new DropTableStatement(expectToken(Token.TokenType.IDENTIFIER).getValue());
+    }
+
+    private AnalyzeStatement parseAnalyzeStatement() {
+        expectToken("ANALYZE");
+        boolean named = peek(0).getType() == Token.TokenType.IDENTIFIER;
+        return new AnalyzeStatement(named ? advance().getValue() : null);
+    }
+
+    private SelectStatement parseSelectStatement() {
+        expectToken("SELECT");
+        List<String> columns = new ArrayList<>();
+        List<Aggregate> aggregates = new ArrayList<>();
+        if (!matchToken(Token.TokenType.ASTERISK)) {
+            do {
+                columns.add(parseSelectItem(aggregates));
+            } while (matchToken(Token.TokenType.COMMA));
+        }
+        expectToken("FROM");
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        JoinClause join = matchToken("JOIN") ? parseJoin() : null;
+        Expression where = parseWhere();
+        List<String> groupBy = new ArrayList<>();
+        if (matchToken("GROUP BY")) {
+            do {
+                groupBy.add(expectToken(Token.TokenType.IDENTIFIER).getValue());
+            } while (matchToken(Token.TokenType.COMMA));
+        }
+        List<SortKey> orderBy = parseOrderBy(aggregates);
+        Value limit = matchToken("LIMIT") ? parseValue() : null;
+        Value offset = matchToken("OFFSET") ? parseValue() : null;
+        return new SelectStatement(tableName, join, columns, aggregates, where, groupBy, orderBy, limit, offset);
+    }
+
+    /**
+     * Parses an attribute or an aggregate function of one
+     * @param aggregates aggregates parsed so far, added to if this one is new
+     * @return attribute name, or the label of the aggregate
+     * @author Ethan Rama
+     */
+    private String parseSelectItem(List<Aggregate> aggregates) {
+        Token name = expectToken(Token.TokenType.IDENTIFIER);
+        if (peek(0).getType() != Token.TokenType.PARENTHESIS_OPEN) {
+            return name.getValue();
+        }
+        String function = name.getValue().toUpperCase();
+        if (!Aggregate.FUNCTIONS.contains(function)) {
+            throw new RuntimeException("Unknown function: " + name.getValue());
+        }
+        advance();
+        String columnName = null;
+        if (!matchToken(Token.TokenType.ASTERISK)) {
+            columnName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        } else if (!function.equals("COUNT")) {
+            throw new RuntimeException(function + " requires an attribute, not *");
+        }
+        expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+        Aggregate aggregate = new Aggregate(function, columnName);
+        for (Aggregate parsed : aggregates) {
+            if (parsed.getLabel().equals(aggregate.getLabel())) {
+                return parsed.getLabel();
+            }
+        }
+        aggregates.add(aggregate);
+        return aggregate.getLabel();
+    }
+
+    /**
+     * Parses the rest of JOIN table ON column = column
+     * @return parsed JOIN clause
+     * @author Ethan Rama
+     */
+    private JoinClause parseJoin() {
+        String tableName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        expectToken("ON");
+        String leftColumn = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        Token operator = expectToken(Token.TokenType.COMP_OPERATOR);
+        if (!operator.getValue().equals("=")) {
+            throw new RuntimeException("JOIN requires an equality but found: " + operator.getValue());
+        }
+        String rightColumn = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        return new JoinClause(tableName, leftColumn, rightColumn);
+    }
+
+    /**
+     * Parses an optional ORDER BY clause
+     * @param aggregates aggregates of the query, added to by any sorted by
+     * that are not returned
+     * @return attributes to sort by, empty if there is no ORDER BY clause
+     * @author Ethan Rama
+     */
+    private List<SortKey> parseOrderBy(List<Aggregate> aggregates) {
+        List<SortKey> orderBy = new ArrayList<>();
+        if (matchToken("ORDER BY")) {
+            do {
+                String columnName = parseSelectItem(aggregates);
+                boolean descending = matchToken("DESC");
+                if (!descending) {
+                    matchToken("ASC");
+                }
+                orderBy.add(new SortKey(columnName, descending));
+            } while (matchToken(Token.TokenType.COMMA));
+        }
+        return orderBy;
+    }
+
+    /**
+     * Parses an optional WHERE clause
+     * @return condition, or null if there is no WHERE clause
+     * @author Ethan Rama
+     */
+    private Expression parseWhere() {
+        return matchToken("WHERE") ? parseCondition() : null;
+    }
+
+    /**
+     * Parses conditions joined by OR, which binds looser than AND
+     * @return condition
+     * @author Ethan Rama
+     */
+    private Expression parseCondition() {
+        Expression condition = parseConjunction();
+        while (isLogicalOperator("OR")) {
+            advance();
+            condition = new LogicalExpression("OR", condition, parseConjunction());
+        }
+        return condition;
+    }
+
+    /**
+     * Parses conditions joined by AND
+     * @return condition
+     * @author Ethan Rama
+     */
+    private Expression parseConjunction() {
+        Expression condition = parseComparison();
+        while (isLogicalOperator("AND")) {
+            advance();
+            condition = new LogicalExpression("AND", condition, parseComparison());
+        }
+        return condition;
+    }
+
+    /**
+     * Parses a comparison or a parenthesized condition
+     * @return condition
+     * @author Ethan Rama
+     */
+    private Expression parseComparison() {
+        if (matchToken(Token.TokenType.PARENTHESIS_OPEN)) {
+            Expression condition = parseCondition();
+            expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+            return condition;
+        }
+        Expression left = parseOperand();
+        String operator = expectToken(Token.TokenType.COMP_OPERATOR).getValue();
+        return new Comparison(operator, left, parseOperand());
+    }
+
+    /**
+     * Parses an attribute reference or a literal value
+     * @return operand
+     * @author Ethan Rama
+     */
+    private Expression parseOperand() {
+        if (peek(0).getType() == Token.TokenType.IDENTIFIER) {
+            return new ColumnReference(advance().getValue());
+        }
+        return parseValue();
+    }
+
+    private ColumnDefinition parseColumnDefinition() {
+        String columnName = expectToken(Token.TokenType.IDENTIFIER).getValue();
+        String dataType = null;
+        int size = 0;
+        if (isDataType(peek(0))) {
+            dataType = advance().getValue().toUpperCase();
+            if (matchToken(Token.TokenType.PARENTHESIS_OPEN)) {
+                size = Integer.parseInt(expectToken(Token.TokenType.NUMBER_LITERAL).getValue());
+                expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+            }
+        }
+        List<String> constraints = new ArrayList<>();
+        Value defaultValue = null;
+        while (true) {
+            String constraint = matchConstraint();
+            if (constraint == null) {
+                break;
+            }
+            if (constraint.equals("DEFAULT")) {
+                defaultValue = parseValue();
+            } else if (constraint.equals("CHECK")) {
+                skipParenthesized();
+            }
+            constraints.add(constraint);
+        }
+        return new ColumnDefinition(columnName, dataType, size, constraints, defaultValue);
+    }
+
+    /**
+     * Parses a parenthesized list of literal values
+     * @return row of values
+     * @author Ethan Rama
+     */
+    private Row parseRow() {
         expectToken(Token.TokenType.PARENTHESIS_OPEN);
-        expectToken(Token.TokenType.KEYWORD);
-        expectToken(Token.TokenType.PARENTHESIS_OPEN);
+        List<Value> values = new ArrayList<>();
         do {
-            // TODO: Constraints
+            values.add(parseValue());
         } while (matchToken(Token.TokenType.COMMA));
+        expectToken(Token.TokenType.PARENTHESIS_CLOSE);
+        return new Row(values);
+    }
+
+    /**
+     * Parses a literal value, removing the quotes from strings and dates
+     * @return literal value
+     * @author Ethan Rama
+     */
+    private Value parseValue() {
+        Token token = advance();
+        if (token.getType() == Token.TokenType.PLACEHOLDER) {
+            return new Value(parameterCount++);
+        }
+        Value value = toValue(token);
+        if (value == null) {
+            throw new RuntimeException("Expected a value but found: " + token.getValue());
+        }
+        return value;
+    }
+
+    /**
+     * Converts a literal token to a value
+     * @param token token to convert
+     * @return literal value, or null if the token is not a literal
+     * @author Ethan Rama
+     */
+    static Value toValue(Token token) {
+        switch (token.getType()) {
+            case STRING_LITERAL:
+            case DATE_LITERAL:
+                String quoted = token.getValue();
+                return new Value(token.getType(), quoted.substring(1, quoted.length() - 1));
+            case NUMBER_LITERAL:
+            case BOOLEAN_LITERAL:
+                return new Value(token.getType(), token.getValue());
+            case NULL_LITERAL:
+                return new Value(token.getType(), null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Skips a parenthesized group, including nested groups
+     * @author Ethan Rama
+     */
+    private void skipParenthesized() {
         expectToken(Token.TokenType.PARENTHESIS_OPEN);
-        return new InsertIntoStatement();
+        int depth = 1;
+        while (depth > 0) {
+            Token token = advance();
+            if (token.getType() == Token.TokenType.PARENTHESIS_OPEN) {
+                depth++;
+            } else if (token.getType() == Token.TokenType.PARENTHESIS_CLOSE) {
+                depth--;
+            } else if (token.getType() == Token.TokenType.EOF) {
+                throw new RuntimeException("Expected token of type: " + Token.TokenType.PARENTHESIS_CLOSE
+                        + " but found: " + token.getType());
+            }
+        }
     }
 
-    private ColumnDefinition parseColumnDefinition() {
-        String columnName = expectToken(Token.TokenType.IDENTIFIER).getValue();
-        String dataType = expectToken(Token.TokenType.KEYWORD).getValue();
-        List<String> constraints = new ArrayList<>();
-        while (matchToken(Token.TokenType.KEYWORD)) {
-            constraints.add(expectToken(Token.TokenType.KEYWORD).getValue());
+    /**
+     * Consumes a column constraint
+     * @return constraint keyword in upper case, or null if no constraint follows
+     * @author Ethan Rama
+     */
+    private String matchConstraint() {
+        if (peek(0).getType() == Token.TokenType.KEYWORD) {
+            return advance().getValue();
+        }
+        for (String constraint : CONSTRAINTS) {
+            if (matchToken(constraint)) {
+                return constraint;
+            }
         }
-        return new ColumnDefinition(columnName, dataType, constraints);
+        return null;
+    }
+
+    /**
+     * Checks if the current token is the logical operator, which is lexed as
+     * an identifier when it is not written in upper case
+     * @param operator AND or OR
+     * @return true if the operator is next
+     * @author Ethan Rama
+     */
+    private boolean isLogicalOperator(String operator) {
+        Token token = peek(0);
+        return (token.getType() == Token.TokenType.LOG_OPERATOR || token.getType() == Token.TokenType.IDENTIFIER)
+                && token.matches(operator);
+    }
+
+    private static boolean isDataType(Token token) {
+        return (token.getType() == Token.TokenType.KEYWORD || token.getType() == Token.TokenType.IDENTIFIER)
+                && (token.matches("BOOL") || token.matches("INT")
+                || token.matches("FLOAT") || token.matches("DATE") || token.matches("CHAR") || token.matches("VARCHAR"));
+    }
+
+    /**
+     * Gets a token ahead of the current position, reading it from the source
+     * if it has not been read yet
+     * @param offset number of tokens past the current token, below LOOKAHEAD
+     * @return token at the offset
+     * @author Ethan Rama
+     */
+    private Token peek(int offset) {
+        while (count <= offset) {
+            lookahead[(head + count) % LOOKAHEAD] = tokens.hasNext() ? tokens.next() : EOF_TOKEN;
+            count++;
+        }
+        return lookahead[(head + offset) % LOOKAHEAD];
+    }
+
+    /**
+     * Consumes the current token. The EOF token is never consumed.
+     * @return consumed token
+     * @author Ethan Rama
+     */
+    private Token advance() {
+        Token token = peek(0);
+        if (token.getType() != Token.TokenType.EOF) {
+            lookahead[head] = null;
+            head = (head + 1) % LOOKAHEAD;
+            count--;
+        }
+        return token;
     }
 
     private boolean matchToken(Token.TokenType type) {
-        if (position < tokens.size() && tokens.get(position).getType() == type) {
-            position++;
+        if (peek(0).getType() == type) {
+            advance();
             return true;
         }
         return false;
     }
 
+    private boolean matchToken(String value) {
+        int length = keywordLength(value);
+        for (int i = 0; i < length; i++) {
+            advance();
+        }
+        return length > 0;
+    }
+
     private Token expectToken(String value) {
-        Token token = tokens.get(position);
-        if (token.getValue().equalsIgnoreCase(value)) {
-            position++;
+        Token token = peek(0);
+        if (matchToken(value)) {
             return token;
         }
+        if (token.getType() != Token.TokenType.IDENTIFIER && token.matches(value)) {
+            return advance();
+        }
         throw new RuntimeException("Expected token: " + value + " but found: " + token.getValue());
     }
 
+    /**
+     * Counts the tokens spelling a keyword at the current position. The lexer
+     * only recognizes keywords in upper case, so a keyword in any other case
+     * arrives as one identifier per word.
+     * @param keyword keyword in upper case, with words separated by a space
+     * @return number of tokens spelling the keyword, or 0 if it is not next
+     * @author Ethan Rama
+     */
+    private int keywordLength(String keyword) {
+        Token token = peek(0);
+        if (token.getType() == Token.TokenType.KEYWORD) {
+            return token.matches(keyword) ? 1 : 0;
+        }
+        if (token.getType() != Token.TokenType.IDENTIFIER) {
+            return 0;
+        }
+        int space = keyword.indexOf(' ');
+        if (space < 0) {
+            return token.matches(keyword) ? 1 : 0;
+        }
+        return token.matches(keyword.substring(0, space)) && peek(1).matches(keyword.substring(space + 1)) ? 2 : 0;
+    }
+
     private Token expectToken(Token.TokenType type) {
-        Token token = tokens.get(position);
+        Token token = peek(0);
         if (token.getType() == type) {
-            position++;
-            return token;
+            return advance();
         }
         throw new RuntimeException("Expected token of type: " + type + " but found: " + token.getType());
     }
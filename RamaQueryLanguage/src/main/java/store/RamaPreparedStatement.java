@@ -0,0 +1,185 @@
+/*
+ * RamaPreparedStatement.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added cursors over SELECT results
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An RQL statement parsed once and run any number of times with different
+ * values for its ? parameters. Parameters are numbered from 1 in the order
+ * they appear, and keep their value between runs until set again or
+ * cleared. A prepared statement is not safe for use by several threads at
+ * once; prepare one per thread instead.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+public class RamaPreparedStatement {
+    /**
+     * Database the statement runs against
+     */
+    private final RamaDatabase rdb;
+
+    /**
+     * Parsed statement with its parameters unbound
+     */
+    private final RQLStatement template;
+
+    /**
+     * Value of each parameter, null if not yet set
+     */
+    private final Value[] parameters;
+
+    /**
+     * Constructs a prepared statement
+     * @param rdb selected RQL database
+     * @param template parsed statement
+     * @param parameterCount number of ? parameters in the statement
+     * @author Ethan Rama
+     */
+    RamaPreparedStatement(RamaDatabase rdb, RQLStatement template, int parameterCount) {
+        this.rdb = rdb;
+        this.template = template;
+        this.parameters = new Value[parameterCount];
+    }
+
+    /**
+     * Sets a parameter to an integer
+     * @param index parameter position, from 1
+     * @param value integer value
+     * @author Ethan Rama
+     */
+    public void setInt(int index, long value) {
+        set(index, new Value(Token.TokenType.NUMBER_LITERAL, Long.toString(value)));
+    }
+
+    /**
+     * Sets a parameter to a floating point number
+     * @param index parameter position, from 1
+     * @param value finite number
+     * @author Ethan Rama
+     */
+    public void setDouble(int index, double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Invalid value " + value + " for parameter " + index + ".");
+        }
+        set(index, new Value(Token.TokenType.NUMBER_LITERAL, Double.toString(value)));
+    }
+
+    /**
+     * Sets a parameter to a boolean
+     * @param index parameter position, from 1
+     * @param value boolean value
+     * @author Ethan Rama
+     */
+    public void setBoolean(int index, boolean value) {
+        set(index, new Value(Token.TokenType.BOOLEAN_LITERAL, value ? "TRUE" : "FALSE"));
+    }
+
+    /**
+     * Sets a parameter to a string, or to NULL if the string is null
+     * @param index parameter position, from 1
+     * @param value string value, without quotes
+     * @author Ethan Rama
+     */
+    public void setString(int index, String value) {
+        set(index, value == null ? new Value(Token.TokenType.NULL_LITERAL, null)
+                : new Value(Token.TokenType.STRING_LITERAL, value));
+    }
+
+    /**
+     * Sets a parameter to a date, or to NULL if the date is null
+     * @param index parameter position, from 1
+     * @param value date value
+     * @author Ethan Rama
+     */
+    public void setDate(int index, LocalDate value) {
+        set(index, value == null ? new Value(Token.TokenType.NULL_LITERAL, null)
+                : new Value(Token.TokenType.DATE_LITERAL, value.toString()));
+    }
+
+    /**
+     * Sets a parameter to NULL
+     * @param index parameter position, from 1
+     * @author Ethan Rama
+     */
+    public void setNull(int index) {
+        set(index, new Value(Token.TokenType.NULL_LITERAL, null));
+    }
+
+    /**
+     * Unsets every parameter
+     * @author Ethan Rama
+     */
+    public void clearParameters() {
+        Arrays.fill(parameters, null);
+    }
+
+    /**
+     * Get the number of parameters
+     * @return number of ? parameters in the statement
+     * @author Ethan Rama
+     */
+    public int getParameterCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Runs the statement with the current parameter values
+     * @author Ethan Rama
+     */
+    public void execute() {
+        try {
+            RamaQueryParser.execute(rdb, StatementBinder.bind(template, parameters));
+        } finally {
+            rdb.commit();
+        }
+    }
+
+    /**
+     * Runs the SELECT statement with the current parameter values
+     * @return selected attributes of each matching row
+     * @author Ethan Rama
+     */
+    public List<Map<String, String>> executeQuery() {
+        if (!(template instanceof SelectStatement)) {
+            throw new IllegalArgumentException("Expected a SELECT query.");
+        }
+        return RamaQueryParser.select(rdb, (SelectStatement) StatementBinder.bind(template, parameters));
+    }
+
+    /**
+     * Opens a cursor over the rows of the SELECT statement with the current
+     * parameter values. Changing the parameters afterwards does not change
+     * the cursor.
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    public RamaCursor executeCursor() {
+        if (!(template instanceof SelectStatement)) {
+            throw new IllegalArgumentException("Expected a SELECT query.");
+        }
+        return RamaQueryParser.openCursor(rdb, (SelectStatement) StatementBinder.bind(template, parameters));
+    }
+
+    private void set(int index, Value value) {
+        if (index < 1 || index > parameters.length) {
+            throw new IllegalArgumentException("Parameter " + index + " is out of range 1 to " + parameters.length + ".");
+        }
+        parameters[index - 1] = value;
+    }
+}
@@ -2,113 +2,746 @@
  * RamaQueryParser.java
  * Author: Ethan Rama
  *
- * Version History: v1.01
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added ANALYZE
+ * - ORDER BY with LIMIT keeps only the rows returned, and larger sorts
+ *   spill sorted runs beyond the database's sort memory budget
+ * - SELECT computes COUNT, SUM, AVG, MIN and MAX over GROUP BY groups
+ *   with a hash aggregator, merging partial aggregates of parallel scans
+ * - SELECT joins two tables with a hash join, each WHERE condition
+ *   filtering the table it reads
+ * - SELECT queries returning every row find them on several threads
+ * - SELECT reads rows through a cursor with LIMIT and OFFSET. Run through
+ *   execute, it is checked but no longer prints its rows; query and
+ *   cursor return them
+ * - INSERT inserts all of its rows as one batch, and LOAD reads a CSV or
+ *   TSV file in parallel without holding the database lock
+ * - SELECT reads its table at the version committed by one number of
+ *   the database's commit sequence
+ * - SELECT reads the version of the database committed when it starts
+ * - SELECT reads its table under a pin, so a drop cannot free the values
+ *   it reads
+ * - Changes are recorded in the database's write-ahead log and committed
+ * - Statements are planned through the database's plan cache
+ * - Added CREATE INDEX, UPDATE, DELETE and ORDER BY
+ * - SELECT filters rows by WHERE, using the hash index for key lookups
+ * - INSERT fills positional slots instead of a map per row
+ * - CREATE keeps the declared attribute types
+ * - Queries are lexed and parsed into statements before execution
+ * - Moved script execution to RamaScriptRunner
+ * - Added streaming script execution
  * 6/18/2024: v1.01
  * -
  * 6/17/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 package store;
 
-import java.util.Arrays;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Defines a query parser
- * @version 1.0
+ * @version 1.1
  * @author Ethan Rama
  */
 class RamaQueryParser {
     /**
-     * Divides query into tokens and handles specific CRUD operation
+     * Parses every statement in a query and handles its CRUD operation.
+     * Statements are taken from the database's plan cache when a statement
+     * of the same shape was parsed before.
      * @param rdb selected RQL database
      * @param query RQL query
      * @author Ethan Rama
      */
     public static void parseAndExecute(RamaDatabase rdb, String query) {
-        String[] tokens = query.split("\\s+");
-
-        if (tokens[0].equalsIgnoreCase("CREATE")) {
-            handleCreate(rdb, tokens);
-        } else if (tokens[0].equalsIgnoreCase("DROP")) {
-            handleDrop(rdb, tokens);
-        } else if (tokens[0].equalsIgnoreCase("INSERT")) {
-            handleInsert(rdb, tokens);
-        } else if (tokens[0].equalsIgnoreCase("SELECT")) {
-            handleSelect(rdb, tokens);
-        } else {
+        RamaLexer lexer = new RamaLexer(query);
+        boolean executed = false;
+        try {
+            for (List<Token> tokens = nextStatement(lexer); tokens != null; tokens = nextStatement(lexer)) {
+                execute(rdb, rdb.planCache.plan(tokens));
+                executed = true;
+            }
+        } finally {
+            // One commit covers every statement of the query, including those before a failure
+            rdb.commit();
+        }
+        if (!executed) {
             throw new IllegalArgumentException("Unknown query: " + query);
         }
     }
 
+    /**
+     * Parses and runs a single SELECT query
+     * @param rdb selected RQL database
+     * @param query RQL SELECT query
+     * @return selected rows
+     * @author Ethan Rama
+     */
+    public static List<Map<String, String>> query(RamaDatabase rdb, String query) {
+        RamaLexer lexer = new RamaLexer(query);
+        List<Token> tokens = nextStatement(lexer);
+        RQLStatement statement = tokens == null ? null : rdb.planCache.plan(tokens);
+        if (!(statement instanceof SelectStatement) || nextStatement(lexer) != null) {
+            throw new IllegalArgumentException("Expected a single SELECT query: " + query);
+        }
+        return select(rdb, (SelectStatement) statement);
+    }
+
+    /**
+     * Parses a query holding a single statement for repeated execution
+     * @param rdb selected RQL database
+     * @param query RQL statement with ? parameters
+     * @return prepared statement
+     * @author Ethan Rama
+     */
+    static RamaPreparedStatement prepare(RamaDatabase rdb, String query) {
+        RamaParser parser = new RamaParser(new RamaLexer(query));
+        RQLStatement statement = parser.hasNextStatement() ? parser.parse() : null;
+        if (statement == null || parser.hasNextStatement()) {
+            throw new IllegalArgumentException("Expected a single statement: " + query);
+        }
+        return new RamaPreparedStatement(rdb, statement, parser.getParameterCount());
+    }
+
+    /**
+     * Reads the tokens of the next non-empty statement
+     * @param lexer lexer over the query
+     * @return tokens without the terminal, or null at end of input
+     * @author Ethan Rama
+     */
+    static List<Token> nextStatement(RamaLexer lexer) {
+        List<Token> tokens = new ArrayList<>();
+        for (Token token = lexer.nextToken(); token.getType() != Token.TokenType.EOF; token = lexer.nextToken()) {
+            if (token.getType() != Token.TokenType.TERMINAL) {
+                tokens.add(token);
+            } else if (!tokens.isEmpty()) {
+                return tokens;
+            }
+        }
+        return tokens.isEmpty() ? null : tokens;
+    }
+
+    /**
+     * Handles the CRUD operation of a parsed statement
+     * @param rdb selected RQL database
+     * @param statement parsed statement
+     * @author Ethan Rama
+     */
+    public static void execute(RamaDatabase rdb, RQLStatement statement) {
+        if (statement instanceof SelectStatement) {
+            handleSelect(rdb, (SelectStatement) statement);
+            return;
+        }
+        // Inserts claim row slots in their table rather than holding the database
+        if (statement instanceof InsertIntoStatement) {
+            handleInsert(rdb, (InsertIntoStatement) statement);
+            return;
+        }
+        if (statement instanceof LoadStatement) {
+            handleLoad(rdb, (LoadStatement) statement);
+            return;
+        }
+        // Other changes take the database's lock themselves, and check their table is still live under it
+        if (statement instanceof CreateTableStatement) {
+            handleCreate(rdb, (CreateTableStatement) statement);
+        } else if (statement instanceof DropTableStatement) {
+            handleDrop(rdb, (DropTableStatement) statement);
+        } else if (statement instanceof UpdateStatement) {
+            handleUpdate(rdb, (UpdateStatement) statement);
+        } else if (statement instanceof DeleteStatement) {
+            handleDelete(rdb, (DeleteStatement) statement);
+        } else if (statement instanceof CreateIndexStatement) {
+            handleCreateIndex(rdb, (CreateIndexStatement) statement);
+        } else if (statement instanceof AnalyzeStatement) {
+            handleAnalyze(rdb, (AnalyzeStatement) statement);
+        } else {
+            throw new IllegalArgumentException("Unknown statement: " + statement.getClass().getSimpleName());
+        }
+    }
+
     /**
      * Performs CREATE operation on database
      * @param rdb selected RQL database
-     * @param tokens tokens from query
+     * @param statement parsed CREATE TABLE statement
      * @author Ethan Rama
      */
-    private static void handleCreate(RamaDatabase rdb, String[] tokens) {
-        String tableName = tokens[2];
-        String[] columns = tokens[3].replace("(", "").replace(")", "").split(",");
-        rdb.createTable(tableName, Arrays.asList(columns));
+    private static void handleCreate(RamaDatabase rdb, CreateTableStatement statement) {
+        rdb.createTable(statement);
     }
 
     /**
      * Performs DROP operation on database
      * @param rdb selected RQL database
-     * @param tokens tokens from query
+     * @param statement parsed DROP TABLE statement
      * @author Ethan Rama
      */
-    private static void handleDrop(RamaDatabase rdb, String[] tokens) {
-        String tableName = tokens[2];
-        rdb.drop(tableName);
+    private static void handleDrop(RamaDatabase rdb, DropTableStatement statement) {
+        rdb.drop(statement.getTableName());
     }
 
     /**
-     * Performs INSERT operation on database
+     * Performs INSERT operation on database. Every row of the statement is
+     * inserted under one version, or none is if any row is rejected.
      * @param rdb selected RQL database
-     * @param tokens tokens from query
+     * @param statement parsed INSERT INTO statement
      * @author Ethan Rama
      */
-    private static void handleInsert(RamaDatabase rdb, String[] tokens) {
-        String tableName = tokens[2];
-        String[] values = tokens[4].replace("(", "").replace(")", "").split(",");
-        RamaTable table = rdb.tables.get(tableName);
+    private static void handleInsert(RamaDatabase rdb, InsertIntoStatement statement) {
+        RamaTable table = requireTable(rdb, statement.getTableName());
+        int[] slots = resolveSlots(table, statement.getColumnList());
 
-        if (table == null) {
-            throw new IllegalArgumentException("Table " + tableName + " does not exist.");
+        List<String[]> rows = new ArrayList<>(statement.getValueList().size());
+        for (Row values : statement.getValueList()) {
+            List<Value> valueList = values.getValueList();
+            if (slots.length != valueList.size()) {
+                throw new IllegalArgumentException("Column count does not match value count.");
+            }
+
+            String[] row = table.newRow();
+            for (int i = 0; i < slots.length; i++) {
+                row[slots[i]] = valueList.get(i).getText();
+            }
+            rows.add(row);
         }
+        rdb.insert(table, rows);
+    }
+
+    /**
+     * Performs LOAD operation on database
+     * @param rdb selected RQL database
+     * @param statement parsed LOAD statement
+     * @author Ethan Rama
+     */
+    private static void handleLoad(RamaDatabase rdb, LoadStatement statement) {
+        RamaTable table = requireTable(rdb, statement.getTableName());
+        rdb.load(table, Path.of(statement.getPath()), resolveSlots(table, statement.getColumnList()),
+                statement.hasHeader());
+    }
 
-        List<String> columns = table.getColumns();
-        if (columns.size() != values.length) {
-            throw new IllegalArgumentException("Column count does not match value count.");
+    /**
+     * Resolves each listed attribute to its slot once for all rows
+     * @param table table the rows are inserted into
+     * @param columnList attributes given by each row, empty for all attributes in order
+     * @return column position of each value of a row
+     * @author Ethan Rama
+     */
+    private static int[] resolveSlots(RamaTable table, List<String> columnList) {
+        int[] slots = new int[columnList.isEmpty() ? table.getColumns().size() : columnList.size()];
+        boolean[] assigned = new boolean[table.getColumns().size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = columnList.isEmpty() ? i : table.requireOrdinal(columnList.get(i));
+            if (assigned[slots[i]]) {
+                throw new IllegalArgumentException("Column " + columnList.get(i) + " is listed more than once.");
+            }
+            assigned[slots[i]] = true;
         }
+        return slots;
+    }
 
-        Map<String, String> row = new HashMap<>();
-        for (int i = 0; i < columns.size(); i++) {
-            row.put(columns.get(i), values[i]);
+    /**
+     * Performs UPDATE operation on database
+     * @param rdb selected RQL database
+     * @param statement parsed UPDATE statement
+     * @author Ethan Rama
+     */
+    private static void handleUpdate(RamaDatabase rdb, UpdateStatement statement) {
+        RamaTable table = requireTable(rdb, statement.getTableName());
+        List<String> columns = statement.getColumns();
+        int[] ordinals = new int[columns.size()];
+        String[] values = new String[columns.size()];
+        boolean[] assigned = new boolean[table.getColumns().size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = table.requireOrdinal(columns.get(i));
+            if (assigned[ordinals[i]]) {
+                throw new IllegalArgumentException("Column " + columns.get(i) + " is listed more than once.");
+            }
+            assigned[ordinals[i]] = true;
+            values[i] = statement.getValues().get(i).getText();
+        }
+        rdb.update(table, statement.getWhere(), ordinals, values);
+    }
+
+    /**
+     * Performs DELETE operation on database
+     * @param rdb selected RQL database
+     * @param statement parsed DELETE statement
+     * @author Ethan Rama
+     */
+    private static void handleDelete(RamaDatabase rdb, DeleteStatement statement) {
+        rdb.delete(requireTable(rdb, statement.getTableName()), statement.getWhere());
+    }
+
+    /**
+     * Performs CREATE INDEX operation on database
+     * @param rdb selected RQL database
+     * @param statement parsed CREATE INDEX statement
+     * @author Ethan Rama
+     */
+    private static void handleCreateIndex(RamaDatabase rdb, CreateIndexStatement statement) {
+        rdb.createIndex(requireTable(rdb, statement.getTableName()), statement.getIndexName(), statement.getColumnName());
+    }
+
+    /**
+     * Performs ANALYZE operation on database
+     * @param rdb selected RQL database
+     * @param statement parsed ANALYZE statement
+     * @author Ethan Rama
+     */
+    private static void handleAnalyze(RamaDatabase rdb, AnalyzeStatement statement) {
+        if (statement.getTableName() == null) {
+            rdb.analyze();
+        } else {
+            rdb.analyze(requireTable(rdb, statement.getTableName()));
+        }
+    }
+
+    /**
+     * Performs SELECT operation on database for a statement run by
+     * execute, which returns nothing. The tables and attributes it names
+     * are checked by opening a cursor, which is closed without reading a
+     * row; query and cursor return the rows.
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement
+     * @author Ethan Rama
+     */
+    private static void handleSelect(RamaDatabase rdb, SelectStatement statement) {
+        openCursor(rdb, statement).close();
+    }
+
+    /**
+     * Gets the rows of a table that meet the WHERE condition, in ORDER BY
+     * order
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement
+     * @return selected attributes of each matching row
+     * @author Ethan Rama
+     */
+    static List<Map<String, String>> select(RamaDatabase rdb, SelectStatement statement) {
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (RamaCursor cursor = openCursor(rdb, statement, rdb.getQueryParallelism())) {
+            cursor.setFetchSize(ColumnVector.CHUNK_SIZE);
+            cursor.forEachRemaining(rows::add);
         }
-        rdb.insert(tableName, row);
+        return rows;
     }
 
     /**
-     * Performs SELECT operation on database
+     * Parses a single SELECT query and opens a cursor over its rows
      * @param rdb selected RQL database
-     * @param tokens tokens from query
+     * @param query RQL SELECT query
+     * @return open cursor
      * @author Ethan Rama
      */
-    private static void handleSelect(RamaDatabase rdb, String[] tokens) {
-        String tableName = tokens[3];
-        List<Map<String, String>> rows = rdb.select(tableName);
+    static RamaCursor cursor(RamaDatabase rdb, String query) {
+        RamaLexer lexer = new RamaLexer(query);
+        List<Token> tokens = nextStatement(lexer);
+        RQLStatement statement = tokens == null ? null : rdb.planCache.plan(tokens);
+        if (!(statement instanceof SelectStatement) || nextStatement(lexer) != null) {
+            throw new IllegalArgumentException("Expected a single SELECT query: " + query);
+        }
+        return openCursor(rdb, (SelectStatement) statement);
+    }
+
+    /**
+     * Opens a cursor over the rows of a table that meet the WHERE
+     * condition, reading the version of the table committed now
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    static RamaCursor openCursor(RamaDatabase rdb, SelectStatement statement) {
+        return openCursor(rdb, statement, 1);
+    }
 
-        for (Map<String, String> row : rows) {
-            System.out.println(row);
+    /**
+     * Opens a cursor over the rows of a table that meet the WHERE
+     * condition. A cursor that will be read to the end finds its rows in
+     * one pass, which may be split across threads.
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement
+     * @param parallelism largest number of threads to find the rows on, 1
+     * to find them a batch at a time as they are read
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    private static RamaCursor openCursor(RamaDatabase rdb, SelectStatement statement, int parallelism) {
+        if (!statement.getAggregates().isEmpty() || !statement.getGroupBy().isEmpty()) {
+            return openAggregateCursor(rdb, statement, parallelism);
+        }
+        if (statement.getJoin() != null) {
+            return openJoinCursor(rdb, statement, parallelism);
+        }
+        RamaTable table = requireTable(rdb, statement.getTableName());
+        long version = table.getVersion(rdb.getCommitSequence());
+        List<String> columns = statement.getColumns().isEmpty() ? table.getColumns() : statement.getColumns();
+        int[] projection = new int[columns.size()];
+        for (int i = 0; i < projection.length; i++) {
+            projection[i] = table.requireOrdinal(columns.get(i));
+        }
+        long offset = count(statement.getOffset(), "OFFSET", 0);
+        long limit = count(statement.getLimit(), "LIMIT", Long.MAX_VALUE);
+
+        if (!table.pin()) {
+            throw new IllegalArgumentException("Table " + statement.getTableName() + " does not exist.");
+        }
+        try {
+            RowSelector.Rows rows = RowSelector.open(table, statement.getWhere(), statement.getOrderBy(), version,
+                    parallelism, top(offset, limit), rdb.getSortMemoryBudget()).window(offset, limit);
+            if (parallelism > 1 && !rows.isWindowed()) {
+                rows = RowSelector.Rows.of(rows.drain());
+            }
+            return new RamaCursor(table, List.copyOf(columns), projection, rows);
+        } catch (RuntimeException e) {
+            table.unpin();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a cursor over the groups of an aggregate query, one row per
+     * group. Every attribute returned or sorted by must be grouped by or
+     * aggregated.
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement with aggregates or GROUP BY
+     * @param parallelism largest number of threads to scan the table on
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    private static RamaCursor openAggregateCursor(RamaDatabase rdb, SelectStatement statement, int parallelism) {
+        if (statement.getJoin() != null) {
+            throw new IllegalArgumentException("Aggregates over a join are not supported.");
+        }
+        RamaTable table = requireTable(rdb, statement.getTableName());
+        long version = table.getVersion(rdb.getCommitSequence());
+        if (statement.getColumns().isEmpty()) {
+            throw new IllegalArgumentException("SELECT * cannot be used with GROUP BY or aggregates.");
+        }
+        List<String> groupBy = statement.getGroupBy();
+        int[] groupOrdinals = new int[groupBy.size()];
+        for (int i = 0; i < groupOrdinals.length; i++) {
+            groupOrdinals[i] = table.requireOrdinal(groupBy.get(i));
+        }
+        List<Aggregate> aggregates = statement.getAggregates();
+        List<String> columns = statement.getColumns();
+        int[] outputs = new int[columns.size()];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = aggregateItem(aggregates, groupBy, columns.get(i));
+        }
+        List<SortKey> orderBy = statement.getOrderBy();
+        int[] sortItems = new int[orderBy.size()];
+        boolean[] descending = new boolean[orderBy.size()];
+        for (int i = 0; i < sortItems.length; i++) {
+            sortItems[i] = aggregateItem(aggregates, groupBy, orderBy.get(i).getColumnName());
+            descending[i] = orderBy.get(i).isDescending();
+        }
+        long offset = count(statement.getOffset(), "OFFSET", 0);
+        long limit = count(statement.getLimit(), "LIMIT", Long.MAX_VALUE);
+
+        if (!table.pin()) {
+            throw new IllegalArgumentException("Table " + statement.getTableName() + " does not exist.");
+        }
+        try {
+            HashAggregator aggregator = HashAggregator.aggregate(table, statement.getWhere(), groupOrdinals,
+                    aggregates, version, parallelism);
+            int[] order;
+            if (orderBy.isEmpty()) {
+                order = new int[aggregator.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+            } else {
+                order = aggregator.sort(sortItems, descending, top(offset, limit));
+            }
+            RowSelector.Rows rows = RowSelector.Rows.of(order).window(offset, limit);
+            return new RamaCursor(new RamaTable[]{table}, List.copyOf(columns), rows,
+                    (column, group) -> aggregator.getString(outputs[column], group));
+        } catch (RuntimeException e) {
+            table.unpin();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds an attribute or aggregate label of an aggregate query
+     * @param aggregates aggregates of the query
+     * @param groupBy GROUP BY attributes
+     * @param name attribute name or aggregate label
+     * @return aggregate position, or -1 - position for a GROUP BY attribute
+     * @author Ethan Rama
+     */
+    private static int aggregateItem(List<Aggregate> aggregates, List<String> groupBy, String name) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            if (aggregates.get(i).getLabel().equals(name)) {
+                return i;
+            }
+        }
+        int group = groupBy.indexOf(name);
+        if (group < 0) {
+            throw new IllegalArgumentException("Column " + name + " must be in GROUP BY or an aggregate.");
+        }
+        return -1 - group;
+    }
+
+    /**
+     * Opens a cursor over the joined pairs of two tables. Each term of an
+     * AND in the WHERE condition must read one table and filters that
+     * table's rows before they are joined. SELECT * returns every
+     * attribute of both tables, named table.column.
+     * @param rdb selected RQL database
+     * @param statement parsed SELECT statement with a JOIN clause
+     * @param parallelism largest number of threads to scan each table on
+     * @return open cursor
+     * @author Ethan Rama
+     */
+    private static RamaCursor openJoinCursor(RamaDatabase rdb, SelectStatement statement, int parallelism) {
+        JoinClause join = statement.getJoin();
+        RamaTable[] tables = {requireTable(rdb, statement.getTableName()), requireTable(rdb, join.getTableName())};
+        if (tables[0] == tables[1]) {
+            throw new IllegalArgumentException("Table " + statement.getTableName() + " cannot be joined to itself.");
+        }
+        // Both tables are read as of one commit, so a change to one is never seen without the changes before it
+        long commit = rdb.getCommitSequence();
+        long[] versions = {tables[0].getVersion(commit), tables[1].getVersion(commit)};
+        int[] leftKey = resolve(tables, join.getLeftColumn());
+        int[] rightKey = resolve(tables, join.getRightColumn());
+        if (leftKey[0] == rightKey[0]) {
+            throw new IllegalArgumentException("JOIN must compare an attribute of each table: "
+                    + join.getLeftColumn() + " = " + join.getRightColumn());
+        }
+        if (leftKey[0] == 1) {
+            int[] swap = leftKey;
+            leftKey = rightKey;
+            rightKey = swap;
+        }
+
+        List<String> columns = new ArrayList<>(statement.getColumns());
+        if (columns.isEmpty()) {
+            for (RamaTable table : tables) {
+                for (String column : table.getColumns()) {
+                    columns.add(table.getName() + "." + column);
+                }
+            }
+        }
+        int[] sides = new int[columns.size()];
+        int[] projection = new int[columns.size()];
+        for (int i = 0; i < projection.length; i++) {
+            int[] column = resolve(tables, columns.get(i));
+            sides[i] = column[0];
+            projection[i] = column[1];
+        }
+        List<SortKey> orderBy = statement.getOrderBy();
+        int[] sortSides = new int[orderBy.size()];
+        int[] sortOrdinals = new int[orderBy.size()];
+        boolean[] descending = new boolean[orderBy.size()];
+        for (int i = 0; i < sortSides.length; i++) {
+            int[] column = resolve(tables, orderBy.get(i).getColumnName());
+            sortSides[i] = column[0];
+            sortOrdinals[i] = column[1];
+            descending[i] = orderBy.get(i).isDescending();
+        }
+        Expression[] where = new Expression[2];
+        splitWhere(tables, statement.getWhere(), where);
+        long offset = count(statement.getOffset(), "OFFSET", 0);
+        long limit = count(statement.getLimit(), "LIMIT", Long.MAX_VALUE);
+
+        if (!tables[0].pin()) {
+            throw new IllegalArgumentException("Table " + statement.getTableName() + " does not exist.");
+        }
+        if (!tables[1].pin()) {
+            tables[0].unpin();
+            throw new IllegalArgumentException("Table " + join.getTableName() + " does not exist.");
+        }
+        try {
+            int[][] pairs = HashJoin.join(tables[0], leftKey[1], where[0], tables[1], rightKey[1], where[1],
+                    versions, parallelism, rdb.getJoinMemoryBudget());
+            int[] order;
+            if (orderBy.isEmpty()) {
+                order = new int[pairs[0].length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+            } else {
+                order = HashJoin.sort(tables, pairs, sortSides, sortOrdinals, descending, top(offset, limit));
+            }
+            RowSelector.Rows rows = RowSelector.Rows.of(order).window(offset, limit);
+            return new RamaCursor(tables, List.copyOf(columns), rows, (column, position) ->
+                    tables[sides[column]].getVector(projection[column]).getString(pairs[sides[column]][position]));
+        } catch (RuntimeException e) {
+            tables[0].unpin();
+            tables[1].unpin();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the table and column position of an attribute of a join. A
+     * name qualified by its table, table.column, may be used for any
+     * attribute and must be used for one both tables have.
+     * @param tables left and right tables
+     * @param name attribute name, possibly qualified
+     * @return table, 0 for left and 1 for right, then column position
+     * @author Ethan Rama
+     */
+    private static int[] resolve(RamaTable[] tables, String name) {
+        int dot = name.indexOf('.');
+        if (dot >= 0) {
+            String tableName = name.substring(0, dot);
+            for (int side = 0; side < tables.length; side++) {
+                if (tables[side].getName().equals(tableName)) {
+                    return new int[]{side, tables[side].requireOrdinal(name.substring(dot + 1))};
+                }
+            }
+            throw new IllegalArgumentException("Table " + tableName + " is not part of the query.");
+        }
+        int[] found = null;
+        for (int side = 0; side < tables.length; side++) {
+            int ordinal = tables[side].getOrdinal(name);
+            if (ordinal >= 0) {
+                if (found != null) {
+                    throw new IllegalArgumentException("Column " + name + " is ambiguous; qualify it by its table.");
+                }
+                found = new int[]{side, ordinal};
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("Column " + name + " does not exist in table "
+                    + tables[0].getName() + " or " + tables[1].getName() + ".");
+        }
+        return found;
+    }
+
+    /**
+     * Splits a WHERE condition into the conditions on each table of a join
+     * @param tables left and right tables
+     * @param condition WHERE condition, null for none
+     * @param where filled with the condition on each table, with its
+     * attribute names unqualified, or null where a table has none
+     * @author Ethan Rama
+     */
+    private static void splitWhere(RamaTable[] tables, Expression condition, Expression[] where) {
+        if (condition == null) {
+            return;
+        }
+        if (condition instanceof LogicalExpression && ((LogicalExpression) condition).isAnd()) {
+            splitWhere(tables, ((LogicalExpression) condition).getLeft(), where);
+            splitWhere(tables, ((LogicalExpression) condition).getRight(), where);
+            return;
+        }
+        int side = Math.max(0, sideOf(tables, condition, -1));
+        Expression term = unqualify(condition);
+        where[side] = where[side] == null ? term : new LogicalExpression("AND", where[side], term);
+    }
+
+    /**
+     * Finds the table a condition reads
+     * @param tables left and right tables
+     * @param condition condition or operand
+     * @param side table found so far, -1 for none
+     * @return table read, or -1 if the condition reads no attribute
+     * @author Ethan Rama
+     */
+    private static int sideOf(RamaTable[] tables, Expression condition, int side) {
+        if (condition instanceof ColumnReference) {
+            int found = resolve(tables, ((ColumnReference) condition).getColumnName())[0];
+            if (side >= 0 && side != found) {
+                throw new IllegalArgumentException("Each WHERE condition of a join must read one table.");
+            }
+            return found;
+        }
+        if (condition instanceof Comparison) {
+            Comparison comparison = (Comparison) condition;
+            return sideOf(tables, comparison.getRight(), sideOf(tables, comparison.getLeft(), side));
+        }
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            return sideOf(tables, logical.getRight(), sideOf(tables, logical.getLeft(), side));
+        }
+        return side;
+    }
+
+    /**
+     * Rewrites the qualified attribute names of a condition on one table
+     * to the names its table knows them by
+     * @param condition condition or operand
+     * @return condition with unqualified names
+     * @author Ethan Rama
+     */
+    private static Expression unqualify(Expression condition) {
+        if (condition instanceof ColumnReference) {
+            String name = ((ColumnReference) condition).getColumnName();
+            return new ColumnReference(name.substring(name.indexOf('.') + 1));
+        }
+        if (condition instanceof Comparison) {
+            Comparison comparison = (Comparison) condition;
+            return new Comparison(comparison.getOperator(), unqualify(comparison.getLeft()),
+                    unqualify(comparison.getRight()));
+        }
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            return new LogicalExpression(logical.getOperator(), unqualify(logical.getLeft()),
+                    unqualify(logical.getRight()));
+        }
+        return condition;
+    }
+
+    /**
+     * Counts the leading rows a LIMIT and OFFSET window reads
+     * @param offset number of rows skipped
+     * @param limit largest number of rows returned
+     * @return rows read, Long.MAX_VALUE without a limit
+     * @author Ethan Rama
+     */
+    private static long top(long offset, long limit) {
+        return limit > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + limit;
+    }
+
+    /**
+     * Reads the number given to LIMIT or OFFSET
+     * @param value number of rows, null if the clause is missing
+     * @param clause name of the clause
+     * @param missing number to use when the clause is missing
+     * @return number of rows
+     * @author Ethan Rama
+     */
+    private static long count(Value value, String clause, long missing) {
+        if (value == null) {
+            return missing;
+        }
+        try {
+            if (value.getType() == Token.TokenType.NUMBER_LITERAL) {
+                long count = Long.parseLong(value.getText());
+                if (count >= 0) {
+                    return count;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below along with other values that are not counts
+        }
+        throw new IllegalArgumentException(clause + " must be a whole number of rows: " + value.getText());
+    }
+
+    /**
+     * Gets a table that must exist
+     * @param rdb selected RQL database
+     * @param tableName name of table
+     * @return table
+     * @author Ethan Rama
+     */
+    private static RamaTable requireTable(RamaDatabase rdb, String tableName) {
+        RamaTable table = rdb.tables.get(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("Table " + tableName + " does not exist.");
         }
+        return table;
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * RamaScriptRunner.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Changes are committed to the write-ahead log once per batch
+ * - Statements are planned through the database's plan cache
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs an RQL script as a pipeline of lexing, parsing and execution stages.
+ * Lexing and parsing each run on their own thread and hand batches of
+ * statements downstream through bounded queues. Statements are executed on
+ * the calling thread in script order, so a statement always sees the effects
+ * of the statements before it.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+public class RamaScriptRunner {
+    /**
+     * Number of batches each queue holds before its producer blocks
+     */
+    private static final int QUEUE_CAPACITY = 16;
+
+    /**
+     * Largest number of statements handed downstream at once
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Marks the end of a stage's output
+     */
+    private static final List<?> END = Collections.emptyList();
+
+    /**
+     * Database the script runs against
+     */
+    private final RamaDatabase rdb;
+
+    /**
+     * First failure raised by an upstream stage
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a runner for a database
+     * @param rdb selected RQL database
+     * @author Ethan Rama
+     */
+    public RamaScriptRunner(RamaDatabase rdb) {
+        this.rdb = rdb;
+    }
+
+    /**
+     * Runs every statement of a script. Statements that were read before a
+     * failure are still executed, then the failure is thrown.
+     * @param script source of the RQL script
+     * @author Ethan Rama
+     */
+    public void run(Reader script) {
+        BlockingQueue<List<List<Token>>> lexed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<List<RQLStatement>> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Thread lexer = start("rql-lexer", () -> lex(script, lexed));
+        Thread parser = start("rql-parser", () -> parse(lexed, parsed));
+        try {
+            execute(parsed);
+        } finally {
+            // Releases a stage still blocked on a queue after a failure
+            lexer.interrupt();
+            parser.interrupt();
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Lexing stage: splits the token stream into statements on TERMINAL
+     * @param script source of the RQL script
+     * @param out queue of statement token lists
+     * @author Ethan Rama
+     */
+    private void lex(Reader script, BlockingQueue<List<List<Token>>> out) {
+        List<List<Token>> batch = new ArrayList<>();
+        try {
+            RamaLexer lexer = new RamaLexer(script);
+            List<Token> statement = new ArrayList<>();
+            for (Token token = lexer.nextToken(); token.getType() != Token.TokenType.EOF; token = lexer.nextToken()) {
+                if (token.getType() != Token.TokenType.TERMINAL) {
+                    statement.add(token);
+                } else if (!statement.isEmpty()) {
+                    batch.add(statement);
+                    statement = new ArrayList<>();
+                    batch = handOff(batch, out);
+                }
+            }
+            if (!statement.isEmpty()) {
+                batch.add(statement);
+            }
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+        finish(batch, out);
+    }
+
+    /**
+     * Parsing stage: turns each statement's tokens into a syntax tree
+     * @param in queue of statement token lists
+     * @param out queue of parsed statements
+     * @author Ethan Rama
+     */
+    private void parse(BlockingQueue<List<List<Token>>> in, BlockingQueue<List<RQLStatement>> out) {
+        List<RQLStatement> batch = new ArrayList<>();
+        try {
+            for (List<List<Token>> statements = in.take(); statements != END; statements = in.take()) {
+                for (List<Token> tokens : statements) {
+                    batch.add(rdb.planCache.plan(tokens));
+                    batch = handOff(batch, out);
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+        finish(batch, out);
+    }
+
+    /**
+     * Execution stage: runs statements in script order on the calling
+     * thread, committing once per batch rather than once per statement
+     * @param in queue of parsed statements
+     * @author Ethan Rama
+     */
+    private void execute(BlockingQueue<List<RQLStatement>> in) {
+        try {
+            for (List<RQLStatement> statements = in.take(); statements != END; statements = in.take()) {
+                for (RQLStatement statement : statements) {
+                    RamaQueryParser.execute(rdb, statement);
+                }
+                rdb.commit();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running script", e);
+        } finally {
+            rdb.commit();
+        }
+    }
+
+    /**
+     * Passes a batch downstream once it is full, or straight away when the
+     * downstream stage is idle, so a slow script is not held back waiting
+     * for a full batch
+     * @param batch batch being built
+     * @param out downstream queue
+     * @return the batch to keep adding to
+     * @author Ethan Rama
+     */
+    private static <T> List<T> handOff(List<T> batch, BlockingQueue<List<T>> out) {
+        if (batch.size() >= BATCH_SIZE) {
+            put(out, batch);
+            return new ArrayList<>();
+        }
+        if (out.isEmpty() && out.offer(batch)) {
+            return new ArrayList<>();
+        }
+        return batch;
+    }
+
+    /**
+     * Passes the last batch downstream followed by the end marker
+     * @param batch last batch, possibly empty
+     * @param out downstream queue
+     * @author Ethan Rama
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void finish(List<T> batch, BlockingQueue<List<T>> out) {
+        try {
+            if (!batch.isEmpty()) {
+                put(out, batch);
+            }
+            put(out, (List<T>) END);
+        } catch (IllegalStateException e) {
+            // Interrupted because the execution stage has already failed
+        }
+    }
+
+    private static <T> void put(BlockingQueue<List<T>> out, List<T> batch) {
+        try {
+            out.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running script", e);
+        }
+    }
+
+    private static Thread start(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
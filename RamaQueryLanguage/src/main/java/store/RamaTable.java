@@ -2,29 +2,110 @@
  * RamaTable.java
  * Author: Ethan Rama
  *
- * Version History: v1.01
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Each chunk of rows is summarized in a zone map per attribute as rows
+ *   are published, and ANALYZE rebuilds the zone maps
+ * - Batches of rows can be read a column at a time, only for the
+ *   attributes a query returns
+ * - Statistics of each attribute are kept as rows are published, and
+ *   counted again by ANALYZE
+ * - Rows a version sees can be split by chunk for parallel scans, and
+ *   are copied in parallel
+ * - Open cursors pin the table, so a drop lets go of its values once
+ *   they close
+ * - Each committed version records its number in the database's commit
+ *   sequence, so a query maps one sequence number to a version of every
+ *   table it reads
+ * - Each table counts its own versions, so a change waits only for the
+ *   changes to its own table
+ * - Inserts waiting for their turn park rather than spin, and a claimed
+ *   slot is published as deleted if its insert fails before publishing
+ * - Inserting threads claim row slots and store their rows in parallel,
+ *   publishing them in slot order through a watermark
+ * - Rows carry the versions that added and deleted them, so queries read
+ *   a consistent snapshot while a writer changes the table
+ * - UPDATE appends a new version of each row instead of changing it
+ * - Values can be kept off the Java heap, and are freed on drop once no
+ *   query holds a pin on the table
+ * - Tables can be written to a snapshot and attached to one without
+ *   reading their rows
+ * - Added conversion of an entry of data to positional values
+ * - Added chunked selection of live rows for batch scans
+ * - Added DELETE, UPDATE and ordered indexes kept in sync with them
+ * - PRIMARY KEY and UNIQUE attributes are kept in hash indexes
+ * - Added positional insert with NOT NULL, length and DEFAULT handling
+ * - Rows are stored in typed column vectors built from the schema
  * 6/18/2024: v1.01
  * -
  * 6/17/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 package store;
 
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 /**
- * Represents a table in the database
- * @version 1.0
+ * Represents a table in the database. Each attribute is stored in its own
+ * typed column vector, so a row costs one slot per attribute rather than a
+ * map of strings.
+ * <br><br>
+ * Rows are versioned so queries never wait for a writer. The table counts
+ * its own versions, and each change is stamped with the next one: rows
+ * are only ever appended, with a commit mark recording how many rows each
+ * version left, and a deleted row keeps its slot along with the version
+ * that deleted it. UPDATE deletes each row and appends its new version. A
+ * query reading at a version sees the rows below that version's mark that
+ * were not deleted by then, and nothing a writer does afterwards. A change
+ * only ever touches one table, so tables commit without waiting for each
+ * other. Each version also records the number it took from the commit
+ * sequence the tables of a database share, so a query can read every
+ * table as of one number.
+ * <br><br>
+ * Inserts do not wait for each other. Each inserting thread claims the
+ * next row slot with an atomic increment and parses and stores its values
+ * alongside the others. Rows are then published in slot order: each waits
+ * for the row before it, checks its keys, adds itself to the indexes and
+ * moves the row count, which serves as the watermark of published rows, on
+ * by one, waking the insert whose turn comes next. A claimed slot is
+ * always published, as deleted if its insert fails, so one failure never
+ * holds up the inserts behind it. Changes that read or rewrite existing
+ * rows hold the table's change lock, which waits for inserts in flight and
+ * holds off new ones.
+ * @version 1.1
  * @author Ethan Rama
  */
 public class RamaTable {
+    /**
+     * Version of an empty database and of the rows attached from a snapshot
+     */
+    static final long BASE_VERSION = 1;
+
+    /**
+     * Version reading every change made so far, used by writers
+     */
+    static final long LATEST = Long.MAX_VALUE;
+
     /**
      * Name of the table
      */
@@ -36,9 +117,134 @@ public class RamaTable {
     private List<String> columns;
 
     /**
-     * Data in the table
+     * Definitions of the attributes, in column order
+     */
+    private List<ColumnDefinition> definitions;
+
+    /**
+     * Position of each attribute by name
+     */
+    private Map<String, Integer> ordinals;
+
+    /**
+     * Values of each attribute, in column order
+     */
+    private ColumnVector[] vectors;
+
+    /**
+     * Default value of each attribute, null if none
+     */
+    private String[] defaults;
+
+    /**
+     * Whether each attribute rejects NULL
+     */
+    private boolean[] notNull;
+
+    /**
+     * Declared length of each attribute, 0 if unbounded
+     */
+    private int[] maxLengths;
+
+    /**
+     * Hash index of each PRIMARY KEY or UNIQUE attribute, null for other
+     * attributes
      */
-    private List<Map<String, String>> rows;
+    private HashIndex[] indexes;
+
+    /**
+     * Ordered index of each attribute named by CREATE INDEX, null for other
+     * attributes
+     */
+    private OrderedIndex[] orderedIndexes;
+
+    /**
+     * Version that deleted each row, 0 for a live row, by chunk of rows.
+     * A chunk without deleted rows is null.
+     */
+    private long[][] deletedAt;
+
+    /**
+     * Version of each commit that added rows, in ascending order
+     */
+    private long[] markVersions;
+
+    /**
+     * Number of rows stored once each commit in markVersions was made
+     */
+    private int[] markRows;
+
+    /**
+     * Number of commit marks. Written after the rows and marks it covers,
+     * so a query that reads it sees them.
+     */
+    private volatile int markCount;
+
+    /**
+     * Number of rows published, including deleted rows and rows not yet
+     * committed. Every row below it is stored and indexed.
+     */
+    private volatile int rowCount;
+
+    /**
+     * Version of the last change committed to the table. Written after the
+     * rows, marks and deletions of the change, so a query that reads it
+     * sees them all. Only the thread whose turn it is, or which holds the
+     * change lock, commits a version.
+     */
+    private volatile long version = BASE_VERSION;
+
+    /**
+     * Commit sequence shared by the tables of a database
+     */
+    private final AtomicLong commits;
+
+    /**
+     * Number each version after the base version took from the commit
+     * sequence, by version - BASE_VERSION - 1. Ascending, as the table
+     * commits one version at a time.
+     */
+    private long[] commitNumbers = new long[4];
+
+    /**
+     * Number of row slots claimed by inserting threads
+     */
+    private final AtomicInteger claimed = new AtomicInteger();
+
+    /**
+     * Inserting threads parked until their turn, by the row they wait for
+     */
+    private final Map<Integer, Thread> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Shared by inserting threads, held alone by changes to existing rows
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Number of rows not deleted
+     */
+    private int liveRows;
+
+    /**
+     * Statistics of the attributes, replaced whole by ANALYZE
+     */
+    private volatile TableStatistics statistics;
+
+    /**
+     * Whether the vectors keep their values outside the Java heap
+     */
+    private final boolean offHeap;
+
+    /**
+     * Number of open cursors and queries reading the table
+     */
+    private int pins;
+
+    /**
+     * Whether the table has been dropped
+     */
+    private boolean dropped;
 
     /**
      * Constructs a table with defined attributes
@@ -47,9 +253,22 @@ public class RamaTable {
      * @author Ethan Rama
      */
     public RamaTable(String name, List<String> columns) {
-        this.name = name;
-        this.columns = columns;
-        this.rows = new ArrayList<>();
+        this(new CreateTableStatement(name, untyped(columns)), false, new AtomicLong());
+    }
+
+    /**
+     * Constructs a table from a CREATE TABLE statement, allocating a vector
+     * of the declared type for each attribute
+     * @param statement parsed CREATE TABLE statement
+     * @param offHeap whether values are kept outside the Java heap
+     * @param commits commit sequence shared by the tables of the database
+     * @author Ethan Rama
+     */
+    RamaTable(CreateTableStatement statement, boolean offHeap, AtomicLong commits) {
+        this.name = statement.getTableName();
+        this.offHeap = offHeap;
+        this.commits = commits;
+        setDefinitions(statement.getColumns());
     }
 
     /**
@@ -58,16 +277,961 @@ public class RamaTable {
      * @author Ethan Rama
      */
     public void insert(Map<String, String> row) {
-        rows.add(row);
+        insert(toRow(row));
+    }
+
+    /**
+     * Converts an entry of data to one value per attribute, filling
+     * attributes missing from the entry with their defaults
+     * @param row data entry
+     * @return value text of each attribute, in column order
+     * @author Ethan Rama
+     */
+    String[] toRow(Map<String, String> row) {
+        String[] values = newRow();
+        for (Map.Entry<String, String> entry : row.entrySet()) {
+            values[requireOrdinal(entry.getKey())] = entry.getValue();
+        }
+        return values;
+    }
+
+    /**
+     * Inserts an entry of data given as one value per attribute, in column
+     * order. Each value is checked against the attribute's constraints and
+     * parsed into its declared type once.
+     * @param values value text of each attribute, null for NULL
+     * @author Ethan Rama
+     */
+    public void insert(String[] values) {
+        checkRow(values);
+        Lock shared = getInsertLock();
+        shared.lock();
+        try {
+            int row = claim();
+            boolean published = false;
+            try {
+                RuntimeException failure = store(row, values);
+                awaitTurn(row);
+                published = true;
+                publish(row, failure);
+            } finally {
+                if (!published) {
+                    abandon(row, 1);
+                }
+            }
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Checks that an entry has a value for each attribute and that each
+     * value meets its attribute's constraints
+     * @param values value text of each attribute, null for NULL
+     * @author Ethan Rama
+     */
+    void checkRow(String[] values) {
+        if (values.length != vectors.length) {
+            throw new IllegalArgumentException("Column count does not match value count.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            validate(i, values[i]);
+        }
+    }
+
+    /**
+     * Claims the next row slot for an insert. The slot must be published,
+     * even if the insert fails, before any later slot can be, by publish
+     * or else by abandon.
+     * @return row number of the slot
+     * @author Ethan Rama
+     */
+    int claim() {
+        return claimed.getAndIncrement();
+    }
+
+    /**
+     * Parses and stores the values of a claimed row. Other inserting
+     * threads store their rows at the same time.
+     * @param row claimed row number
+     * @param values value text of each attribute, null for NULL
+     * @return error of a value that does not parse, or null if every value
+     * was stored
+     * @author Ethan Rama
+     */
+    RuntimeException store(int row, String[] values) {
+        for (ColumnVector vector : vectors) {
+            vector.ensureCapacity(row + 1);
+        }
+        try {
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i].set(row, values[i]);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Waits until every row claimed before a row has been published. The
+     * thread spins briefly, then parks until the insert ahead of it
+     * publishes. Interrupts do not end the wait, as the slot must still be
+     * published, and are kept for the caller.
+     * @param row claimed row number
+     * @author Ethan Rama
+     */
+    void awaitTurn(int row) {
+        // The rows ahead are usually only checking keys and indexing, so a short spin often suffices
+        for (int spins = 0; spins < 64; spins++) {
+            if (rowCount == row) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        Thread current = Thread.currentThread();
+        waiters.put(row, current);
+        boolean interrupted = false;
+        try {
+            // The row count is read after registering, so a release made before then is not missed
+            while (rowCount != row) {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        } finally {
+            waiters.remove(row);
+            if (interrupted) {
+                current.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Claims consecutive row slots for a batch of rows, which are published
+     * together
+     * @param count number of rows in the batch
+     * @return row number of the first slot
+     * @author Ethan Rama
+     */
+    int claim(int count) {
+        return claimed.getAndAdd(count);
+    }
+
+    /**
+     * Publishes a stored row once its turn has come, committing the
+     * table's next version. A row that failed to store or holds a key
+     * another live row holds is published as deleted, so the slot still
+     * counts and later rows keep their numbers.
+     * @param row claimed row number, equal to the number of rows published
+     * @param failure error from store, null if the row was stored
+     * @author Ethan Rama
+     */
+    void publish(int row, RuntimeException failure) {
+        publish(row, 1, failure);
+    }
+
+    /**
+     * Publishes a batch of stored rows once their turn has come. The batch
+     * is published whole or not at all: if any row failed to store or
+     * repeats a key, whether held by a live row or by another row of the
+     * batch, every row of the batch is published as deleted. The rows
+     * commit the table's next version.
+     * @param first row number of the first slot, equal to the number of rows published
+     * @param count number of rows in the batch
+     * @param failure first error from store, null if every row was stored
+     * @author Ethan Rama
+     */
+    void publish(int first, int count, RuntimeException failure) {
+        int end = first + count;
+        long next = version + 1;
+        try {
+            // Check every index before adding to any, so a rejected batch leaves no keys behind
+            for (int i = 0; i < indexes.length && failure == null; i++) {
+                if (indexes[i] != null) {
+                    failure = checkKeys(i, first, end);
+                }
+            }
+            if (failure == null) {
+                for (int row = first; row < end; row++) {
+                    for (int i = 0; i < vectors.length; i++) {
+                        index(i, row);
+                        vectors[i].summarize(row);
+                    }
+                }
+                liveRows += count;
+                statistics.add(first, end);
+            }
+        } finally {
+            if (failure != null) {
+                clear(first, end);
+            }
+            append(count, next, failure != null);
+            commitVersion(next);
+            release(end);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Publishes claimed slots as deleted rows when their insert fails
+     * before publishing them, such as when storing or logging them throws
+     * an Error. Waits for the slots' turn first, so the inserts ahead of
+     * them still publish in order.
+     * @param first row number of the first slot
+     * @param count number of slots
+     * @author Ethan Rama
+     */
+    void abandon(int first, int count) {
+        awaitTurn(first);
+        int end = first + count;
+        long next = version + 1;
+        try {
+            for (ColumnVector vector : vectors) {
+                vector.ensureCapacity(end);
+            }
+            clear(first, end);
+        } finally {
+            append(count, next, true);
+            commitVersion(next);
+            release(end);
+        }
+    }
+
+    /**
+     * Sets every value of rows published as deleted to NULL
+     * @param first first row
+     * @param end row after the last row
+     * @author Ethan Rama
+     */
+    private void clear(int first, int end) {
+        // A rejected row is never read, but an ordered index filled later still sorts it
+        for (int row = first; row < end; row++) {
+            for (ColumnVector vector : vectors) {
+                vector.setNull(row);
+            }
+        }
+    }
+
+    /**
+     * Checks that a batch of rows gives no live row's key of a PRIMARY KEY
+     * or UNIQUE attribute and no key twice
+     * @param ordinal column position of an indexed attribute
+     * @param first row number of the first row of the batch
+     * @param end row number after the last row of the batch
+     * @return error for the first repeated key, or null if there is none
+     * @author Ethan Rama
+     */
+    private RuntimeException checkKeys(int ordinal, int first, int end) {
+        ColumnVector vector = vectors[ordinal];
+        HashIndex batch = end - first > 1 ? new HashIndex() : null;
+        for (int row = first; row < end; row++) {
+            if (!vector.isNull(row)) {
+                long key = vector.key(row);
+                if (isHeld(indexes[ordinal].get(key)) || (batch != null && !batch.put(key, row))) {
+                    return new IllegalArgumentException("Duplicate value " + vector.getString(row)
+                            + " for column " + columns.get(ordinal) + ".");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the lock inserting threads share
+     * @return read lock of the table
+     * @author Ethan Rama
+     */
+    Lock getInsertLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Get the lock held by changes that read or rewrite existing rows, such
+     * as UPDATE, DELETE, CREATE INDEX and checkpoints
+     * @return write lock of the table
+     * @author Ethan Rama
+     */
+    Lock getChangeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Sets attributes of existing rows. Each row is deleted and its new
+     * version appended, so queries reading an earlier version still see the
+     * old values. Every value is checked before any row changes, so a
+     * rejected update leaves the table as it was. The caller holds the
+     * change lock and commits the version once the update returns.
+     * @param rows row numbers to update
+     * @param ordinals column positions to set
+     * @param values new value text of each position, null for NULL
+     * @param version version committing the update, from nextVersion
+     * @author Ethan Rama
+     */
+    void update(int[] rows, int[] ordinals, String[] values, long version) {
+        for (int i = 0; i < ordinals.length; i++) {
+            int ordinal = ordinals[i];
+            validate(ordinal, values[i]);
+            checkType(ordinal, values[i]);
+            if (indexes[ordinal] != null && values[i] != null && rows.length > 0) {
+                int holder = indexes[ordinal].get(vectors[ordinal].keyOf(values[i]));
+                if (rows.length > 1 || (holder != rows[0] && isHeld(holder))) {
+                    throw new IllegalArgumentException("Duplicate value " + values[i] + " for column "
+                            + columns.get(ordinal) + ".");
+                }
+            }
+        }
+        for (int row : rows) {
+            int copy = claim();
+            boolean copied = false;
+            try {
+                for (int i = 0; i < vectors.length; i++) {
+                    vectors[i].ensureCapacity(copy + 1);
+                    vectors[i].copy(row, copy);
+                }
+                for (int i = 0; i < ordinals.length; i++) {
+                    vectors[ordinals[i]].set(copy, values[i]);
+                }
+                for (int i = 0; i < vectors.length; i++) {
+                    index(i, copy);
+                    vectors[i].summarize(copy);
+                }
+                statistics.add(copy, copy + 1);
+                stamp(row, version);
+                copied = true;
+            } finally {
+                // A copy left half made is published as deleted, and the row it copies stays live
+                append(1, version, !copied);
+                release(copy + 1);
+            }
+        }
+    }
+
+    /**
+     * Deletes a row. Its slot and index entries are left in place, so other
+     * row numbers stay valid and queries reading an earlier version still
+     * find the row. The caller holds the change lock and commits the
+     * version once every row of the change is deleted.
+     * @param row row number
+     * @param version version committing the delete, from nextVersion
+     * @author Ethan Rama
+     */
+    void delete(int row, long version) {
+        if (isDeleted(row)) {
+            return;
+        }
+        stamp(row, version);
+        liveRows--;
+    }
+
+    /**
+     * Checks if a row has been deleted by the latest change
+     * @param row row number below getRowLimit(LATEST)
+     * @return true if the row was deleted
+     * @author Ethan Rama
+     */
+    boolean isDeleted(int row) {
+        return isDeleted(row, LATEST);
+    }
+
+    /**
+     * Checks if a row had been deleted as of a version
+     * @param row row number below getRowLimit(version)
+     * @param version version being read
+     * @return true if the row was deleted by that version or an earlier one
+     * @author Ethan Rama
+     */
+    boolean isDeleted(int row, long version) {
+        long[] stamps = deletedAt[row >>> ColumnVector.CHUNK_SHIFT];
+        if (stamps == null) {
+            return false;
+        }
+        long stamp = stamps[row & ColumnVector.CHUNK_MASK];
+        return stamp != 0 && stamp <= version;
+    }
+
+    /**
+     * Fills a selection vector with the rows of a chunk that a version sees
+     * @param chunk chunk number
+     * @param selection array of at least CHUNK_SIZE positions, filled with
+     * the positions of visible rows within the chunk in ascending order
+     * @param limit getRowLimit of the version
+     * @param version version being read
+     * @return number of positions filled
+     * @author Ethan Rama
+     */
+    int selectLive(int chunk, int[] selection, int limit, long version) {
+        int base = chunk << ColumnVector.CHUNK_SHIFT;
+        int end = Math.min(limit - base, ColumnVector.CHUNK_SIZE);
+        long[] stamps = deletedAt[chunk];
+        int count = 0;
+        if (stamps == null) {
+            for (int i = 0; i < end; i++) {
+                selection[i] = i;
+            }
+            return end;
+        }
+        for (int i = 0; i < end; i++) {
+            long stamp = stamps[i];
+            selection[count] = i;
+            count += stamp == 0 || stamp > version ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the rows of a chunk that a version sees
+     * @param chunk chunk number
+     * @param limit getRowLimit of the version
+     * @param version version being read
+     * @return number of visible rows in the chunk
+     * @author Ethan Rama
+     */
+    int countLive(int chunk, int limit, long version) {
+        int end = Math.min(limit - (chunk << ColumnVector.CHUNK_SHIFT), ColumnVector.CHUNK_SIZE);
+        long[] stamps = deletedAt[chunk];
+        if (stamps == null) {
+            return end;
+        }
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            long stamp = stamps[i];
+            count += stamp == 0 || stamp > version ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Gets a spliterator over the rows a version sees, for scanning the
+     * table on several threads
+     * @param version version being read
+     * @param parallelism largest number of parts the rows are split into
+     * @return spliterator over visible row numbers in ascending order
+     * @author Ethan Rama
+     */
+    TableSpliterator spliterator(long version, int parallelism) {
+        return new TableSpliterator(this, version, parallelism);
+    }
+
+    /**
+     * Get the number of row slots a version sees, which bounds every row
+     * number it reads
+     * @param version version being read, LATEST for every row stored
+     * @return number of rows committed by that version, including deleted
+     * rows
+     * @author Ethan Rama
+     */
+    int getRowLimit(long version) {
+        if (version == LATEST) {
+            return rowCount;
+        }
+        // The marks are read after their count, so they are at least as new as it
+        int count = markCount;
+        long[] versions = markVersions;
+        int[] rows = markRows;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (versions[middle] <= version) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high < 0 ? 0 : rows[high];
+    }
+
+    /**
+     * Stamps a row as deleted by a version
+     * @param row row number
+     * @param version version committing the delete
+     * @author Ethan Rama
+     */
+    private void stamp(int row, long version) {
+        int chunk = row >>> ColumnVector.CHUNK_SHIFT;
+        if (deletedAt[chunk] == null) {
+            long[] stamps = new long[ColumnVector.CHUNK_SIZE];
+            VarHandle.releaseFence();
+            deletedAt[chunk] = stamps;
+        }
+        deletedAt[chunk][row & ColumnVector.CHUNK_MASK] = version;
+    }
+
+    /**
+     * Counts the rows just stored in the commit mark of their version. The
+     * watermark is moved past them by release.
+     * @param count number of rows stored
+     * @param version version committing the rows
+     * @param dead whether the rows are published as deleted
+     * @author Ethan Rama
+     */
+    private void append(int count, long version, boolean dead) {
+        int first = rowCount;
+        int end = first + count;
+        if (((end - 1) >>> ColumnVector.CHUNK_SHIFT) >= deletedAt.length) {
+            int length = Math.max(4, deletedAt.length * 2);
+            while (((end - 1) >>> ColumnVector.CHUNK_SHIFT) >= length) {
+                length *= 2;
+            }
+            long[][] grown = Arrays.copyOf(deletedAt, length);
+            VarHandle.releaseFence();
+            deletedAt = grown;
+        }
+        if (dead) {
+            for (int row = first; row < end; row++) {
+                stamp(row, version);
+            }
+        }
+        int marks = markCount;
+        if (marks > 0 && markVersions[marks - 1] >= version) {
+            // Queries only read a version once it is committed, so its own mark can still move
+            markRows[marks - 1] = end;
+        } else {
+            if (marks == markVersions.length) {
+                long[] grownVersions = Arrays.copyOf(markVersions, marks * 2);
+                int[] grownRows = Arrays.copyOf(markRows, marks * 2);
+                VarHandle.releaseFence();
+                markVersions = grownVersions;
+                markRows = grownRows;
+            }
+            markVersions[marks] = version;
+            markRows[marks] = end;
+            markCount = marks + 1;
+        }
+    }
+
+    /**
+     * Moves the watermark past the rows just appended and wakes the insert
+     * whose turn comes next, if it has parked
+     * @param end row after the last row appended
+     * @author Ethan Rama
+     */
+    private void release(int end) {
+        // The next inserting thread takes its turn as soon as this is written
+        rowCount = end;
+        Thread next = waiters.get(end);
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+
+    /**
+     * Get the version of the last change committed to the table, which a
+     * read of this table alone may use for as long as it runs
+     * @return committed version
+     * @author Ethan Rama
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the version an UPDATE or DELETE commits. The caller holds the
+     * change lock, so no other change takes the same version.
+     * @return version after the committed one
+     * @author Ethan Rama
+     */
+    long nextVersion() {
+        return version + 1;
+    }
+
+    /**
+     * Commits an UPDATE or DELETE once every row it changes is stamped, so
+     * queries starting afterwards read it whole. Called even if the change
+     * failed part way, as its stamps are already in place.
+     * @param version version from nextVersion
+     * @author Ethan Rama
+     */
+    void commit(long version) {
+        commitVersion(version);
+    }
+
+    /**
+     * Takes the next number of the commit sequence for a version and then
+     * commits it. A change finished before another starts always takes
+     * the lower number, so a query that sees the later change through its
+     * number also sees the earlier one.
+     * @param next version after the committed one
+     * @author Ethan Rama
+     */
+    private void commitVersion(long next) {
+        int index = Math.toIntExact(next - BASE_VERSION - 1);
+        if (index == commitNumbers.length) {
+            long[] grown = Arrays.copyOf(commitNumbers, index * 2);
+            VarHandle.releaseFence();
+            commitNumbers = grown;
+        }
+        commitNumbers[index] = commits.incrementAndGet();
+        version = next;
+    }
+
+    /**
+     * Get the last version of the table committed at or before a number
+     * of the commit sequence. Versions committed later, or still
+     * committing when the number was read, are left out.
+     * @param commit number read from the commit sequence
+     * @return version to read the table at
+     * @author Ethan Rama
+     */
+    long getVersion(long commit) {
+        long committed = version;
+        int count = (int) (committed - BASE_VERSION);
+        long[] numbers = commitNumbers;
+        if (count == 0 || numbers[count - 1] <= commit) {
+            return committed;
+        }
+        // The last version at or before the number
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (numbers[middle] <= commit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return BASE_VERSION + low;
+    }
+
+    /**
+     * Checks if a row found through a hash index still holds its key
+     * @param row row number, or -1 if no row was found
+     * @return true if the row exists and has not been deleted
+     * @author Ethan Rama
+     */
+    private boolean isHeld(int row) {
+        return row >= 0 && !isDeleted(row);
+    }
+
+    /**
+     * Creates an ordered index over an attribute, filled from the rows
+     * already in the table
+     * @param indexName name of the index
+     * @param column attribute name
+     * @author Ethan Rama
+     */
+    void createIndex(String indexName, String column) {
+        int ordinal = requireOrdinal(column);
+        for (OrderedIndex index : orderedIndexes) {
+            if (index != null && index.getName().equals(indexName)) {
+                throw new IllegalArgumentException("Index " + indexName + " already exists.");
+            }
+        }
+        if (orderedIndexes[ordinal] != null) {
+            throw new IllegalArgumentException("Column " + column + " already has an index.");
+        }
+        OrderedIndex index = new OrderedIndex(indexName, ordinal);
+        fill(index);
+        orderedIndexes[ordinal] = index;
+    }
+
+    /**
+     * Adds every row to an ordered index. Deleted rows are kept, like the
+     * entries of rows deleted after the index was made, for queries reading
+     * earlier versions.
+     * @param index empty ordered index of an attribute of this table
+     * @author Ethan Rama
+     */
+    private void fill(OrderedIndex index) {
+        int ordinal = index.getOrdinal();
+        for (int row = 0; row < rowCount; row++) {
+            index.add(sortKey(ordinal, row), row);
+        }
+    }
+
+    /**
+     * Counts the statistics of the live rows again, with a histogram of
+     * each attribute, and rebuilds the zone maps, which then cover rows
+     * attached from a snapshot too. The caller holds the change lock.
+     * @author Ethan Rama
+     */
+    void analyze() {
+        statistics = TableStatistics.analyze(this);
+        for (ColumnVector vector : vectors) {
+            vector.summarizeAll(rowCount);
+        }
+    }
+
+    /**
+     * Get the statistics the planner estimates the table's rows from
+     * @return statistics of the attributes
+     * @author Ethan Rama
+     */
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Writes the definitions, rows and indexes of the table to a snapshot.
+     * Deleted rows are kept, so row numbers in the log that follows the
+     * snapshot still name the same rows.
+     * @param out snapshot being written
+     * @param footer snapshot footer, given the definitions and the offset
+     * of each block
+     * @author Ethan Rama
+     */
+    void writeSnapshot(Snapshot.Writer out, RecordBuffer footer) {
+        footer.putTable(new CreateTableStatement(name, definitions));
+        footer.putInt(rowCount);
+        footer.putInt(liveRows);
+        long[] deleted = new long[(rowCount + 63) >>> 6];
+        for (int row = 0; row < rowCount; row++) {
+            if (isDeleted(row)) {
+                deleted[row >>> 6] |= 1L << row;
+            }
+        }
+        footer.putLongs(deleted);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i].writeSnapshot(out, footer, rowCount);
+            footer.putString(orderedIndexes[i] == null ? null : orderedIndexes[i].getName());
+            footer.putByte((byte) (indexes[i] == null ? 0 : 1));
+            if (indexes[i] != null) {
+                indexes[i].writeSnapshot(out, footer);
+            }
+        }
+    }
+
+    /**
+     * Constructs a table attached to a snapshot. Chunks and hash indexes
+     * are read when first used, and ordered indexes are filled from the
+     * rows when first used.
+     * @param image mapped snapshot
+     * @param footer snapshot footer, positioned at the table
+     * @param offHeap whether values are kept outside the Java heap
+     * @param commits commit sequence shared by the tables of the database
+     * @return attached table
+     * @author Ethan Rama
+     */
+    static RamaTable attach(Snapshot.Image image, ByteBuffer footer, boolean offHeap, AtomicLong commits) {
+        RamaTable table = new RamaTable(RecordBuffer.getTable(footer), offHeap, commits);
+        table.rowCount = footer.getInt();
+        table.claimed.set(table.rowCount);
+        table.liveRows = footer.getInt();
+        long[] deleted = RecordBuffer.getLongs(footer);
+        // Every attached row is committed by the base version, and every deleted one deleted by it
+        int chunks = (table.rowCount + ColumnVector.CHUNK_MASK) >>> ColumnVector.CHUNK_SHIFT;
+        table.deletedAt = new long[Math.max(4, chunks)][];
+        for (int word = 0; word < deleted.length; word++) {
+            for (long bits = deleted[word]; bits != 0; bits &= bits - 1) {
+                table.stamp((word << 6) + Long.numberOfTrailingZeros(bits), BASE_VERSION);
+            }
+        }
+        // Attached rows are counted by ANALYZE rather than read now
+        table.statistics = new TableStatistics(table, table.rowCount == 0);
+        table.markVersions[0] = BASE_VERSION;
+        table.markRows[0] = table.rowCount;
+        table.markCount = 1;
+        for (int i = 0; i < table.vectors.length; i++) {
+            table.vectors[i].attach(image, footer, table.rowCount);
+            String indexName = RecordBuffer.getString(footer);
+            if (indexName != null) {
+                table.orderedIndexes[i] = new OrderedIndex(indexName, i);
+                table.orderedIndexes[i].fillLater(table::fill);
+            }
+            if (footer.get() != 0) {
+                table.indexes[i].attach(image, footer);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Lets go of the values of a dropped table, freeing their off-heap
+     * memory at once rather than when the garbage collector runs. Values a
+     * pinned cursor or query is reading are freed when the last pin is
+     * released, so every read of a table outside its locks holds a pin.
+     * @author Ethan Rama
+     */
+    synchronized void free() {
+        dropped = true;
+        if (pins == 0) {
+            for (ColumnVector vector : vectors) {
+                vector.free();
+            }
+        }
+    }
+
+    /**
+     * Keeps the values of the table until unpinned, even if it is dropped
+     * @return true if pinned, false if the table has been dropped
+     * @author Ethan Rama
+     */
+    synchronized boolean pin() {
+        if (dropped) {
+            return false;
+        }
+        pins++;
+        return true;
+    }
+
+    /**
+     * Releases a pin, letting go of the values if the table was dropped
+     * while it was held
+     * @author Ethan Rama
+     */
+    synchronized void unpin() {
+        if (--pins == 0 && dropped) {
+            for (ColumnVector vector : vectors) {
+                vector.free();
+            }
+        }
+    }
+
+    /**
+     * Get the ordered index of an attribute
+     * @param ordinal column position
+     * @return ordered index, or null if the attribute has none
+     * @author Ethan Rama
+     */
+    OrderedIndex getOrderedIndex(int ordinal) {
+        return orderedIndexes[ordinal];
+    }
+
+    /**
+     * Finds the row last given a value of a PRIMARY KEY or UNIQUE attribute
+     * through its hash index. Keys are kept when their row is deleted, so
+     * the row found may since have been deleted or be newer than the
+     * version being read.
+     * @param ordinal column position of an indexed attribute
+     * @param value value text
+     * @return row number, or -1 if no row has held the value
+     * @author Ethan Rama
+     */
+    int lookup(int ordinal, String value) {
+        return indexes[ordinal].get(vectors[ordinal].keyOf(value));
+    }
+
+    /**
+     * Checks if an attribute has a hash index
+     * @param ordinal column position
+     * @return true for PRIMARY KEY and UNIQUE attributes, false otherwise
+     * @author Ethan Rama
+     */
+    boolean isIndexed(int ordinal) {
+        return indexes[ordinal] != null;
+    }
+
+    /**
+     * Creates an entry holding the default value of each attribute
+     * @return value text of each attribute, in column order
+     * @author Ethan Rama
+     */
+    String[] newRow() {
+        return defaults.clone();
     }
 
     /**
      * Get list of data
-     * @return list of data
+     * @return copy of the data, one map per entry
      * @author Ethan Rama
      */
     public List<Map<String, String>> getRows() {
-        return rows;
+        return getRows(LATEST);
+    }
+
+    /**
+     * Get list of data as of a version
+     * @param version version being read
+     * @return copy of the data a query at the version sees
+     * @author Ethan Rama
+     */
+    List<Map<String, String>> getRows(long version) {
+        return getRows(version, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Get list of data as of a version, copying the rows on up to a number
+     * of threads of the common fork-join pool
+     * @param version version being read
+     * @param parallelism largest number of threads to copy rows on
+     * @return copy of the data a query at the version sees
+     * @author Ethan Rama
+     */
+    List<Map<String, String>> getRows(long version, int parallelism) {
+        TableSpliterator rows = spliterator(version, parallelism);
+        return StreamSupport.intStream(rows, parallelism > 1)
+                .mapToObj(row -> {
+                    Map<String, String> values = new LinkedHashMap<>();
+                    for (int i = 0; i < vectors.length; i++) {
+                        values.put(columns.get(i), vectors[i].getString(row));
+                    }
+                    return values;
+                })
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Get the number of rows
+     * @return number of rows in the table
+     * @author Ethan Rama
+     */
+    public int getRowCount() {
+        return liveRows;
+    }
+
+    /**
+     * Get the definitions of the attributes
+     * @return list of attribute definitions, in column order
+     * @author Ethan Rama
+     */
+    List<ColumnDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * Get the position of an attribute
+     * @param column attribute name
+     * @return column position, or -1 if the table has no such attribute
+     * @author Ethan Rama
+     */
+    int getOrdinal(String column) {
+        Integer ordinal = ordinals.get(column);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Get the position of an attribute that must exist
+     * @param column attribute name
+     * @return column position
+     * @author Ethan Rama
+     */
+    int requireOrdinal(String column) {
+        Integer ordinal = ordinals.get(column);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Column " + column + " does not exist in table " + name + ".");
+        }
+        return ordinal;
+    }
+
+    /**
+     * Reads some attributes of a batch of rows a column at a time. Only
+     * the attributes asked for are read, and only for the rows given,
+     * which a scan has already filtered a chunk at a time, so the values
+     * of other attributes and of rejected rows are never turned into text.
+     * @param ordinals column position of each attribute to read
+     * @param rows row numbers
+     * @param count number of rows to read
+     * @param into filled with the values of each attribute, one array of
+     * at least count values per column position
+     * @author Ethan Rama
+     */
+    void read(int[] ordinals, int[] rows, int count, String[][] into) {
+        for (int i = 0; i < ordinals.length; i++) {
+            vectors[ordinals[i]].getStrings(rows, count, into[i]);
+        }
+    }
+
+    /**
+     * Get the values of an attribute
+     * @param ordinal column position
+     * @return column vector
+     * @author Ethan Rama
+     */
+    ColumnVector getVector(int ordinal) {
+        return vectors[ordinal];
     }
 
     /**
@@ -98,12 +1262,28 @@ public class RamaTable {
     }
 
     /**
-     * Sets attributes in table
+     * Renames the attributes in table
      * @param columns list of attributes
      * @author Ethan Rama
      */
     public void setColumns(List<String> columns) {
-        this.columns = columns;
+        if (columns.size() != definitions.size()) {
+            throw new IllegalArgumentException("Column count does not match table " + name + ".");
+        }
+        List<ColumnDefinition> renamed = new ArrayList<>();
+        Map<String, Integer> renamedOrdinals = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnDefinition definition = definitions.get(i);
+            renamed.add(new ColumnDefinition(columns.get(i), definition.getDataType(), definition.getSize(),
+                    definition.getConstraints(), definition.getDefaultValue()));
+            if (renamedOrdinals.put(columns.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate column " + columns.get(i) + ".");
+            }
+        }
+        // Only the names change, so the stored values and indexes are kept
+        this.definitions = renamed;
+        this.columns = new ArrayList<>(columns);
+        this.ordinals = renamedOrdinals;
     }
 
     /**
@@ -112,7 +1292,134 @@ public class RamaTable {
      * @author Ethan Rama
      */
     public void setRows(List<Map<String, String>> rows) {
-        this.rows = rows;
+        Lock exclusive = getChangeLock();
+        exclusive.lock();
+        try {
+            OrderedIndex[] kept = orderedIndexes;
+            setDefinitions(definitions);
+            for (int i = 0; i < kept.length; i++) {
+                if (kept[i] != null) {
+                    kept[i].clear();
+                    orderedIndexes[i] = kept[i];
+                }
+            }
+            for (Map<String, String> row : rows) {
+                insert(row);
+            }
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Replaces the schema with empty vectors of the defined types
+     * @param definitions attribute definitions
+     * @author Ethan Rama
+     */
+    private void setDefinitions(List<ColumnDefinition> definitions) {
+        this.definitions = definitions;
+        this.columns = new ArrayList<>();
+        this.ordinals = new HashMap<>();
+        this.vectors = new ColumnVector[definitions.size()];
+        this.defaults = new String[definitions.size()];
+        this.notNull = new boolean[definitions.size()];
+        this.maxLengths = new int[definitions.size()];
+        this.indexes = new HashIndex[definitions.size()];
+        this.orderedIndexes = new OrderedIndex[definitions.size()];
+        for (int i = 0; i < definitions.size(); i++) {
+            ColumnDefinition definition = definitions.get(i);
+            if (ordinals.put(definition.getColumnName(), i) != null) {
+                throw new IllegalArgumentException("Duplicate column " + definition.getColumnName() + ".");
+            }
+            columns.add(definition.getColumnName());
+            ColumnType type = ColumnType.of(definition.getDataType());
+            vectors[i] = type.newVector(offHeap);
+            notNull[i] = definition.getConstraints().contains("NOT NULL")
+                    || definition.getConstraints().contains("PRIMARY KEY");
+            if (type == ColumnType.CHAR || type == ColumnType.VARCHAR) {
+                maxLengths[i] = definition.getSize();
+            }
+            if (definition.getConstraints().contains("PRIMARY KEY") || definition.getConstraints().contains("UNIQUE")) {
+                indexes[i] = new HashIndex();
+            }
+            if (definition.getDefaultValue() != null) {
+                defaults[i] = definition.getDefaultValue().getText();
+                validate(i, defaults[i]);
+                // Parse the default now so a bad default fails at CREATE rather than on insert
+                checkType(i, defaults[i]);
+            }
+        }
+        this.deletedAt = new long[0][];
+        this.markVersions = new long[4];
+        this.markRows = new int[4];
+        this.markCount = 0;
+        this.rowCount = 0;
+        this.claimed.set(0);
+        this.liveRows = 0;
+        this.statistics = new TableStatistics(this, true);
+    }
+
+    /**
+     * Checks that a value parses as the type of its attribute
+     * @param ordinal column position
+     * @param value value text, null for NULL
+     * @author Ethan Rama
+     */
+    private void checkType(int ordinal, String value) {
+        ColumnVector check = vectors[ordinal].getType().newVector();
+        check.ensureCapacity(1);
+        check.set(0, value);
+    }
+
+    /**
+     * Adds a row's value of an attribute to the attribute's indexes. A hash
+     * index key moves to the new row, which is its only live holder.
+     * @param ordinal column position
+     * @param row row number
+     * @author Ethan Rama
+     */
+    private void index(int ordinal, int row) {
+        if (indexes[ordinal] != null && !vectors[ordinal].isNull(row)) {
+            indexes[ordinal].set(vectors[ordinal].key(row), row);
+        }
+        if (orderedIndexes[ordinal] != null) {
+            orderedIndexes[ordinal].add(sortKey(ordinal, row), row);
+        }
+    }
+
+    private Comparable<?> sortKey(int ordinal, int row) {
+        return vectors[ordinal].isNull(row) ? null : vectors[ordinal].sortKey(row);
+    }
+
+    /**
+     * Checks a value against the constraints of its attribute
+     * @param ordinal column position
+     * @param value value text, null for NULL
+     * @author Ethan Rama
+     */
+    private void validate(int ordinal, String value) {
+        if (value == null) {
+            if (notNull[ordinal]) {
+                throw new IllegalArgumentException("Column " + columns.get(ordinal) + " cannot be NULL.");
+            }
+        } else if (maxLengths[ordinal] > 0 && value.length() > maxLengths[ordinal]) {
+            throw new IllegalArgumentException("Value for column " + columns.get(ordinal) + " is longer than "
+                    + maxLengths[ordinal] + " characters.");
+        }
+    }
+
+    /**
+     * Builds definitions for attributes declared without types
+     * @param columns attribute names
+     * @return untyped attribute definitions
+     * @author Ethan Rama
+     */
+    private static List<ColumnDefinition> untyped(List<String> columns) {
+        List<ColumnDefinition> definitions = new ArrayList<>();
+        for (String column : columns) {
+            definitions.add(new ColumnDefinition(column, null, new ArrayList<>()));
+        }
+        return definitions;
     }
 
     /**
@@ -127,7 +1434,7 @@ public class RamaTable {
         return "RamaTable{" +
                 "name='" + name + '\'' +
                 ", columns=" + columns +
-                ", rows=" + rows +
+                ", rows=" + getRows() +
                 '}';
     }
 
@@ -144,7 +1451,7 @@ public class RamaTable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RamaTable ramaTable = (RamaTable) o;
-        return Objects.equals(name, ramaTable.name) && Objects.equals(columns, ramaTable.columns) && Objects.equals(rows, ramaTable.rows);
+        return Objects.equals(name, ramaTable.name) && Objects.equals(columns, ramaTable.columns) && Objects.equals(getRows(), ramaTable.getRows());
     }
 
     /**
@@ -154,6 +1461,6 @@ public class RamaTable {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(name, columns, rows);
+        return Objects.hash(name, columns, getRows());
     }
 }
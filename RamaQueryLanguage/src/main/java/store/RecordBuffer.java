@@ -0,0 +1,190 @@
+/*
+ * RecordBuffer.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable buffer that encodes the values written to the write-ahead log
+ * and to snapshots. Strings are a length then UTF-8 bytes, with a length
+ * of -1 for null, and arrays are a length then their elements. The static
+ * methods decode the same forms from any buffer.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class RecordBuffer {
+    /**
+     * Encoded bytes, from 0 to the position
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs an empty buffer
+     * @param capacity initial capacity in bytes
+     * @author Ethan Rama
+     */
+    RecordBuffer(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Get the underlying buffer. It is replaced when the buffer grows.
+     * @return buffer holding the encoded bytes before its position
+     * @author Ethan Rama
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the number of bytes written
+     * @return buffer position
+     * @author Ethan Rama
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Makes room for a number of bytes after the position
+     * @param bytes number of bytes about to be written
+     * @author Ethan Rama
+     */
+    void reserve(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            buffer = grown.put(buffer);
+        }
+    }
+
+    void putByte(byte value) {
+        reserve(1);
+        buffer.put(value);
+    }
+
+    void putInt(int value) {
+        reserve(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) {
+        reserve(8);
+        buffer.putLong(value);
+    }
+
+    void putInts(int[] values) {
+        reserve(4 + 4 * values.length);
+        buffer.putInt(values.length);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+    }
+
+    void putLongs(long[] values) {
+        reserve(4 + 8 * values.length);
+        buffer.putInt(values.length);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+    }
+
+    void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        reserve(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes the definition of a table
+     * @param statement table name and attribute definitions
+     * @author Ethan Rama
+     */
+    void putTable(CreateTableStatement statement) {
+        putString(statement.getTableName());
+        putInt(statement.getColumns().size());
+        for (ColumnDefinition column : statement.getColumns()) {
+            putString(column.getColumnName());
+            putString(column.getDataType());
+            putInt(column.getSize());
+            putInt(column.getConstraints().size());
+            for (String constraint : column.getConstraints()) {
+                putString(constraint);
+            }
+            Value defaultValue = column.getDefaultValue();
+            putString(defaultValue == null ? null : defaultValue.getType().name());
+            if (defaultValue != null) {
+                putString(defaultValue.getText());
+            }
+        }
+    }
+
+    static int[] getInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getInt();
+        }
+        return values;
+    }
+
+    static long[] getLongs(ByteBuffer in) {
+        long[] values = new long[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getLong();
+        }
+        return values;
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the definition of a table written by putTable
+     * @param in buffer positioned at the definition
+     * @return table name and attribute definitions
+     * @author Ethan Rama
+     */
+    static CreateTableStatement getTable(ByteBuffer in) {
+        String tableName = getString(in);
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            String columnName = getString(in);
+            String dataType = getString(in);
+            int size = in.getInt();
+            List<String> constraints = new ArrayList<>();
+            for (int j = in.getInt(); j > 0; j--) {
+                constraints.add(getString(in));
+            }
+            String defaultType = getString(in);
+            Value defaultValue = defaultType == null ? null
+                    : new Value(Token.TokenType.valueOf(defaultType), getString(in));
+            columns.add(new ColumnDefinition(columnName, dataType, size, constraints, defaultValue));
+        }
+        return new CreateTableStatement(tableName, columns);
+    }
+}
@@ -0,0 +1,981 @@
+/*
+ * RowPredicate.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added zone map checks so scans skip chunks no row of which can match
+ * - Chunks of off-heap vectors are filtered through a scratch copy
+ * - Added shapes and arguments for compiling to method handles
+ * - Added batch filtering of a chunk through a selection vector
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A WHERE condition bound to the column vectors of a table. Attribute names
+ * are resolved and literals are parsed into the attribute's type once, when
+ * the condition is bound, so testing a row only reads primitive values.
+ * A comparison involving NULL never matches.
+ * <br><br>
+ * Scans filter a whole chunk at a time. A selection vector holds the
+ * positions within the chunk still in the result, and each comparison
+ * narrows it with a loop over the chunk's primitive array, so the per-row
+ * work is one array read and one compare with no virtual calls. Before
+ * that, the zone maps of the attributes compared with literals can rule
+ * out the whole chunk.
+ * A bound condition keeps scratch space for OR, so it is used by one thread.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+abstract class RowPredicate {
+    static final int EQ = 0;
+    static final int NE = 1;
+    static final int LT = 2;
+    static final int LE = 3;
+    static final int GT = 4;
+    static final int GE = 5;
+
+    /**
+     * Tests a row against the condition
+     * @param row row number
+     * @return true if the row meets the condition
+     * @author Ethan Rama
+     */
+    abstract boolean test(int row);
+
+    /**
+     * Checks if any row of a chunk could meet the condition, from the zone
+     * maps of the attributes it compares with literals. A false answer is
+     * always right, and a true answer only means the chunk must be read.
+     * @param chunk chunk number
+     * @return false if no row of the chunk meets the condition
+     * @author Ethan Rama
+     */
+    boolean mayMatch(int chunk) {
+        return true;
+    }
+
+    /**
+     * Narrows a selection vector to the rows of a chunk that meet the
+     * condition
+     * @param chunk chunk number
+     * @param selection positions within the chunk in ascending order,
+     * overwritten with the positions that meet the condition
+     * @param count number of positions in the selection
+     * @return number of positions left in the selection
+     * @author Ethan Rama
+     */
+    int filter(int chunk, int[] selection, int count) {
+        int base = chunk << ColumnVector.CHUNK_SHIFT;
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int position = selection[i];
+            if (test(base | position)) {
+                selection[out++] = position;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Describes the condition for PredicateCompiler. The shape names the
+     * operators, types and nesting, and the arguments are the vectors and
+     * literals the shape's method handle takes after the row, in order.
+     * Conditions without a specialized shape are called through test.
+     * @param shape builder the shape key is appended to
+     * @param arguments list the arguments are added to
+     * @author Ethan Rama
+     */
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("ROW");
+        arguments.add(this);
+    }
+
+    /**
+     * Builds the method handle of the condition's shape
+     * @return handle taking the row then the arguments from describe
+     * @author Ethan Rama
+     */
+    MethodHandle shape() {
+        return PredicateCompiler.TEST;
+    }
+
+    /**
+     * Removes the positions of NULL values from a selection vector
+     * @param nulls null bitmap of the chunk, null if it has no NULL values
+     * @param selection positions within the chunk
+     * @param count number of positions in the selection
+     * @return number of positions left in the selection
+     * @author Ethan Rama
+     */
+    static int dropNulls(long[] nulls, int[] selection, int count) {
+        if (nulls == null) {
+            return count;
+        }
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int position = selection[i];
+            selection[out] = position;
+            out += (int) (~nulls[position >>> 6] >>> position) & 1;
+        }
+        return out;
+    }
+
+    /**
+     * Binds a condition to a table
+     * @param condition parsed WHERE condition
+     * @param table table the condition is tested against
+     * @return bound condition
+     * @author Ethan Rama
+     */
+    static RowPredicate bind(Expression condition, RamaTable table) {
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            RowPredicate left = bind(logical.getLeft(), table);
+            RowPredicate right = bind(logical.getRight(), table);
+            return logical.isAnd() ? new Conjunction(left, right) : new Disjunction(left, right);
+        }
+        if (!(condition instanceof Comparison)) {
+            throw new IllegalArgumentException("Expected a condition in WHERE clause.");
+        }
+        Comparison comparison = (Comparison) condition;
+        int operator = operator(comparison.getOperator());
+        Expression left = comparison.getLeft();
+        Expression right = comparison.getRight();
+        if (left instanceof Value && right instanceof ColumnReference) {
+            // Keep the attribute on the left, so 5 < id becomes id > 5
+            Expression swap = left;
+            left = right;
+            right = swap;
+            operator = flip(operator);
+        }
+        if (left instanceof Value) {
+            return compareLiterals(operator, (Value) left, (Value) right);
+        }
+        ColumnVector vector = table.getVector(table.requireOrdinal(((ColumnReference) left).getColumnName()));
+        if (right instanceof ColumnReference) {
+            ColumnVector other = table.getVector(table.requireOrdinal(((ColumnReference) right).getColumnName()));
+            return new ColumnComparison(vector, operator, other);
+        }
+        return compareLiteral(vector, operator, (Value) right);
+    }
+
+    /**
+     * Gets the operator code of a COMP_OPERATOR
+     * @param operator operator text
+     * @return operator code
+     * @author Ethan Rama
+     */
+    static int operator(String operator) {
+        switch (operator) {
+            case "=":
+                return EQ;
+            case "!=":
+            case "<>":
+                return NE;
+            case "<":
+                return LT;
+            case "<=":
+                return LE;
+            case ">":
+                return GT;
+            case ">=":
+                return GE;
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + operator);
+        }
+    }
+
+    /**
+     * Gets the operator that gives the same result with its operands swapped
+     * @param operator operator code
+     * @return swapped operator code
+     * @author Ethan Rama
+     */
+    static int flip(int operator) {
+        switch (operator) {
+            case LT:
+                return GT;
+            case LE:
+                return GE;
+            case GT:
+                return LT;
+            case GE:
+                return LE;
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * Checks if the result of a comparison meets an operator
+     * @param operator operator code
+     * @param compared negative, zero or positive as the left operand is less
+     * than, equal to or greater than the right
+     * @return true if the operator holds
+     * @author Ethan Rama
+     */
+    static boolean matches(int operator, int compared) {
+        switch (operator) {
+            case EQ:
+                return compared == 0;
+            case NE:
+                return compared != 0;
+            case LT:
+                return compared < 0;
+            case LE:
+                return compared <= 0;
+            case GT:
+                return compared > 0;
+            default:
+                return compared >= 0;
+        }
+    }
+
+    /**
+     * Binds a comparison of an attribute with a literal
+     * @param vector values of the attribute
+     * @param operator operator code
+     * @param literal literal value
+     * @return bound comparison
+     * @author Ethan Rama
+     */
+    private static RowPredicate compareLiteral(ColumnVector vector, int operator, Value literal) {
+        if (literal.isNull()) {
+            return new Constant(false);
+        }
+        String text = literal.getText();
+        switch (vector.getType()) {
+            case INT:
+                return compareInt((IntVector) vector, operator, text);
+            case DATE:
+                return new IntComparison((IntVector) vector, operator, ((IntVector) vector).parse(text));
+            case FLOAT:
+                return new DoubleComparison((DoubleVector) vector, operator, ((DoubleVector) vector).parse(text));
+            case BOOL:
+                return new BoolComparison((BoolVector) vector, operator, ((BoolVector) vector).parse(text));
+            default:
+                StringVector strings = (StringVector) vector;
+                if (operator == EQ || operator == NE) {
+                    return new CodeComparison(strings, operator, strings.lookup(text));
+                }
+                return new StringComparison(strings, operator, text);
+        }
+    }
+
+    /**
+     * Binds a comparison of an INT attribute with a number that may have a
+     * fraction, rounding the number so the comparison stays on integers
+     * @param vector values of the attribute
+     * @param operator operator code
+     * @param text number text
+     * @return bound comparison
+     * @author Ethan Rama
+     */
+    private static RowPredicate compareInt(IntVector vector, int operator, String text) {
+        double number;
+        try {
+            number = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw vector.invalid(text);
+        }
+        if (number == Math.rint(number)) {
+            return new IntComparison(vector, operator, (long) number);
+        }
+        switch (operator) {
+            case EQ:
+                return new Constant(false);
+            case NE:
+                // No integer equals a fraction, so every non-null row matches
+                return new IntComparison(vector, NE, Long.MAX_VALUE);
+            case LT:
+            case GE:
+                return new IntComparison(vector, operator, (long) Math.ceil(number));
+            default:
+                return new IntComparison(vector, operator, (long) Math.floor(number));
+        }
+    }
+
+    /**
+     * Evaluates a comparison of two literals
+     * @param operator operator code
+     * @param left left literal
+     * @param right right literal
+     * @return constant result
+     * @author Ethan Rama
+     */
+    private static RowPredicate compareLiterals(int operator, Value left, Value right) {
+        if (left.isNull() || right.isNull()) {
+            return new Constant(false);
+        }
+        int compared;
+        if (left.getType() == Token.TokenType.NUMBER_LITERAL && right.getType() == Token.TokenType.NUMBER_LITERAL) {
+            compared = Double.compare(Double.parseDouble(left.getText()), Double.parseDouble(right.getText()));
+        } else {
+            compared = left.getText().compareTo(right.getText());
+        }
+        return new Constant(matches(operator, compared));
+    }
+}
+
+/**
+ * Matches rows that meet both of two conditions
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class Conjunction extends RowPredicate {
+    private final RowPredicate left;
+    private final RowPredicate right;
+
+    Conjunction(RowPredicate left, RowPredicate right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("AND(");
+        left.describe(shape, arguments);
+        shape.append(',');
+        right.describe(shape, arguments);
+        shape.append(')');
+    }
+
+    @Override
+    MethodHandle shape() {
+        return PredicateCompiler.join(left.shape(), right.shape(), true);
+    }
+
+    @Override
+    boolean test(int row) {
+        return left.test(row) && right.test(row);
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return left.mayMatch(chunk) && right.mayMatch(chunk);
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        count = left.filter(chunk, selection, count);
+        return count == 0 ? 0 : right.filter(chunk, selection, count);
+    }
+}
+
+/**
+ * Matches rows that meet either of two conditions
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class Disjunction extends RowPredicate {
+    private final RowPredicate left;
+    private final RowPredicate right;
+
+    /**
+     * Positions meeting the left condition
+     */
+    private int[] matched;
+
+    /**
+     * Positions left for the right condition to test
+     */
+    private int[] rest;
+
+    Disjunction(RowPredicate left, RowPredicate right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("OR(");
+        left.describe(shape, arguments);
+        shape.append(',');
+        right.describe(shape, arguments);
+        shape.append(')');
+    }
+
+    @Override
+    MethodHandle shape() {
+        return PredicateCompiler.join(left.shape(), right.shape(), false);
+    }
+
+    @Override
+    boolean test(int row) {
+        return left.test(row) || right.test(row);
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return left.mayMatch(chunk) || right.mayMatch(chunk);
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        if (matched == null) {
+            matched = new int[ColumnVector.CHUNK_SIZE];
+            rest = new int[ColumnVector.CHUNK_SIZE];
+        }
+        System.arraycopy(selection, 0, matched, 0, count);
+        int matchedCount = left.filter(chunk, matched, count);
+        // Only rows the left condition rejected are tested against the right
+        int restCount = 0;
+        for (int i = 0, m = 0; i < count; i++) {
+            if (m < matchedCount && matched[m] == selection[i]) {
+                m++;
+            } else {
+                rest[restCount++] = selection[i];
+            }
+        }
+        restCount = right.filter(chunk, rest, restCount);
+        // Merge the two sorted results back into the selection
+        int out = 0;
+        int m = 0;
+        int r = 0;
+        while (m < matchedCount && r < restCount) {
+            selection[out++] = matched[m] < rest[r] ? matched[m++] : rest[r++];
+        }
+        while (m < matchedCount) {
+            selection[out++] = matched[m++];
+        }
+        while (r < restCount) {
+            selection[out++] = rest[r++];
+        }
+        return out;
+    }
+}
+
+/**
+ * Matches every row or no row
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class Constant extends RowPredicate {
+    private final boolean result;
+
+    Constant(boolean result) {
+        this.result = result;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append(result);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return PredicateCompiler.constant(result);
+    }
+
+    @Override
+    boolean test(int row) {
+        return result;
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return result;
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        return result ? count : 0;
+    }
+}
+
+/**
+ * Compares an INT or DATE attribute with a constant
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class IntComparison extends RowPredicate {
+    private final IntVector vector;
+    private final int operator;
+    private final long value;
+
+    /**
+     * Copy of an off-heap chunk, null for a vector kept on the heap
+     */
+    private final int[] scratch;
+
+    IntComparison(IntVector vector, int operator, long value) {
+        this.vector = vector;
+        this.operator = operator;
+        this.value = value;
+        this.scratch = vector.isOffHeap() ? new int[ColumnVector.CHUNK_SIZE] : null;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("INT").append(operator);
+        arguments.add(vector);
+        arguments.add(value);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return MethodHandles.insertArguments(PredicateCompiler.COMPARE_INT, 0, operator);
+    }
+
+    @Override
+    boolean test(int row) {
+        return !vector.isNull(row) && matches(operator, Long.compare(vector.getInt(row), value));
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return vector.mayMatch(chunk, operator, value);
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        int[] values = vector.chunk(chunk, scratch);
+        long value = this.value;
+        int out = 0;
+        // One loop per operator keeps the compare out of a switch inside the loop
+        switch (operator) {
+            case EQ:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] == value ? 1 : 0;
+                }
+                break;
+            case NE:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] != value ? 1 : 0;
+                }
+                break;
+            case LT:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] < value ? 1 : 0;
+                }
+                break;
+            case LE:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] <= value ? 1 : 0;
+                }
+                break;
+            case GT:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] > value ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] >= value ? 1 : 0;
+                }
+                break;
+        }
+        return dropNulls(vector.nullChunk(chunk), selection, out);
+    }
+}
+
+/**
+ * Compares a FLOAT attribute with a constant
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class DoubleComparison extends RowPredicate {
+    private final DoubleVector vector;
+    private final int operator;
+    private final double value;
+
+    /**
+     * Copy of an off-heap chunk, null for a vector kept on the heap
+     */
+    private final double[] scratch;
+
+    DoubleComparison(DoubleVector vector, int operator, double value) {
+        this.vector = vector;
+        this.operator = operator;
+        this.value = value;
+        this.scratch = vector.isOffHeap() ? new double[ColumnVector.CHUNK_SIZE] : null;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("FLOAT").append(operator);
+        arguments.add(vector);
+        arguments.add(value);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return MethodHandles.insertArguments(PredicateCompiler.COMPARE_DOUBLE, 0, operator);
+    }
+
+    @Override
+    boolean test(int row) {
+        if (vector.isNull(row)) {
+            return false;
+        }
+        double number = vector.getDouble(row);
+        // Primitive operators, so 0.0 equals -0.0 and NaN matches nothing but !=
+        switch (operator) {
+            case EQ:
+                return number == value;
+            case NE:
+                return number != value;
+            case LT:
+                return number < value;
+            case LE:
+                return number <= value;
+            case GT:
+                return number > value;
+            default:
+                return number >= value;
+        }
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        // NaN is unordered, so a NaN constant leaves every chunk to be read
+        return Double.isNaN(value) || vector.mayMatch(chunk, operator, vector.zoneKeyOf(value));
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        double[] values = vector.chunk(chunk, scratch);
+        double value = this.value;
+        int out = 0;
+        switch (operator) {
+            case EQ:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] == value ? 1 : 0;
+                }
+                break;
+            case NE:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] != value ? 1 : 0;
+                }
+                break;
+            case LT:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] < value ? 1 : 0;
+                }
+                break;
+            case LE:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] <= value ? 1 : 0;
+                }
+                break;
+            case GT:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] > value ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    int position = selection[i];
+                    selection[out] = position;
+                    out += values[position] >= value ? 1 : 0;
+                }
+                break;
+        }
+        return dropNulls(vector.nullChunk(chunk), selection, out);
+    }
+}
+
+/**
+ * Compares a BOOL attribute with a constant, FALSE ordering before TRUE
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class BoolComparison extends RowPredicate {
+    private final BoolVector vector;
+    private final int operator;
+    private final boolean value;
+
+    /**
+     * Copy of an off-heap chunk, null for a vector kept on the heap
+     */
+    private final long[] scratch;
+
+    BoolComparison(BoolVector vector, int operator, boolean value) {
+        this.vector = vector;
+        this.operator = operator;
+        this.value = value;
+        this.scratch = vector.isOffHeap() ? new long[ColumnVector.CHUNK_SIZE >>> 6] : null;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("BOOL").append(operator);
+        arguments.add(vector);
+        arguments.add(value);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return MethodHandles.insertArguments(PredicateCompiler.COMPARE_BOOL, 0, operator);
+    }
+
+    @Override
+    boolean test(int row) {
+        return !vector.isNull(row) && matches(operator, Boolean.compare(vector.getBoolean(row), value));
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return vector.mayMatch(chunk, operator, value ? 1 : 0);
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        // Work out which of FALSE and TRUE match, then keep rows by their bit
+        boolean falseMatches = matches(operator, Boolean.compare(false, value));
+        boolean trueMatches = matches(operator, Boolean.compare(true, value));
+        if (falseMatches != trueMatches) {
+            long[] bits = vector.chunk(chunk, scratch);
+            long wanted = trueMatches ? 1 : 0;
+            int out = 0;
+            for (int i = 0; i < count; i++) {
+                int position = selection[i];
+                selection[out] = position;
+                out += ((bits[position >>> 6] >>> position) & 1) == wanted ? 1 : 0;
+            }
+            count = out;
+        } else if (!trueMatches) {
+            return 0;
+        }
+        return dropNulls(vector.nullChunk(chunk), selection, count);
+    }
+}
+
+/**
+ * Tests a CHAR or VARCHAR attribute for equality with a constant by
+ * comparing dictionary codes
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class CodeComparison extends RowPredicate {
+    private final StringVector vector;
+    private final boolean equal;
+    private final int code;
+
+    /**
+     * Copy of an off-heap chunk, null for a vector kept on the heap
+     */
+    private final int[] scratch;
+
+    /**
+     * @param code dictionary code of the constant, -1 if no row holds it
+     */
+    CodeComparison(StringVector vector, int operator, int code) {
+        this.vector = vector;
+        this.equal = operator == EQ;
+        this.code = code;
+        this.scratch = vector.isOffHeap() ? new int[ColumnVector.CHUNK_SIZE] : null;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("CODE").append(equal);
+        arguments.add(vector);
+        arguments.add(code);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return MethodHandles.insertArguments(PredicateCompiler.COMPARE_CODE, 0, equal);
+    }
+
+    @Override
+    boolean test(int row) {
+        return !vector.isNull(row) && (vector.getCode(row) == code) == equal;
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        if (!equal) {
+            return true;
+        }
+        return code >= 0 && vector.mayMatch(chunk, EQ, vector.orderKeyOf(vector.decode(code)));
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        int[] codes = vector.chunk(chunk, scratch);
+        int code = this.code;
+        int out = 0;
+        if (equal) {
+            for (int i = 0; i < count; i++) {
+                int position = selection[i];
+                selection[out] = position;
+                out += codes[position] == code ? 1 : 0;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int position = selection[i];
+                selection[out] = position;
+                out += codes[position] != code ? 1 : 0;
+            }
+        }
+        return dropNulls(vector.nullChunk(chunk), selection, out);
+    }
+}
+
+/**
+ * Orders a CHAR or VARCHAR attribute against a constant
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class StringComparison extends RowPredicate {
+    private final StringVector vector;
+    private final int operator;
+    private final String value;
+
+    /**
+     * Copy of an off-heap chunk, null for a vector kept on the heap
+     */
+    private final int[] scratch;
+
+    /**
+     * Result for each dictionary code: 0 not yet compared, 1 match, 2 no match
+     */
+    private byte[] results = new byte[0];
+
+    StringComparison(StringVector vector, int operator, String value) {
+        this.vector = vector;
+        this.operator = operator;
+        this.value = value;
+        this.scratch = vector.isOffHeap() ? new int[ColumnVector.CHUNK_SIZE] : null;
+    }
+
+    @Override
+    void describe(StringBuilder shape, List<Object> arguments) {
+        shape.append("STRING").append(operator);
+        arguments.add(vector);
+        arguments.add(value);
+    }
+
+    @Override
+    MethodHandle shape() {
+        return MethodHandles.insertArguments(PredicateCompiler.COMPARE_STRING, 0, operator);
+    }
+
+    @Override
+    boolean test(int row) {
+        return !vector.isNull(row) && matches(operator, vector.decode(vector.getCode(row)).compareTo(value));
+    }
+
+    @Override
+    boolean mayMatch(int chunk) {
+        return vector.mayMatch(chunk, operator, vector.orderKeyOf(value));
+    }
+
+    @Override
+    int filter(int chunk, int[] selection, int count) {
+        // Each distinct string is compared once, after which rows only look up their code
+        int[] codes = vector.chunk(chunk, scratch);
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int position = selection[i];
+            selection[out] = position;
+            out += result(codes[position]) ? 1 : 0;
+        }
+        return dropNulls(vector.nullChunk(chunk), selection, out);
+    }
+
+    private boolean result(int code) {
+        if (code >= results.length) {
+            results = Arrays.copyOf(results, Math.max(code + 1, results.length * 2));
+        }
+        if (results[code] == 0) {
+            results[code] = matches(operator, vector.decode(code).compareTo(value)) ? (byte) 1 : (byte) 2;
+        }
+        return results[code] == 1;
+    }
+}
+
+/**
+ * Compares two attributes of the same row
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class ColumnComparison extends RowPredicate {
+    private final ColumnVector left;
+    private final int operator;
+    private final ColumnVector right;
+
+    ColumnComparison(ColumnVector left, int operator, ColumnVector right) {
+        if (kind(left.getType()) != kind(right.getType())) {
+            throw new IllegalArgumentException("Cannot compare " + left.getType() + " with " + right.getType() + ".");
+        }
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    @Override
+    boolean test(int row) {
+        return !left.isNull(row) && !right.isNull(row) && matches(operator, compare(row));
+    }
+
+    private int compare(int row) {
+        switch (left.getType()) {
+            case INT:
+            case FLOAT:
+                return Double.compare(number(left, row), number(right, row));
+            case DATE:
+                return Integer.compare(((IntVector) left).getInt(row), ((IntVector) right).getInt(row));
+            case BOOL:
+                return Long.compare(left.key(row), right.key(row));
+            default:
+                return left.getString(row).compareTo(right.getString(row));
+        }
+    }
+
+    private static double number(ColumnVector vector, int row) {
+        return vector instanceof DoubleVector ? ((DoubleVector) vector).getDouble(row) : ((IntVector) vector).getInt(row);
+    }
+
+    /**
+     * Groups types that compare with each other
+     */
+    private static int kind(ColumnType type) {
+        switch (type) {
+            case INT:
+            case FLOAT:
+                return 0;
+            case CHAR:
+            case VARCHAR:
+                return 1;
+            default:
+                return 2 + type.ordinal();
+        }
+    }
+}
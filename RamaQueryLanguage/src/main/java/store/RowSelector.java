@@ -0,0 +1,808 @@
+/*
+ * RowSelector.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Scans skip chunks the zone maps show hold no row meeting the condition
+ * - Chooses between index ranges, the sort attribute's index and a scan
+ *   by their estimated cost, from the table's statistics
+ * - ORDER BY sorts through RowSorter, keeping only the rows a LIMIT
+ *   returns and spilling sorted runs beyond a memory budget
+ * - Scans can be opened as runs for callers to fetch on their own threads
+ * - Scans drained whole are split across the common fork-join pool
+ * - Rows can be fetched a batch at a time through a LIMIT and OFFSET
+ *   window, finding each batch as it is fetched
+ * - Rows are selected as of a version of the table
+ * - Rows visited one at a time are tested by the compiled condition
+ * - Scans filter a chunk of rows at a time through selection vectors
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Finds the rows of a table that meet a WHERE condition, in ORDER BY order.
+ * An equality on a PRIMARY KEY or UNIQUE attribute is answered by its hash
+ * index, a range on an attribute with an ordered index visits only the
+ * entries in the range, and any other condition is filtered over every
+ * chunk of rows in batches. Rows reached through an index are tested one
+ * at a time by the condition compiled to a method handle.
+ * <br><br>
+ * When the conditions bound several indexed attributes, or the table is
+ * small enough or the range wide enough that scanning would be cheaper,
+ * the access path is chosen by cost. The table's statistics estimate how
+ * many entries each range holds and how many rows the whole condition
+ * selects; an index entry costs ENTRY_COST and a scanned row SCAN_COST,
+ * and a path that does not return rows in ORDER BY order pays for the
+ * sort. Without statistics, the first indexed range found is taken.
+ * <br><br>
+ * Rows are selected as a version of the table saw them. Indexes keep
+ * the entries of deleted and superseded rows, so entries are checked
+ * against the version. A hash index only knows the newest row given a key;
+ * when that row is newer than the version, an older row may still hold the
+ * key, so the condition falls back to a range or a scan.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class RowSelector {
+    /**
+     * Result of lookupKey when the condition has no indexed equality
+     */
+    private static final int NO_LOOKUP = -2;
+
+    /**
+     * Relative cost of filtering one row of a scanned chunk
+     */
+    private static final double SCAN_COST = 1;
+
+    /**
+     * Relative cost of visiting one index entry, which walks the tree,
+     * checks the row's version and tests the row on its own
+     */
+    private static final double ENTRY_COST = 4;
+
+    /**
+     * Relative cost of one comparison of a sort
+     */
+    private static final double SORT_COST = 2;
+
+    /**
+     * Gets the rows of a table that meet a condition
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param orderBy attributes to sort by, empty to leave rows unsorted
+     * @param version version of the table to read, LATEST for a writer
+     * @return row numbers in output order
+     * @author Ethan Rama
+     */
+    static int[] select(RamaTable table, Expression where, List<SortKey> orderBy, long version) {
+        return select(table, where, orderBy, version, 1);
+    }
+
+    /**
+     * Gets the rows of a table that meet a condition, scanning the table on
+     * several threads when it is large enough to gain from them
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param orderBy attributes to sort by, empty to leave rows unsorted
+     * @param version version of the table to read, LATEST for a writer
+     * @param parallelism largest number of threads the scan may use
+     * @return row numbers in output order
+     * @author Ethan Rama
+     */
+    static int[] select(RamaTable table, Expression where, List<SortKey> orderBy, long version, int parallelism) {
+        return open(table, where, orderBy, version, parallelism).drain();
+    }
+
+    /**
+     * Opens the rows of a table that meet a condition, to be fetched a
+     * batch at a time. Scans and index ranges find each batch as it is
+     * fetched, so a reader that stops early never visits the rest of the
+     * table; only an ORDER BY with no index to follow finds every row
+     * before the first is returned.
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param orderBy attributes to sort by, empty to leave rows unsorted
+     * @param version version of the table to read, LATEST for a writer
+     * @return row numbers in output order
+     * @author Ethan Rama
+     */
+    static Rows open(RamaTable table, Expression where, List<SortKey> orderBy, long version) {
+        return open(table, where, orderBy, version, 1);
+    }
+
+    /**
+     * Opens the rows of a table that meet a condition. Rows fetched a batch
+     * at a time are found on the calling thread; a scan drained whole is
+     * split across threads.
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param orderBy attributes to sort by, empty to leave rows unsorted
+     * @param version version of the table to read, LATEST for a writer
+     * @param parallelism largest number of threads a drained scan may use
+     * @return row numbers in output order
+     * @author Ethan Rama
+     */
+    static Rows open(RamaTable table, Expression where, List<SortKey> orderBy, long version, int parallelism) {
+        return open(table, where, orderBy, version, parallelism, Long.MAX_VALUE, RowSorter.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Opens the rows of a table that meet a condition, sorting only as
+     * many as will be read
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param orderBy attributes to sort by, empty to leave rows unsorted
+     * @param version version of the table to read, LATEST for a writer
+     * @param parallelism largest number of threads a drained scan may use
+     * @param top number of leading rows that will be read, Long.MAX_VALUE
+     * for every row
+     * @param memoryBudget bytes a sort may hold before spilling runs
+     * @return row numbers in output order
+     * @author Ethan Rama
+     */
+    static Rows open(RamaTable table, Expression where, List<SortKey> orderBy, long version, int parallelism,
+                     long top, long memoryBudget) {
+        int limit = table.getRowLimit(version);
+        RowPredicate predicate = where == null ? null : RowPredicate.bind(where, table);
+        int key = where == null ? NO_LOOKUP : lookupKey(table, where);
+        if (key != NO_LOOKUP && key < limit) {
+            // A row deleted by this version was the last to hold the key, so no visible row holds it
+            boolean visible = key >= 0 && !table.isDeleted(key, version);
+            // The rest of the condition still has to hold for the one candidate row, which is not worth compiling for
+            return new ArrayRows(visible && predicate.test(key) ? new int[] {key} : new int[0]);
+        }
+
+        // An index on the only sort attribute returns rows already sorted
+        int sortOrdinal = orderBy.size() == 1 ? table.requireOrdinal(orderBy.get(0).getColumnName()) : -1;
+        boolean descending = sortOrdinal >= 0 && orderBy.get(0).isDescending();
+        List<Range> ranges = new ArrayList<>();
+        if (where != null) {
+            findRanges(table, where, ranges);
+        }
+        Range range = plan(table, where, ranges, !orderBy.isEmpty(), sortOrdinal, top);
+        Iterable<OrderedIndex.Entry> entries = null;
+        boolean sorted = false;
+        if (range != null) {
+            NavigableSet<OrderedIndex.Entry> inRange = range.entries(table);
+            sorted = range.ordinal == sortOrdinal;
+            entries = sorted && descending ? inRange.descendingSet() : inRange;
+        }
+
+        Rows rows = entries == null ? new ScanRows(table, where, predicate, limit, version, parallelism)
+                : new EntryRows(table, entries.iterator(), predicate == null ? null : PredicateCompiler.compile(predicate),
+                        limit, version);
+        if (orderBy.isEmpty() || sorted) {
+            return rows;
+        }
+        // A scan is drained on several threads before it is sorted
+        return RowSorter.sort(table, parallelism > 1 ? new ArrayRows(rows.drain()) : rows, orderBy, top,
+                memoryBudget);
+    }
+
+    /**
+     * Opens the rows of a table that meet a condition as runs that may be
+     * fetched on separate threads. A scan is split into runs of chunks
+     * the way a drained scan would be; rows reached through an index are
+     * one run.
+     * @param table table to select from
+     * @param where WHERE condition, null to select every row
+     * @param version version of the table to read, LATEST for a writer
+     * @param parallelism largest number of runs
+     * @return runs in row order, each with its own bound condition
+     * @author Ethan Rama
+     */
+    static List<Rows> split(RamaTable table, Expression where, long version, int parallelism) {
+        Rows rows = open(table, where, List.of(), version, parallelism);
+        return rows instanceof ScanRows ? ((ScanRows) rows).split() : List.of(rows);
+    }
+
+    /**
+     * Finds the row an indexed equality in a condition selects. The equality
+     * may be the whole condition or one term of an AND.
+     * @param table table being queried
+     * @param condition WHERE condition
+     * @return row number, -1 if no row holds the key, or NO_LOOKUP
+     * @author Ethan Rama
+     */
+    private static int lookupKey(RamaTable table, Expression condition) {
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            if (!logical.isAnd()) {
+                return NO_LOOKUP;
+            }
+            int row = lookupKey(table, logical.getLeft());
+            return row != NO_LOOKUP ? row : lookupKey(table, logical.getRight());
+        }
+        Comparison comparison = (Comparison) condition;
+        int ordinal = indexedColumn(table, comparison);
+        if (ordinal < 0 || !table.isIndexed(ordinal) || !comparison.getOperator().equals("=")) {
+            return NO_LOOKUP;
+        }
+        try {
+            return table.lookup(ordinal, literal(comparison).getText());
+        } catch (IllegalArgumentException e) {
+            // The condition is already bound, so only a literal such as 2.5 against an INT key gets here
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the ranges of ordered indexes that a condition selects, joining
+     * every bound on each indexed attribute found in a chain of ANDs
+     * @param table table being queried
+     * @param condition WHERE condition
+     * @param ranges filled with one range per bounded attribute, in the
+     * order the attributes are found
+     * @author Ethan Rama
+     */
+    private static void findRanges(RamaTable table, Expression condition, List<Range> ranges) {
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            if (logical.isAnd()) {
+                findRanges(table, logical.getLeft(), ranges);
+                findRanges(table, logical.getRight(), ranges);
+            }
+            return;
+        }
+        Comparison comparison = (Comparison) condition;
+        int ordinal = indexedColumn(table, comparison);
+        if (ordinal < 0 || table.getOrderedIndex(ordinal) == null) {
+            return;
+        }
+        int operator = RowPredicate.operator(comparison.getOperator());
+        if (comparison.getLeft() instanceof Value) {
+            operator = RowPredicate.flip(operator);
+        }
+        if (operator == RowPredicate.NE) {
+            return;
+        }
+        ColumnVector vector = table.getVector(ordinal);
+        Comparable<?> key;
+        long orderKey;
+        try {
+            key = vector.sortKeyOf(literal(comparison).getText());
+            orderKey = vector.orderKeyOf(literal(comparison).getText());
+        } catch (IllegalArgumentException e) {
+            // A literal such as 2.5 against an INT attribute is left to the scan
+            return;
+        }
+        Range bounded = null;
+        for (Range range : ranges) {
+            bounded = range.ordinal == ordinal ? range : bounded;
+        }
+        if (bounded == null) {
+            bounded = new Range(ordinal, false);
+            ranges.add(bounded);
+        }
+        if (operator != RowPredicate.LT && operator != RowPredicate.LE) {
+            bounded.raiseLower(key, orderKey, operator != RowPredicate.GT);
+        }
+        if (operator != RowPredicate.GT && operator != RowPredicate.GE) {
+            bounded.lowerUpper(key, orderKey, operator != RowPredicate.LT);
+        }
+    }
+
+    /**
+     * Chooses the cheapest way to reach the rows of a condition
+     * @param table table being queried
+     * @param where WHERE condition, null to select every row
+     * @param ranges ranges of ordered indexes the condition selects
+     * @param ordered whether the rows are returned in ORDER BY order
+     * @param sortOrdinal column position of the only sort attribute, -1 if
+     * there is not exactly one
+     * @param top number of leading rows that will be read
+     * @return range of the index to follow, a whole index, or null to scan
+     * @author Ethan Rama
+     */
+    private static Range plan(RamaTable table, Expression where, List<Range> ranges, boolean ordered,
+                              int sortOrdinal, long top) {
+        Range whole = sortOrdinal >= 0 && table.getOrderedIndex(sortOrdinal) != null ? new Range(sortOrdinal, true) : null;
+        TableStatistics statistics = table.getStatistics();
+        if (!statistics.isComplete()) {
+            return ranges.isEmpty() ? whole : ranges.get(0);
+        }
+        double rows = table.getRowCount();
+        double selected = statistics.estimateRows(where);
+        double sort = ordered ? sortCost(selected, top) : 0;
+        Range chosen = null;
+        double best = rows * SCAN_COST + sort;
+        for (Range range : ranges) {
+            double entries = rows * statistics.rangeSelectivity(range.ordinal, range.lowerKey, range.lowerInclusive,
+                    range.upperKey, range.upperInclusive);
+            // A range in sort order stops once the rows read are found
+            double cost = range.ordinal == sortOrdinal ? visited(entries, selected, top) * ENTRY_COST
+                    : entries * ENTRY_COST + sort;
+            if (cost < best) {
+                chosen = range;
+                best = cost;
+            }
+        }
+        if (whole != null && visited(rows, selected, top) * ENTRY_COST < best) {
+            chosen = whole;
+        }
+        return chosen;
+    }
+
+    /**
+     * Estimates the index entries visited in order before the rows that
+     * will be read are found
+     * @param entries number of entries
+     * @param selected estimated rows among them that meet the condition
+     * @param top number of leading rows that will be read
+     * @return estimated entries visited
+     * @author Ethan Rama
+     */
+    private static double visited(double entries, double selected, long top) {
+        return Math.min(entries, top * entries / Math.max(1, selected));
+    }
+
+    /**
+     * Estimates the cost of sorting rows, keeping only those read
+     * @param rows number of rows sorted
+     * @param top number of leading rows that will be read
+     * @return estimated cost
+     * @author Ethan Rama
+     */
+    private static double sortCost(double rows, long top) {
+        return rows * SORT_COST * Math.log(Math.max(2, Math.min(rows, top))) / Math.log(2);
+    }
+
+    /**
+     * Gets the attribute a comparison tests against a non-null literal
+     * @param table table being queried
+     * @param comparison comparison in the WHERE condition
+     * @return column position, or -1 if the comparison is not between an
+     * attribute and a non-null literal
+     * @author Ethan Rama
+     */
+    private static int indexedColumn(RamaTable table, Comparison comparison) {
+        Expression left = comparison.getLeft();
+        Expression right = comparison.getRight();
+        if (left instanceof Value) {
+            left = comparison.getRight();
+            right = comparison.getLeft();
+        }
+        if (!(left instanceof ColumnReference) || !(right instanceof Value) || ((Value) right).isNull()) {
+            return -1;
+        }
+        return table.requireOrdinal(((ColumnReference) left).getColumnName());
+    }
+
+    private static Value literal(Comparison comparison) {
+        return (Value) (comparison.getRight() instanceof Value ? comparison.getRight() : comparison.getLeft());
+    }
+
+    /**
+     * Bounds on the values of an attribute with an ordered index
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private static final class Range {
+        private static final Comparator<Comparable<?>> ORDER = comparator();
+
+        final int ordinal;
+
+        /**
+         * Whether the range is every entry of the index, NULL included
+         */
+        final boolean whole;
+        Comparable<?> lower;
+        boolean lowerInclusive;
+        Comparable<?> upper;
+        boolean upperInclusive;
+
+        /**
+         * Order keys of the bounds, for estimating the entries in the range
+         */
+        long lowerKey = Long.MIN_VALUE;
+        long upperKey = Long.MAX_VALUE;
+
+        Range(int ordinal, boolean whole) {
+            this.ordinal = ordinal;
+            this.whole = whole;
+        }
+
+        void raiseLower(Comparable<?> key, long orderKey, boolean inclusive) {
+            int compared = lower == null ? 1 : ORDER.compare(key, lower);
+            if (compared > 0 || (compared == 0 && !inclusive)) {
+                lower = key;
+                lowerKey = orderKey;
+                lowerInclusive = inclusive;
+            }
+        }
+
+        void lowerUpper(Comparable<?> key, long orderKey, boolean inclusive) {
+            int compared = upper == null ? -1 : ORDER.compare(key, upper);
+            if (compared < 0 || (compared == 0 && !inclusive)) {
+                upper = key;
+                upperKey = orderKey;
+                upperInclusive = inclusive;
+            }
+        }
+
+        NavigableSet<OrderedIndex.Entry> entries(RamaTable table) {
+            OrderedIndex index = table.getOrderedIndex(ordinal);
+            return whole ? index.all() : index.range(lower, lowerInclusive, upper, upperInclusive);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Comparator<Comparable<?>> comparator() {
+            return (a, b) -> ((Comparable) a).compareTo(b);
+        }
+    }
+
+    /**
+     * Row numbers selected by a query, fetched a batch at a time. A window
+     * set by LIMIT and OFFSET is applied as rows are found, so finding stops
+     * as soon as the window is full.
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    abstract static class Rows {
+        /**
+         * Rows still to skip before the window starts
+         */
+        private long skip;
+
+        /**
+         * Rows still to return before the window ends
+         */
+        private long remaining = Long.MAX_VALUE;
+
+        /**
+         * Limits the rows returned to a window
+         * @param offset number of rows to skip
+         * @param count largest number of rows to return
+         * @return these rows
+         * @author Ethan Rama
+         */
+        Rows window(long offset, long count) {
+            skip = offset;
+            remaining = count;
+            return this;
+        }
+
+        /**
+         * Fetches the next batch of rows
+         * @param into array filled with row numbers in output order
+         * @return number of rows fetched, 0 once every row has been
+         * @author Ethan Rama
+         */
+        final int fetch(int[] into) {
+            while (remaining > 0) {
+                // Each part is capped first, as the sum of a missing LIMIT and an OFFSET would overflow
+                int count = read(into, (int) Math.min(into.length,
+                        Math.min(skip, into.length) + Math.min(remaining, into.length)));
+                if (count == 0) {
+                    return 0;
+                }
+                if (skip >= count) {
+                    skip -= count;
+                    continue;
+                }
+                int from = (int) skip;
+                skip = 0;
+                count -= from;
+                if (from > 0) {
+                    System.arraycopy(into, from, into, 0, count);
+                }
+                remaining -= count;
+                return count;
+            }
+            return 0;
+        }
+
+        /**
+         * Wraps rows already found
+         * @param rows row numbers in output order
+         * @return rows to fetch
+         * @author Ethan Rama
+         */
+        static Rows of(int[] rows) {
+            return new ArrayRows(rows);
+        }
+
+        /**
+         * Checks if LIMIT or OFFSET narrow the rows returned
+         * @return true if a window was set
+         * @author Ethan Rama
+         */
+        final boolean isWindowed() {
+            return skip > 0 || remaining != Long.MAX_VALUE;
+        }
+
+        /**
+         * Fetches every remaining row
+         * @return row numbers in output order
+         * @author Ethan Rama
+         */
+        int[] drain() {
+            int[] rows = new int[16];
+            int count = 0;
+            int[] batch = new int[ColumnVector.CHUNK_SIZE];
+            for (int fetched = fetch(batch); fetched > 0; fetched = fetch(batch)) {
+                if (count + fetched > rows.length) {
+                    rows = Arrays.copyOf(rows, Math.max(rows.length * 2, count + fetched));
+                }
+                System.arraycopy(batch, 0, rows, count, fetched);
+                count += fetched;
+            }
+            return Arrays.copyOf(rows, count);
+        }
+
+        /**
+         * Releases anything held for rows not yet fetched, such as
+         * temporary files
+         * @author Ethan Rama
+         */
+        void close() {
+        }
+
+        /**
+         * Finds the next rows, ignoring the window
+         * @param into array filled with row numbers in output order
+         * @param max largest number of rows to find
+         * @return number of rows found, 0 once every row has been
+         * @author Ethan Rama
+         */
+        abstract int read(int[] into, int max);
+    }
+
+    /**
+     * Rows already found, such as a key lookup or a sorted result
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private static final class ArrayRows extends Rows {
+        private final int[] rows;
+        private int position;
+
+        ArrayRows(int[] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        int read(int[] into, int max) {
+            int count = Math.min(max, rows.length - position);
+            System.arraycopy(rows, position, into, 0, count);
+            position += count;
+            return count;
+        }
+    }
+
+    /**
+     * Rows found by walking ordered index entries, each tested one at a
+     * time
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    private static final class EntryRows extends Rows {
+        private final RamaTable table;
+        private final Iterator<OrderedIndex.Entry> entries;
+
+        /**
+         * Condition rows must meet, null for every row
+         */
+        private final CompiledPredicate compiled;
+
+        /**
+         * getRowLimit of the version being read
+         */
+        private final int limit;
+        private final long version;
+
+        EntryRows(RamaTable table, Iterator<OrderedIndex.Entry> entries, CompiledPredicate compiled,
+                  int limit, long version) {
+            this.table = table;
+            this.entries = entries;
+            this.compiled = compiled;
+            this.limit = limit;
+            this.version = version;
+        }
+
+        @Override
+        int read(int[] into, int max) {
+            int count = 0;
+            while (count < max && entries.hasNext()) {
+                int row = entries.next().row;
+                if (row >= limit || table.isDeleted(row, version)) {
+                    continue;
+                }
+                if (compiled == null || compiled.test(row)) {
+                    into[count++] = row;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Rows found by filtering the table a chunk at a time through a
+     * selection vector. A chunk whose zone maps rule out the condition is
+     * skipped without reading its rows. Drained whole, a large scan is split by a
+     * TableSpliterator into runs of chunks filtered on the common fork-join
+     * pool, each with its own bound condition, and the runs are joined in
+     * row order.
+     * @version 1.1
+     * @author Ethan Rama
+     */
+    private static final class ScanRows extends Rows {
+        private final RamaTable table;
+
+        /**
+         * WHERE condition, bound again for each thread of a parallel scan
+         */
+        private final Expression where;
+
+        /**
+         * Condition rows must meet, null for every row
+         */
+        private final RowPredicate predicate;
+
+        /**
+         * getRowLimit of the version being read
+         */
+        private final int limit;
+        private final long version;
+
+        /**
+         * Largest number of threads a drained scan may use
+         */
+        private final int parallelism;
+
+        /**
+         * Positions within the current chunk of the rows selected from it
+         */
+        private final int[] selection = new int[ColumnVector.CHUNK_SIZE];
+
+        /**
+         * Number of positions in selection
+         */
+        private int selected;
+
+        /**
+         * Next position of selection to return
+         */
+        private int position;
+
+        /**
+         * Next chunk to filter
+         */
+        private int chunk;
+
+        /**
+         * Chunk after the last chunk to filter
+         */
+        private final int fence;
+
+        /**
+         * First row of the current chunk
+         */
+        private int base;
+
+        ScanRows(RamaTable table, Expression where, RowPredicate predicate, int limit, long version, int parallelism) {
+            this(table, where, predicate, limit, version, parallelism, 0,
+                    (limit + ColumnVector.CHUNK_MASK) >>> ColumnVector.CHUNK_SHIFT);
+        }
+
+        private ScanRows(RamaTable table, Expression where, RowPredicate predicate, int limit, long version,
+                         int parallelism, int chunk, int fence) {
+            this.table = table;
+            this.where = where;
+            this.predicate = predicate;
+            this.limit = limit;
+            this.version = version;
+            this.parallelism = parallelism;
+            this.chunk = chunk;
+            this.fence = fence;
+        }
+
+        @Override
+        int[] drain() {
+            List<Rows> parts = split();
+            if (parts.size() == 1) {
+                return super.drain();
+            }
+            List<ForkJoinTask<int[]>> tasks = new ArrayList<>(parts.size() - 1);
+            for (Rows part : parts.subList(1, parts.size())) {
+                tasks.add(ForkJoinTask.adapt(part::drain).fork());
+            }
+            // The calling thread filters the first run rather than waiting idle
+            int[][] runs = new int[parts.size()][];
+            runs[0] = parts.get(0).drain();
+            int count = runs[0].length;
+            for (int i = 1; i < runs.length; i++) {
+                runs[i] = tasks.get(i - 1).join();
+                count += runs[i].length;
+            }
+            int[] rows = new int[count];
+            count = 0;
+            for (int[] run : runs) {
+                System.arraycopy(run, 0, rows, count, run.length);
+                count += run.length;
+            }
+            return rows;
+        }
+
+        /**
+         * Splits a scan not yet started into runs of chunks to filter on
+         * separate threads
+         * @return runs in row order, just this scan if it is not split
+         * @author Ethan Rama
+         */
+        List<Rows> split() {
+            if (parallelism < 2 || isWindowed() || chunk > 0) {
+                return List.of(this);
+            }
+            List<TableSpliterator> parts = new ArrayList<>();
+            split(table.spliterator(version, parallelism), parts);
+            if (parts.size() == 1) {
+                return List.of(this);
+            }
+            List<Rows> runs = new ArrayList<>(parts.size());
+            for (TableSpliterator part : parts) {
+                runs.add(scan(part));
+            }
+            return runs;
+        }
+
+        private ScanRows scan(TableSpliterator part) {
+            // Conditions keep scratch state, so each thread filters with its own
+            RowPredicate bound = where == null ? null : RowPredicate.bind(where, table);
+            return new ScanRows(table, where, bound, limit, version, 1, part.getChunk(), part.getFence());
+        }
+
+        private static void split(TableSpliterator spliterator, List<TableSpliterator> parts) {
+            TableSpliterator prefix = spliterator.trySplit();
+            if (prefix == null) {
+                parts.add(spliterator);
+            } else {
+                split(prefix, parts);
+                split(spliterator, parts);
+            }
+        }
+
+        @Override
+        int read(int[] into, int max) {
+            int count = 0;
+            while (count < max) {
+                if (position == selected) {
+                    if (chunk == fence) {
+                        break;
+                    }
+                    if (predicate != null && !predicate.mayMatch(chunk)) {
+                        chunk++;
+                        continue;
+                    }
+                    selected = table.selectLive(chunk, selection, limit, version);
+                    if (predicate != null && selected > 0) {
+                        selected = predicate.filter(chunk, selection, selected);
+                    }
+                    base = chunk << ColumnVector.CHUNK_SHIFT;
+                    position = 0;
+                    chunk++;
+                    continue;
+                }
+                int end = position + Math.min(max - count, selected - position);
+                while (position < end) {
+                    into[count++] = base | selection[position++];
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,699 @@
+/*
+ * RowSorter.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorts rows by ORDER BY keys compared as primitives. Each value is read
+ * once into an order key, a long ordered like the values themselves, and
+ * the sort compares the keys rather than the values; only a string
+ * column, whose key holds the first characters of its value, goes back to
+ * the values when two keys are equal. NULL sorts before every value. Rows
+ * with equal keys keep the order they were read in.
+ * <br><br>
+ * A sort with a LIMIT keeps only the rows it will return in a bounded
+ * heap, holding the worst of them at the root, so it reads every row but
+ * holds at most LIMIT plus OFFSET of them. A sort of more rows than the
+ * memory budget holds sorts them a run at a time, spills each sorted run
+ * to a temporary file and merges the runs as the rows are fetched, so
+ * memory holds one run while sorting and one record per run while
+ * merging.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class RowSorter {
+    /**
+     * Bytes a sort may use unless set otherwise
+     */
+    static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /**
+     * Fewest rows in a spilled run, however small the budget
+     */
+    private static final int MIN_RUN_ROWS = 64;
+
+    /**
+     * Rows a buffer has room for before it first grows
+     */
+    private static final int INITIAL_ROWS = 1024;
+
+    /**
+     * Largest range of a merge sort sorted by insertion
+     */
+    private static final int INSERTION_SORT = 16;
+
+    /**
+     * Buffer size of each run file
+     */
+    private static final int SPILL_BUFFER = 1 << 13;
+
+    /**
+     * Order keys of the positions being sorted
+     */
+    private final Keys source;
+
+    /**
+     * Whether each key sorts from the largest value down
+     */
+    private final boolean[] descending;
+
+    /**
+     * Whether each key orders its values completely
+     */
+    private final boolean[] exact;
+
+    /**
+     * Number of keys
+     */
+    private final int width;
+
+    private RowSorter(Keys source, boolean[] descending) {
+        this.source = source;
+        this.descending = descending;
+        this.width = descending.length;
+        this.exact = new boolean[width];
+        for (int k = 0; k < width; k++) {
+            exact[k] = source.isExact(k);
+        }
+    }
+
+    /**
+     * Sorts the rows of a table by the ORDER BY attributes
+     * @param table table holding the rows
+     * @param rows rows to sort
+     * @param orderBy attributes to sort by
+     * @param top number of leading rows that will be read, Long.MAX_VALUE
+     * for every row
+     * @param memoryBudget bytes the sort may hold before spilling runs
+     * @return sorted rows, of which only the first top are kept
+     * @author Ethan Rama
+     */
+    static RowSelector.Rows sort(RamaTable table, RowSelector.Rows rows, List<SortKey> orderBy, long top,
+                                 long memoryBudget) {
+        ColumnVector[] vectors = new ColumnVector[orderBy.size()];
+        boolean[] descending = new boolean[orderBy.size()];
+        for (int k = 0; k < vectors.length; k++) {
+            vectors[k] = table.getVector(table.requireOrdinal(orderBy.get(k).getColumnName()));
+            descending[k] = orderBy.get(k).isDescending();
+        }
+        RowSorter sorter = new RowSorter(new TableKeys(vectors), descending);
+        long capacity = Math.max(MIN_RUN_ROWS, memoryBudget / sorter.rowBytes());
+        if (top < capacity) {
+            return RowSelector.Rows.of(sorter.top(rows, (int) top));
+        }
+        return sorter.sortRuns(rows, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Sorts positions held in memory, such as joined pairs or groups
+     * @param keys order keys of the positions
+     * @param descending whether each key sorts from the largest value down
+     * @param count number of positions, numbered from 0
+     * @param top number of leading positions that will be read,
+     * Long.MAX_VALUE for every position
+     * @return positions in sorted order, at most top of them
+     * @author Ethan Rama
+     */
+    static int[] sort(Keys keys, boolean[] descending, int count, long top) {
+        RowSorter sorter = new RowSorter(keys, descending);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        if (top < count) {
+            return sorter.top(RowSelector.Rows.of(positions), (int) top);
+        }
+        Buffer buffer = sorter.new Buffer(count, false);
+        for (int i = 0; i < count; i++) {
+            buffer.set(i, i, 0);
+        }
+        buffer.size = count;
+        return buffer.sortedPositions();
+    }
+
+    /**
+     * Estimated bytes a row takes in a sort buffer: its keys, its position,
+     * its place in the order and the merge scratch
+     * @return bytes per row
+     * @author Ethan Rama
+     */
+    private long rowBytes() {
+        return (long) width * Long.BYTES + 3 * Integer.BYTES;
+    }
+
+    /**
+     * Keeps the first rows in sorted order with a bounded heap
+     * @param rows rows to sort
+     * @param n number of rows to keep
+     * @return first n rows, or every row if fewer, in sorted order
+     * @author Ethan Rama
+     */
+    private int[] top(RowSelector.Rows rows, int n) {
+        if (n == 0) {
+            return new int[0];
+        }
+        // The slot after the heap holds each candidate row while it is compared to the root
+        Buffer heap = new Buffer(Math.min(n, INITIAL_ROWS) + 1, true);
+        int[] batch = new int[ColumnVector.CHUNK_SIZE];
+        long sequence = 0;
+        for (int count = rows.fetch(batch); count > 0; count = rows.fetch(batch)) {
+            for (int i = 0; i < count; i++) {
+                int candidate = heap.size;
+                heap.set(candidate, batch[i], sequence++);
+                if (heap.size < n) {
+                    heap.size++;
+                    heap.ensure(heap.size + 1);
+                    siftUp(heap, candidate);
+                } else if (heap.compare(candidate, 0) < 0) {
+                    heap.copy(candidate, 0);
+                    siftDown(heap, 0);
+                }
+            }
+        }
+        return heap.sortedPositions();
+    }
+
+    /**
+     * Moves a heap entry up past every better entry
+     * @param heap heap with the worst row at the root
+     * @param slot slot of the entry
+     * @author Ethan Rama
+     */
+    private static void siftUp(Buffer heap, int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (heap.compare(slot, parent) <= 0) {
+                return;
+            }
+            heap.swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    /**
+     * Moves a heap entry down past every worse entry
+     * @param heap heap with the worst row at the root
+     * @param slot slot of the entry
+     * @author Ethan Rama
+     */
+    private static void siftDown(Buffer heap, int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            if (left < heap.size && heap.compare(left, worst) > 0) {
+                worst = left;
+            }
+            if (left + 1 < heap.size && heap.compare(left + 1, worst) > 0) {
+                worst = left + 1;
+            }
+            if (worst == slot) {
+                return;
+            }
+            heap.swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    /**
+     * Sorts every row, spilling sorted runs once the rows outgrow one run
+     * @param rows rows to sort
+     * @param runRows most rows sorted in memory at once
+     * @return sorted rows, merged from spilled runs as they are fetched
+     * @author Ethan Rama
+     */
+    private RowSelector.Rows sortRuns(RowSelector.Rows rows, int runRows) {
+        Buffer buffer = new Buffer(Math.min(runRows, INITIAL_ROWS), false);
+        List<Path> files = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        try {
+            int[] batch = new int[ColumnVector.CHUNK_SIZE];
+            for (int count = rows.fetch(batch); count > 0; count = rows.fetch(batch)) {
+                for (int i = 0; i < count; i++) {
+                    if (buffer.size == runRows) {
+                        counts.add(buffer.size);
+                        files.add(spill(buffer));
+                        buffer.size = 0;
+                    }
+                    buffer.ensure(Math.min(runRows, buffer.size + 1));
+                    buffer.set(buffer.size++, batch[i], 0);
+                }
+            }
+            if (files.isEmpty()) {
+                return RowSelector.Rows.of(buffer.sortedPositions());
+            }
+            if (buffer.size > 0) {
+                counts.add(buffer.size);
+                files.add(spill(buffer));
+            }
+            return new MergeRows(files, counts);
+        } catch (IOException e) {
+            delete(files);
+            throw new UncheckedIOException("Could not spill sorted rows.", e);
+        } catch (RuntimeException e) {
+            delete(files);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the rows of a buffer in sorted order, each as its position
+     * followed by its keys
+     * @param buffer rows of one run
+     * @return run file
+     * @throws IOException if the file cannot be written
+     * @author Ethan Rama
+     */
+    private Path spill(Buffer buffer) throws IOException {
+        int[] order = buffer.sorted();
+        Path file = Files.createTempFile("rama-sort-", ".run");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), SPILL_BUFFER))) {
+            for (int slot : order) {
+                out.writeInt(buffer.positions[slot]);
+                for (int k = 0; k < width; k++) {
+                    out.writeLong(buffer.keys[k][slot]);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Deletes run files
+     * @param files run files
+     * @author Ethan Rama
+     */
+    private static void delete(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // A leftover temporary file does not change the result
+            }
+        }
+    }
+
+    /**
+     * Compares the keys of two positions
+     * @param keys key arrays of the first position
+     * @param slot slot of the first position in its arrays
+     * @param position first position
+     * @param otherKeys key arrays of the second position
+     * @param otherSlot slot of the second position in its arrays
+     * @param otherPosition second position
+     * @return negative, zero or positive as the first sorts before, with or
+     * after the second
+     * @author Ethan Rama
+     */
+    private int compare(long[][] keys, int slot, int position, long[][] otherKeys, int otherSlot, int otherPosition) {
+        for (int k = 0; k < width; k++) {
+            long key = keys[k][slot];
+            long otherKey = otherKeys[k][otherSlot];
+            int result = Long.compare(key, otherKey);
+            if (result == 0 && !exact[k] && key != Long.MIN_VALUE) {
+                result = source.compare(k, position, otherPosition);
+            }
+            if (result != 0) {
+                return descending[k] ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Order keys of the positions a sort reads
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    interface Keys {
+        /**
+         * Gets a key of a position
+         * @param k key number
+         * @param position position being sorted
+         * @return order key, Long.MIN_VALUE for NULL
+         * @author Ethan Rama
+         */
+        long key(int k, int position);
+
+        /**
+         * Compares the values of two positions whose keys are equal
+         * @param k key number
+         * @param position first position, not NULL
+         * @param other second position, not NULL
+         * @return negative, zero or positive as the first value is less
+         * than, equal to or greater than the second
+         * @author Ethan Rama
+         */
+        int compare(int k, int position, int other);
+
+        /**
+         * Checks if a key orders its values completely
+         * @param k key number
+         * @return true if compare need never be called for the key
+         * @author Ethan Rama
+         */
+        boolean isExact(int k);
+    }
+
+    /**
+     * Order keys of table rows, read from their vectors
+     */
+    private static final class TableKeys implements Keys {
+        private final ColumnVector[] vectors;
+
+        TableKeys(ColumnVector[] vectors) {
+            this.vectors = vectors;
+        }
+
+        @Override
+        public long key(int k, int row) {
+            ColumnVector vector = vectors[k];
+            return vector.isNull(row) ? Long.MIN_VALUE : vector.orderKey(row);
+        }
+
+        @Override
+        public int compare(int k, int row, int other) {
+            return vectors[k].compareRows(row, other);
+        }
+
+        @Override
+        public boolean isExact(int k) {
+            return vectors[k].isOrderKeyExact();
+        }
+    }
+
+    /**
+     * Positions and their keys in parallel arrays, with the order each was
+     * read in when the slots do not keep it
+     */
+    private final class Buffer {
+        private int[] positions;
+        private final long[][] keys;
+        private long[] sequences;
+        private int size;
+
+        Buffer(int capacity, boolean sequenced) {
+            this.positions = new int[capacity];
+            this.keys = new long[width][capacity];
+            this.sequences = sequenced ? new long[capacity] : null;
+        }
+
+        /**
+         * Grows the arrays to hold a number of slots
+         * @param capacity slots needed
+         * @author Ethan Rama
+         */
+        void ensure(int capacity) {
+            if (capacity <= positions.length) {
+                return;
+            }
+            int grown = (int) Math.min(Math.max(capacity, 2L * positions.length), Integer.MAX_VALUE - 8);
+            positions = Arrays.copyOf(positions, grown);
+            for (int k = 0; k < width; k++) {
+                keys[k] = Arrays.copyOf(keys[k], grown);
+            }
+            if (sequences != null) {
+                sequences = Arrays.copyOf(sequences, grown);
+            }
+        }
+
+        /**
+         * Reads the keys of a position into a slot
+         * @param slot slot to fill
+         * @param position position being sorted
+         * @param sequence order the position was read in
+         * @author Ethan Rama
+         */
+        void set(int slot, int position, long sequence) {
+            positions[slot] = position;
+            for (int k = 0; k < width; k++) {
+                keys[k][slot] = source.key(k, position);
+            }
+            if (sequences != null) {
+                sequences[slot] = sequence;
+            }
+        }
+
+        void copy(int from, int to) {
+            positions[to] = positions[from];
+            for (int k = 0; k < width; k++) {
+                keys[k][to] = keys[k][from];
+            }
+            if (sequences != null) {
+                sequences[to] = sequences[from];
+            }
+        }
+
+        void swap(int slot, int other) {
+            int position = positions[slot];
+            positions[slot] = positions[other];
+            positions[other] = position;
+            for (int k = 0; k < width; k++) {
+                long key = keys[k][slot];
+                keys[k][slot] = keys[k][other];
+                keys[k][other] = key;
+            }
+            if (sequences != null) {
+                long sequence = sequences[slot];
+                sequences[slot] = sequences[other];
+                sequences[other] = sequence;
+            }
+        }
+
+        /**
+         * Compares two slots by their keys, then by the order they were
+         * read in
+         * @param slot first slot
+         * @param other second slot
+         * @return negative, zero or positive as the first sorts before, with
+         * or after the second
+         * @author Ethan Rama
+         */
+        int compare(int slot, int other) {
+            int result = RowSorter.this.compare(keys, slot, positions[slot], keys, other, positions[other]);
+            if (result == 0 && sequences != null) {
+                return Long.compare(sequences[slot], sequences[other]);
+            }
+            return result;
+        }
+
+        /**
+         * Sorts the slots with a stable merge sort
+         * @return slots in sorted order
+         * @author Ethan Rama
+         */
+        int[] sorted() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            mergeSort(order, new int[size], 0, size);
+            return order;
+        }
+
+        /**
+         * Sorts the slots
+         * @return positions in sorted order
+         * @author Ethan Rama
+         */
+        int[] sortedPositions() {
+            int[] order = sorted();
+            for (int i = 0; i < order.length; i++) {
+                order[i] = positions[order[i]];
+            }
+            return order;
+        }
+
+        private void mergeSort(int[] order, int[] scratch, int from, int to) {
+            if (to - from <= INSERTION_SORT) {
+                for (int i = from + 1; i < to; i++) {
+                    int slot = order[i];
+                    int j = i;
+                    for (; j > from && compare(order[j - 1], slot) > 0; j--) {
+                        order[j] = order[j - 1];
+                    }
+                    order[j] = slot;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            mergeSort(order, scratch, from, middle);
+            mergeSort(order, scratch, middle, to);
+            if (compare(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, scratch, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                // Equal slots take the left one first, which keeps the sort stable
+                if (right == to || (left < middle && compare(scratch[right], scratch[left]) >= 0)) {
+                    order[i] = scratch[left++];
+                } else {
+                    order[i] = scratch[right++];
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows merged from sorted run files as they are fetched. A heap holds
+     * the run whose next row sorts first at the root; equal rows come from
+     * the earlier run, so the merge keeps the order rows were read in.
+     * The files are deleted once every row is fetched or the rows are
+     * closed.
+     */
+    private final class MergeRows extends RowSelector.Rows {
+        private final List<Path> files;
+        private final DataInputStream[] inputs;
+
+        /**
+         * Rows not yet read from each run
+         */
+        private final int[] remaining;
+
+        /**
+         * Next row of each run
+         */
+        private final int[] heads;
+
+        /**
+         * Keys of the next row of each run, by key then run
+         */
+        private final long[][] headKeys;
+
+        /**
+         * Runs with rows left, as a heap
+         */
+        private final int[] heap;
+        private int heapSize;
+
+        MergeRows(List<Path> files, List<Integer> counts) throws IOException {
+            this.files = files;
+            int runs = files.size();
+            this.inputs = new DataInputStream[runs];
+            this.remaining = new int[runs];
+            this.heads = new int[runs];
+            this.headKeys = new long[width][runs];
+            this.heap = new int[runs];
+            try {
+                for (int run = 0; run < runs; run++) {
+                    inputs[run] = new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(files.get(run)), SPILL_BUFFER));
+                    remaining[run] = counts.get(run);
+                    advance(run);
+                    heap[heapSize++] = run;
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            for (int slot = heapSize / 2 - 1; slot >= 0; slot--) {
+                siftDown(slot);
+            }
+        }
+
+        @Override
+        int read(int[] into, int max) {
+            int count = 0;
+            try {
+                while (count < max && heapSize > 0) {
+                    int run = heap[0];
+                    into[count++] = heads[run];
+                    if (remaining[run] > 0) {
+                        advance(run);
+                    } else {
+                        heap[0] = heap[--heapSize];
+                    }
+                    siftDown(0);
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Could not read sorted rows.", e);
+            }
+            if (heapSize == 0) {
+                close();
+            }
+            return count;
+        }
+
+        @Override
+        void close() {
+            heapSize = 0;
+            for (DataInputStream input : inputs) {
+                try {
+                    if (input != null) {
+                        input.close();
+                    }
+                } catch (IOException e) {
+                    // The file is deleted either way
+                }
+            }
+            delete(files);
+        }
+
+        /**
+         * Reads the next row of a run
+         * @param run run with rows left
+         * @throws IOException if the run cannot be read
+         * @author Ethan Rama
+         */
+        private void advance(int run) throws IOException {
+            DataInputStream input = inputs[run];
+            heads[run] = input.readInt();
+            for (int k = 0; k < width; k++) {
+                headKeys[k][run] = input.readLong();
+            }
+            remaining[run]--;
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int first = slot;
+                int left = 2 * slot + 1;
+                if (left < heapSize && before(heap[left], heap[first])) {
+                    first = left;
+                }
+                if (left + 1 < heapSize && before(heap[left + 1], heap[first])) {
+                    first = left + 1;
+                }
+                if (first == slot) {
+                    return;
+                }
+                int run = heap[slot];
+                heap[slot] = heap[first];
+                heap[first] = run;
+                slot = first;
+            }
+        }
+
+        private boolean before(int run, int other) {
+            int result = compare(headKeys, run, heads[run], headKeys, other, heads[other]);
+            return result < 0 || (result == 0 && run < other);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Snapshot.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Tables are attached with the storage of their database
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes checkpoints of a database. A snapshot file holds the
+ * chunks of every column vector as raw blocks, followed by a footer with
+ * the table definitions and the offset of each block. Opening a snapshot
+ * maps the file and reads only the footer; the blocks are paged in by the
+ * vectors and indexes as queries touch them.
+ * <br><br>
+ * The file is mapped in segments of 1 GB. Fixed size blocks never cross
+ * the end of a segment, so each can be read from one mapped buffer.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class Snapshot {
+    /**
+     * First bytes of every snapshot file, "RQLS"
+     */
+    private static final int MAGIC = 0x52514C53;
+
+    /**
+     * Version of the snapshot format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * log2 of the size of a mapped segment
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Size of a mapped segment
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * Length of the footer offset, footer length and footer checksum at the
+     * end of the file
+     */
+    private static final int TRAILER_SIZE = 16;
+
+    /**
+     * Writes a snapshot of every table, replacing the file only once the
+     * snapshot is complete and on disk
+     * @param path snapshot file
+     * @param generation generation of the log that follows the snapshot
+     * @param tables tables to write
+     * @author Ethan Rama
+     */
+    static void write(Path path, long generation, Collection<RamaTable> tables) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer out = new Writer(channel);
+            out.reserve(16);
+            out.buffer().putInt(MAGIC).putInt(VERSION).putLong(generation);
+
+            RecordBuffer footer = new RecordBuffer(1 << 12);
+            footer.putInt(tables.size());
+            for (RamaTable table : tables) {
+                table.writeSnapshot(out, footer);
+            }
+            out.flush();
+
+            long footerOffset = out.position();
+            ByteBuffer bytes = footer.buffer().flip();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.duplicate());
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE)
+                    .putLong(footerOffset).putInt(bytes.remaining()).putInt((int) crc.getValue()).flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + path, e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Attaches the tables of a snapshot to a database without reading
+     * their data
+     * @param path snapshot file
+     * @param rdb database the tables are added to
+     * @return generation of the log that follows the snapshot, 0 if there is
+     * no snapshot
+     * @author Ethan Rama
+     */
+    static long attach(Path path, RamaDatabase rdb) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 + TRAILER_SIZE) {
+                throw new IllegalArgumentException("Not an RQL snapshot file.");
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            channel.read(trailer, size - TRAILER_SIZE);
+            trailer.flip();
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            int checksum = trailer.getInt();
+            if (footerOffset < 16 || footerOffset + footerLength != size - TRAILER_SIZE) {
+                throw new IllegalArgumentException("Not an RQL snapshot file.");
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(footerLength);
+            while (footer.hasRemaining() && channel.read(footer, footerOffset + footer.position()) >= 0) {
+                // Read until the footer is full
+            }
+            footer.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(footer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalArgumentException("Snapshot footer is corrupt.");
+            }
+
+            Image image = new Image(channel, footerOffset);
+            ByteBuffer header = image.at(0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalArgumentException("Unsupported RQL snapshot file.");
+            }
+            long generation = header.getLong();
+            for (int i = footer.getInt(); i > 0; i--) {
+                RamaTable table = RamaTable.attach(image, footer, rdb.getStorage() == Storage.OFF_HEAP, rdb.commits);
+                rdb.tables.put(table.getName(), table);
+            }
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Writes the blocks of a snapshot through a staging buffer
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    static final class Writer {
+        /**
+         * Channel of the file being written
+         */
+        private final FileChannel channel;
+
+        /**
+         * Bytes not yet written to the channel
+         */
+        private ByteBuffer staging = ByteBuffer.allocateDirect(1 << 20);
+
+        /**
+         * File offset of the first staged byte
+         */
+        private long flushed;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Get the file offset of the next byte written
+         * @return file offset
+         * @author Ethan Rama
+         */
+        long position() {
+            return flushed + staging.position();
+        }
+
+        /**
+         * Makes room for a block that must lie within one mapped segment,
+         * padding to the next segment if it would not
+         * @param bytes length of the block
+         * @return file offset of the block, which is written to buffer()
+         * @author Ethan Rama
+         */
+        long reserve(int bytes) {
+            long offset = position();
+            if ((offset >>> SEGMENT_SHIFT) != ((offset + bytes - 1) >>> SEGMENT_SHIFT)) {
+                pad((int) (SEGMENT_SIZE - (offset & (SEGMENT_SIZE - 1))));
+                offset = position();
+            }
+            ensureRoom(bytes);
+            return offset;
+        }
+
+        /**
+         * Writes bytes that may run across the end of a mapped segment
+         * @param bytes bytes to write
+         * @author Ethan Rama
+         */
+        void append(ByteBuffer bytes) {
+            while (bytes.hasRemaining()) {
+                if (!staging.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(bytes.remaining(), staging.remaining());
+                staging.put(staging.position(), bytes, bytes.position(), length);
+                staging.position(staging.position() + length);
+                bytes.position(bytes.position() + length);
+            }
+        }
+
+        /**
+         * Get the staging buffer the block just reserved is written to
+         * @return staging buffer
+         * @author Ethan Rama
+         */
+        ByteBuffer buffer() {
+            return staging;
+        }
+
+        /**
+         * Writes every staged byte to the channel
+         * @author Ethan Rama
+         */
+        void flush() {
+            staging.flip();
+            try {
+                while (staging.hasRemaining()) {
+                    flushed += channel.write(staging);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot", e);
+            }
+            staging.clear();
+        }
+
+        private void pad(int bytes) {
+            while (bytes > 0) {
+                ensureRoom(1);
+                int length = Math.min(bytes, staging.remaining());
+                for (int i = 0; i < length; i++) {
+                    staging.put((byte) 0);
+                }
+                bytes -= length;
+            }
+        }
+
+        private void ensureRoom(int bytes) {
+            if (staging.remaining() < bytes) {
+                flush();
+                if (staging.capacity() < bytes) {
+                    staging = ByteBuffer.allocateDirect(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * A snapshot file mapped into memory, read by offset
+     * @version 1.0
+     * @author Ethan Rama
+     */
+    static final class Image {
+        /**
+         * Mapped segments of the file, in order
+         */
+        private final ByteBuffer[] segments;
+
+        Image(FileChannel channel, long size) throws IOException {
+            segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+
+        /**
+         * Gets a buffer over a block that lies within one segment
+         * @param offset file offset of the block
+         * @return buffer positioned at the block
+         * @author Ethan Rama
+         */
+        ByteBuffer at(long offset) {
+            ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+            return segment.position((int) (offset & (SEGMENT_SIZE - 1)));
+        }
+
+        /**
+         * Reads an int that may run across the end of a segment
+         * @param offset file offset
+         * @return value
+         * @author Ethan Rama
+         */
+        int getInt(long offset) {
+            byte[] bytes = new byte[4];
+            get(offset, bytes);
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+
+        /**
+         * Reads bytes that may run across the end of a segment
+         * @param offset file offset of the first byte
+         * @param bytes array to fill
+         * @author Ethan Rama
+         */
+        void get(long offset, byte[] bytes) {
+            int copied = 0;
+            while (copied < bytes.length) {
+                ByteBuffer segment = at(offset + copied);
+                int length = Math.min(bytes.length - copied, segment.remaining());
+                segment.get(bytes, copied, length);
+                copied += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * StatementBinder.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Keeps the JOIN, GROUP BY and aggregates of SELECT
+ * - Binds LIMIT and OFFSET parameters
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the ? parameters of a parsed statement with values. The statement
+ * itself is left untouched, so one parsed template can be bound again and
+ * again, from any number of threads, with different values.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class StatementBinder {
+    /**
+     * Binds values to the parameters of a statement
+     * @param statement parsed statement, possibly with parameters
+     * @param values value of each parameter by position
+     * @return statement with every parameter replaced by its value
+     * @author Ethan Rama
+     */
+    static RQLStatement bind(RQLStatement statement, Value[] values) {
+        if (statement instanceof SelectStatement) {
+            SelectStatement select = (SelectStatement) statement;
+            return new SelectStatement(select.getTableName(), select.getJoin(), select.getColumns(),
+                    select.getAggregates(), bind(select.getWhere(), values), select.getGroupBy(), select.getOrderBy(),
+                    select.getLimit() == null ? null : bind(select.getLimit(), values),
+                    select.getOffset() == null ? null : bind(select.getOffset(), values));
+        } else if (statement instanceof InsertIntoStatement) {
+            InsertIntoStatement insert = (InsertIntoStatement) statement;
+            List<Row> rows = new ArrayList<>(insert.getValueList().size());
+            for (Row row : insert.getValueList()) {
+                rows.add(new Row(bind(row.getValueList(), values)));
+            }
+            return new InsertIntoStatement(insert.getTableName(), insert.getColumnList(), rows);
+        } else if (statement instanceof UpdateStatement) {
+            UpdateStatement update = (UpdateStatement) statement;
+            return new UpdateStatement(update.getTableName(), update.getColumns(),
+                    bind(update.getValues(), values), bind(update.getWhere(), values));
+        } else if (statement instanceof DeleteStatement) {
+            DeleteStatement delete = (DeleteStatement) statement;
+            return new DeleteStatement(delete.getTableName(), bind(delete.getWhere(), values));
+        }
+        // Only DML statements take parameters
+        return statement;
+    }
+
+    /**
+     * Binds values to the parameters of a condition
+     * @param expression condition or operand, null for none
+     * @param values value of each parameter by position
+     * @return expression with every parameter replaced by its value
+     * @author Ethan Rama
+     */
+    private static Expression bind(Expression expression, Value[] values) {
+        if (expression instanceof Value) {
+            return bind((Value) expression, values);
+        } else if (expression instanceof Comparison) {
+            Comparison comparison = (Comparison) expression;
+            return new Comparison(comparison.getOperator(),
+                    bind(comparison.getLeft(), values), bind(comparison.getRight(), values));
+        } else if (expression instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) expression;
+            return new LogicalExpression(logical.getOperator(),
+                    bind(logical.getLeft(), values), bind(logical.getRight(), values));
+        }
+        return expression;
+    }
+
+    private static List<Value> bind(List<Value> list, Value[] values) {
+        List<Value> bound = new ArrayList<>(list.size());
+        for (Value value : list) {
+            bound.add(bind(value, values));
+        }
+        return bound;
+    }
+
+    private static Value bind(Value value, Value[] values) {
+        if (!value.isParameter()) {
+            return value;
+        }
+        int index = value.getParameterIndex();
+        if (index >= values.length || values[index] == null) {
+            throw new IllegalArgumentException("Missing value for parameter " + (index + 1) + ".");
+        }
+        return values[index];
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Storage.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+/**
+ * Decides where the tables of a database keep their values. Keeping them
+ * off the heap takes large tables out of the garbage collector's reach, at
+ * the cost of a copy when a scan reads a chunk.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+public enum Storage {
+    /**
+     * Values are kept in primitive arrays and strings in hash maps on the
+     * Java heap
+     */
+    HEAP,
+
+    /**
+     * Values and the bytes of distinct strings are kept in direct buffers,
+     * so the heap holds a few small objects per 4096 rows of a column.
+     * Null bitmaps, deleted rows and indexes stay on the heap.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,340 @@
+/*
+ * StringDictionary.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Strings can be added by several inserting threads at once
+ * - Strings can be read by queries while a writer adds new ones
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the distinct strings of a CHAR or VARCHAR column. Codes are given
+ * out from 0 in the order strings are first added and never change.
+ * <br><br>
+ * Strings already in the dictionary are found without locking, while new
+ * strings are added one at a time under the dictionary's lock. A reader
+ * that holds a code always finds its string.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+abstract class StringDictionary {
+    /**
+     * Creates an empty dictionary
+     * @param offHeap whether the strings are kept outside the Java heap
+     * @return new dictionary
+     * @author Ethan Rama
+     */
+    static StringDictionary create(boolean offHeap) {
+        return offHeap ? new OffHeapDictionary() : new HeapDictionary();
+    }
+
+    /**
+     * Get the number of distinct strings
+     * @return number of codes given out
+     * @author Ethan Rama
+     */
+    abstract int size();
+
+    /**
+     * Gets the string of a code
+     * @param code dictionary code
+     * @return distinct string
+     * @author Ethan Rama
+     */
+    abstract String get(int code);
+
+    /**
+     * Lets go of the strings once the dictionary's table is dropped and no
+     * query reads it any more
+     * @author Ethan Rama
+     */
+    void free() {
+    }
+
+    /**
+     * Gets the code of a string
+     * @param value string value
+     * @return dictionary code, or -1 if the string has not been added
+     * @author Ethan Rama
+     */
+    abstract int lookup(String value);
+
+    /**
+     * Gets the code of a string, adding the string if it is new
+     * @param value string value
+     * @return dictionary code
+     * @author Ethan Rama
+     */
+    abstract int add(String value);
+}
+
+/**
+ * Keeps the distinct strings of a column in an array and a hash map
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class HeapDictionary extends StringDictionary {
+    /**
+     * Distinct strings, indexed by code. A full array is replaced by a
+     * copy, so readers holding the old one still find every earlier code.
+     */
+    private volatile String[] strings = new String[16];
+
+    /**
+     * Code of each distinct string
+     */
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * Number of distinct strings
+     */
+    private int size;
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    String get(int code) {
+        return strings[code];
+    }
+
+    @Override
+    int lookup(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    @Override
+    int add(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : addNew(value);
+    }
+
+    private synchronized int addNew(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = size;
+            if (code == strings.length) {
+                strings = Arrays.copyOf(strings, code * 2);
+            }
+            // The string is stored before its code can be found
+            strings[code] = value;
+            codes.put(value, code);
+            size++;
+        }
+        return code;
+    }
+}
+
+/**
+ * Keeps the distinct strings of a column in direct buffers, so a column
+ * with millions of distinct strings adds only a handful of objects to the
+ * heap. The UTF-8 bytes of each string are appended to slabs, the slab
+ * position of each code is kept in blocks of longs, and strings are found
+ * by an open addressing table of hash and code pairs.
+ * <br><br>
+ * Grown directories and tables are filled before they are published, and
+ * a string's bytes and position are written before its code goes into the
+ * table, so a reader never follows a code to a missing string.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class OffHeapDictionary extends StringDictionary {
+    /**
+     * Size of a slab of string bytes
+     */
+    private static final int SLAB_SIZE = 1 << 20;
+
+    /**
+     * log2 of the number of positions in a block
+     */
+    private static final int BLOCK_SHIFT = 13;
+
+    /**
+     * Mask giving the index of a code within its block
+     */
+    private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+    /**
+     * Slabs holding the length and UTF-8 bytes of each string
+     */
+    private ByteBuffer[] slabs = new ByteBuffer[0];
+
+    /**
+     * Slab number and offset of each code's string, packed into a long
+     */
+    private ByteBuffer[] positions = new ByteBuffer[0];
+
+    /**
+     * Hash and code plus one of each string, with a code of 0 for a free
+     * slot
+     */
+    private ByteBuffer table = allocate(8 << 4);
+
+    /**
+     * Number of distinct strings
+     */
+    private int size;
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    synchronized void free() {
+        DirectMemory.release(slabs);
+        DirectMemory.release(positions);
+        DirectMemory.release(table);
+        table = null;
+    }
+
+    @Override
+    String get(int code) {
+        long position = positions[code >>> BLOCK_SHIFT].getLong((code & BLOCK_MASK) << 3);
+        ByteBuffer slab = slabs[(int) (position >>> 32)];
+        int offset = (int) position;
+        byte[] bytes = new byte[slab.getInt(offset)];
+        slab.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    int lookup(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer table = this.table;
+        int slot = find(table, bytes, hash(bytes));
+        return table.getInt((slot << 3) + 4) - 1;
+    }
+
+    @Override
+    int add(String value) {
+        int code = lookup(value);
+        return code >= 0 ? code : addNew(value);
+    }
+
+    private synchronized int addNew(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int slot = find(table, bytes, hash);
+        int code = table.getInt((slot << 3) + 4) - 1;
+        if (code >= 0) {
+            return code;
+        }
+        code = size;
+        if ((code >>> BLOCK_SHIFT) >= positions.length) {
+            ByteBuffer[] grown = Arrays.copyOf(positions, positions.length + 1);
+            grown[grown.length - 1] = allocate(8 << BLOCK_SHIFT);
+            VarHandle.releaseFence();
+            positions = grown;
+        }
+        positions[code >>> BLOCK_SHIFT].putLong((code & BLOCK_MASK) << 3, append(bytes));
+        table.putInt(slot << 3, hash);
+        VarHandle.releaseFence();
+        table.putInt((slot << 3) + 4, code + 1);
+        // Kept at most half full so probe sequences stay short
+        if (++size > slots(table) >>> 1) {
+            grow();
+        }
+        return code;
+    }
+
+    /**
+     * Finds the slot holding a string, or the free slot it would go in
+     * @param table hash table to search
+     * @param bytes UTF-8 bytes of the string
+     * @param hash hash of the bytes
+     * @return slot number
+     * @author Ethan Rama
+     */
+    private int find(ByteBuffer table, byte[] bytes, int hash) {
+        int mask = slots(table) - 1;
+        for (int slot = hash >>> Integer.numberOfLeadingZeros(mask); ; slot = (slot + 1) & mask) {
+            int code = table.getInt((slot << 3) + 4) - 1;
+            if (code < 0 || (table.getInt(slot << 3) == hash && matches(code, bytes))) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean matches(int code, byte[] bytes) {
+        long position = positions[code >>> BLOCK_SHIFT].getLong((code & BLOCK_MASK) << 3);
+        ByteBuffer slab = slabs[(int) (position >>> 32)];
+        int offset = (int) position;
+        return slab.getInt(offset) == bytes.length
+                && slab.slice(offset + 4, bytes.length).equals(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Appends the length and bytes of a string to the last slab, starting
+     * a new slab if they do not fit
+     * @param bytes UTF-8 bytes of the string
+     * @return slab number and offset, packed into a long
+     * @author Ethan Rama
+     */
+    private long append(byte[] bytes) {
+        ByteBuffer slab = slabs.length == 0 ? null : slabs[slabs.length - 1];
+        if (slab == null || slab.remaining() < 4 + bytes.length) {
+            slab = allocate(Math.max(SLAB_SIZE, 4 + bytes.length));
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[grown.length - 1] = slab;
+            VarHandle.releaseFence();
+            slabs = grown;
+        }
+        long position = ((long) (slabs.length - 1) << 32) | slab.position();
+        slab.putInt(bytes.length).put(bytes);
+        return position;
+    }
+
+    private void grow() {
+        ByteBuffer old = table;
+        ByteBuffer grown = allocate(old.capacity() * 2);
+        int mask = slots(grown) - 1;
+        for (int i = 0; i < slots(old); i++) {
+            int code = old.getInt((i << 3) + 4);
+            if (code != 0) {
+                int hash = old.getInt(i << 3);
+                int slot = hash >>> Integer.numberOfLeadingZeros(mask);
+                while (grown.getInt((slot << 3) + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.putInt(slot << 3, hash);
+                grown.putInt((slot << 3) + 4, code);
+            }
+        }
+        // The slot count comes from the table itself, so a lookup never pairs a table with the wrong size
+        VarHandle.releaseFence();
+        table = grown;
+    }
+
+    private static int slots(ByteBuffer table) {
+        return table.capacity() >>> 3;
+    }
+
+    private static int hash(byte[] bytes) {
+        // Spread the bits so the top bits that pick a slot vary with every byte
+        return Arrays.hashCode(bytes) * 0x9E3779B9;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
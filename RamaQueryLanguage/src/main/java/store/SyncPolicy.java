@@ -0,0 +1,93 @@
+/*
+ * SyncPolicy.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+/**
+ * Decides when the write-ahead log of a database is forced to disk. Forcing
+ * on every commit loses nothing in a crash; forcing on a timer or leaving
+ * it to the operating system trades the last moments of work before a
+ * crash for fewer waits on the disk.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+public final class SyncPolicy {
+    /**
+     * Each commit waits until its changes are forced to disk. Commits
+     * waiting at the same time share one force.
+     */
+    public static final SyncPolicy EVERY_COMMIT = new SyncPolicy(true, 0);
+
+    /**
+     * Each commit writes its changes to the file and the operating system
+     * decides when they reach the disk. Changes survive the process
+     * crashing but not the machine.
+     */
+    public static final SyncPolicy OS_MANAGED = new SyncPolicy(false, 0);
+
+    /**
+     * Whether each commit forces the log
+     */
+    private final boolean forceOnCommit;
+
+    /**
+     * Milliseconds between timed forces, 0 for none
+     */
+    private final long intervalMillis;
+
+    private SyncPolicy(boolean forceOnCommit, long intervalMillis) {
+        this.forceOnCommit = forceOnCommit;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Gets a policy that forces the log on a timer. Commits return without
+     * waiting, so at most the last interval of changes is lost in a crash.
+     * @param millis milliseconds between forces
+     * @return timed policy
+     * @author Ethan Rama
+     */
+    public static SyncPolicy everyMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Sync interval must be positive: " + millis);
+        }
+        return new SyncPolicy(false, millis);
+    }
+
+    /**
+     * Checks if each commit waits for the log to be forced
+     * @return true for EVERY_COMMIT
+     * @author Ethan Rama
+     */
+    boolean isForcedOnCommit() {
+        return forceOnCommit;
+    }
+
+    /**
+     * Get the time between timed forces
+     * @return milliseconds between forces, 0 if the policy is not timed
+     * @author Ethan Rama
+     */
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Returns a string representation
+     * @return name of the policy
+     * @author Ethan Rama
+     */
+    @Override
+    public String toString() {
+        return forceOnCommit ? "EVERY_COMMIT" : intervalMillis > 0 ? "EVERY_" + intervalMillis + "_MS" : "OS_MANAGED";
+    }
+}
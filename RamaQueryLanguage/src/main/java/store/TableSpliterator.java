@@ -0,0 +1,223 @@
+/*
+ * TableSpliterator.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits the rows of a table that a version sees, in row order, so a scan
+ * can run on several threads. Splits fall on chunk boundaries, so every
+ * part keeps whole chunks for selection vectors to filter.
+ * <br><br>
+ * The number of visible rows in each chunk is counted once, when the
+ * spliterator over the whole table is made, so every part knows exactly
+ * how many rows it holds and the spliterator is SIZED and SUBSIZED. A
+ * chunk with no deleted rows is counted without reading it.
+ * <br><br>
+ * Splitting adapts to the size of the table: a part is never split below
+ * MIN_CHUNKS chunks, so a small table is scanned on one thread. Each
+ * spliterator also carries a budget of parts it may be split into, which
+ * caps the threads one query can occupy however the pool splits it.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class TableSpliterator implements Spliterator.OfInt {
+    /**
+     * Fewest chunks in a part, below which splitting costs more than the
+     * threads save
+     */
+    static final int MIN_CHUNKS = 2;
+
+    private final RamaTable table;
+
+    /**
+     * getRowLimit of the version being read
+     */
+    private final int limit;
+    private final long version;
+
+    /**
+     * Number of visible rows in the chunks before each chunk, with one
+     * more entry for the total, shared by every part
+     */
+    private final long[] before;
+
+    /**
+     * Next chunk to read
+     */
+    private int chunk;
+
+    /**
+     * Chunk after the last chunk of this part
+     */
+    private final int fence;
+
+    /**
+     * Number of parts this part may still be split into
+     */
+    private int budget;
+
+    /**
+     * Positions of the visible rows of the chunk being read, allocated on
+     * first read
+     */
+    private int[] selection;
+
+    /**
+     * Number of positions in selection
+     */
+    private int selected;
+
+    /**
+     * Next position of selection to return
+     */
+    private int position;
+
+    /**
+     * Row number of the first row of the chunk being read
+     */
+    private int base;
+
+    /**
+     * Constructs a spliterator over every row a version sees
+     * @param table table to read
+     * @param version version being read
+     * @param budget largest number of parts to split into
+     * @author Ethan Rama
+     */
+    TableSpliterator(RamaTable table, long version, int budget) {
+        this.table = table;
+        this.version = version;
+        this.limit = table.getRowLimit(version);
+        int chunks = (limit + ColumnVector.CHUNK_MASK) >>> ColumnVector.CHUNK_SHIFT;
+        this.before = new long[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            before[i + 1] = before[i] + table.countLive(i, limit, version);
+        }
+        this.fence = chunks;
+        this.budget = budget;
+    }
+
+    private TableSpliterator(TableSpliterator parent, int chunk, int fence, int budget) {
+        this.table = parent.table;
+        this.version = parent.version;
+        this.limit = parent.limit;
+        this.before = parent.before;
+        this.chunk = chunk;
+        this.fence = fence;
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (position == selected && !load()) {
+            return false;
+        }
+        action.accept(base | selection[position++]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        do {
+            while (position < selected) {
+                action.accept(base | selection[position++]);
+            }
+        } while (load());
+    }
+
+    /**
+     * Reads the visible rows of the next chunk that has any
+     * @return false once every chunk of the part has been read
+     * @author Ethan Rama
+     */
+    private boolean load() {
+        if (selection == null) {
+            selection = new int[ColumnVector.CHUNK_SIZE];
+        }
+        while (chunk < fence) {
+            base = chunk << ColumnVector.CHUNK_SHIFT;
+            selected = table.selectLive(chunk++, selection, limit, version);
+            position = 0;
+            if (selected > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits off the first half of the chunks not yet read. A part that
+     * is partway through a chunk, has too few chunks left or has used up
+     * its budget is not split.
+     * @return spliterator over the first half, or null if not split
+     * @author Ethan Rama
+     */
+    @Override
+    public TableSpliterator trySplit() {
+        int chunks = fence - chunk;
+        if (position < selected || budget < 2 || chunks < 2 * MIN_CHUNKS) {
+            return null;
+        }
+        int middle = chunk + chunks / 2;
+        TableSpliterator prefix = new TableSpliterator(this, chunk, middle, budget / 2);
+        budget -= budget / 2;
+        chunk = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return before[fence] - before[chunk] + (selected - position);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        // Row numbers come in their natural order
+        return null;
+    }
+
+    /**
+     * Get the first chunk not yet read
+     * @return chunk number
+     * @author Ethan Rama
+     */
+    int getChunk() {
+        return chunk;
+    }
+
+    /**
+     * Get the chunk after the last chunk of this part
+     * @return chunk number
+     * @author Ethan Rama
+     */
+    int getFence() {
+        return fence;
+    }
+
+    /**
+     * Get the number of rows the version sees, including deleted rows
+     * @return getRowLimit of the version
+     * @author Ethan Rama
+     */
+    int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,509 @@
+/*
+ * TableStatistics.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes the values of each attribute of a table, for the planner to
+ * estimate how many rows a condition selects. Each attribute keeps its
+ * number of NULL and non-null values, the rows holding its least and
+ * greatest values, and a HyperLogLog sketch of its distinct values. These
+ * are kept up to date as rows are published: every row added, including
+ * the new version of an updated row, is counted, while deletes are not
+ * taken back out, so after many changes the counts describe every row the
+ * table has held rather than the rows it holds. ANALYZE counts the live
+ * rows again from scratch and adds an equi-depth histogram of each
+ * attribute, built from a sample of at most SAMPLE_ROWS rows.
+ * <br><br>
+ * Rows attached from a snapshot were never counted, so a table attached
+ * with rows only knows its row count until it is analyzed, and the
+ * planner falls back to its indexes. Statistics are read by queries while
+ * a writer counts rows, so an estimate may miss the rows being published.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+public class TableStatistics {
+    /**
+     * Buckets of each histogram, each holding about the same number of
+     * sampled values
+     */
+    static final int BUCKETS = 32;
+
+    /**
+     * Most rows ANALYZE samples for the histograms
+     */
+    static final int SAMPLE_ROWS = 1 << 15;
+
+    /**
+     * Fraction of values assumed to meet a range or a condition that
+     * cannot be estimated
+     */
+    static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+    /**
+     * Fraction of values assumed to equal a literal when nothing is known
+     * of the attribute
+     */
+    static final double DEFAULT_EQUALITY = 0.05;
+
+    /**
+     * log2 of the number of registers of each distinct sketch, giving an
+     * error of about 3%
+     */
+    private static final int REGISTER_BITS = 10;
+
+    private static final int REGISTERS = 1 << REGISTER_BITS;
+
+    private final RamaTable table;
+
+    /**
+     * Whether every row of the table has been counted
+     */
+    private final boolean complete;
+
+    /**
+     * Whether the statistics were counted by ANALYZE, with histograms
+     */
+    private final boolean analyzed;
+
+    /**
+     * Number of NULL and non-null values of each attribute
+     */
+    private final long[] nulls;
+    private final long[] values;
+
+    /**
+     * Rows holding the least and greatest value of each attribute, -1
+     * while the attribute has no value
+     */
+    private final int[] minRows;
+    private final int[] maxRows;
+
+    /**
+     * HyperLogLog registers of each attribute: the most leading zeros plus
+     * one seen in the hashes of values falling in each register
+     */
+    private final byte[][] registers;
+
+    /**
+     * Order keys bounding the histogram buckets of each attribute, null
+     * until analyzed
+     */
+    private final long[][] bounds;
+
+    /**
+     * Constructs empty statistics for a table
+     * @param table table described
+     * @param complete whether every row the table holds will be counted,
+     * false when rows were attached without counting them
+     * @author Ethan Rama
+     */
+    TableStatistics(RamaTable table, boolean complete) {
+        this(table, complete, false);
+    }
+
+    private TableStatistics(RamaTable table, boolean complete, boolean analyzed) {
+        int count = table.getColumns().size();
+        this.table = table;
+        this.complete = complete;
+        this.analyzed = analyzed;
+        this.nulls = new long[count];
+        this.values = new long[count];
+        this.minRows = new int[count];
+        this.maxRows = new int[count];
+        this.registers = new byte[count][REGISTERS];
+        this.bounds = new long[count][];
+        Arrays.fill(minRows, -1);
+        Arrays.fill(maxRows, -1);
+    }
+
+    /**
+     * Counts the values of the table's live rows from scratch, building a
+     * histogram of each attribute from a sample of them. The caller holds
+     * the table's change lock, so no row is published meanwhile.
+     * @param table table to analyze
+     * @return statistics of the table's live rows
+     * @author Ethan Rama
+     */
+    static TableStatistics analyze(RamaTable table) {
+        TableStatistics statistics = new TableStatistics(table, true, true);
+        int[] rows = RowSelector.select(table, null, List.of(), RamaTable.LATEST);
+        for (int row : rows) {
+            statistics.add(row);
+        }
+        int step = Math.max(1, (rows.length + SAMPLE_ROWS - 1) / SAMPLE_ROWS);
+        long[] sample = new long[(rows.length + step - 1) / step];
+        for (int i = 0; i < statistics.bounds.length; i++) {
+            ColumnVector vector = table.getVector(i);
+            int size = 0;
+            for (int j = 0; j < rows.length; j += step) {
+                if (!vector.isNull(rows[j])) {
+                    sample[size++] = vector.orderKey(rows[j]);
+                }
+            }
+            if (size > 0) {
+                Arrays.sort(sample, 0, size);
+                long[] bucketBounds = new long[BUCKETS + 1];
+                for (int b = 0; b <= BUCKETS; b++) {
+                    bucketBounds[b] = sample[(int) ((long) b * (size - 1) / BUCKETS)];
+                }
+                statistics.bounds[i] = bucketBounds;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Counts the values of rows just published. Rows are published one
+     * writer at a time, so only one thread counts at once.
+     * @param first row number of the first row
+     * @param end row number after the last row
+     * @author Ethan Rama
+     */
+    void add(int first, int end) {
+        for (int row = first; row < end; row++) {
+            add(row);
+        }
+    }
+
+    private void add(int row) {
+        for (int i = 0; i < nulls.length; i++) {
+            ColumnVector vector = table.getVector(i);
+            if (vector.isNull(row)) {
+                nulls[i]++;
+                continue;
+            }
+            values[i]++;
+            long hash = hash(vector.key(row));
+            int register = (int) (hash >>> (64 - REGISTER_BITS));
+            byte rank = (byte) (Long.numberOfLeadingZeros(hash << REGISTER_BITS | 1L << (REGISTER_BITS - 1)) + 1);
+            if (rank > registers[i][register]) {
+                registers[i][register] = rank;
+            }
+            if (minRows[i] < 0 || vector.compareRows(row, minRows[i]) < 0) {
+                minRows[i] = row;
+            }
+            if (maxRows[i] < 0 || vector.compareRows(row, maxRows[i]) > 0) {
+                maxRows[i] = row;
+            }
+        }
+    }
+
+    /**
+     * Checks if the values of the table were counted, by ANALYZE or as
+     * every row was added
+     * @return true if estimates use the values, false if only the row count
+     * is known
+     * @author Ethan Rama
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Checks if the statistics were counted by ANALYZE
+     * @return true if each attribute has a histogram
+     * @author Ethan Rama
+     */
+    public boolean isAnalyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Get the number of rows
+     * @return number of rows in the table
+     * @author Ethan Rama
+     */
+    public int getRowCount() {
+        return table.getRowCount();
+    }
+
+    /**
+     * Get the number of NULL values counted for an attribute
+     * @param column attribute name
+     * @return number of NULL values
+     * @author Ethan Rama
+     */
+    public long getNullCount(String column) {
+        return nulls[table.requireOrdinal(column)];
+    }
+
+    /**
+     * Estimates the number of distinct non-null values of an attribute
+     * @param column attribute name
+     * @return estimated number of distinct values
+     * @author Ethan Rama
+     */
+    public long getDistinctCount(String column) {
+        return distinct(table.requireOrdinal(column));
+    }
+
+    /**
+     * Get the least value counted for an attribute
+     * @param column attribute name
+     * @return value text, or null if the attribute has no value
+     * @author Ethan Rama
+     */
+    public String getMin(String column) {
+        return getString(table.requireOrdinal(column), minRows);
+    }
+
+    /**
+     * Get the greatest value counted for an attribute
+     * @param column attribute name
+     * @return value text, or null if the attribute has no value
+     * @author Ethan Rama
+     */
+    public String getMax(String column) {
+        return getString(table.requireOrdinal(column), maxRows);
+    }
+
+    /**
+     * Reads the value of a counted row. Statistics may outlive a query, so
+     * the table is pinned while the value is read in case it is dropped.
+     * @param ordinal column position
+     * @param rows least or greatest row of each attribute
+     * @return value text, or null if the attribute has no value
+     * @author Ethan Rama
+     */
+    private String getString(int ordinal, int[] rows) {
+        if (rows[ordinal] < 0) {
+            return null;
+        }
+        if (!table.pin()) {
+            throw new IllegalArgumentException("Table " + table.getName() + " does not exist.");
+        }
+        try {
+            return table.getVector(ordinal).getString(rows[ordinal]);
+        } finally {
+            table.unpin();
+        }
+    }
+
+    /**
+     * Estimates the number of rows that meet a condition
+     * @param where WHERE condition bound to the table, null for every row
+     * @return estimated number of rows
+     * @author Ethan Rama
+     */
+    double estimateRows(Expression where) {
+        return table.getRowCount() * (where == null ? 1.0 : selectivity(where));
+    }
+
+    /**
+     * Estimates the fraction of rows that meet a condition. Terms of an
+     * AND or OR are taken to be independent.
+     * @param condition WHERE condition bound to the table
+     * @return estimated fraction of rows, from 0 to 1
+     * @author Ethan Rama
+     */
+    double selectivity(Expression condition) {
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            double left = selectivity(logical.getLeft());
+            double right = selectivity(logical.getRight());
+            return logical.isAnd() ? left * right : left + right - left * right;
+        }
+        if (!(condition instanceof Comparison)) {
+            return DEFAULT_SELECTIVITY;
+        }
+        Comparison comparison = (Comparison) condition;
+        Expression column = comparison.getLeft();
+        Expression literal = comparison.getRight();
+        int operator = RowPredicate.operator(comparison.getOperator());
+        if (column instanceof Value) {
+            column = comparison.getRight();
+            literal = comparison.getLeft();
+            operator = RowPredicate.flip(operator);
+        }
+        if (!(column instanceof ColumnReference) || !(literal instanceof Value)) {
+            return DEFAULT_SELECTIVITY;
+        }
+        if (((Value) literal).isNull()) {
+            // A comparison with NULL is never true
+            return 0;
+        }
+        int ordinal = table.requireOrdinal(((ColumnReference) column).getColumnName());
+        long key;
+        try {
+            key = table.getVector(ordinal).orderKeyOf(((Value) literal).getText());
+        } catch (IllegalArgumentException e) {
+            return operator == RowPredicate.EQ ? 0 : DEFAULT_SELECTIVITY;
+        }
+        switch (operator) {
+            case RowPredicate.EQ:
+                return rangeSelectivity(ordinal, key, true, key, true);
+            case RowPredicate.NE:
+                return Math.max(0, nonNullFraction(ordinal) - rangeSelectivity(ordinal, key, true, key, true));
+            case RowPredicate.LT:
+            case RowPredicate.LE:
+                return rangeSelectivity(ordinal, Long.MIN_VALUE, false, key, operator == RowPredicate.LE);
+            default:
+                return rangeSelectivity(ordinal, key, operator == RowPredicate.GE, Long.MAX_VALUE, false);
+        }
+    }
+
+    /**
+     * Estimates the fraction of rows whose value of an attribute lies in a
+     * range of order keys. A range whose bounds are one inclusive key is an
+     * equality.
+     * @param ordinal column position
+     * @param lower order key of the lower bound, Long.MIN_VALUE for none
+     * @param lowerInclusive whether the lower bound is in the range
+     * @param upper order key of the upper bound, Long.MAX_VALUE for none
+     * @param upperInclusive whether the upper bound is in the range
+     * @return estimated fraction of rows, from 0 to 1
+     * @author Ethan Rama
+     */
+    double rangeSelectivity(int ordinal, long lower, boolean lowerInclusive, long upper, boolean upperInclusive) {
+        boolean equality = lower == upper && lowerInclusive && upperInclusive;
+        if (!isKnown(ordinal)) {
+            return equality ? DEFAULT_EQUALITY : DEFAULT_SELECTIVITY;
+        }
+        if (lower > upper || values[ordinal] == 0) {
+            return 0;
+        }
+        ColumnVector vector = table.getVector(ordinal);
+        long min = vector.orderKey(minRows[ordinal]);
+        long max = vector.orderKey(maxRows[ordinal]);
+        if (upper < min || lower > max) {
+            return 0;
+        }
+        double fraction;
+        long[] bucketBounds = bounds[ordinal];
+        if (equality) {
+            fraction = equalFraction(ordinal, lower);
+        } else if (bucketBounds != null) {
+            fraction = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                fraction += overlap(bucketBounds[b], bucketBounds[b + 1], lower, upper);
+            }
+            fraction /= BUCKETS;
+        } else {
+            fraction = overlap(min, max, lower, upper);
+        }
+        return Math.min(1, fraction) * nonNullFraction(ordinal);
+    }
+
+    /**
+     * Estimates the fraction of non-null values equal to a value. A value
+     * that bounds several histogram buckets fills the buckets between them;
+     * any other value is taken to be as common as the average one.
+     * @param ordinal column position
+     * @param key order key of the value
+     * @return estimated fraction of non-null values
+     * @author Ethan Rama
+     */
+    private double equalFraction(int ordinal, long key) {
+        long[] bucketBounds = bounds[ordinal];
+        if (bucketBounds != null) {
+            int first = -1;
+            int last = -1;
+            for (int b = 0; b <= BUCKETS; b++) {
+                if (bucketBounds[b] == key) {
+                    first = first < 0 ? b : first;
+                    last = b;
+                }
+            }
+            if (last > first) {
+                return (double) (last - first) / BUCKETS;
+            }
+        }
+        return 1.0 / Math.max(1, distinct(ordinal));
+    }
+
+    /**
+     * Estimates the fraction of a bucket's values within a range, taking
+     * the values to be spread evenly over the bucket's order keys
+     * @param from least order key of the bucket
+     * @param to greatest order key of the bucket
+     * @param lower lower bound of the range
+     * @param upper upper bound of the range
+     * @return fraction of the bucket, from 0 to 1
+     * @author Ethan Rama
+     */
+    private static double overlap(long from, long to, long lower, long upper) {
+        if (upper < from || lower > to) {
+            return 0;
+        }
+        if (from == to) {
+            return 1;
+        }
+        // Order keys may span the whole long range, so the widths are taken as doubles
+        double width = (double) to - (double) from + 1;
+        double covered = (double) Math.min(to, upper) - (double) Math.max(from, lower) + 1;
+        return Math.min(1, covered / width);
+    }
+
+    /**
+     * Get the fraction of an attribute's values that are not NULL
+     * @param ordinal column position
+     * @return fraction of values counted, 1 if none were
+     * @author Ethan Rama
+     */
+    double nonNullFraction(int ordinal) {
+        long total = nulls[ordinal] + values[ordinal];
+        return total == 0 ? 1 : (double) values[ordinal] / total;
+    }
+
+    /**
+     * Checks if the values of an attribute were counted
+     * @param ordinal column position
+     * @return true if estimates may use the attribute's statistics
+     * @author Ethan Rama
+     */
+    boolean isKnown(int ordinal) {
+        return complete && nulls[ordinal] + values[ordinal] > 0;
+    }
+
+    /**
+     * Estimates the number of distinct values of an attribute from its
+     * sketch, counting empty registers instead while few are filled
+     * @param ordinal column position
+     * @return estimated number of distinct values, at most the number of
+     * non-null values
+     * @author Ethan Rama
+     */
+    private long distinct(int ordinal) {
+        byte[] sketch = registers[ordinal];
+        double sum = 0;
+        int empty = 0;
+        for (byte rank : sketch) {
+            sum += 1.0 / (1L << rank);
+            empty += rank == 0 ? 1 : 0;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.min(Math.round(estimate), values[ordinal]);
+    }
+
+    /**
+     * Spreads the bits of a value key over the whole hash, as the sketch
+     * reads its leading bits
+     * @param key value key
+     * @return hash of the key
+     * @author Ethan Rama
+     */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        return key ^ key >>> 33;
+    }
+}
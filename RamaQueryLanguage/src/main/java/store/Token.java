@@ -2,11 +2,15 @@
  * Token.java
  * Author: Ethan Rama
  *
- * Version History: v1.0
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added PLACEHOLDER token type
+ * - Added ASTERISK token type
+ * - Tokens reference a slice of the source instead of copying it
  * 6/18/2024: v1.01
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
@@ -17,7 +21,7 @@ import java.util.Objects;
 
 /**
  * Defines the structure of a token
- * @version 1.0
+ * @version 1.1
  * @author Ethan Rama
  */
 public class Token {
@@ -26,24 +30,61 @@ public class Token {
      */
     public enum TokenType {
         KEYWORD, IDENTIFIER, STRING_LITERAL, NUMBER_LITERAL, BOOLEAN_LITERAL, DATE_LITERAL,
-        COMP_OPERATOR, LOG_OPERATOR, COMMA, PARENTHESIS_OPEN, PARENTHESIS_CLOSE, NULL_LITERAL, TERMINAL, EOF
+        COMP_OPERATOR, LOG_OPERATOR, COMMA, PARENTHESIS_OPEN, PARENTHESIS_CLOSE, NULL_LITERAL, ASTERISK, PLACEHOLDER, TERMINAL, EOF
     }
 
     /**
      * Type of token to be found
      */
-    private TokenType type;
+    private final TokenType type;
 
     /**
-     * String value under the token
+     * Text the token was scanned from
+     */
+    private final CharSequence source;
+
+    /**
+     * Offset of the token in the source
+     */
+    private final int start;
+
+    /**
+     * Number of characters in the token
+     */
+    private final int length;
+
+    /**
+     * String value under the token, created on first use
      */
     private String value;
 
+    /**
+     * Constructs a token holding its own value
+     * @param type token type
+     * @param value string value of the token
+     * @author Ethan Rama
+     */
     public Token(TokenType type, String value) {
-        this.type = type;
+        this(type, value, 0, value == null ? 0 : value.length());
         this.value = value;
     }
 
+    /**
+     * Constructs a token over a slice of the source text. The value is only
+     * copied out of the source when it is requested.
+     * @param type token type
+     * @param source text the token was scanned from
+     * @param start offset of the token in the source
+     * @param length number of characters in the token
+     * @author Ethan Rama
+     */
+    public Token(TokenType type, CharSequence source, int start, int length) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.length = length;
+    }
+
     /**
      * Get the type of token
      * @return token type
@@ -59,7 +100,51 @@ public class Token {
      * @author Ethan Rama
      */
     public String getValue() {
-        return value;
+        String v = value;
+        if (v == null && source != null) {
+            v = source.subSequence(start, start + length).toString();
+            value = v;
+        }
+        return v;
+    }
+
+    /**
+     * Get the offset of the token in its source
+     * @return offset of the first character
+     * @author Ethan Rama
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the number of characters in the token
+     * @return token length
+     * @author Ethan Rama
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Compares the token text with a string, ignoring case, without
+     * materializing the value
+     * @param text text to compare against
+     * @return true if the token spells the text, false otherwise
+     * @author Ethan Rama
+     */
+    public boolean matches(String text) {
+        if (source == null || text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = source.charAt(start + i);
+            char b = text.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -75,7 +160,18 @@ public class Token {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Token token = (Token) o;
-        return type == token.type && Objects.equals(value, token.value);
+        if (type != token.type || length != token.length) {
+            return false;
+        }
+        if (source == null || token.source == null) {
+            return source == token.source;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != token.source.charAt(token.start + i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -85,7 +181,7 @@ public class Token {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(type, value);
+        return Objects.hash(type, getValue());
     }
 
     /**
@@ -98,7 +194,7 @@ public class Token {
     public String toString() {
         return "Token{" +
                 "type=" + type +
-                ", value='" + value + "'}";
+                ", value='" + getValue() + "'}";
     }
 }
 
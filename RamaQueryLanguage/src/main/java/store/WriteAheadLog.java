@@ -0,0 +1,625 @@
+/*
+ * WriteAheadLog.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added batch records for rows inserted together
+ * - Added log generations so records covered by a snapshot are skipped
+ * - Closing wakes the timed syncer rather than interrupting it mid-force
+ * - Moved record encoding to RecordBuffer
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the changes made to a database. Each change is
+ * recorded before it is applied, so replaying the log from the start
+ * rebuilds every table as it was.
+ * <br><br>
+ * Records are gathered in memory and written through a file channel when a
+ * commit asks for them. Only one thread writes at a time; commits that
+ * arrive while a write is in progress wait for it and are then written and
+ * forced together by one of them, so concurrent writers share each force
+ * rather than paying for one apiece.
+ * <br><br>
+ * Each record is its payload length, a CRC-32C of the payload, then the
+ * payload. A record cut short by a crash fails its length or checksum, and
+ * the log is cut back to the last whole record when it is opened.
+ * <br><br>
+ * The header holds a generation number that each checkpoint raises. A
+ * snapshot records the generation of the log that follows it, so a log
+ * from an older generation is already covered by the snapshot and is not
+ * replayed.
+ * @version 1.1
+ * @author Ethan Rama
+ */
+class WriteAheadLog implements AutoCloseable {
+    /**
+     * First bytes of every log file, "RQLW"
+     */
+    private static final int MAGIC = 0x52514C57;
+
+    /**
+     * Version of the record format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Length of the file header
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Length of the length and checksum before each payload
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte CREATE_TABLE = 1;
+    private static final byte DROP_TABLE = 2;
+    private static final byte INSERT = 3;
+    private static final byte UPDATE = 4;
+    private static final byte DELETE = 5;
+    private static final byte CREATE_INDEX = 6;
+    private static final byte INSERT_ROWS = 7;
+
+    /**
+     * Channel of the log file
+     */
+    private final FileChannel channel;
+
+    /**
+     * When the log is forced to disk
+     */
+    private final SyncPolicy policy;
+
+    /**
+     * Checksum of the record being appended
+     */
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Records appended but not yet handed to a writer
+     */
+    private RecordBuffer pending = new RecordBuffer(1 << 16);
+
+    /**
+     * Spare buffer swapped in for pending while a writer drains it
+     */
+    private RecordBuffer spare = new RecordBuffer(1 << 16);
+
+    /**
+     * Generation of the log, raised by each checkpoint
+     */
+    private long generation;
+
+    /**
+     * Log position after the last appended record
+     */
+    private long appended;
+
+    /**
+     * Log position up to which records have been written, and forced if
+     * the policy forces on commit
+     */
+    private long written;
+
+    /**
+     * Whether a thread is writing records to the channel
+     */
+    private boolean writing;
+
+    /**
+     * Whether the log has been closed
+     */
+    private boolean closed;
+
+    /**
+     * Whether the log is closing, which stops the timed syncer
+     */
+    private boolean stopping;
+
+    /**
+     * Thread forcing the log on a timer, null unless the policy is timed
+     */
+    private final Thread syncer;
+
+    /**
+     * Opens a log file, creating it if it does not exist, and replays the
+     * records not already covered by a snapshot into a database
+     * @param path log file
+     * @param policy when the log is forced to disk
+     * @param rdb database the records are applied to
+     * @param snapshotGeneration generation recorded by the snapshot the
+     * database was loaded from, 0 if there is none
+     * @author Ethan Rama
+     */
+    WriteAheadLog(Path path, SyncPolicy policy, RamaDatabase rdb, long snapshotGeneration) {
+        this.policy = policy;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(snapshotGeneration);
+            }
+            long end = replay(rdb, snapshotGeneration);
+            // A record torn by a crash is dropped so new records follow the last whole one
+            channel.truncate(end);
+            channel.position(end);
+            appended = written = end;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open log " + path, e);
+        }
+        if (policy.getIntervalMillis() > 0) {
+            syncer = new Thread(this::syncPeriodically, "rql-log-sync");
+            syncer.setDaemon(true);
+            syncer.start();
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Records a new table
+     * @param statement definition of the table
+     * @author Ethan Rama
+     */
+    synchronized void createTable(CreateTableStatement statement) {
+        int start = begin(CREATE_TABLE);
+        pending.putTable(statement);
+        end(start);
+    }
+
+    /**
+     * Records a dropped table
+     * @param tableName name of table
+     * @author Ethan Rama
+     */
+    synchronized void dropTable(String tableName) {
+        int start = begin(DROP_TABLE);
+        pending.putString(tableName);
+        end(start);
+    }
+
+    /**
+     * Records an inserted row
+     * @param tableName name of table
+     * @param values value text of each attribute, null for NULL
+     * @author Ethan Rama
+     */
+    synchronized void insert(String tableName, String[] values) {
+        int start = begin(INSERT);
+        pending.putString(tableName);
+        pending.putInt(values.length);
+        for (String value : values) {
+            pending.putString(value);
+        }
+        end(start);
+    }
+
+    /**
+     * Records a batch of rows inserted together, which replay inserts
+     * together again
+     * @param tableName name of table
+     * @param rows value text of each attribute of each row, null for NULL
+     * @author Ethan Rama
+     */
+    synchronized void insert(String tableName, List<String[]> rows) {
+        int start = begin(INSERT_ROWS);
+        pending.putString(tableName);
+        pending.putInt(rows.size());
+        for (String[] values : rows) {
+            pending.putInt(values.length);
+            for (String value : values) {
+                pending.putString(value);
+            }
+        }
+        end(start);
+    }
+
+    /**
+     * Records an update of existing rows
+     * @param tableName name of table
+     * @param rows row numbers updated
+     * @param ordinals column positions set
+     * @param values new value text of each position, null for NULL
+     * @author Ethan Rama
+     */
+    synchronized void update(String tableName, int[] rows, int[] ordinals, String[] values) {
+        int start = begin(UPDATE);
+        pending.putString(tableName);
+        pending.putInts(rows);
+        pending.putInts(ordinals);
+        for (String value : values) {
+            pending.putString(value);
+        }
+        end(start);
+    }
+
+    /**
+     * Records deleted rows
+     * @param tableName name of table
+     * @param rows row numbers deleted
+     * @author Ethan Rama
+     */
+    synchronized void delete(String tableName, int[] rows) {
+        int start = begin(DELETE);
+        pending.putString(tableName);
+        pending.putInts(rows);
+        end(start);
+    }
+
+    /**
+     * Records a new ordered index
+     * @param tableName name of table
+     * @param indexName name of the index
+     * @param column indexed attribute
+     * @author Ethan Rama
+     */
+    synchronized void createIndex(String tableName, String indexName, String column) {
+        int start = begin(CREATE_INDEX);
+        pending.putString(tableName);
+        pending.putString(indexName);
+        pending.putString(column);
+        end(start);
+    }
+
+    /**
+     * Makes every record appended so far as durable as the policy asks. On
+     * EVERY_COMMIT this returns once the records are forced to disk, on
+     * OS_MANAGED once they are written to the file, and on a timed policy
+     * straight away.
+     * @author Ethan Rama
+     */
+    void commit() {
+        if (policy.getIntervalMillis() > 0) {
+            return;
+        }
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        flush(target, policy.isForcedOnCommit());
+    }
+
+    /**
+     * Get the generation of the log
+     * @return generation number
+     * @author Ethan Rama
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Empties the log once a snapshot covers every record in it, starting
+     * a new generation. The caller must hold off new records meanwhile.
+     * @param newGeneration generation recorded by the snapshot
+     * @author Ethan Rama
+     */
+    void reset(long newGeneration) {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        flush(target, true);
+        synchronized (this) {
+            try {
+                writeHeader(newGeneration);
+                channel.position(HEADER_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot reset log", e);
+            }
+            appended = written = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Forces every record to disk and closes the log
+     * @author Ethan Rama
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        if (syncer != null) {
+            // Interrupting the syncer mid-force would close the channel, so it is woken and left to finish
+            synchronized (this) {
+                stopping = true;
+                notifyAll();
+            }
+            boolean interrupted = false;
+            while (syncer.isAlive()) {
+                try {
+                    syncer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        try {
+            flush(target, true);
+        } finally {
+            synchronized (this) {
+                closed = true;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes records up to a log position, unless another thread already
+     * has. The first thread to find no write in progress writes everything
+     * appended by then on behalf of all waiting threads.
+     * @param target log position to reach
+     * @param force whether the records must also be forced to disk
+     * @author Ethan Rama
+     */
+    private void flush(long target, boolean force) {
+        RecordBuffer batch;
+        long end;
+        synchronized (this) {
+            while (written < target && writing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while committing", e);
+                }
+            }
+            if (written >= target) {
+                return;
+            }
+            writing = true;
+            batch = pending;
+            pending = spare;
+            spare = null;
+            end = appended;
+        }
+
+        try {
+            ByteBuffer bytes = batch.buffer().flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                writing = false;
+                notifyAll();
+            }
+            throw new UncheckedIOException("Cannot write log", e);
+        }
+
+        synchronized (this) {
+            batch.buffer().clear();
+            spare = batch;
+            written = end;
+            writing = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Forces the log on the timed policy's interval until the log closes
+     * @author Ethan Rama
+     */
+    private void syncPeriodically() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                long deadline = System.nanoTime() + policy.getIntervalMillis() * 1_000_000L;
+                // Other flushes also notify this monitor, so wait out the rest of the interval after each
+                for (long left = deadline - System.nanoTime(); left > 0 && !stopping;
+                     left = deadline - System.nanoTime()) {
+                    try {
+                        wait(Math.max(1, left / 1_000_000L));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopping) {
+                    return;
+                }
+                target = appended;
+            }
+            try {
+                flush(target, true);
+            } catch (RuntimeException e) {
+                // The next commit or close reports a failing disk
+            }
+        }
+    }
+
+    /**
+     * Writes the file header of an empty log
+     * @param newGeneration generation of the log
+     * @author Ethan Rama
+     */
+    private void writeHeader(long newGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION)
+                .putLong(newGeneration).flip();
+        channel.truncate(0);
+        channel.write(header, 0);
+        channel.force(true);
+        generation = newGeneration;
+    }
+
+    /**
+     * Applies every whole record in the file to a database
+     * @param rdb database the records are applied to
+     * @param snapshotGeneration generation recorded by the snapshot the
+     * database was loaded from
+     * @return log position after the last whole record
+     * @author Ethan Rama
+     */
+    private long replay(RamaDatabase rdb, long snapshotGeneration) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0)), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an RQL log file.");
+        }
+        if (in.readInt() != VERSION) {
+            throw new IllegalArgumentException("Unsupported RQL log version.");
+        }
+        generation = in.readLong();
+        if (generation < snapshotGeneration) {
+            // A crash after the snapshot was written but before the log was emptied
+            writeHeader(snapshotGeneration);
+            return HEADER_SIZE;
+        }
+        long end = HEADER_SIZE;
+        long size = channel.size();
+        byte[] payload = new byte[256];
+        CRC32C check = new CRC32C();
+        while (size - end >= RECORD_HEADER_SIZE) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > size - end - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            check.reset();
+            check.update(payload, 0, length);
+            if ((int) check.getValue() != checksum) {
+                break;
+            }
+            apply(rdb, ByteBuffer.wrap(payload, 0, length));
+            end += RECORD_HEADER_SIZE + length;
+        }
+        return end;
+    }
+
+    /**
+     * Applies one record to a database. A change that failed when it was
+     * first made fails the same way again and is skipped.
+     * @param rdb database the record is applied to
+     * @param record payload of the record
+     * @author Ethan Rama
+     */
+    private static void apply(RamaDatabase rdb, ByteBuffer record) {
+        byte type = record.get();
+        try {
+            if (type == CREATE_TABLE) {
+                rdb.createTable(RecordBuffer.getTable(record));
+            } else if (type == DROP_TABLE) {
+                rdb.drop(RecordBuffer.getString(record));
+            } else {
+                RamaTable table = rdb.tables.get(RecordBuffer.getString(record));
+                if (table == null) {
+                    return;
+                }
+                if (type == INSERT) {
+                    String[] values = new String[record.getInt()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = RecordBuffer.getString(record);
+                    }
+                    rdb.insert(table, values);
+                } else if (type == INSERT_ROWS) {
+                    int count = record.getInt();
+                    List<String[]> rows = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        String[] values = new String[record.getInt()];
+                        for (int j = 0; j < values.length; j++) {
+                            values[j] = RecordBuffer.getString(record);
+                        }
+                        rows.add(values);
+                    }
+                    rdb.insert(table, rows);
+                } else if (type == UPDATE) {
+                    int[] rows = RecordBuffer.getInts(record);
+                    int[] ordinals = RecordBuffer.getInts(record);
+                    String[] values = new String[ordinals.length];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = RecordBuffer.getString(record);
+                    }
+                    rdb.update(table, rows, ordinals, values);
+                } else if (type == DELETE) {
+                    rdb.delete(table, RecordBuffer.getInts(record));
+                } else if (type == CREATE_INDEX) {
+                    rdb.createIndex(table, RecordBuffer.getString(record), RecordBuffer.getString(record));
+                } else {
+                    throw new IllegalStateException("Unknown log record type " + type + ".");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Rejected when first made, so it changed nothing then either
+        }
+    }
+
+    /**
+     * Starts a record, leaving room for its length and checksum
+     * @param type record type
+     * @return buffer position of the record
+     * @author Ethan Rama
+     */
+    private int begin(byte type) {
+        if (closed) {
+            throw new IllegalStateException("Log is closed.");
+        }
+        int start = pending.position();
+        pending.reserve(RECORD_HEADER_SIZE + 1);
+        pending.buffer().position(start + RECORD_HEADER_SIZE);
+        pending.putByte(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length and checksum of the record just written
+     * @param start buffer position of the record
+     * @author Ethan Rama
+     */
+    private void end(int start) {
+        ByteBuffer buffer = pending.buffer();
+        int length = buffer.position() - start - RECORD_HEADER_SIZE;
+        crc.reset();
+        crc.update(buffer.duplicate().position(start + RECORD_HEADER_SIZE).limit(buffer.position()));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        appended += RECORD_HEADER_SIZE + length;
+    }
+}
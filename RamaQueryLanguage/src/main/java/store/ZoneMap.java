@@ -0,0 +1,143 @@
+/*
+ * ZoneMap.java
+ * Author: Ethan Rama
+ *
+ * Version History: v1.0
+ * 10/18/2026: v1.0
+ * - Created file
+ *
+ * 10/18/2026
+ *
+ */
+
+package store;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Summarizes the values of a column vector one chunk at a time: the least
+ * and greatest order key of the chunk's non-null values and how many of
+ * its values are NULL and how many are not. A scan asks the zone map of
+ * each attribute its condition compares with a literal whether a chunk
+ * could hold a match, and skips the chunk without reading its rows when
+ * none could, so a table appended in the order of an attribute, such as a
+ * date or an increasing key, is read only around the values a query asks
+ * for.
+ * <br><br>
+ * A summary only ever widens. Every row published is added to its chunk's
+ * summary before the row count that publishes it moves, so a query reading
+ * a version finds a summary covering at least the rows it sees; deleted
+ * and superseded rows stay in the summary. Rows are added by one writer at
+ * a time, and grown arrays are published only once filled. Rows attached
+ * from a snapshot are not summarized until ANALYZE rebuilds the zone map,
+ * so the chunks holding them are never skipped before then.
+ * @version 1.0
+ * @author Ethan Rama
+ */
+class ZoneMap {
+    /**
+     * Slots of each chunk's summary: least key, greatest key, then the
+     * number of non-null values above the number of NULL values
+     */
+    private static final int STRIDE = 3;
+
+    /**
+     * Summary of each chunk, STRIDE slots per chunk. One array holds every
+     * part, so a query never pairs the parts of a grown array with those
+     * of the old one.
+     */
+    private long[] zones = new long[0];
+
+    /**
+     * First row summarized; chunks starting before it hold rows that were
+     * not
+     */
+    private final int from;
+
+    /**
+     * Constructs an empty zone map
+     * @param from number of rows before the first row to be summarized,
+     * 0 unless rows were attached without summarizing them
+     * @author Ethan Rama
+     */
+    ZoneMap(int from) {
+        this.from = from;
+    }
+
+    /**
+     * Adds a row to the summary of its chunk
+     * @param row row number
+     * @param isNull whether the row's value is NULL
+     * @param key order key of the value, ignored for NULL
+     * @author Ethan Rama
+     */
+    void add(int row, boolean isNull, long key) {
+        int slot = (row >>> ColumnVector.CHUNK_SHIFT) * STRIDE;
+        if (slot >= zones.length) {
+            int length = Math.max(4 * STRIDE, zones.length * 2);
+            while (slot >= length) {
+                length *= 2;
+            }
+            long[] grown = Arrays.copyOf(zones, length);
+            VarHandle.releaseFence();
+            zones = grown;
+        }
+        long[] summary = zones;
+        long counts = summary[slot + 2];
+        if (isNull) {
+            summary[slot + 2] = counts + 1;
+            return;
+        }
+        boolean first = counts >>> 32 == 0;
+        if (first || key < summary[slot]) {
+            summary[slot] = key;
+        }
+        if (first || key > summary[slot + 1]) {
+            summary[slot + 1] = key;
+        }
+        summary[slot + 2] = counts + (1L << 32);
+    }
+
+    /**
+     * Checks if a chunk could hold a value meeting a comparison with a
+     * literal. NULL meets no comparison, so a chunk of only NULL values
+     * holds no match. Inexact order keys only order values up to equal
+     * keys, so strict comparisons are treated as inclusive and inequality
+     * never rules a chunk out.
+     * @param chunk chunk number
+     * @param operator comparison operator code, as in RowPredicate
+     * @param key order key of the literal
+     * @param exact whether equal order keys always hold equal values
+     * @return false if no value of the chunk meets the comparison
+     * @author Ethan Rama
+     */
+    boolean mayMatch(int chunk, int operator, long key, boolean exact) {
+        long[] summary = zones;
+        int slot = chunk * STRIDE;
+        if (slot >= summary.length || chunk << ColumnVector.CHUNK_SHIFT < from) {
+            return true;
+        }
+        long counts = summary[slot + 2];
+        if (counts >>> 32 == 0) {
+            // A chunk with nothing summarized may be one whose rows are still being published
+            return counts == 0;
+        }
+        long min = summary[slot];
+        long max = summary[slot + 1];
+        switch (operator) {
+            case RowPredicate.EQ:
+                return min <= key && key <= max;
+            case RowPredicate.NE:
+                return !exact || min != key || max != key;
+            case RowPredicate.LT:
+                return exact ? min < key : min <= key;
+            case RowPredicate.LE:
+                return min <= key;
+            case RowPredicate.GT:
+                return exact ? max > key : max >= key;
+            default:
+                return max >= key;
+        }
+    }
+}
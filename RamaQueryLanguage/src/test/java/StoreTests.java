@@ -2,21 +2,68 @@
  * StoreTests.java
  * Author: Ethan Rama
  *
- * Version History: v1.01
+ * Version History: v1.1
+ * 10/18/2026: v1.1
+ * - Added zone map block skipping tests
+ * - Added projected batch read tests on wide tables
+ * - Added table statistics, ANALYZE and planner tests
+ * - Added top-N and spilled sort tests
+ * - Added GROUP BY and aggregate tests, with NULL keys
+ * - Added hash join tests, in memory and spilled, and a consistent join
+ *   snapshot test
+ * - Added parallel scan tests
+ * - Added cursor, LIMIT and OFFSET tests, and a test that execute prints
+ *   no SELECT rows
+ * - Added multi-row INSERT and CSV and TSV load tests
+ * - Added per-table version tests with interrupted inserting threads
+ * - Added concurrent insert and replay tests
+ * - Added snapshot read tests with concurrent readers and a writer
+ * - Added off-heap storage and release tests
+ * - Added checkpoint and snapshot reopen tests
+ * - Added write-ahead log replay, torn record and group commit tests
+ * - Added prepared statement and plan cache tests
+ * - Added compiled condition tests
+ * - Added batch WHERE tests spanning several chunks
+ * - Added ordered index, ORDER BY, UPDATE and DELETE tests
+ * - Added key lookup, uniqueness and WHERE tests
+ * - Added insert constraint tests
+ * - Added typed table storage tests
+ * - Added pipelined script runner tests
+ * - Added parser, lower case keyword and streaming script tests
+ * - Added source slice token tests
+ * - Added scanner edge case tests
  * 6/18/2024: v1.01
  * - Created token tests
  * 6/17/2024: v1.0
  * - Created file
  *
- * 6/18/2024
+ * 10/18/2026
  *
  */
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import store.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,7 +83,7 @@ public class StoreTests {
     private static final Token NULL_TOKEN = new Token(Token.TokenType.NULL_LITERAL, "NULL");
     private static final Token TERMINAL_TOKEN = new Token(Token.TokenType.TERMINAL, ";");
     private static final Token EOF_TOKEN = new Token(Token.TokenType.EOF, "");
-    private static final String[] KEYS = {"SELECT", "FROM", "WHERE", "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE", "CREATE", "DROP", "TABLE", "DATABASE", "NOT NULL", "PRIMARY KEY", "UNIQUE", "CHECK", "DEFAULT", "BOOL", "INT", "FLOAT", "DATE", "CHAR", "VARCHAR"};
+    private static final String[] KEYS = {"SELECT", "FROM", "WHERE", "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE", "CREATE", "DROP", "TABLE", "DATABASE", "NOT NULL", "PRIMARY KEY", "UNIQUE", "CHECK", "DEFAULT", "BOOL", "INT", "FLOAT", "DATE", "CHAR", "VARCHAR", "INDEX", "ON", "ORDER BY", "ASC", "DESC"};
     private static final String[] IDENS = {"testcase", "_a_b_c", "abc123", "z__z", "____"};
     private static final String[] STRS = {"'test_string'", "'1str2str3'", "'65'", "'-_-'", "'l'", "'[something]'"};
     private static final String[] NUMS = {"1", "0", "0.0", "-1", "1.00000001", "-0.0000001"};
@@ -116,6 +163,20 @@ public class StoreTests {
             new Token(Token.TokenType.EOF, ""),
     };
 
+    // NOT 1SELECT PRIMARY KEYS NOT NULL,'it''s'
+    private static final Token[] test5 = {
+            new Token(Token.TokenType.IDENTIFIER, "NOT"),
+            new Token(Token.TokenType.NUMBER_LITERAL, "1"),
+            new Token(Token.TokenType.KEYWORD, "SELECT"),
+            new Token(Token.TokenType.IDENTIFIER, "PRIMARY"),
+            new Token(Token.TokenType.IDENTIFIER, "KEYS"),
+            new Token(Token.TokenType.KEYWORD, "NOT NULL"),
+            new Token(Token.TokenType.COMMA, ","),
+            new Token(Token.TokenType.STRING_LITERAL, "'it'"),
+            new Token(Token.TokenType.STRING_LITERAL, "'s'"),
+            new Token(Token.TokenType.EOF, ""),
+    };
+
     static {
         try {
             for (String s : KEYS) {
@@ -272,6 +333,18 @@ public class StoreTests {
                 assertEquals(TERMINAL_TOKEN, act_tokens.get(0));
             }
             @Test
+            @DisplayName("Source Slice Test")
+            public void sliceTest() {
+                Token t = new Token(Token.TokenType.IDENTIFIER, "SELECT abc FROM t", 7, 3);
+                assertEquals(new Token(Token.TokenType.IDENTIFIER, "abc"), t);
+                assertEquals(new Token(Token.TokenType.IDENTIFIER, "abc").hashCode(), t.hashCode());
+                assertEquals("abc", t.getValue());
+                assertTrue(t.matches("ABC"));
+                RamaLexer rl = new RamaLexer("SELECT a FROM b; SELECT c FROM d;");
+                List<Token> act_tokens = rl.tokenize();
+                assertSame(act_tokens.get(0), act_tokens.get(5));
+            }
+            @Test
             @DisplayName("EOF Test")
             public void eofTest() {
                 RamaLexer rl = new RamaLexer("");
@@ -320,6 +393,24 @@ public class StoreTests {
                     assertEquals(test4[i], tokens.get(i));
                 }
             }
+
+            @Test
+            @DisplayName("Test Case V")
+            public void test5(){
+                RamaLexer rl = new RamaLexer("NOT 1SELECT PRIMARY KEYS NOT NULL,'it''s'");
+                List<Token> tokens = rl.tokenize();
+                assertEquals(test5.length, tokens.size());
+                for (int i = 0; i < tokens.size(); i++) {
+                    assertEquals(test5[i], tokens.get(i));
+                }
+            }
+
+            @Test
+            @DisplayName("Unexpected Character Test")
+            public void unexpectedTest(){
+                RamaLexer rl = new RamaLexer("SELECT 'unterminated");
+                assertThrows(RuntimeException.class, rl::tokenize);
+            }
         }
     }
 
@@ -329,6 +420,1381 @@ public class StoreTests {
     @Nested
     @DisplayName("Parser Tests")
     public class ParserTests {
+        @Test
+        @DisplayName("CREATE TABLE Test")
+        public void createTest() {
+            RamaParser rp = new RamaParser(new RamaLexer("CREATE TABLE employees (id INT PRIMARY KEY, name VARCHAR(100) NOT NULL, is_active BOOL DEFAULT TRUE, salary FLOAT, CHECK (salary >= 0));"));
+            assertTrue(rp.hasNextStatement());
+            assertNotNull(rp.parse());
+            assertFalse(rp.hasNextStatement());
+        }
+
+        @Test
+        @DisplayName("Multiple Statement Test")
+        public void multipleTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, name VARCHAR(10)); INSERT INTO t1 VALUES (1, 'ethan'); INSERT INTO t1 (name, id) VALUES ('rama', 2);");
+            List<Map<String, String>> rows = rdb.select("t1");
+            assertEquals(2, rows.size());
+            assertEquals("ethan", rows.get(0).get("name"));
+            assertEquals("2", rows.get(1).get("id"));
+        }
+
+        @Test
+        @DisplayName("Invalid Statement Test")
+        public void invalidTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            assertThrows(RuntimeException.class, () -> rdb.execute("CREATE TABLE t1 (id INT) INSERT"));
+        }
+
+        @Test
+        @DisplayName("Lower Case Keyword Test")
+        public void lowerCaseTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("create table L (a int primary key, b varchar(8) not null); Insert Into L (a, b) values (1, 'x');");
+            rdb.execute("insert into L values (2, 'y'); select a, b from L;");
+            assertEquals(List.of(Map.of("a", "1", "b", "x"), Map.of("a", "2", "b", "y")), rdb.select("L"));
+            // Identifiers keep their case
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("select * from l;"));
+            // A lower case keyword can still name a table or column
+            rdb.execute("create table order (date int, table int); insert into order values (1, 2);");
+            assertEquals(List.of(Map.of("date", "1", "table", "2")), rdb.select("order"));
+        }
+
+        @Test
+        @DisplayName("Streaming Script Test")
+        public void streamingTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            String head = "CREATE TABLE t1 (id INT);\nINSERT INTO t1 VALUES (1);\n";
+            // Fails once the reader is asked for anything past the first two statements
+            Reader script = new Reader() {
+                private final StringReader in = new StringReader(head);
+
+                @Override
+                public int read(char[] cbuf, int off, int len) throws IOException {
+                    int read = in.read(cbuf, off, len);
+                    if (read < 0) {
+                        throw new IOException("script truncated");
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            assertThrows(UncheckedIOException.class, () -> rdb.executeScript(script));
+            assertEquals(1, rdb.select("t1").size());
+        }
+
+        @Test
+        @DisplayName("Pipelined Script Test")
+        public void pipelineTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            StringBuilder script = new StringBuilder("CREATE TABLE t1 (id INT, name VARCHAR(10));\n");
+            for (int i = 0; i < 5000; i++) {
+                script.append("INSERT INTO t1 VALUES (").append(i).append(", 'n;").append(i).append("');\n");
+            }
+            rdb.executeScript(new StringReader(script.toString()));
+            List<Map<String, String>> rows = rdb.select("t1");
+            assertEquals(5000, rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(String.valueOf(i), rows.get(i).get("id"));
+                assertEquals("n;" + i, rows.get(i).get("name"));
+            }
+        }
+
+        @Test
+        @DisplayName("Pipelined Script Error Test")
+        public void pipelineErrorTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            String script = "CREATE TABLE t1 (id INT); INSERT INTO t1 VALUES (1); INSERT t1 VALUES (2); INSERT INTO t1 VALUES (3);";
+            assertThrows(RuntimeException.class, () -> rdb.executeScript(new StringReader(script)));
+            assertEquals(1, rdb.select("t1").size());
+        }
+    }
+
+    /**
+     * Table tests
+     */
+    @Nested
+    @DisplayName("Table Tests")
+    public class TableTests {
+        @Test
+        @DisplayName("Typed Storage Test")
+        public void typedTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, salary FLOAT, is_active BOOL, birth_date DATE, name VARCHAR(10));");
+            rdb.execute("INSERT INTO t1 VALUES (-7, 1.5, TRUE, '0001-01-01', 'ethan');");
+            rdb.execute("INSERT INTO t1 VALUES (NULL, NULL, FALSE, '2024-06-18', NULL);");
+            List<Map<String, String>> rows = rdb.select("t1");
+            assertEquals("-7", rows.get(0).get("id"));
+            assertEquals("1.5", rows.get(0).get("salary"));
+            assertEquals("TRUE", rows.get(0).get("is_active"));
+            assertEquals("0001-01-01", rows.get(0).get("birth_date"));
+            assertEquals("ethan", rows.get(0).get("name"));
+            assertNull(rows.get(1).get("id"));
+            assertNull(rows.get(1).get("salary"));
+            assertEquals("FALSE", rows.get(1).get("is_active"));
+            assertEquals("2024-06-18", rows.get(1).get("birth_date"));
+            assertNull(rows.get(1).get("name"));
+        }
+
+        @Test
+        @DisplayName("Invalid Value Test")
+        public void invalidTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, birth_date DATE);");
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES ('abc', '2024-06-18');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (1, '2024-13-18');"));
+            assertEquals(0, rdb.select("t1").size());
+        }
+
+        @Test
+        @DisplayName("Insert Constraint Test")
+        public void constraintTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR(5) NOT NULL, is_active BOOL DEFAULT TRUE, code CHAR(2));");
+            rdb.execute("INSERT INTO t1 (name, id) VALUES ('ethan', 1);");
+            Map<String, String> row = rdb.select("t1").get(0);
+            assertEquals("1", row.get("id"));
+            assertEquals("TRUE", row.get("is_active"));
+            assertNull(row.get("code"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 (id) VALUES (2);"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (NULL, 'rama', FALSE, 'ab');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (3, 'ethanr', FALSE, 'ab');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (4, 'rama', FALSE, 'abc');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 (id, id) VALUES (5, 6);"));
+            assertEquals(1, rdb.select("t1").size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("CREATE TABLE t2 (id INT DEFAULT 'x');"));
+        }
+
+        @Test
+        @DisplayName("Untyped Table Test")
+        public void untypedTest() {
+            RamaTable table = new RamaTable("t1", List.of("a", "b"));
+            table.insert(Map.of("a", "x"));
+            assertEquals(1, table.getRowCount());
+            assertEquals("x", table.getRows().get(0).get("a"));
+            assertNull(table.getRows().get(0).get("b"));
+            assertThrows(IllegalArgumentException.class, () -> table.insert(Map.of("c", "y")));
+        }
+
+        @Test
+        @DisplayName("Off-Heap Storage Test")
+        public void offHeapTest() {
+            RamaDatabase heap = new RamaDatabase();
+            RamaDatabase offHeap = new RamaDatabase(Storage.OFF_HEAP);
+            assertEquals(Storage.OFF_HEAP, offHeap.getStorage());
+            for (RamaDatabase rdb : List.of(heap, offHeap)) {
+                rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, salary FLOAT, is_active BOOL, birth_date DATE, name VARCHAR(10));");
+                RamaPreparedStatement insert = rdb.prepare("INSERT INTO t1 VALUES (?, ?, ?, ?, ?);");
+                for (int i = 0; i < 9000; i++) {
+                    insert.setInt(1, i);
+                    if (i % 11 == 0) {
+                        insert.setNull(2);
+                    } else {
+                        insert.setDouble(2, i % 300 + 0.5);
+                    }
+                    insert.setBoolean(3, i % 3 == 0);
+                    insert.setDate(4, LocalDate.of(2020, 1, 1).plusDays(i % 400));
+                    insert.setString(5, i % 13 == 0 ? null : "name" + (i % 1000));
+                    insert.execute();
+                }
+                rdb.execute("UPDATE t1 SET name = 'changed' WHERE id = 8500;"
+                        + "DELETE FROM t1 WHERE salary > 290;");
+            }
+            for (String where : List.of("id >= 4000 AND id < 4100", "salary < 10.5", "is_active = TRUE AND id < 100",
+                    "birth_date = '2020-02-01'", "name = 'name77'", "name > 'name990'", "name = 'changed'")) {
+                String query = "SELECT * FROM t1 WHERE " + where;
+                assertEquals(heap.query(query), offHeap.query(query), where);
+            }
+            assertEquals(heap.select("t1"), offHeap.select("t1"));
+            assertThrows(IllegalArgumentException.class, () -> offHeap.execute("INSERT INTO t1 VALUES (5, 1.0, TRUE, NULL, 'dup');"));
+            TableStatistics statistics = offHeap.getStatistics("t1");
+            offHeap.execute("CREATE TABLE t2 (id INT, name VARCHAR);"
+                    + "INSERT INTO t2 VALUES (1, 'kept'), (2, 'also kept');");
+            RamaCursor cursor = offHeap.cursor("SELECT name FROM t2");
+
+            // A dropped table's direct buffers, including a 1 MB dictionary slab, are freed without waiting for a GC
+            long before = directMemoryUsed();
+            offHeap.drop("t1");
+            assertTrue(before - directMemoryUsed() >= 1 << 20);
+            assertThrows(IllegalArgumentException.class, () -> offHeap.select("t1"));
+            assertThrows(IllegalArgumentException.class, () -> statistics.getMin("id"));
+
+            // An open cursor keeps its table's buffers until it closes
+            before = directMemoryUsed();
+            offHeap.drop("t2");
+            assertEquals(before, directMemoryUsed());
+            assertEquals(List.of("kept", "also kept"), cursor.stream().map(row -> row.get("name")).toList());
+            assertTrue(before - directMemoryUsed() >= 1 << 20);
+        }
+
+        private long directMemoryUsed() {
+            return java.lang.management.ManagementFactory.getPlatformMXBeans(java.lang.management.BufferPoolMXBean.class)
+                    .stream().filter(pool -> pool.getName().equals("direct"))
+                    .mapToLong(java.lang.management.BufferPoolMXBean::getMemoryUsed).sum();
+        }
+    }
+
+    /**
+     * Tests for SELECT queries
+     */
+    @Nested
+    @DisplayName("Query Tests")
+    public class QueryTests {
+        @Test
+        @DisplayName("Unique Key Test")
+        public void uniqueTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, email VARCHAR UNIQUE);");
+            rdb.execute("INSERT INTO t1 VALUES (1, 'a@x');");
+            rdb.execute("INSERT INTO t1 VALUES (2, NULL);");
+            rdb.execute("INSERT INTO t1 VALUES (3, NULL);");
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (1, 'b@x');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (4, 'a@x');"));
+            rdb.execute("INSERT INTO t1 VALUES (4, 'b@x');");
+            assertEquals(4, rdb.select("t1").size());
+        }
+
+        @Test
+        @DisplayName("Key Lookup Test")
+        public void lookupTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR);");
+            for (int i = 0; i < 10000; i++) {
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", 'n" + i + "');");
+            }
+            assertEquals(List.of(Map.of("name", "n4242")), rdb.query("SELECT name FROM t1 WHERE id = 4242;"));
+            assertEquals(List.of(Map.of("id", "17")), rdb.query("SELECT id FROM t1 WHERE 17 = id"));
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE id = 10000").size());
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE id = 5 AND name = 'n6'").size());
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE id = 5 AND name = 'n5'").size());
+        }
+
+        @Test
+        @DisplayName("Where Test")
+        public void whereTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, salary FLOAT, is_active BOOL, birth_date DATE, name VARCHAR);");
+            rdb.execute("INSERT INTO t1 VALUES (1, 10.5, TRUE, '2000-01-01', 'ann');");
+            rdb.execute("INSERT INTO t1 VALUES (2, 20.0, FALSE, '1990-06-18', 'bob');");
+            rdb.execute("INSERT INTO t1 VALUES (3, NULL, TRUE, NULL, 'cat');");
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE id >= 2").size());
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE id < 2.5").size());
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE salary > 15").size());
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE is_active = TRUE").size());
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE birth_date < '1995-01-01'").size());
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE name <> 'bob'").size());
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE name >= 'b'").size());
+            assertEquals(2, rdb.query("SELECT * FROM t1 WHERE id = 1 OR (is_active = TRUE AND salary = NULL) OR name = 'bob'").size());
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE salary > id AND id > 1").size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT * FROM t1 WHERE missing = 1"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT * FROM t1 WHERE name = is_active"));
+        }
+
+        @Test
+        @DisplayName("Ordered Index Test")
+        public void rangeTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, score FLOAT, name VARCHAR);");
+            for (int i = 0; i < 1000; i++) {
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", " + (i % 100) + ".5, 'n" + (i % 10) + "');");
+            }
+            rdb.execute("INSERT INTO t1 VALUES (1000, NULL, NULL);");
+            List<Map<String, String>> before = rdb.query("SELECT id FROM t1 WHERE score >= 10 AND score < 12.5 AND name = 'n0'");
+            rdb.execute("CREATE INDEX score_idx ON t1 (score);");
+            rdb.execute("CREATE INDEX name_idx ON t1 (name);");
+            List<Map<String, String>> after = rdb.query("SELECT id FROM t1 WHERE score >= 10 AND score < 12.5 AND name = 'n0'");
+            assertEquals(10, after.size());
+            assertEquals(before.size(), after.size());
+            assertTrue(after.containsAll(before));
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE score > 50 AND 40 > score").size());
+            assertEquals(100, rdb.query("SELECT * FROM t1 WHERE name >= 'n9'").size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("CREATE INDEX score_idx ON t1 (name);"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("CREATE INDEX other ON t1 (missing);"));
+        }
+
+        @Test
+        @DisplayName("Order By Test")
+        public void orderByTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, name VARCHAR);");
+            rdb.execute("INSERT INTO t1 VALUES (2, 'b');");
+            rdb.execute("INSERT INTO t1 VALUES (NULL, 'c');");
+            rdb.execute("INSERT INTO t1 VALUES (3, 'a');");
+            rdb.execute("INSERT INTO t1 VALUES (1, 'a');");
+            assertEquals(List.of(Map.of("id", "3"), Map.of("id", "1"), Map.of("id", "2")),
+                    rdb.query("SELECT id FROM t1 WHERE id > 0 ORDER BY name, id DESC"));
+            List<Map<String, String>> sorted = rdb.query("SELECT id FROM t1 ORDER BY id DESC");
+            rdb.execute("CREATE INDEX id_idx ON t1 (id);");
+            assertEquals(sorted, rdb.query("SELECT id FROM t1 ORDER BY id DESC"));
+            assertEquals("3", sorted.get(0).get("id"));
+            assertNull(sorted.get(3).get("id"));
+            assertEquals(List.of(Map.of("name", "a"), Map.of("name", "b")), rdb.query("SELECT name FROM t1 WHERE id <= 2 ORDER BY id ASC"));
+        }
+
+        @Test
+        @DisplayName("Update Delete Test")
+        public void updateDeleteTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, age INT, name VARCHAR NOT NULL);");
+            rdb.execute("CREATE INDEX age_idx ON t1 (age);");
+            for (int i = 0; i < 100; i++) {
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", " + i + ", 'n" + i + "');");
+            }
+            rdb.execute("DELETE FROM t1 WHERE age < 50;");
+            assertEquals(50, rdb.select("t1").size());
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE id = 10").size());
+            rdb.execute("INSERT INTO t1 VALUES (10, 10, 'again');");
+            assertEquals(List.of(Map.of("name", "again")), rdb.query("SELECT name FROM t1 WHERE id = 10"));
+
+            rdb.execute("UPDATE t1 SET age = 5, name = 'old' WHERE age >= 90;");
+            assertEquals(11, rdb.query("SELECT * FROM t1 WHERE age <= 10").size());
+            assertEquals(10, rdb.query("SELECT * FROM t1 WHERE name = 'old'").size());
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE age > 89").size());
+            rdb.execute("UPDATE t1 SET id = 1000 WHERE id = 99;");
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE id = 1000").size());
+            assertEquals(0, rdb.query("SELECT * FROM t1 WHERE id = 99").size());
+
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("UPDATE t1 SET id = 60 WHERE id = 61;"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("UPDATE t1 SET id = 7 WHERE age > 60;"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("UPDATE t1 SET name = NULL;"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("UPDATE t1 SET age = 'x';"));
+            assertEquals(1, rdb.query("SELECT * FROM t1 WHERE id = 61").size());
+
+            rdb.execute("DELETE FROM t1;");
+            assertEquals(0, rdb.select("t1").size());
+            assertEquals(0, rdb.query("SELECT * FROM t1 ORDER BY age").size());
+        }
+
+        @Test
+        @DisplayName("Batch Filter Test")
+        public void batchTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, bucket INT, ok BOOL, name VARCHAR);");
+            for (int i = 0; i < 10000; i++) {
+                String bucket = i % 5 == 0 ? "NULL" : Integer.toString(i % 7);
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", " + bucket + ", " + (i % 2 == 0 ? "TRUE" : "FALSE") + ", 'n" + (i % 3) + "');");
+            }
+            rdb.execute("DELETE FROM t1 WHERE id >= 4000 AND id < 4100;");
+            int expected = 0;
+            for (int i = 0; i < 10000; i++) {
+                boolean live = i < 4000 || i >= 4100;
+                boolean bucket = i % 5 != 0 && i % 7 >= 3;
+                if (live && ((bucket && i % 2 == 0) || (i % 3 == 2 && i > 9000))) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, rdb.query("SELECT id FROM t1 WHERE bucket >= 3 AND ok = TRUE OR name > 'n1' AND id > 9000").size());
+            List<Map<String, String>> rows = rdb.query("SELECT id FROM t1 WHERE id > 8190 AND id < 8194");
+            assertEquals(List.of(Map.of("id", "8191"), Map.of("id", "8192"), Map.of("id", "8193")), rows);
+        }
+
+        @Test
+        @DisplayName("Compiled Condition Test")
+        public void compiledTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            for (String table : List.of("scanned", "indexed")) {
+                rdb.execute("CREATE TABLE " + table + " (id INT, score FLOAT, ok BOOL, name VARCHAR);");
+                for (int i = 0; i < 500; i++) {
+                    String score = i % 11 == 0 ? "NULL" : (i % 40) + ".25";
+                    rdb.execute("INSERT INTO " + table + " VALUES (" + i + ", " + score + ", " + (i % 3 == 0 ? "TRUE" : "FALSE")
+                            + ", 'n" + (i % 9) + "');");
+                }
+            }
+            rdb.execute("CREATE INDEX id_idx ON indexed (id);");
+            String[] conditions = {
+                    "id >= 100 AND (score < 10 OR name = 'n3')",
+                    "id < 400 AND ok = TRUE AND name >= 'n5'",
+                    "id > 50 AND (score <> 20.25 AND ok = FALSE OR id = 7)",
+                    "id <= 250 AND score = NULL",
+            };
+            for (String condition : conditions) {
+                // The same rows come back whether they are found by a scan or through the index
+                for (String literal : List.of("", " AND id <> 123")) {
+                    assertEquals(rdb.query("SELECT * FROM scanned WHERE " + condition + literal + " ORDER BY id"),
+                            rdb.query("SELECT * FROM indexed WHERE " + condition + literal + " ORDER BY id"), condition);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Prepared Statement Test")
+        public void preparedTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR, joined DATE, score FLOAT);");
+            RamaPreparedStatement insert = rdb.prepare("INSERT INTO t1 VALUES (?, ?, ?, ?);");
+            assertEquals(4, insert.getParameterCount());
+            for (int i = 0; i < 5; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, i == 3 ? null : "n" + i);
+                insert.setDate(3, LocalDate.of(2024, 1, i + 1));
+                insert.setDouble(4, i * 1.5);
+                insert.execute();
+            }
+
+            RamaPreparedStatement select = rdb.prepare("SELECT name FROM t1 WHERE joined >= ? AND score < ? ORDER BY id DESC");
+            select.setDate(1, LocalDate.of(2024, 1, 2));
+            select.setDouble(2, 6);
+            List<Map<String, String>> rows = select.executeQuery();
+            assertEquals(3, rows.size());
+            assertNull(rows.get(0).get("name"));
+            assertEquals(List.of(Map.of("name", "n2"), Map.of("name", "n1")), rows.subList(1, 3));
+
+            RamaPreparedStatement update = rdb.prepare("UPDATE t1 SET name = ? WHERE id = ?");
+            update.setString(1, "renamed");
+            update.setInt(2, 4);
+            update.execute();
+            assertEquals(List.of(Map.of("name", "renamed")), rdb.query("SELECT name FROM t1 WHERE id = 4"));
+
+            insert.clearParameters();
+            insert.setInt(1, 9);
+            assertThrows(IllegalArgumentException.class, insert::execute);
+            assertThrows(IllegalArgumentException.class, () -> insert.setInt(5, 1));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("SELECT * FROM t1 WHERE id = ?"));
+            assertEquals(5, rdb.select("t1").size());
+        }
+
+        @Test
+        @DisplayName("Plan Cache Test")
+        public void planCacheTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT, name VARCHAR);");
+            assertEquals(0, rdb.getPlanCacheMisses());
+            for (int i = 0; i < 10; i++) {
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", 'n" + i + "');");
+            }
+            assertEquals(1, rdb.getPlanCacheMisses());
+            assertEquals(9, rdb.getPlanCacheHits());
+
+            // Statements differing only in their literals share a template but bind their own values
+            assertEquals(List.of(Map.of("name", "n3")), rdb.query("SELECT name FROM t1 WHERE id = 3"));
+            assertEquals(List.of(Map.of("name", "n7")), rdb.query("SELECT name FROM t1 WHERE id = 7"));
+            assertEquals(List.of(Map.of("id", "5")), rdb.query("SELECT id FROM t1 WHERE name = 'n5'"));
+            assertEquals(List.of(Map.of("id", "6")), rdb.query("SELECT id FROM t1 WHERE name = 'n6'"));
+            assertEquals(3, rdb.getPlanCacheMisses());
+            assertEquals(11, rdb.getPlanCacheHits());
+
+            RuntimeException e = assertThrows(RuntimeException.class, () -> rdb.execute("SELECT name FROM t1 WHERE id = 5 7;"));
+            assertTrue(e.getMessage().endsWith("7"), e.getMessage());
+        }
+
+        @Test
+        @DisplayName("Multi-row Insert Test")
+        public void multiRowInsertTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR(5) DEFAULT 'none');"
+                    + "INSERT INTO t1 VALUES (1, 'a'), (2, NULL), (3, 'c');"
+                    + "INSERT INTO t1 (id) VALUES (4), (5);");
+            assertEquals(5, rdb.select("t1").size());
+            assertEquals(List.of(Map.of("name", "none")), rdb.query("SELECT name FROM t1 WHERE id = 5"));
+
+            // A rejected row rejects the whole statement
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (6, 'f'), (6, 'g');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (7, 'g'), (1, 'h');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (8, 'h'), (9, 'too long');"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (10, 'i'), ('x', 'j');"));
+            assertEquals(5, rdb.select("t1").size());
+            assertTrue(rdb.query("SELECT id FROM t1 WHERE id = 7").isEmpty());
+
+            rdb.execute("INSERT INTO t1 VALUES (6, 'f'), (7, 'g');");
+            assertEquals(List.of(Map.of("id", "6"), Map.of("id", "7")), rdb.query("SELECT id FROM t1 WHERE id > 5 ORDER BY id"));
+        }
+
+        @Test
+        @DisplayName("Cursor Test")
+        public void cursorTest() {
+            RamaDatabase rdb = new RamaDatabase(Storage.OFF_HEAP);
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, score INT, name VARCHAR);");
+            RamaPreparedStatement insert = rdb.prepare("INSERT INTO t1 VALUES (?, ?, ?);");
+            for (int i = 0; i < 10000; i++) {
+                insert.setInt(1, i);
+                insert.setInt(2, i % 100);
+                insert.setString(3, "n" + i);
+                insert.execute();
+            }
+
+            RamaCursor cursor = rdb.cursor("SELECT id, name FROM t1 WHERE score = 7");
+            cursor.setFetchSize(10);
+            assertEquals(List.of("id", "name"), cursor.getColumns());
+            assertEquals(Map.of("id", "7", "name", "n7"), cursor.next());
+            // The cursor keeps reading the version it opened at, even after its table is dropped
+            rdb.execute("DELETE FROM t1 WHERE score = 7 AND id > 5000;");
+            rdb.drop("t1");
+            int read = 1;
+            while (cursor.hasNext()) {
+                assertEquals("n" + (read * 100 + 7), cursor.next().get("name"));
+                read++;
+            }
+            assertEquals(100, read);
+            assertTrue(cursor.isClosed());
+            assertThrows(java.util.NoSuchElementException.class, cursor::next);
+
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, score INT, name VARCHAR);"
+                    + "INSERT INTO t1 VALUES (1, 10, 'a'), (2, 20, 'b'), (3, 30, 'c'), (4, 40, 'd'), (5, 50, 'e');");
+            assertEquals(List.of(Map.of("id", "4"), Map.of("id", "3")),
+                    rdb.query("SELECT id FROM t1 ORDER BY score DESC LIMIT 2 OFFSET 1"));
+            assertEquals(List.of(Map.of("id", "5")), rdb.query("SELECT id FROM t1 OFFSET 4"));
+            assertTrue(rdb.query("SELECT id FROM t1 LIMIT 0").isEmpty());
+            long misses = rdb.getPlanCacheMisses();
+            assertEquals(3, rdb.query("SELECT id FROM t1 WHERE score > 15 LIMIT 3").size());
+            assertEquals(2, rdb.query("SELECT id FROM t1 WHERE score > 15 LIMIT 2").size());
+            assertEquals(misses + 1, rdb.getPlanCacheMisses());
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT id FROM t1 LIMIT -1"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT id FROM t1 LIMIT 'x'"));
+
+            RamaPreparedStatement page = rdb.prepare("SELECT name FROM t1 WHERE score >= ? LIMIT ? OFFSET ?");
+            page.setInt(1, 20);
+            page.setInt(2, 2);
+            page.setInt(3, 1);
+            try (RamaCursor rows = page.executeCursor()) {
+                assertEquals(List.of("c", "d"), rows.stream().map(row -> row.get("name")).toList());
+            }
+            try (java.util.stream.Stream<Map<String, String>> rows = rdb.cursor("SELECT * FROM t1").stream()) {
+                assertEquals(2, rows.limit(2).count());
+            }
+
+            // execute returns nothing for a SELECT and writes nothing to the console
+            java.io.PrintStream console = System.out;
+            java.io.ByteArrayOutputStream printed = new java.io.ByteArrayOutputStream();
+            System.setOut(new java.io.PrintStream(printed));
+            try {
+                rdb.execute("SELECT * FROM t1; SELECT id FROM t1 WHERE score > 15;");
+            } finally {
+                System.setOut(console);
+            }
+            assertEquals(0, printed.size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("SELECT missing FROM t1;"));
+        }
+
+        @Test
+        @DisplayName("Parallel Scan Test")
+        public void parallelScanTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, score INT, name VARCHAR);");
+            for (int batch = 0; batch < 50; batch++) {
+                StringBuilder insert = new StringBuilder("INSERT INTO t1 VALUES ");
+                for (int i = batch * 1000; i < (batch + 1) * 1000; i++) {
+                    insert.append(i > batch * 1000 ? ", (" : "(").append(i).append(", ").append(i % 97)
+                            .append(", 'n").append(i % 13).append("')");
+                }
+                rdb.execute(insert + ";");
+            }
+            rdb.execute("DELETE FROM t1 WHERE score = 5;"
+                    + "UPDATE t1 SET name = 'moved' WHERE score = 6;");
+
+            String[] queries = {
+                    "SELECT id FROM t1 WHERE score < 10 AND name != 'n3'",
+                    "SELECT * FROM t1 WHERE name = 'moved'",
+                    "SELECT id, score FROM t1 ORDER BY score DESC, id",
+                    "SELECT * FROM t1"
+            };
+            rdb.setQueryParallelism(1);
+            List<List<Map<String, String>>> expected = new ArrayList<>();
+            for (String query : queries) {
+                expected.add(rdb.query(query));
+            }
+            List<Map<String, String>> all = rdb.select("t1");
+            rdb.setQueryParallelism(8);
+            for (int i = 0; i < queries.length; i++) {
+                assertEquals(expected.get(i), rdb.query(queries[i]));
+            }
+            assertEquals(all, rdb.select("t1"));
+            assertEquals(50000 - 516, all.size());
+            assertEquals(516, rdb.query("SELECT id FROM t1 WHERE name = 'moved'").size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.setQueryParallelism(0));
+        }
+
+        @Test
+        @DisplayName("Sort Test")
+        public void sortTest() throws IOException {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR, score FLOAT);");
+            List<Object[]> rows = new ArrayList<>();
+            Random random = new Random(7);
+            for (int batch = 0; batch < 10; batch++) {
+                StringBuilder insert = new StringBuilder("INSERT INTO t1 VALUES ");
+                for (int i = batch * 2000; i < (batch + 1) * 2000; i++) {
+                    // Names share long prefixes, so most comparisons fall back to the full value
+                    String name = i % 17 == 0 ? null : "name-" + random.nextInt(500);
+                    Double score = i % 23 == 0 ? null : (double) (random.nextInt(2001) - 1000) / 4;
+                    rows.add(new Object[]{i, name, score});
+                    insert.append(i > batch * 2000 ? ", (" : "(").append(i).append(", ")
+                            .append(name == null ? "NULL" : "'" + name + "'").append(", ").append(score == null ? "NULL" : score).append(")");
+                }
+                rdb.execute(insert + ";");
+            }
+            rows.sort(Comparator.comparing((Object[] row) -> (String) row[1],
+                            Comparator.nullsFirst(Comparator.<String>naturalOrder())).reversed()
+                    .thenComparing(row -> (Double) row[2], Comparator.nullsFirst(Comparator.<Double>naturalOrder())));
+            List<String> expected = new ArrayList<>();
+            for (Object[] row : rows) {
+                expected.add(String.valueOf(row[0]));
+            }
 
+            String query = "SELECT id FROM t1 ORDER BY name DESC, score";
+            Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+            for (long budget : new long[]{64L << 20, 1000}) {
+                rdb.setSortMemoryBudget(budget);
+                List<String> sorted = new ArrayList<>();
+                for (Map<String, String> row : rdb.query(query)) {
+                    sorted.add(row.get("id"));
+                }
+                assertEquals(expected, sorted);
+                List<String> page = new ArrayList<>();
+                for (Map<String, String> row : rdb.query(query + " LIMIT 25 OFFSET 100")) {
+                    page.add(row.get("id"));
+                }
+                assertEquals(expected.subList(100, 125), page);
+            }
+
+            // A spilled sort closed part way through leaves no run files behind
+            try (RamaCursor cursor = rdb.cursor(query)) {
+                assertEquals(expected.get(0), cursor.next().get("id"));
+            }
+            try (Stream<Path> files = Files.list(tmp)) {
+                assertEquals(0, files.filter(file -> file.getFileName().toString().startsWith("rama-sort-")).count());
+            }
+            assertEquals(List.of(Map.of("id", "0")), rdb.query("SELECT id FROM t1 WHERE id < 2 ORDER BY id LIMIT 1"));
+            assertEquals(0, rdb.query(query + " LIMIT 0").size());
+            assertThrows(IllegalArgumentException.class, () -> rdb.setSortMemoryBudget(0));
+        }
+
+        @Test
+        @DisplayName("Projection Test")
+        public void projectionTest() {
+            for (Storage storage : Storage.values()) {
+                RamaDatabase rdb = new RamaDatabase(storage);
+                StringBuilder create = new StringBuilder("CREATE TABLE wide (id INT PRIMARY KEY");
+                for (int c = 0; c < 24; c++) {
+                    create.append(", c").append(c).append(c % 2 == 0 ? " VARCHAR" : " FLOAT");
+                }
+                rdb.execute(create + ");");
+                StringBuilder insert = new StringBuilder("INSERT INTO wide VALUES ");
+                for (int i = 0; i < 9000; i++) {
+                    insert.append(i > 0 ? ", (" : "(").append(i);
+                    for (int c = 0; c < 24; c++) {
+                        // Every seventh row leaves its text NULL
+                        String value = c % 2 == 1 ? i + ".5" : i % 7 == 0 ? "NULL" : "'v" + (i % 50) + "'";
+                        insert.append(", ").append(value);
+                    }
+                    insert.append(")");
+                }
+                rdb.execute(insert + ";");
+
+                try (RamaCursor cursor = rdb.cursor("SELECT c4, id FROM wide WHERE c3 > 4000.0 AND id < 8500")) {
+                    cursor.setFetchSize(97);
+                    assertEquals(List.of("c4", "id"), cursor.getColumns());
+                    int expected = 4000;
+                    while (cursor.hasNext()) {
+                        Map<String, String> row = cursor.next();
+                        assertEquals(List.of("c4", "id"), List.copyOf(row.keySet()));
+                        assertEquals(String.valueOf(expected), row.get("id"));
+                        assertEquals(expected % 7 == 0 ? null : "v" + expected % 50, row.get("c4"));
+                        expected++;
+                    }
+                    assertEquals(8500, expected);
+                }
+                assertEquals(List.of(Map.of("c1", "43.5", "c22", "v43")),
+                        rdb.query("SELECT c1, c22 FROM wide WHERE id = 43"));
+            }
+        }
+
+        @Test
+        @DisplayName("Statistics Test")
+        public void statisticsTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE events (id INT PRIMARY KEY, kind VARCHAR, score INT);"
+                    + "CREATE TABLE kinds (kind VARCHAR, label VARCHAR);"
+                    + "CREATE INDEX by_score ON events (score);");
+            StringBuilder insert = new StringBuilder("INSERT INTO events VALUES ");
+            for (int i = 0; i < 5000; i++) {
+                // Every fifth score is NULL, so no score is a multiple of five
+                String score = i % 5 == 0 ? "NULL" : String.valueOf(i % 1000);
+                insert.append(i > 0 ? ", (" : "(").append(i).append(", 'k").append(i % 40).append("', ")
+                        .append(score).append(")");
+            }
+            rdb.execute(insert + ";");
+            for (int k = 0; k < 40; k++) {
+                rdb.execute("INSERT INTO kinds VALUES ('k" + k + "', 'label" + k + "');");
+            }
+
+            TableStatistics statistics = rdb.getStatistics("events");
+            assertFalse(statistics.isAnalyzed());
+            assertEquals(1000, statistics.getNullCount("score"));
+            assertEquals("1", statistics.getMin("score"));
+            assertEquals("999", statistics.getMax("score"));
+            assertEquals(800, statistics.getDistinctCount("score"), 80);
+            assertEquals(40, statistics.getDistinctCount("kind"), 4);
+
+            rdb.execute("DELETE FROM events WHERE id >= 2500; ANALYZE events;");
+            statistics = rdb.getStatistics("events");
+            assertTrue(statistics.isAnalyzed());
+            assertEquals(2500, statistics.getRowCount());
+            assertEquals(500, statistics.getNullCount("score"));
+            assertEquals(5000, statistics.getDistinctCount("id"), 500 * 5);
+
+            // Narrow and wide ranges reach the same rows whichever path the planner takes
+            for (int low : new int[]{0, 10, 995}) {
+                List<String> expected = new ArrayList<>();
+                for (int i = 0; i < 2500; i++) {
+                    if (i % 5 != 0 && i % 1000 > low) {
+                        expected.add(String.valueOf(i));
+                    }
+                }
+                List<String> ids = new ArrayList<>();
+                for (Map<String, String> row : rdb.query("SELECT id FROM events WHERE score > " + low + " ORDER BY id")) {
+                    ids.add(row.get("id"));
+                }
+                assertEquals(expected, ids);
+            }
+
+            // The plan, and so the order of unsorted rows, does not depend on which table is named first
+            for (String where : new String[]{"score < 50", "score < 3", "label = 'label7'"}) {
+                List<Map<String, String>> forward = rdb.query("SELECT id, label FROM events JOIN kinds "
+                        + "ON events.kind = kinds.kind WHERE " + where);
+                List<Map<String, String>> backward = rdb.query("SELECT id, label FROM kinds JOIN events "
+                        + "ON kinds.kind = events.kind WHERE " + where);
+                assertFalse(forward.isEmpty());
+                assertEquals(forward, backward);
+            }
+
+            rdb.execute("ANALYZE");
+            assertTrue(rdb.getStatistics("kinds").isAnalyzed());
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("ANALYZE missing"));
+        }
+
+        @Test
+        @DisplayName("Zone Map Test")
+        public void zoneMapTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE z (id INT PRIMARY KEY, day DATE, score FLOAT, name VARCHAR, flag BOOL);");
+            int rows = 20000;
+            LocalDate start = LocalDate.of(2024, 1, 1);
+            LocalDate[] days = new LocalDate[rows + 1];
+            Double[] scores = new Double[rows + 1];
+            StringBuilder insert = new StringBuilder("INSERT INTO z VALUES ");
+            for (int i = 0; i < rows; i++) {
+                days[i] = start.plusDays(i / 10);
+                // The third chunk of scores is all NULL, and -0.0 is the greatest score of the fourth
+                scores[i] = i >= 8192 && i < 12288 ? null : i == 16383 ? -0.0 : (i - 16383) / 2.0;
+                insert.append(i > 0 ? ", (" : "(").append(i).append(", '").append(days[i]).append("', ")
+                        .append(scores[i] == null ? "NULL" : scores[i].toString())
+                        .append(String.format(", 'n%05d', ", i)).append(i >= 18000 ? "TRUE" : "FALSE").append(")");
+            }
+            rdb.execute(insert + ";");
+            // An updated row moves to the end of the table, out of its old chunk's range
+            rdb.execute("UPDATE z SET day = '2030-01-01' WHERE id = 5;"
+                    + "DELETE FROM z WHERE id >= 3000 AND id < 3100;");
+            days[5] = LocalDate.of(2030, 1, 1);
+            LocalDate from = LocalDate.of(2025, 1, 1);
+            LocalDate to = LocalDate.of(2025, 2, 1);
+
+            Map<String, IntPredicate> queries = new LinkedHashMap<>();
+            queries.put("day >= '2025-01-01' AND day < '2025-02-01'",
+                    i -> !days[i].isBefore(from) && days[i].isBefore(to));
+            queries.put("day > '2029-12-31'", i -> days[i].getYear() >= 2030);
+            queries.put("day = '2024-01-01'", i -> days[i].equals(start));
+            queries.put("score = 0", i -> scores[i] != null && scores[i] == 0);
+            queries.put("score >= 0.0", i -> scores[i] != null && scores[i] >= 0);
+            queries.put("score < 0", i -> scores[i] != null && scores[i] < 0);
+            queries.put("score > -2 AND score <= 1", i -> scores[i] != null && scores[i] > -2 && scores[i] <= 1);
+            queries.put("score != 1", i -> scores[i] != null && scores[i] != 1);
+            queries.put("name >= 'n12000' AND name < 'n12100'", i -> i >= 12000 && i < 12100);
+            queries.put("name > 'n19998'", i -> i > 19998);
+            queries.put("name = 'n17000'", i -> i == 17000);
+            queries.put("name = 'missing'", i -> false);
+            queries.put("flag = TRUE OR id < 3", i -> i >= 18000 || i < 3);
+            queries.put("id > 19990 OR day < '2024-01-02'", i -> i > 19990 || days[i].equals(start));
+            for (boolean analyzed : new boolean[]{false, true}) {
+                if (analyzed) {
+                    rdb.execute("ANALYZE z;");
+                }
+                for (Map.Entry<String, IntPredicate> query : queries.entrySet()) {
+                    List<String> expected = new ArrayList<>();
+                    for (int i = 0; i < rows; i++) {
+                        if ((i < 3000 || i >= 3100) && query.getValue().test(i)) {
+                            expected.add(String.valueOf(i));
+                        }
+                    }
+                    List<String> ids = new ArrayList<>();
+                    for (Map<String, String> row : rdb.query("SELECT id FROM z WHERE " + query.getKey() + " ORDER BY id")) {
+                        ids.add(row.get("id"));
+                    }
+                    assertEquals(expected, ids, query.getKey());
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Aggregate Test")
+        public void aggregateTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE sales (id INT PRIMARY KEY, region VARCHAR, qty INT, price FLOAT, day DATE);");
+            long[] sums = new long[7];
+            long[] counts = new long[7];
+            int[] maxQty = new int[7];
+            for (int batch = 0; batch < 40; batch++) {
+                StringBuilder insert = new StringBuilder("INSERT INTO sales VALUES ");
+                for (int i = batch * 1000; i < (batch + 1) * 1000; i++) {
+                    int region = i % 7;
+                    // Every eleventh sale has no quantity and region 6 has none at all
+                    String qty = i % 11 == 0 || region == 6 ? "NULL" : String.valueOf(i % 50);
+                    if (!qty.equals("NULL")) {
+                        sums[region] += i % 50;
+                        counts[region]++;
+                        maxQty[region] = Math.max(maxQty[region], i % 50);
+                    }
+                    insert.append(i > batch * 1000 ? ", (" : "(").append(i).append(", 'r").append(region)
+                            .append("', ").append(qty).append(", ").append(i % 4).append(".5, '2026-01-0")
+                            .append(1 + i % 9).append("')");
+                }
+                rdb.execute(insert + ";");
+            }
+
+            String query = "SELECT region, COUNT(*), COUNT(qty), SUM(qty), AVG(qty), MAX(qty), MIN(day), SUM(price) "
+                    + "FROM sales GROUP BY region ORDER BY region";
+            rdb.setQueryParallelism(1);
+            List<Map<String, String>> expected = rdb.query(query);
+            rdb.setQueryParallelism(8);
+            assertEquals(expected, rdb.query(query));
+            assertEquals(7, expected.size());
+            for (int region = 0; region < 7; region++) {
+                Map<String, String> row = expected.get(region);
+                assertEquals("r" + region, row.get("region"));
+                assertEquals(String.valueOf(counts[region]), row.get("COUNT(qty)"));
+                assertEquals(region == 6 ? null : String.valueOf(sums[region]), row.get("SUM(qty)"));
+                assertEquals(region == 6 ? null : String.valueOf((double) sums[region] / counts[region]),
+                        row.get("AVG(qty)"));
+                assertEquals(region == 6 ? null : String.valueOf(maxQty[region]), row.get("MAX(qty)"));
+                assertEquals("2026-01-01", row.get("MIN(day)"));
+            }
+            assertEquals(List.of("region", "COUNT(*)", "COUNT(qty)", "SUM(qty)", "AVG(qty)", "MAX(qty)", "MIN(day)",
+                    "SUM(price)"), List.copyOf(expected.get(0).keySet()));
+
+            assertEquals(List.of(Map.of("COUNT(*)", "40000")), rdb.query("SELECT COUNT(*) FROM sales"));
+            assertEquals(List.of(Map.of("COUNT(*)", "0")), rdb.query("SELECT COUNT(*) FROM sales WHERE id < 0"));
+            assertEquals(0, rdb.query("SELECT region FROM sales WHERE id < 0 GROUP BY region").size());
+            List<Map<String, String>> top = rdb.query("SELECT region, day, COUNT(*) FROM sales WHERE qty > 10 "
+                    + "GROUP BY region, day ORDER BY COUNT(*) DESC, region, day LIMIT 3");
+            assertEquals(3, top.size());
+            assertTrue(Long.parseLong(top.get(0).get("COUNT(*)")) >= Long.parseLong(top.get(2).get("COUNT(*)")));
+            assertEquals(63, rdb.query("SELECT region, day FROM sales GROUP BY region, day").size());
+
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT region, qty FROM sales GROUP BY region"));
+            assertThrows(IllegalArgumentException.class, () -> rdb.query("SELECT SUM(region) FROM sales"));
+            assertThrows(RuntimeException.class, () -> rdb.query("SELECT SUM(*) FROM sales"));
+        }
+
+        @Test
+        @DisplayName("Null Group Test")
+        public void nullGroupTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE s (id INT PRIMARY KEY, g INT, name VARCHAR);"
+                    + "INSERT INTO s VALUES (1, 1, 'n1'), (2, NULL, NULL), (3, 2, 'n2'), (4, NULL, NULL);");
+            Map<String, String> single = new LinkedHashMap<>();
+            single.put("g", null);
+            single.put("COUNT(*)", "2");
+            List<Map<String, String>> groups = rdb.query("SELECT g, COUNT(*) FROM s GROUP BY g");
+            assertEquals(3, groups.size());
+            assertTrue(groups.contains(single));
+
+            for (int batch = 0; batch < 20; batch++) {
+                StringBuilder insert = new StringBuilder("INSERT INTO s VALUES ");
+                for (int i = batch * 1000 + 5; i < (batch + 1) * 1000 + 5; i++) {
+                    // NULL keys follow every other key, so each row before a NULL holds a different value
+                    String g = i % 3 == 0 ? "NULL" : String.valueOf(i % 37);
+                    String name = i % 5 == 0 ? "NULL" : "'n" + i % 37 + "'";
+                    insert.append(i > batch * 1000 + 5 ? ", (" : "(").append(i).append(", ").append(g).append(", ")
+                            .append(name).append(")");
+                }
+                rdb.execute(insert + ";");
+            }
+            for (String column : List.of("g", "name")) {
+                String query = "SELECT " + column + ", COUNT(*) FROM s GROUP BY " + column;
+                rdb.setQueryParallelism(1);
+                Map<String, String> serial = new LinkedHashMap<>();
+                for (Map<String, String> row : rdb.query(query)) {
+                    assertNull(serial.put(row.get(column), row.get("COUNT(*)")));
+                }
+                rdb.setQueryParallelism(8);
+                Map<String, String> parallel = new LinkedHashMap<>();
+                for (Map<String, String> row : rdb.query(query)) {
+                    assertNull(parallel.put(row.get(column), row.get("COUNT(*)")));
+                }
+                assertEquals(38, serial.size());
+                assertEquals(serial, parallel);
+                assertTrue(serial.containsKey(null));
+            }
+        }
+
+
+        @Test
+        @DisplayName("Hash Join Test")
+        public void hashJoinTest() {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR, city VARCHAR);"
+                    + "CREATE TABLE orders (oid INT PRIMARY KEY, cust INT, amount INT);"
+                    + "CREATE TABLE cities (city VARCHAR, region CHAR(8));"
+                    + "INSERT INTO cities VALUES ('c0', 'north'), ('c1', 'south'), ('c1', 'east');");
+            for (int i = 0; i < 100; i++) {
+                rdb.execute("INSERT INTO customers VALUES (" + i + ", 'name" + i + "', 'c" + i % 3 + "');");
+            }
+            StringBuilder insert = new StringBuilder("INSERT INTO orders VALUES ");
+            for (int i = 0; i < 3000; i++) {
+                // Every tenth order has no customer and some point past the last customer
+                String cust = i % 10 == 0 ? "NULL" : String.valueOf(i % 120);
+                insert.append(i > 0 ? ", (" : "(").append(i).append(", ").append(cust).append(", ")
+                        .append(i % 100).append(")");
+            }
+            rdb.execute(insert + ";");
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                int cust = i % 120;
+                if (i % 10 != 0 && cust < 100 && i % 100 > 50 && cust % 3 == 1) {
+                    expected.add(i + ":name" + cust);
+                }
+            }
+            String query = "SELECT oid, customers.name FROM orders JOIN customers ON orders.cust = customers.id "
+                    + "WHERE amount > 50 AND city = 'c1' ORDER BY oid";
+            for (long budget : new long[]{64L << 20, 1}) {
+                rdb.setJoinMemoryBudget(budget);
+                List<String> joined = new ArrayList<>();
+                for (Map<String, String> row : rdb.query(query)) {
+                    joined.add(row.get("oid") + ":" + row.get("customers.name"));
+                }
+                assertEquals(expected, joined);
+                assertEquals(rdb.query("SELECT oid FROM orders WHERE cust >= 0 AND cust < 100").size(),
+                        rdb.query("SELECT oid FROM customers JOIN orders ON id = cust").size());
+            }
+            rdb.setJoinMemoryBudget(64L << 20);
+
+            List<Map<String, String>> rows = rdb.query("SELECT * FROM cities JOIN customers "
+                    + "ON cities.city = customers.city WHERE region = 'east' AND id < 10 ORDER BY id DESC LIMIT 2");
+            assertEquals(List.of("cities.city", "cities.region", "customers.id", "customers.name", "customers.city"),
+                    List.copyOf(rows.get(0).keySet()));
+            assertEquals("7", rows.get(0).get("customers.id"));
+            assertEquals("4", rows.get(1).get("customers.id"));
+            assertEquals(100, rdb.query("SELECT region FROM customers JOIN cities ON customers.city = cities.city")
+                    .size());
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> rdb.query("SELECT * FROM orders JOIN customers ON amount = name"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> rdb.query("SELECT city FROM customers JOIN cities ON customers.city = cities.city"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> rdb.query("SELECT * FROM orders JOIN customers ON cust = id WHERE amount = id"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> rdb.query("SELECT * FROM orders JOIN customers ON oid = cust"));
+        }
+
+        @Test
+        @DisplayName("Snapshot Read Test")
+        public void snapshotReadTest() throws InterruptedException {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, round INT, name VARCHAR);");
+            rdb.execute("CREATE INDEX round_idx ON t1 (round);");
+            for (int i = 0; i < 5000; i++) {
+                rdb.execute("INSERT INTO t1 VALUES (" + i + ", 0, 'r0');");
+            }
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<String> failures = new CopyOnWriteArrayList<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                readers.add(new Thread(() -> {
+                    while (writing.get()) {
+                        // Each query sees every row of one round, never a mix of two
+                        List<Map<String, String>> rows = rdb.query("SELECT round, name FROM t1 WHERE id >= 0");
+                        if (rows.size() != 5000 || rows.stream().distinct().count() != 1) {
+                            failures.add(rows.size() + " rows, " + rows.stream().distinct().count() + " rounds");
+                        }
+                        String round = rows.get(0).get("round");
+                        if (rdb.query("SELECT id FROM t1 WHERE round >= " + round).size() < 5000
+                                || rdb.query("SELECT id FROM t1 WHERE id = 4321").size() != 1) {
+                            failures.add("index lost rows of round " + round);
+                        }
+                    }
+                }));
+            }
+            readers.forEach(Thread::start);
+            for (int round = 1; round <= 20; round++) {
+                rdb.execute("UPDATE t1 SET round = " + round + ", name = 'r" + round + "';");
+                rdb.execute("UPDATE t1 SET id = " + (10000 + round) + " WHERE id = " + round + ";");
+            }
+            writing.set(false);
+            for (Thread thread : readers) {
+                thread.join();
+            }
+            assertEquals(List.of(), failures);
+            assertEquals(5000, rdb.query("SELECT * FROM t1 WHERE round = 20").size());
+        }
+
+        @Test
+        @DisplayName("Consistent Join Snapshot Test")
+        public void joinSnapshotTest() throws InterruptedException {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE a (id INT PRIMARY KEY); CREATE TABLE b (id INT);"
+                    + "INSERT INTO a VALUES (0); INSERT INTO b VALUES (0);");
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<String> failures = new CopyOnWriteArrayList<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(new Thread(() -> {
+                    while (writing.get()) {
+                        // b only ever names a row already in a, so a consistent cut always joins one pair
+                        int pairs = rdb.query("SELECT * FROM a JOIN b ON a.id = b.id").size();
+                        if (pairs != 1) {
+                            failures.add(pairs + " pairs");
+                        }
+                    }
+                }));
+            }
+            readers.forEach(Thread::start);
+            for (int k = 1; k <= 3000; k++) {
+                rdb.execute("INSERT INTO a VALUES (" + k + ");");
+                rdb.execute("UPDATE b SET id = " + k + ";");
+            }
+            writing.set(false);
+            for (Thread thread : readers) {
+                thread.join();
+            }
+            assertEquals(List.of(), failures);
+            assertEquals(List.of(Map.of("a.id", "3000", "b.id", "3000")),
+                    rdb.query("SELECT * FROM a JOIN b ON a.id = b.id"));
+        }
+    }
+
+    /**
+     * Write-ahead log tests
+     */
+    @Nested
+    @DisplayName("Log Tests")
+    public class LogTests {
+        @TempDir
+        Path dir;
+
+        @Test
+        @DisplayName("Replay Test")
+        public void replayTest() {
+            Path file = dir.resolve("db.log");
+            List<Map<String, String>> expected;
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR(10) DEFAULT 'none', joined DATE);"
+                        + "CREATE TABLE t2 (x INT);"
+                        + "INSERT INTO t1 (id, joined) VALUES (1, '2024-01-01');"
+                        + "INSERT INTO t1 VALUES (2, 'b', NULL);"
+                        + "INSERT INTO t1 VALUES (3, 'c', '2024-03-01');"
+                        + "CREATE INDEX joined_idx ON t1 (joined);"
+                        + "UPDATE t1 SET name = 'renamed' WHERE id = 3;"
+                        + "DELETE FROM t1 WHERE id = 2;"
+                        + "INSERT INTO t1 VALUES (4, 'd', '2023-12-31');"
+                        + "DROP TABLE t2;");
+                assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (1, 'dup', NULL);"));
+                rdb.createTable("t3", List.of("a", "b"));
+                rdb.insert("t3", Map.of("a", "x"));
+                expected = rdb.query("SELECT * FROM t1 ORDER BY joined");
+            }
+
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(expected, rdb.query("SELECT * FROM t1 ORDER BY joined"));
+                assertEquals(3, rdb.select("t1").size());
+                assertThrows(IllegalArgumentException.class, () -> rdb.select("t2"));
+                assertEquals(1, rdb.select("t3").size());
+                // Row numbers match the original run, so the key index still rejects duplicates
+                assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (4, 'dup', NULL);"));
+                rdb.execute("INSERT INTO t1 VALUES (5, 'e', NULL);");
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file, SyncPolicy.OS_MANAGED)) {
+                assertEquals(4, rdb.select("t1").size());
+            }
+        }
+
+        @Test
+        @DisplayName("Torn Record Test")
+        public void tornTest() throws IOException {
+            Path file = dir.resolve("torn.log");
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                rdb.execute("CREATE TABLE t1 (id INT); INSERT INTO t1 VALUES (1); INSERT INTO t1 VALUES (2);");
+            }
+            long size = Files.size(file);
+            // A crash part way through writing a record leaves a partial record at the end
+            Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(2, rdb.select("t1").size());
+                assertEquals(size, Files.size(file));
+                rdb.execute("INSERT INTO t1 VALUES (3);");
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(3, rdb.select("t1").size());
+            }
+        }
+
+        @Test
+        @DisplayName("Group Commit Test")
+        public void groupCommitTest() throws InterruptedException {
+            Path file = dir.resolve("group.log");
+            for (SyncPolicy policy : List.of(SyncPolicy.EVERY_COMMIT, SyncPolicy.everyMillis(5))) {
+                try (RamaDatabase rdb = new RamaDatabase(file, policy)) {
+                    rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, writer INT);");
+                    List<Thread> writers = new ArrayList<>();
+                    for (int w = 0; w < 4; w++) {
+                        int writer = w;
+                        writers.add(new Thread(() -> {
+                            for (int i = 0; i < 200; i++) {
+                                rdb.execute("INSERT INTO t1 VALUES (" + (writer * 1000 + i) + ", " + writer + ");");
+                            }
+                        }));
+                    }
+                    writers.forEach(Thread::start);
+                    for (Thread thread : writers) {
+                        thread.join();
+                    }
+                    assertEquals(800, rdb.select("t1").size());
+                }
+                try (RamaDatabase rdb = new RamaDatabase(file)) {
+                    assertEquals(800, rdb.query("SELECT id FROM t1 WHERE writer = 3").size() * 4);
+                    rdb.execute("DROP TABLE t1;");
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Concurrent Insert Test")
+        public void concurrentInsertTest() throws InterruptedException {
+            Path file = dir.resolve("inserts.log");
+            List<Map<String, String>> before;
+            try (RamaDatabase rdb = new RamaDatabase(file, SyncPolicy.OS_MANAGED)) {
+                rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, ok BOOL, name VARCHAR, note VARCHAR);");
+                rdb.execute("INSERT INTO t1 VALUES (-1, FALSE, 'first', NULL);");
+                List<Throwable> duplicates = new CopyOnWriteArrayList<>();
+                List<Thread> writers = new ArrayList<>();
+                for (int w = 0; w < 8; w++) {
+                    int writer = w;
+                    writers.add(new Thread(() -> {
+                        RamaPreparedStatement insert = rdb.prepare("INSERT INTO t1 VALUES (?, ?, ?, ?);");
+                        for (int i = 0; i < 500; i++) {
+                            insert.setInt(1, writer * 1000 + i);
+                            insert.setBoolean(2, i % 2 == 0);
+                            insert.setString(3, "n" + (i % 10));
+                            insert.setString(4, i % 3 == 0 ? null : "w" + writer);
+                            insert.execute();
+                            if (i == 250) {
+                                // A rejected row keeps its slot, so every later row in the log keeps its number
+                                duplicates.add(assertThrows(IllegalArgumentException.class,
+                                        () -> rdb.execute("INSERT INTO t1 VALUES (-1, TRUE, 'again', NULL);")));
+                            }
+                        }
+                    }));
+                }
+                writers.forEach(Thread::start);
+                for (Thread thread : writers) {
+                    thread.join();
+                }
+                assertEquals(8, duplicates.size());
+                assertEquals(4001, rdb.select("t1").size());
+                assertEquals(2000, rdb.query("SELECT id FROM t1 WHERE ok = TRUE").size());
+                assertEquals(400, rdb.query("SELECT id FROM t1 WHERE name = 'n3'").size());
+                assertEquals(333, rdb.query("SELECT id FROM t1 WHERE note = 'w3'").size());
+                assertEquals(List.of(Map.of("note", "w7")), rdb.query("SELECT note FROM t1 WHERE id = 7499"));
+
+                rdb.execute("UPDATE t1 SET name = 'odd' WHERE ok = FALSE AND id > 3000;");
+                rdb.execute("DELETE FROM t1 WHERE name = 'n4';");
+                before = rdb.query("SELECT * FROM t1 ORDER BY id");
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(before, rdb.query("SELECT * FROM t1 ORDER BY id"));
+            }
+        }
+
+        @Test
+        @DisplayName("Table Version Test")
+        public void tableVersionTest() throws InterruptedException {
+            RamaDatabase rdb = new RamaDatabase();
+            rdb.execute("CREATE TABLE shared (id INT PRIMARY KEY);");
+            int writers = 4;
+            for (int w = 0; w < writers; w++) {
+                rdb.execute("CREATE TABLE own" + w + " (id INT PRIMARY KEY);");
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            List<Throwable> errors = new CopyOnWriteArrayList<>();
+            // Each writer inserts its own rows in order, so every snapshot of its table is a prefix of them
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        for (int w = 0; w < writers; w++) {
+                            List<Map<String, String>> rows = rdb.query("SELECT id FROM own" + w + " ORDER BY id");
+                            for (int i = 0; i < rows.size(); i++) {
+                                assertEquals(String.valueOf(i), rows.get(i).get("id"));
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                threads.add(new Thread(() -> {
+                    RamaPreparedStatement own = rdb.prepare("INSERT INTO own" + writer + " VALUES (?);");
+                    RamaPreparedStatement shared = rdb.prepare("INSERT INTO shared VALUES (?);");
+                    for (int i = 0; i < 2000; i++) {
+                        if (i % 100 == 0) {
+                            // An interrupt does not cut short the wait for a turn, and is kept
+                            Thread.currentThread().interrupt();
+                        }
+                        own.setInt(1, i);
+                        own.execute();
+                        shared.setInt(1, writer * 2000 + i);
+                        shared.execute();
+                        if (i % 100 == 0 && !Thread.interrupted()) {
+                            errors.add(new AssertionError("Interrupt was lost"));
+                        }
+                    }
+                }));
+            }
+            reader.start();
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            done.set(true);
+            reader.join();
+            assertEquals(List.of(), errors);
+            assertEquals(writers * 2000, rdb.select("shared").size());
+            for (int w = 0; w < writers; w++) {
+                assertEquals(2000, rdb.select("own" + w).size());
+            }
+            // A rejected insert publishes its slot, so inserts after it are not held up
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO shared VALUES (7);"));
+            rdb.execute("INSERT INTO shared VALUES (-1);");
+            assertEquals(List.of(Map.of("id", "-1")), rdb.query("SELECT id FROM shared WHERE id < 0"));
+
+            // A table is never replaced under its inserts; it must be dropped first
+            assertThrows(IllegalArgumentException.class, () -> rdb.execute("CREATE TABLE shared (name VARCHAR);"));
+            assertEquals(writers * 2000 + 1, rdb.select("shared").size());
+            rdb.drop("shared");
+            rdb.execute("CREATE TABLE shared (name VARCHAR);");
+            assertEquals(0, rdb.select("shared").size());
+        }
+
+        @Test
+        @DisplayName("Load Test")
+        public void loadTest() throws IOException {
+            Path csv = dir.resolve("people.csv");
+            Files.writeString(csv, "id,name,joined,score\r\n"
+                    + "1,plain,2024-01-01,1.5\r\n"
+                    + "2,\"comma, inside\",,2\r\n"
+                    + "\n"
+                    + "3,\"line\nbreak \"\"quoted\"\"\",2024-03-01,\r\n"
+                    + "4,\"\",2024-04-01,4");
+            Path tsv = dir.resolve("people.tsv");
+            Files.writeString(tsv, "5\tfive\t2024-05-01\t5\n6\t\t\t6\n");
+            Path file = dir.resolve("load.log");
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR, joined DATE, score FLOAT);"
+                        + "LOAD '" + csv + "' INTO t1 HEADER;");
+                assertEquals(2, rdb.load("t1", tsv, false));
+                assertEquals(6, rdb.select("t1").size());
+                assertEquals(List.of(Map.of("name", "comma, inside")), rdb.query("SELECT name FROM t1 WHERE id = 2"));
+                assertEquals(List.of(Map.of("name", "line\nbreak \"quoted\"")), rdb.query("SELECT name FROM t1 WHERE id = 3"));
+                assertEquals(List.of(Map.of("name", "")), rdb.query("SELECT name FROM t1 WHERE id = 4"));
+                assertNull(rdb.query("SELECT joined FROM t1 WHERE id = 2").get(0).get("joined"));
+                assertNull(rdb.query("SELECT score FROM t1 WHERE id = 3").get(0).get("score"));
+                assertNull(rdb.query("SELECT name FROM t1 WHERE id = 6").get(0).get("name"));
+                // Loading the same keys again is rejected and leaves the table as it was
+                assertThrows(IllegalArgumentException.class, () -> rdb.load("t1", tsv, false));
+                assertEquals(6, rdb.select("t1").size());
+            }
+
+            // Enough records for several splits, with quoted line breaks falling anywhere
+            Path big = dir.resolve("big.csv");
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 200000; i++) {
+                text.append(i).append(',').append(i % 3 == 0 ? "\"multi\nline, " + i + "\"" : "name" + i)
+                        .append(",2024-01-01,").append(i % 100).append('\n');
+            }
+            Files.writeString(big, text);
+            assertTrue(Files.size(big) > 4 << 20);
+            List<Map<String, String>> expected;
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                rdb.execute("CREATE TABLE t2 (id INT PRIMARY KEY, name VARCHAR, joined DATE, score FLOAT);"
+                        + "LOAD '" + big + "' INTO t2 (id, name, joined, score);");
+                assertEquals(200000, rdb.select("t2").size());
+                assertEquals(List.of(Map.of("name", "multi\nline, 123000")), rdb.query("SELECT name FROM t2 WHERE id = 123000"));
+                assertEquals(List.of(Map.of("name", "name199999")), rdb.query("SELECT name FROM t2 WHERE id = 199999"));
+                assertEquals(List.of(Map.of("name", "name199997")), rdb.query("SELECT name FROM t2 WHERE id = 199997"));
+                assertEquals(2000, rdb.query("SELECT id FROM t2 WHERE score = 42").size());
+                expected = rdb.query("SELECT * FROM t2 WHERE score = 0 ORDER BY id");
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(6, rdb.select("t1").size());
+                assertEquals(200000, rdb.select("t2").size());
+                assertEquals(expected, rdb.query("SELECT * FROM t2 WHERE score = 0 ORDER BY id"));
+            }
+        }
+
+        @Test
+        @DisplayName("Checkpoint Test")
+        public void checkpointTest() throws IOException {
+            Path file = dir.resolve("snap.log");
+            List<Map<String, String>> expected;
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                rdb.execute("CREATE TABLE t1 (id INT PRIMARY KEY, name VARCHAR(10), score FLOAT, ok BOOL);"
+                        + "CREATE INDEX score_idx ON t1 (score);");
+                RamaPreparedStatement insert = rdb.prepare("INSERT INTO t1 VALUES (?, ?, ?, ?);");
+                for (int i = 0; i < 5000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, i % 7 == 0 ? null : "n" + (i % 50));
+                    insert.setDouble(3, (i * 37) % 1000);
+                    insert.setBoolean(4, i % 2 == 0);
+                    insert.execute();
+                }
+                rdb.execute("DELETE FROM t1 WHERE id < 10;");
+                rdb.checkpoint();
+                assertEquals(4990, rdb.select("t1").size());
+                // Changes after the checkpoint are logged against the row numbers kept in the snapshot
+                rdb.execute("INSERT INTO t1 VALUES (5000, 'late', 1.5, TRUE);"
+                        + "UPDATE t1 SET name = 'changed' WHERE id = 4321;"
+                        + "DELETE FROM t1 WHERE id = 20;");
+                expected = rdb.query("SELECT * FROM t1 ORDER BY score");
+            }
+            Files.copy(file, dir.resolve("old.log"));
+
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(expected, rdb.query("SELECT * FROM t1 ORDER BY score"));
+                assertEquals(List.of(Map.of("name", "changed")), rdb.query("SELECT name FROM t1 WHERE id = 4321"));
+                assertTrue(rdb.query("SELECT id FROM t1 WHERE id = 5").isEmpty());
+                assertThrows(IllegalArgumentException.class, () -> rdb.execute("INSERT INTO t1 VALUES (4999, 'dup', 0, TRUE);"));
+                rdb.checkpoint();
+                rdb.execute("INSERT INTO t1 VALUES (20, 'back', 2.5, FALSE);");
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(4991, rdb.select("t1").size());
+                assertEquals(List.of(Map.of("name", "back")), rdb.query("SELECT name FROM t1 WHERE id = 20"));
+            }
+
+            // A crash after the snapshot is replaced but before the log is reset leaves the older log behind
+            Files.copy(dir.resolve("old.log"), file, StandardCopyOption.REPLACE_EXISTING);
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(4990, rdb.select("t1").size());
+                assertEquals(List.of(Map.of("name", "changed")), rdb.query("SELECT name FROM t1 WHERE id = 4321"));
+            }
+
+            // The snapshot format does not depend on where the values were kept
+            List<Map<String, String>> rows;
+            try (RamaDatabase rdb = new RamaDatabase(file, SyncPolicy.EVERY_COMMIT, Storage.OFF_HEAP)) {
+                rows = rdb.query("SELECT * FROM t1 WHERE ok = FALSE AND score < 50");
+                rdb.execute("UPDATE t1 SET name = 'offheap' WHERE id = 4321;");
+                rdb.checkpoint();
+            }
+            try (RamaDatabase rdb = new RamaDatabase(file)) {
+                assertEquals(rows, rdb.query("SELECT * FROM t1 WHERE ok = FALSE AND score < 50"));
+                assertEquals(List.of(Map.of("name", "offheap")), rdb.query("SELECT name FROM t1 WHERE id = 4321"));
+            }
+        }
     }
 }